@@ -0,0 +1,211 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Common base for bounded stacks of primitive values backed by arrays.
+ * <p>
+ * This is a {@link ConcurrentStack Treiber stack} whose entries are not allocated, but preallocated slots of arrays
+ * identified by their index. Free slots are kept in a second Treiber stack. A push takes a slot from the free stack,
+ * writes the value into it and pushes it onto the stack. A pop takes the top slot, reads its value and gives the slot
+ * back to the free stack. Sub classes hold the values in a primitive array, so no value is boxed.
+ * </p>
+ * <p>
+ * Since slots are reused the top references would suffer from the ABA problem. So each top packs the slot index with
+ * a stamp which is incremented on each change.
+ * </p>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+abstract class AbstractPrimitiveArrayStack {
+
+    /**
+     * Marks the end of a chain of slots.
+     */
+    protected static final int NONE = -1;
+    /**
+     * Masks the index of a stamped top.
+     */
+    private static final long INDEX_MASK = 0xFFFFFFFFL;
+
+    /**
+     * Links each slot to the next slot of its chain.
+     * <p>
+     * Only written by the thread which owns the slot, before publishing it with a compare-and-set.
+     * </p>
+     */
+    private final int[] next;
+    /**
+     * Stamped top of the stack.
+     */
+    private final AtomicLong top = new AtomicLong(stamped(0, NONE));
+    /**
+     * Stamped top of the free slots.
+     */
+    private final AtomicLong free;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param capacity must be greater than 0
+     */
+    AbstractPrimitiveArrayStack(final int capacity) {
+        super();
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Parameter 'capacity' must be greater than 0!");
+        }
+
+        next = new int[capacity];
+
+        for (int i = 0; i < capacity; ++i) {
+            next[i] = i + 1 < capacity ? i + 1 : NONE;
+        }
+
+        free = new AtomicLong(stamped(0, 0));
+    }
+
+    /**
+     * The maximum number of values this stack holds.
+     *
+     * @return greater than 0
+     */
+    public final int capacity() {
+        return next.length;
+    }
+
+    /**
+     * Check if stack is empty.
+     *
+     * @return {@code true} if empty; else {@code false}
+     */
+    public final boolean isEmpty() {
+        return NONE == index(top.get());
+    }
+
+    /**
+     * Takes a free slot.
+     *
+     * @return {@link #NONE} if the stack is full
+     */
+    protected final int allocate() {
+        return pop(free);
+    }
+
+    /**
+     * Pushes a slot with written value on top of the stack.
+     *
+     * @param slot slot returned by {@link #allocate()}
+     */
+    protected final void pushSlot(final int slot) {
+        push(top, slot);
+    }
+
+    /**
+     * Pops the top slot of the stack.
+     * <p>
+     * The caller owns the returned slot until it is {@link #release(int) released}.
+     * </p>
+     *
+     * @return {@link #NONE} if the stack is empty
+     */
+    protected final int popSlot() {
+        return pop(top);
+    }
+
+    /**
+     * Gives a popped slot back.
+     *
+     * @param slot slot returned by {@link #popSlot()}
+     */
+    protected final void release(final int slot) {
+        push(free, slot);
+    }
+
+    /**
+     * Returns the stamped top of the stack.
+     * <p>
+     * Used to validate optimistic reads: A read of the top slot is valid if the stamped top did not change meanwhile.
+     * </p>
+     *
+     * @return stamped top
+     */
+    protected final long stampedTop() {
+        return top.get();
+    }
+
+    /**
+     * Extracts the slot index from a stamped top.
+     *
+     * @param stamped stamped top
+     * @return {@link #NONE} if empty
+     */
+    protected static int index(final long stamped) {
+        return (int) (stamped & INDEX_MASK);
+    }
+
+    /**
+     * Packs a stamp and a slot index.
+     *
+     * @param stamp change counter
+     * @param index slot index or {@link #NONE}
+     * @return stamped top
+     */
+    private static long stamped(final long stamp, final int index) {
+        return (stamp << Integer.SIZE) | (index & INDEX_MASK);
+    }
+
+    /**
+     * Pushes a slot onto a chain.
+     *
+     * @param chain stamped top of chain
+     * @param slot owned slot
+     */
+    private void push(final AtomicLong chain, final int slot) {
+        while (true) {
+            final long current = chain.get();
+            next[slot] = index(current);
+
+            if (chain.compareAndSet(current, stamped((current >>> Integer.SIZE) + 1, slot))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Pops a slot from a chain.
+     *
+     * @param chain stamped top of chain
+     * @return {@link #NONE} if chain is empty
+     */
+    private int pop(final AtomicLong chain) {
+        while (true) {
+            final long current = chain.get();
+            final int slot = index(current);
+
+            if (NONE == slot) {
+                return NONE;
+            }
+
+            // May be stale if another thread popped the slot meanwhile, but then the stamp changed too.
+            final int successor = next[slot];
+
+            if (chain.compareAndSet(current, stamped((current >>> Integer.SIZE) + 1, successor))) {
+                return slot;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Common base for bounded queues of primitive values backed by an array used as ring buffer.
+ * <p>
+ * This base manages the positions with the algorithm of {@link MpmcRingBufferQueue} for many producing and consuming
+ * threads. Sub classes hold the values in a primitive array, so neither the values are boxed nor an entry is
+ * allocated per value. A value is written and read in between claiming and publishing its position:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * final long position = claimOffer();
+ * if (position >= 0) {
+ *     values[index(position)] = value;
+ *     publishOffer(position);
+ * }
+ * }</pre>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+abstract class AbstractPrimitiveRingBuffer {
+
+    /**
+     * Returned if no position could be claimed.
+     */
+    protected static final long NONE = -1L;
+
+    /**
+     * Maps a position to its slot index.
+     */
+    private final int mask;
+    /**
+     * Sequence number per slot.
+     */
+    private final AtomicLongArray sequences;
+    /**
+     * Position of the next value to get.
+     */
+    private final Sequence head = new Sequence(0);
+    /**
+     * Position of the next value to add.
+     */
+    private final Sequence tail = new Sequence(0);
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param capacity must be greater than 0, rounded up to the next power of two
+     */
+    AbstractPrimitiveRingBuffer(final int capacity) {
+        super();
+        final int size = AbstractRingBufferQueue.roundToPowerOfTwo(capacity);
+        mask = size - 1;
+        sequences = new AtomicLongArray(size);
+
+        for (int i = 0; i < size; ++i) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * The maximum number of values this queue holds.
+     *
+     * @return power of two
+     */
+    public final int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Check if queue is empty.
+     *
+     * @return {@code true} if empty; else {@code false}
+     */
+    public final boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+
+    /**
+     * Maps a position to its slot index.
+     *
+     * @param position claimed position
+     * @return index into the value array
+     */
+    protected final int index(final long position) {
+        return (int) position & mask;
+    }
+
+    /**
+     * Claims a position to write a value.
+     *
+     * @return {@link #NONE} if the queue is full
+     */
+    protected final long claimOffer() {
+        while (true) {
+            final long currentTail = tail.get();
+            final long distance = sequences.get(index(currentTail)) - currentTail;
+
+            if (distance < 0) {
+                return NONE;
+            }
+
+            if (distance == 0 && tail.compareAndSet(currentTail, currentTail + 1)) {
+                return currentTail;
+            }
+        }
+    }
+
+    /**
+     * Publishes a written value to the consumers.
+     *
+     * @param position position returned by {@link #claimOffer()}
+     */
+    protected final void publishOffer(final long position) {
+        sequences.lazySet(index(position), position + 1);
+    }
+
+    /**
+     * Claims a position to read a value.
+     *
+     * @return {@link #NONE} if the queue is empty
+     */
+    protected final long claimGet() {
+        while (true) {
+            final long currentHead = head.get();
+            final long distance = sequences.get(index(currentHead)) - (currentHead + 1);
+
+            if (distance < 0) {
+                return NONE;
+            }
+
+            if (distance == 0 && head.compareAndSet(currentHead, currentHead + 1)) {
+                return currentHead;
+            }
+        }
+    }
+
+    /**
+     * Releases a read slot to the producers.
+     *
+     * @param position position returned by {@link #claimGet()}
+     */
+    protected final void releaseGet(final long position) {
+        sequences.lazySet(index(position), position + capacity());
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[capacity=" + capacity() + ", size=" + Math.max(0, tail.get() - head.get())
+            + ']';
+    }
+
+}
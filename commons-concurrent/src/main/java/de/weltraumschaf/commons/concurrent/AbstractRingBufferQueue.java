@@ -0,0 +1,258 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Common base for bounded queues backed by an array used as ring buffer.
+ * <p>
+ * The capacity is always a power of two so that a position maps to its slot by masking instead of the expensive
+ * modulo. The positions of head and tail only grow and are held in {@link Sequence padded sequences}, so producers
+ * and consumers do not invalidate each other's cache lines.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ *        HEAD                  TAIL
+ * [null, Elem_0, Elem_1, Elem_2, null, null, null, null]
+ * }</pre>
+ *
+ * @since 2.3.0
+ * @param <E> type of queue entries
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+abstract class AbstractRingBufferQueue<E> implements Queue<E> {
+
+    /**
+     * Greatest power of two an array may hold.
+     */
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    /**
+     * Holds the elements.
+     */
+    protected final AtomicReferenceArray<E> buffer;
+    /**
+     * Maps a position to its slot index.
+     */
+    protected final int mask;
+    /**
+     * Position of the next element to get.
+     */
+    protected final Sequence head = new Sequence(0);
+    /**
+     * Position of the next element to add.
+     */
+    protected final Sequence tail = new Sequence(0);
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param capacity must be greater than 0, rounded up to the next power of two
+     */
+    AbstractRingBufferQueue(final int capacity) {
+        super();
+        final int size = roundToPowerOfTwo(capacity);
+        buffer = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+    }
+
+    /**
+     * Rounds up to the next power of two.
+     *
+     * @param capacity must be greater than 0 and not greater than 2^30
+     * @return power of two
+     */
+    static int roundToPowerOfTwo(final int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Parameter 'capacity' must be greater than 0!");
+        }
+
+        if (capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException(
+                String.format("Parameter 'capacity' must not be greater than %d!", MAX_CAPACITY));
+        }
+
+        return 1 << (Integer.SIZE - Integer.numberOfLeadingZeros(capacity - 1));
+    }
+
+    /**
+     * Maps a position to its slot index.
+     *
+     * @param position head or tail position
+     * @return index into the buffer
+     */
+    protected final int index(final long position) {
+        return (int) position & mask;
+    }
+
+    /**
+     * The maximum number of elements this queue holds.
+     *
+     * @return power of two
+     */
+    public final int capacity() {
+        return mask + 1;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+
+    @Override
+    public int size() {
+        // Read head first: The tail never falls behind a head read earlier.
+        final long currentHead = head.get();
+        return (int) Math.min(tail.get() - currentHead, capacity());
+    }
+
+    @Override
+    public final void add(final E element) {
+        if (!offer(element)) {
+            throw new IllegalStateException(String.format("Queue is full (capacity %d)!", capacity()));
+        }
+    }
+
+    @Override
+    public abstract boolean offer(E element);
+
+    /**
+     * Throws an exception if the element is {@code null}.
+     * <p>
+     * Ring buffers use {@code null} to mark free slots.
+     * </p>
+     *
+     * @param element checked element
+     */
+    protected static void checkNotNull(final Object element) {
+        if (null == element) {
+            throw new NullPointerException("Parameter 'element' must not be null!");
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new SlotIterator();
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return Spliterators.spliteratorUnknownSize(
+            iterator(), Spliterator.ORDERED | Spliterator.CONCURRENT | Spliterator.NONNULL);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append(getClass().getSimpleName()).append('[');
+
+        final long end = tail.get();
+        boolean first = true;
+
+        for (long position = head.get(); position < end; ++position) {
+            final E element = this.buffer.get(index(position));
+
+            if (null == element) {
+                continue;
+            }
+
+            if (!first) {
+                buffer.append(", ");
+            }
+
+            buffer.append(element);
+            first = false;
+        }
+
+        return buffer.append(']').toString();
+    }
+
+    /**
+     * Iterates the slots from head to the tail seen at creation.
+     * <p>
+     * An element is only returned if the head has not passed its position after the slot was read. Until then no
+     * producer may reuse the slot, so the iterator never returns an element of a later round.
+     * </p>
+     */
+    private final class SlotIterator implements Iterator<E> {
+
+        /**
+         * Tail when the iterator was created.
+         */
+        private final long end = tail.get();
+        /**
+         * Position of the next slot to read.
+         */
+        private long position = head.get();
+        /**
+         * Next element to return, {@code null} if there are no more elements.
+         */
+        private E nextElement;
+
+        /**
+         * Dedicated constructor.
+         */
+        SlotIterator() {
+            super();
+            advance();
+        }
+
+        /**
+         * Reads slots until it finds an element which is still queued.
+         */
+        private void advance() {
+            nextElement = null;
+
+            while (true) {
+                // Skip the slots consumed meanwhile.
+                position = Math.max(position, head.get());
+
+                if (position >= end) {
+                    return;
+                }
+
+                final E element = buffer.get(index(position));
+                final boolean queued = head.get() <= position;
+                ++position;
+
+                if (null != element && queued) {
+                    nextElement = element;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return null != nextElement;
+        }
+
+        @Override
+        public E next() {
+            if (null == nextElement) {
+                throw new NoSuchElementException();
+            }
+
+            final E element = nextElement;
+            advance();
+            return element;
+        }
+
+    }
+
+}
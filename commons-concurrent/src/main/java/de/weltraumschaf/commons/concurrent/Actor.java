@@ -0,0 +1,40 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+/**
+ * Lightweight stateful component which processes messages one at a time.
+ * <p>
+ * The {@link ActorRuntime runtime} never calls an actor concurrently and makes the changes of one call visible to the
+ * next one, also if they run on different threads. So an actor keeps its state in plain fields w/o any synchronization,
+ * as long as nothing else accesses them.
+ * </p>
+ *
+ * @since 2.3.0
+ * @param <M> type of messages
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@FunctionalInterface
+public interface Actor<M> {
+
+    /**
+     * Processes a message.
+     * <p>
+     * Must not block for long, because it occupies a carrier thread. An exception stops the actor.
+     * </p>
+     *
+     * @param message never {@code null}
+     * @throws Exception if the message can't be processed
+     */
+    void receive(M message) throws Exception;
+
+}
@@ -0,0 +1,59 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Handle to send messages to a spawned {@link Actor}.
+ *
+ * @since 2.3.0
+ * @param <M> type of messages
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+public interface ActorRef<M> {
+
+    /**
+     * Puts the message into the mailbox of the actor and returns immediately.
+     * <p>
+     * Messages of one sending thread are processed in the order they were sent.
+     * </p>
+     *
+     * @param message must not be {@code null}
+     * @return {@code false} if the actor is stopped and the message is discarded
+     */
+    boolean tell(M message);
+
+    /**
+     * Stops the actor.
+     * <p>
+     * A message processed at the moment is finished, messages still in the mailbox are discarded.
+     * </p>
+     */
+    void stop();
+
+    /**
+     * Whether the actor is stopped, because of {@link #stop()}, a failure or a closed runtime.
+     *
+     * @return {@code true} if stopped
+     */
+    boolean isStopped();
+
+    /**
+     * The exception which stopped the actor.
+     *
+     * @return {@code null} if the actor did not fail
+     */
+    Throwable failure();
+
+}
@@ -0,0 +1,380 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Schedules {@link Actor actors} on a few threads.
+ * <p>
+ * Each actor has an unbounded {@link Concurrent#newMpscQueue() MPSC mailbox}: Any thread may send, but only the thread
+ * which runs the actor takes messages out. An actor with messages is scheduled once on the executor, no matter how
+ * many messages arrive meanwhile. It then processes a batch of up to {@code throughput} messages and yields the thread
+ * to other actors by scheduling itself again. So a busy actor can't starve the others, while batches amortize the
+ * scheduling. Idle actors cost only their mailbox and no thread, so a JVM runs hundreds of thousands of them.
+ * </p>
+ * <p>
+ * The actors run either on virtual threads, if the JVM supports them, or on a small pool of carrier threads. The
+ * carriers share one FIFO queue of scheduled actors, so a yielding actor goes to the back of the line. A work stealing
+ * pool would be the first choice for short tasks, but its threads prefer their own local tasks: An actor which
+ * schedules itself again would never let the carrier pick up actors scheduled by other threads.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * try (ActorRuntime runtime = new ActorRuntime()) {
+ *     final ActorRef<String> printer = runtime.spawn(System.out::println);
+ *     printer.tell("Hello, World!");
+ * }
+ * }</pre>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+public final class ActorRuntime implements AutoCloseable {
+
+    /**
+     * Default number of messages an actor processes before it yields.
+     */
+    public static final int DEFAULT_THROUGHPUT = 64;
+
+    /**
+     * Runs the actors.
+     */
+    private final ExecutorService executor;
+    /**
+     * Maximum number of messages an actor processes before it yields.
+     */
+    private final int throughput;
+    /**
+     * Whether actors run on virtual threads.
+     */
+    private final boolean virtual;
+    /**
+     * Set on close.
+     */
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    /**
+     * Creates a runtime on virtual threads if supported, else on one carrier thread per available processor.
+     */
+    public ActorRuntime() {
+        this(DEFAULT_THROUGHPUT);
+    }
+
+    /**
+     * Creates a runtime on virtual threads if supported, else on one carrier thread per available processor.
+     *
+     * @param throughput maximum number of messages an actor processes before it yields, greater than 0
+     */
+    public ActorRuntime(final int throughput) {
+        this(VirtualThreads.isSupported() ? VirtualThreads.newExecutor() : newCarriers(processors()), throughput,
+            VirtualThreads.isSupported());
+    }
+
+    /**
+     * Creates a runtime on carrier threads, also if virtual threads are supported.
+     *
+     * @param carriers number of carrier threads, greater than 0
+     * @param throughput maximum number of messages an actor processes before it yields, greater than 0
+     */
+    public ActorRuntime(final int carriers, final int throughput) {
+        this(newCarriers(carriers), throughput, false);
+    }
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param executor runs the actors
+     * @param throughput maximum number of messages an actor processes before it yields, greater than 0
+     * @param virtual whether actors run on virtual threads
+     */
+    private ActorRuntime(final ExecutorService executor, final int throughput, final boolean virtual) {
+        super();
+
+        if (throughput < 1) {
+            executor.shutdown();
+            throw new IllegalArgumentException("Parameter 'throughput' must be greater than 0!");
+        }
+
+        this.executor = executor;
+        this.throughput = throughput;
+        this.virtual = virtual;
+    }
+
+    /**
+     * Number of available processors.
+     *
+     * @return greater than 0
+     */
+    private static int processors() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Creates the carrier pool.
+     *
+     * @param carriers number of carrier threads, greater than 0
+     * @return never {@code null}
+     */
+    private static ExecutorService newCarriers(final int carriers) {
+        if (carriers < 1) {
+            throw new IllegalArgumentException("Parameter 'carriers' must be greater than 0!");
+        }
+
+        final AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(carriers, task -> {
+            final Thread carrier = new Thread(task, "actor-carrier-" + count.getAndIncrement());
+            carrier.setDaemon(true);
+            return carrier;
+        });
+    }
+
+    /**
+     * Creates a mailbox for the actor and returns its handle.
+     *
+     * @param <M> type of messages
+     * @param actor must not be {@code null}
+     * @return never {@code null}
+     * @throws IllegalStateException if the runtime is closed
+     */
+    public <M> ActorRef<M> spawn(final Actor<M> actor) {
+        if (null == actor) {
+            throw new NullPointerException("Parameter 'actor' must not be null!");
+        }
+
+        if (closed.get()) {
+            throw new IllegalStateException("Runtime is closed!");
+        }
+
+        return new Cell<>(actor);
+    }
+
+    /**
+     * Maximum number of messages an actor processes before it yields.
+     *
+     * @return greater than 0
+     */
+    public int throughput() {
+        return throughput;
+    }
+
+    /**
+     * Whether actors run on virtual threads.
+     *
+     * @return {@code false} if they run on carrier threads
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Whether the runtime is closed.
+     *
+     * @return {@code true} if closed
+     */
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Stops scheduling actors and waits until the running batches are finished.
+     * <p>
+     * Actors scheduled before are still run. Actors which get messages afterwards are stopped.
+     * </p>
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        executor.shutdown();
+        boolean interrupted = false;
+
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                    break;
+                }
+            } catch (final InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[throughput=" + throughput + ", virtual=" + virtual
+            + ", closed=" + closed.get() + ']';
+    }
+
+    /**
+     * Mailbox and scheduling state of an actor.
+     *
+     * @param <M> type of messages
+     */
+    @ThreadSafe
+    private final class Cell<M> implements ActorRef<M>, Runnable {
+
+        /**
+         * The actor, only called by the thread which runs the cell.
+         */
+        private final Actor<M> actor;
+        /**
+         * Messages sent by any thread.
+         */
+        private final Queue<M> mailbox = Concurrent.newMpscQueue();
+        /**
+         * Whether the cell is scheduled or running.
+         * <p>
+         * Setting it back after a batch makes the changes of the actor visible to the thread which schedules it next.
+         * </p>
+         */
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        /**
+         * Set on stop.
+         */
+        private volatile boolean stopped;
+        /**
+         * The exception which stopped the actor.
+         */
+        private volatile Throwable failure;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param actor the actor
+         */
+        Cell(final Actor<M> actor) {
+            super();
+            this.actor = actor;
+        }
+
+        @Override
+        public boolean tell(final M message) {
+            if (null == message) {
+                throw new NullPointerException("Parameter 'message' must not be null!");
+            }
+
+            if (stopped) {
+                return false;
+            }
+
+            mailbox.add(message);
+            schedule();
+            // Scheduling stops the actor if the runtime is closed.
+            return !stopped;
+        }
+
+        @Override
+        public void stop() {
+            stopped = true;
+            // Let the scheduled run discard the mailbox.
+            schedule();
+        }
+
+        @Override
+        public boolean isStopped() {
+            return stopped;
+        }
+
+        @Override
+        public Throwable failure() {
+            return failure;
+        }
+
+        /**
+         * Schedules the cell unless it is already.
+         */
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                executor.execute(this);
+            } catch (final RejectedExecutionException ex) {
+                stopped = true;
+                clearMailbox();
+                scheduled.set(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                processBatch();
+            } finally {
+                scheduled.set(false);
+            }
+
+            // A message may have arrived after the last poll, but before scheduled was reset.
+            if (!mailbox.isEmpty()) {
+                schedule();
+            }
+        }
+
+        /**
+         * Processes up to {@link #throughput} messages.
+         */
+        private void processBatch() {
+            for (int processed = 0; processed < throughput; ++processed) {
+                if (stopped) {
+                    clearMailbox();
+                    return;
+                }
+
+                final M message = mailbox.get();
+
+                if (null == message) {
+                    return;
+                }
+
+                try {
+                    actor.receive(message);
+                } catch (final Exception | Error ex) {
+                    failure = ex;
+                    stopped = true;
+                    clearMailbox();
+
+                    if (ex instanceof Error) {
+                        throw (Error) ex;
+                    }
+
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Discards all messages.
+         */
+        private void clearMailbox() {
+            while (null != mailbox.get()) {
+                // Discard.
+            }
+        }
+
+    }
+}
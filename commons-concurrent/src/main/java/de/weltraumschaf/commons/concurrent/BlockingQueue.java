@@ -0,0 +1,49 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Queue which lets consumers wait for elements instead of returning {@code null} if it is empty.
+ * <p>
+ * How the consumers wait is decided by a {@link WaitStrategy}. Implementations may be obtained by
+ * {@link Concurrent#newBlockingQueue(Queue, WaitStrategy) the factory}.
+ * </p>
+ *
+ * @since 2.3.0
+ * @param <E> type of queue entries
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+public interface BlockingQueue<E> extends Queue<E> {
+
+    /**
+     * Get element from head of queue and wait until one is available if the queue is empty.
+     *
+     * @return never {@code null}
+     * @throws InterruptedException if interrupted while waiting
+     */
+    E take() throws InterruptedException;
+
+    /**
+     * Get element from head of queue and wait up to the timeout until one is available if the queue is empty.
+     *
+     * @param timeout how long to wait at most
+     * @param unit must not be {@code null}
+     * @return {@code null} if timed out
+     * @throws InterruptedException if interrupted while waiting
+     */
+    E poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+}
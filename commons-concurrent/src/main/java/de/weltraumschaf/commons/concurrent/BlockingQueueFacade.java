@@ -0,0 +1,144 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Adds blocking operations to any {@link Queue}.
+ * <p>
+ * All operations are delegated to the wrapped queue. Consumers which want to wait for elements poll the wrapped queue
+ * by means of the {@link WaitStrategy}. Producers signal the strategy after they added elements.
+ * </p>
+ * <p>
+ * All producers must add elements through this facade, otherwise consumers blocked by a signalled strategy will not
+ * wake up.
+ * </p>
+ *
+ * @since 2.3.0
+ * @param <E> type of queue entries
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+final class BlockingQueueFacade<E> implements BlockingQueue<E> {
+
+    /**
+     * Holds the elements.
+     */
+    private final Queue<E> delegate;
+    /**
+     * Decides how to wait for elements.
+     */
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param delegate must not be {@code null}
+     * @param waitStrategy must not be {@code null}
+     */
+    BlockingQueueFacade(final Queue<E> delegate, final WaitStrategy waitStrategy) {
+        super();
+
+        if (null == delegate) {
+            throw new NullPointerException("Parameter 'delegate' must not be null!");
+        }
+
+        if (null == waitStrategy) {
+            throw new NullPointerException("Parameter 'waitStrategy' must not be null!");
+        }
+
+        this.delegate = delegate;
+        this.waitStrategy = waitStrategy;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        return waitStrategy.waitFor(delegate::get, Long.MAX_VALUE);
+    }
+
+    @Override
+    public E poll(final long timeout, final TimeUnit unit) throws InterruptedException {
+        if (null == unit) {
+            throw new NullPointerException("Parameter 'unit' must not be null!");
+        }
+
+        return waitStrategy.waitFor(delegate::get, unit.toNanos(timeout));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegate.isEmpty();
+    }
+
+    @Override
+    public void add(final E element) {
+        delegate.add(element);
+        waitStrategy.signalAll();
+    }
+
+    @Override
+    public boolean offer(final E element) {
+        if (delegate.offer(element)) {
+            waitStrategy.signalAll();
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public void addAll(final Collection<? extends E> elements) {
+        try {
+            delegate.addAll(elements);
+        } finally {
+            // Bounded queues may have accepted some of the elements before they failed.
+            waitStrategy.signalAll();
+        }
+    }
+
+    @Override
+    public E get() {
+        return delegate.get();
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return delegate.iterator();
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return delegate.spliterator();
+    }
+
+    @Override
+    public int drainTo(final Consumer<? super E> consumer, final int max) {
+        return delegate.drainTo(consumer, max);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '[' + delegate + ']';
+    }
+
+}
@@ -0,0 +1,201 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Work stealing deque implemented with the algorithm from David Chase and Yossi Lev.
+ * <p>
+ * The elements live in a circular array which grows if the owner pushes into a full one. The owner changes
+ * {@code bottom} w/o compare-and-set and thieves claim elements with a compare-and-set on {@code top}. Only if the
+ * owner pops the last element it competes with the thieves by a compare-and-set on {@code top} too.
+ * </p>
+ * <p>
+ * The owner clears the slots it pops. Stolen slots are left as they are until the owner overwrites them, because a
+ * thief can not tell whether the owner reused the slot meanwhile.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ *         TOP                     BOTTOM
+ * [null, Elem_0, Elem_1, Elem_2, null, null, null, null]
+ *   steal() -^               push()/pop() -^
+ * }</pre>
+ *
+ * @since 2.3.0
+ * @param <E> type of deque entries
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+final class ChaseLevDeque<E> implements WorkStealingDeque<E> {
+
+    /**
+     * Default initial capacity.
+     */
+    static final int DEFAULT_CAPACITY = 32;
+
+    /**
+     * Updates {@link #top}.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<ChaseLevDeque> TOP
+        = AtomicLongFieldUpdater.newUpdater(ChaseLevDeque.class, "top");
+
+    /**
+     * Position of the next element to steal.
+     */
+    private volatile long top;
+    /**
+     * Position of the next element to push.
+     */
+    private volatile long bottom;
+    /**
+     * Holds the elements, replaced by a greater one if full.
+     */
+    private volatile AtomicReferenceArray<E> array;
+
+    /**
+     * Creates a deque with default initial capacity.
+     */
+    ChaseLevDeque() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param capacity initial capacity, must be greater than 0, rounded up to the next power of two
+     */
+    ChaseLevDeque(final int capacity) {
+        super();
+        array = new AtomicReferenceArray<>(AbstractRingBufferQueue.roundToPowerOfTwo(capacity));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return bottom <= top;
+    }
+
+    @Override
+    public void push(final E element) {
+        if (null == element) {
+            throw new NullPointerException("Parameter 'element' must not be null!");
+        }
+
+        final long currentBottom = bottom;
+        final long currentTop = top;
+        AtomicReferenceArray<E> currentArray = array;
+
+        if (currentBottom - currentTop >= currentArray.length()) {
+            currentArray = grow(currentArray, currentTop, currentBottom);
+        }
+
+        currentArray.lazySet(index(currentArray, currentBottom), element);
+        bottom = currentBottom + 1;
+    }
+
+    @Override
+    public E pop() {
+        final long newBottom = bottom - 1;
+        final AtomicReferenceArray<E> currentArray = array;
+        // The volatile write must be visible to thieves before we read top.
+        bottom = newBottom;
+        final long currentTop = top;
+
+        if (currentTop > newBottom) {
+            // Was empty.
+            bottom = newBottom + 1;
+            return null;
+        }
+
+        final int index = index(currentArray, newBottom);
+        final E element = currentArray.get(index);
+
+        if (currentTop < newBottom) {
+            // More than one element left, so no thief can reach this one.
+            currentArray.lazySet(index, null);
+            return element;
+        }
+
+        // Last element: Race against the thieves.
+        final boolean won = TOP.compareAndSet(this, currentTop, currentTop + 1);
+        bottom = currentTop + 1;
+
+        if (won) {
+            currentArray.lazySet(index, null);
+            return element;
+        }
+
+        return null;
+    }
+
+    @Override
+    public E steal() {
+        final long currentTop = top;
+        final long currentBottom = bottom;
+
+        if (currentTop >= currentBottom) {
+            return null;
+        }
+
+        final AtomicReferenceArray<E> currentArray = array;
+        final E element = currentArray.get(index(currentArray, currentTop));
+
+        if (TOP.compareAndSet(this, currentTop, currentTop + 1)) {
+            return element;
+        }
+
+        return null;
+    }
+
+    /**
+     * Replaces the array by one with twice the length.
+     *
+     * @param old current array
+     * @param from position of top
+     * @param to position of bottom
+     * @return new array
+     */
+    private AtomicReferenceArray<E> grow(final AtomicReferenceArray<E> old, final long from, final long to) {
+        final AtomicReferenceArray<E> grown = new AtomicReferenceArray<>(old.length() << 1);
+
+        for (long position = from; position < to; ++position) {
+            grown.lazySet(index(grown, position), old.get(index(old, position)));
+        }
+
+        array = grown;
+        return grown;
+    }
+
+    /**
+     * Maps a position to its slot index.
+     *
+     * @param <T> type of array elements
+     * @param target array with power of two length
+     * @param position top or bottom position
+     * @return index into the array
+     */
+    private static <T> int index(final AtomicReferenceArray<T> target, final long position) {
+        return (int) position & (target.length() - 1);
+    }
+
+    @Override
+    public String toString() {
+        final long currentTop = top;
+        final long currentBottom = bottom;
+        return getClass().getSimpleName() + "[size=" + Math.max(0, currentBottom - currentTop) + ']';
+    }
+
+}
@@ -0,0 +1,325 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Limits the number of concurrent calls to a downstream and adapts the limit to its measured latency.
+ * <p>
+ * A fixed limit is either too low and wastes throughput, or too high and lets requests queue up in the downstream
+ * until they time out. This limiter measures the round trip time of each call and lets a {@link LimitAlgorithm}
+ * adjust the limit: Growing latency or dropped calls decrease it, otherwise it increases.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * final ConcurrencyLimiter limiter = new ConcurrencyLimiter(LimitAlgorithms.gradient(20, 1, 200));
+ * final ConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+ *
+ * if (null == permit) {
+ *     // Reject w/o calling the overloaded downstream.
+ * }
+ *
+ * try {
+ *     callDownstream();
+ *     permit.release();
+ * } catch (final TimeoutException ex) {
+ *     permit.drop();
+ * } catch (final RuntimeException ex) {
+ *     permit.ignore();
+ * }
+ * }</pre>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+public final class ConcurrencyLimiter {
+
+    /**
+     * Computes the limit, guarded by {@link #lock}.
+     */
+    private final LimitAlgorithm algorithm;
+    /**
+     * Guards the algorithm, because it may keep state.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Source of {@link System#nanoTime()}.
+     */
+    private final LongSupplier clock;
+    /**
+     * Number of acquired and not yet released permits.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+    /**
+     * Notified on changed limit.
+     */
+    private final List<LimitListener> listeners = new CopyOnWriteArrayList<>();
+    /**
+     * Wakes up threads waiting for a permit.
+     */
+    private final WaitStrategy waitStrategy = WaitStrategies.blocking();
+    /**
+     * Current limit, only written under {@link #lock}.
+     */
+    private volatile int limit;
+
+    /**
+     * Creates a limiter which measures with {@link System#nanoTime()}.
+     *
+     * @param algorithm must not be {@code null}
+     */
+    public ConcurrencyLimiter(final LimitAlgorithm algorithm) {
+        this(algorithm, System::nanoTime);
+    }
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param algorithm must not be {@code null}
+     * @param clock must not be {@code null}
+     */
+    ConcurrencyLimiter(final LimitAlgorithm algorithm, final LongSupplier clock) {
+        super();
+
+        if (null == algorithm) {
+            throw new NullPointerException("Parameter 'algorithm' must not be null!");
+        }
+
+        if (null == clock) {
+            throw new NullPointerException("Parameter 'clock' must not be null!");
+        }
+
+        this.algorithm = algorithm;
+        this.clock = clock;
+        limit = algorithm.initialLimit();
+    }
+
+    /**
+     * Acquires a permit if less than the limit are in flight.
+     *
+     * @return {@code null} if the limit is reached
+     */
+    public Permit tryAcquire() {
+        while (true) {
+            final int current = inFlight.get();
+
+            if (current >= limit) {
+                return null;
+            }
+
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(clock.getAsLong(), current + 1);
+            }
+        }
+    }
+
+    /**
+     * Waits until a permit is released if the limit is reached.
+     *
+     * @return never {@code null}
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public Permit acquire() throws InterruptedException {
+        return waitStrategy.waitFor(this::tryAcquire, Long.MAX_VALUE);
+    }
+
+    /**
+     * Waits until a permit is released if the limit is reached, but at most the given time.
+     *
+     * @param timeout how long to wait at most
+     * @param unit must not be {@code null}
+     * @return {@code null} if timed out
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public Permit acquire(final long timeout, final TimeUnit unit) throws InterruptedException {
+        if (null == unit) {
+            throw new NullPointerException("Parameter 'unit' must not be null!");
+        }
+
+        return waitStrategy.waitFor(this::tryAcquire, unit.toNanos(timeout));
+    }
+
+    /**
+     * Current limit.
+     *
+     * @return greater than 0
+     */
+    public int limit() {
+        return limit;
+    }
+
+    /**
+     * Number of acquired and not yet released permits.
+     * <p>
+     * May exceed the limit shortly after it was decreased.
+     * </p>
+     *
+     * @return not negative
+     */
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Adds a listener which is notified on each change of the limit.
+     *
+     * @param listener must not be {@code null}
+     */
+    public void addListener(final LimitListener listener) {
+        if (null == listener) {
+            throw new NullPointerException("Parameter 'listener' must not be null!");
+        }
+
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param listener may be {@code null}
+     */
+    public void removeListener(final LimitListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Releases a permit and updates the limit with its sample.
+     *
+     * @param permit released permit
+     * @param dropped whether the downstream was overloaded
+     */
+    private void release(final Permit permit, final boolean dropped) {
+        final int oldLimit;
+        final int newLimit;
+        lock.lock();
+
+        try {
+            oldLimit = limit;
+            newLimit = algorithm.update(oldLimit, clock.getAsLong() - permit.start, permit.inFlight, dropped);
+
+            if (newLimit < 1) {
+                throw new IllegalStateException(String.format(
+                    "Algorithm computed limit %d, but it must be greater than 0!", newLimit));
+            }
+
+            limit = newLimit;
+        } finally {
+            lock.unlock();
+            release();
+        }
+
+        if (oldLimit != newLimit) {
+            for (final LimitListener listener : listeners) {
+                listener.limitChanged(oldLimit, newLimit);
+            }
+        }
+    }
+
+    /**
+     * Releases a permit w/o updating the limit.
+     */
+    private void release() {
+        inFlight.decrementAndGet();
+        waitStrategy.signalAll();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[limit=" + limit + ", inFlight=" + inFlight.get() + ']';
+    }
+
+    /**
+     * Allows one call to the downstream.
+     * <p>
+     * Each permit must be released exactly once by one of its methods, otherwise the limiter loses capacity.
+     * </p>
+     */
+    @ThreadSafe
+    public final class Permit {
+
+        /**
+         * When the permit was acquired.
+         */
+        private final long start;
+        /**
+         * Number of permits in flight when this was acquired, including it.
+         */
+        private final int inFlight;
+        /**
+         * Guards against releasing twice.
+         */
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param start when the permit was acquired
+         * @param inFlight number of permits in flight
+         */
+        private Permit(final long start, final int inFlight) {
+            super();
+            this.start = start;
+            this.inFlight = inFlight;
+        }
+
+        /**
+         * Releases the permit after a successful call.
+         */
+        public void release() {
+            markReleased();
+            ConcurrencyLimiter.this.release(this, false);
+        }
+
+        /**
+         * Releases the permit after the downstream rejected the call or timed out.
+         * <p>
+         * This decreases the limit.
+         * </p>
+         */
+        public void drop() {
+            markReleased();
+            ConcurrencyLimiter.this.release(this, true);
+        }
+
+        /**
+         * Releases the permit w/o updating the limit.
+         * <p>
+         * Use it if the call failed for reasons unrelated to load, because its round trip time says nothing about the
+         * downstream.
+         * </p>
+         */
+        public void ignore() {
+            markReleased();
+            ConcurrencyLimiter.this.release();
+        }
+
+        /**
+         * Throws an exception if already released.
+         */
+        private void markReleased() {
+            if (!released.compareAndSet(false, true)) {
+                throw new IllegalStateException("Permit is already released!");
+            }
+        }
+
+    }
+}
@@ -40,6 +40,34 @@ public final class Concurrent {
         return new ConcurrentStack<>();
     }
 
+    /**
+     * Create a stack which counts its operations and contention.
+     * <p>
+     * Same algorithm as {@link #newStack()}. The counters are striped and only cost on stacks created by this method.
+     * </p>
+     *
+     * @param <E> type of stack entries
+     * @return new instance
+     * @since 2.3.0
+     */
+    public static <E> InstrumentedStack<E> newInstrumentedStack() {
+        return new ConcurrentStack<>(true);
+    }
+
+    /**
+     * Create a stack which eliminates concurrent push and pop operations.
+     * <p>
+     * Prefer this over {@link #newStack()} if many threads push and pop concurrently.
+     * </p>
+     *
+     * @param <E> type of stack entries
+     * @return new instance
+     * @since 2.3.0
+     */
+    public static <E> Stack<E> newEliminationStack() {
+        return new EliminationBackoffStack<>();
+    }
+
     /**
      * Create a queue.
      *
@@ -50,4 +78,140 @@ public final class Concurrent {
         return new ConcurrentQueue<>();
     }
 
+    /**
+     * Create a queue which counts its operations and contention.
+     * <p>
+     * Same algorithm as {@link #newQueue()}. The counters are striped and only cost on queues created by this method.
+     * </p>
+     *
+     * @param <E> type of queue entries
+     * @return new instance
+     * @since 2.3.0
+     */
+    public static <E> InstrumentedQueue<E> newInstrumentedQueue() {
+        return new ConcurrentQueue<>(true);
+    }
+
+    /**
+     * Create a bounded queue for exactly one producing and one consuming thread.
+     *
+     * @param <E> type of queue entries
+     * @param capacity must be greater than 0, rounded up to the next power of two
+     * @return new instance
+     * @since 2.3.0
+     */
+    public static <E> Queue<E> newSpscQueue(final int capacity) {
+        return new SpscRingBufferQueue<>(capacity);
+    }
+
+    /**
+     * Create a bounded queue for many producing threads and exactly one consuming thread.
+     *
+     * @param <E> type of queue entries
+     * @param capacity must be greater than 0, rounded up to the next power of two
+     * @return new instance
+     * @since 2.3.0
+     */
+    public static <E> Queue<E> newMpscQueue(final int capacity) {
+        return new MpscRingBufferQueue<>(capacity);
+    }
+
+    /**
+     * Create an unbounded queue for many producing threads and exactly one consuming thread.
+     * <p>
+     * An empty queue allocates only a single entry, so prefer this over {@link #newMpscQueue(int)} for many queues which
+     * are mostly empty.
+     * </p>
+     *
+     * @param <E> type of queue entries
+     * @return new instance
+     * @since 2.3.0
+     */
+    public static <E> Queue<E> newMpscQueue() {
+        return new MpscLinkedQueue<>();
+    }
+
+    /**
+     * Create a bounded queue for many producing and many consuming threads.
+     *
+     * @param <E> type of queue entries
+     * @param capacity must be greater than 0, rounded up to the next power of two
+     * @return new instance
+     * @since 2.3.0
+     */
+    public static <E> Queue<E> newMpmcQueue(final int capacity) {
+        return new MpmcRingBufferQueue<>(capacity);
+    }
+
+    /**
+     * Create a queue which lets consumers wait for elements.
+     * <p>
+     * All producers must add elements through the returned queue, not through the wrapped one.
+     * </p>
+     *
+     * @param <E> type of queue entries
+     * @param queue wrapped queue which holds the elements, must not be {@code null}
+     * @param waitStrategy decides how consumers wait, must not be {@code null}
+     * @return new instance
+     * @since 2.3.0
+     */
+    public static <E> BlockingQueue<E> newBlockingQueue(final Queue<E> queue, final WaitStrategy waitStrategy) {
+        return new BlockingQueueFacade<>(queue, waitStrategy);
+    }
+
+    /**
+     * Create a bounded queue of primitive {@code long} values which does not box them.
+     *
+     * @param capacity must be greater than 0, rounded up to the next power of two
+     * @return new instance
+     * @since 2.3.0
+     */
+    public static LongQueue newLongQueue(final int capacity) {
+        return new LongRingBufferQueue(capacity);
+    }
+
+    /**
+     * Create a bounded queue of primitive {@code int} values which does not box them.
+     *
+     * @param capacity must be greater than 0, rounded up to the next power of two
+     * @return new instance
+     * @since 2.3.0
+     */
+    public static IntQueue newIntQueue(final int capacity) {
+        return new IntRingBufferQueue(capacity);
+    }
+
+    /**
+     * Create a bounded stack of primitive {@code long} values which does not box them.
+     *
+     * @param capacity must be greater than 0
+     * @return new instance
+     * @since 2.3.0
+     */
+    public static LongStack newLongStack(final int capacity) {
+        return new LongArrayStack(capacity);
+    }
+
+    /**
+     * Create a bounded stack of primitive {@code int} values which does not box them.
+     *
+     * @param capacity must be greater than 0
+     * @return new instance
+     * @since 2.3.0
+     */
+    public static IntStack newIntStack(final int capacity) {
+        return new IntArrayStack(capacity);
+    }
+
+    /**
+     * Create a deque for one owning and many stealing threads.
+     *
+     * @param <E> type of deque entries
+     * @return new instance
+     * @since 2.3.0
+     */
+    public static <E> WorkStealingDeque<E> newWorkStealingDeque() {
+        return new ChaseLevDeque<>();
+    }
+
 }
@@ -12,19 +12,37 @@
 package de.weltraumschaf.commons.concurrent;
 
 import de.weltraumschaf.commons.guava.Objects;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.function.Consumer;
 import net.jcip.annotations.ThreadSafe;
 
 /**
- * Queue implemented with compare-and-set algorithm from Brian Goetz.
+ * Queue implemented with the non-blocking algorithm from Maged M. Michael and Michael L. Scott.
  * <p>
- * Implemented with a linked list.
+ * Implemented with a linked list which always starts with a sentinel entry. The head references the sentinel and the
+ * first element of the queue is the successor of the sentinel. The tail references the last entry or an entry close to
+ * it: An enqueuing thread first links its entry to the last entry with a compare-and-set on {@code next} and then
+ * tries to swing the tail. If another thread finds a tail which lags behind it helps by advancing the tail before it
+ * retries its own operation. So there is no state where a thread has to wait for another one.
+ * </p>
+ * <p>
+ * Each entry knows its position in the queue, counted since the creation of the queue. So the size is the distance of
+ * the last entry to the sentinel and known in constant time w/o an additional counter which all threads would update.
+ * </p>
+ * <p>
+ * A dequeued sentinel links to itself so that it does not retain the remaining entries if it is promoted to old
+ * generation by the garbage collector.
  * </p>
  *
  * <pre>
  * {@code
- * HEAD    Node_0        Node_1        Node_2        Node_3     TAIL
- * null    next->        next->        next->        next->     null
+ * HEAD                                            TAIL
+ * Sentinel      Node_0        Node_1        Node_2
+ * next->        next->        next->        null
  * }</pre>
  *
  * @since 1.0.0
@@ -34,85 +52,367 @@ import net.jcip.annotations.ThreadSafe;
  */
 @Deprecated
 @ThreadSafe
-final class ConcurrentQueue<E> implements Queue<E> {
+final class ConcurrentQueue<E> implements InstrumentedQueue<E> {
 
     /**
-     * References the head of the linked list.
+     * References the sentinel of the linked list.
      */
-    private final AtomicReference<Entry<E>> head = new AtomicReference<>();
+    private final AtomicReference<Entry<E>> head;
+    /**
+     * References the last entry or an entry close to the last one.
+     */
+    private final AtomicReference<Entry<E>> tail;
+    /**
+     * Records operations, {@code null} if not instrumented.
+     */
+    private final Instrumentation instrumentation;
+
+    /**
+     * Creates a queue which is not instrumented.
+     */
+    ConcurrentQueue() {
+        this(false);
+    }
+
     /**
-     * References the tail of the linked list.
+     * Dedicated constructor.
+     *
+     * @param instrumented whether to record operations and contention
      */
-    private final AtomicReference<Entry<E>> tail = new AtomicReference<>();
+    ConcurrentQueue(final boolean instrumented) {
+        super();
+        instrumentation = instrumented ? new Instrumentation() : null;
+        final Entry<E> sentinel = new Entry<>(null);
+        head = new AtomicReference<>(sentinel);
+        tail = new AtomicReference<>(sentinel);
+    }
 
     @Override
     public boolean isEmpty() {
-        return null == head.get() && null == tail.get();
+        return null == first();
+    }
+
+    @Override
+    public int size() {
+        while (true) {
+            final Entry<E> currentHead = head.get();
+            Entry<E> last = tail.get();
+            Entry<E> next = last.next;
+
+            // Tail may lag behind the last entry.
+            while (null != next && next != last) {
+                last = next;
+                next = last.next;
+            }
+
+            if (currentHead == head.get()) {
+                final long size = last.position - currentHead.position;
+                return (int) Math.max(0, Math.min(size, Integer.MAX_VALUE));
+            }
+        }
     }
 
     @Override
     public void add(final E element) {
         final Entry<E> node = new Entry<>(element);
+        int casFailures = 0;
 
         while (true) {
-            if (null == head.get()) {
-                // First element.
-                if (head.compareAndSet(null, node)) {
-                    break;
-                }
-            } else {
-                final Entry<E> currentTail = tail.get();
+            final Entry<E> currentTail = tail.get();
+            final Entry<E> next = currentTail.next;
 
-                if (null == currentTail) {
-                    final Entry<E> currentHead = head.get();
-                    currentHead.next = node;
+            if (currentTail != tail.get()) {
+                continue;
+            }
 
-                    if (tail.compareAndSet(null, node) && head.compareAndSet(currentHead, currentHead)) {
-                        break;
-                    }
-                } else {
-                    currentTail.next = node;
+            if (null == next) {
+                node.position = currentTail.position + 1;
 
-                    if (tail.compareAndSet(currentTail, node)) {
-                        break;
-                    }
+                if (currentTail.casNext(null, node)) {
+                    // Fails if an other thread already helped us.
+                    tail.compareAndSet(currentTail, node);
+                    recordAdd(1, casFailures);
+                    return;
                 }
 
+                ++casFailures;
+            } else {
+                // Tail is lagging behind: Help the other thread and retry.
+                tail.compareAndSet(currentTail, next);
             }
         }
     }
 
     @Override
     public E get() {
+        int casFailures = 0;
+
         while (true) {
             final Entry<E> currentHead = head.get();
+            final Entry<E> currentTail = tail.get();
+            final Entry<E> next = currentHead.next;
+
+            if (currentHead != head.get()) {
+                continue;
+            }
 
-            if (null == currentHead) {
+            if (null == next) {
+                recordRemove(0, casFailures);
                 return null;
             }
 
-            if (null == currentHead.next) {
-                if (head.compareAndSet(currentHead, currentHead.next) && tail.compareAndSet(tail.get(), null)) {
-                    return currentHead.value;
+            if (currentHead == currentTail) {
+                // Tail is lagging behind: Help the other thread and retry.
+                tail.compareAndSet(currentTail, next);
+                continue;
+            }
+
+            // Must be read before the CAS, because the winner clears it.
+            final E value = next.value;
+
+            if (head.compareAndSet(currentHead, next)) {
+                next.value = null;
+                currentHead.lazySetNext(currentHead);
+                recordRemove(1, casFailures);
+                return value;
+            }
+
+            ++casFailures;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Links the elements to a chain first and appends the whole chain with a single compare-and-set.
+     * </p>
+     */
+    @Override
+    public void addAll(final Collection<? extends E> elements) {
+        if (null == elements) {
+            throw new NullPointerException("Parameter 'elements' must not be null!");
+        }
+
+        Entry<E> first = null;
+        Entry<E> last = null;
+        int count = 0;
+
+        for (final E element : elements) {
+            final Entry<E> node = new Entry<>(element);
+            ++count;
+
+            if (null == first) {
+                first = node;
+            } else {
+                // The chain is not published yet, so no compare-and-set necessary.
+                last.lazySetNext(node);
+            }
+
+            last = node;
+        }
+
+        if (null == first) {
+            return;
+        }
+
+        int casFailures = 0;
+
+        while (true) {
+            final Entry<E> currentTail = tail.get();
+            final Entry<E> next = currentTail.next;
+
+            if (currentTail != tail.get()) {
+                continue;
+            }
+
+            if (null == next) {
+                // The chain is not published yet, so we may renumber it.
+                long position = currentTail.position;
+
+                for (Entry<E> entry = first; entry != last; entry = entry.next) {
+                    entry.position = ++position;
+                }
+
+                last.position = position + 1;
+
+                if (currentTail.casNext(null, first)) {
+                    // Other threads advance the tail entry by entry if this fails.
+                    tail.compareAndSet(currentTail, last);
+                    recordAdd(count, casFailures);
+                    return;
                 }
+
+                ++casFailures;
             } else {
-                if (head.compareAndSet(currentHead, currentHead.next)) {
-                    return currentHead.value;
+                tail.compareAndSet(currentTail, next);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Unlinks the whole chain of up to {@code max} entries with a single compare-and-set on the head.
+     * </p>
+     */
+    @Override
+    public int drainTo(final Consumer<? super E> consumer, final int max) {
+        if (null == consumer) {
+            throw new NullPointerException("Parameter 'consumer' must not be null!");
+        }
+
+        if (max < 0) {
+            throw new IllegalArgumentException("Parameter 'max' must not be negative!");
+        }
+
+        int casFailures = 0;
+
+        while (max > 0) {
+            final Entry<E> currentHead = head.get();
+            Entry<E> last = currentHead;
+            int count = 0;
+
+            while (count < max) {
+                final Entry<E> next = last.next;
+
+                if (null == next || next == last) {
+                    break;
+                }
+
+                last = next;
+                ++count;
+            }
+
+            if (currentHead != head.get()) {
+                continue;
+            }
+
+            if (0 == count) {
+                recordRemove(0, casFailures);
+                return 0;
+            }
+
+            advanceTailBehind(currentHead, last);
+
+            if (head.compareAndSet(currentHead, last)) {
+                recordRemove(count, casFailures);
+                Entry<E> element = currentHead.next;
+
+                for (int i = 0; i < count; ++i) {
+                    consumer.accept(element.value);
+                    element.value = null;
+                    element = element.next;
+                }
+
+                currentHead.lazySetNext(currentHead);
+                return count;
+            }
+
+            ++casFailures;
+        }
+
+        return 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if this queue is not instrumented
+     */
+    @Override
+    public ContentionSnapshot snapshot() {
+        if (null == instrumentation) {
+            throw new IllegalStateException("Queue is not instrumented!");
+        }
+
+        return instrumentation.snapshot();
+    }
+
+    /**
+     * Records an add operation if instrumented.
+     *
+     * @param elements number of added elements
+     * @param casFailures number of failed compare-and-set
+     */
+    private void recordAdd(final int elements, final int casFailures) {
+        if (null != instrumentation) {
+            instrumentation.recordAdd(elements, casFailures);
+        }
+    }
+
+    /**
+     * Records a remove operation if instrumented.
+     *
+     * @param elements number of removed elements
+     * @param casFailures number of failed compare-and-set
+     */
+    private void recordRemove(final int elements, final int casFailures) {
+        if (null != instrumentation) {
+            instrumentation.recordRemove(elements, casFailures);
+        }
+    }
+
+    /**
+     * Makes sure that the tail does not reference an entry which is dequeued if the head moves to the new sentinel.
+     *
+     * @param from current sentinel
+     * @param to new sentinel
+     */
+    private void advanceTailBehind(final Entry<E> from, final Entry<E> to) {
+        while (true) {
+            final Entry<E> currentTail = tail.get();
+            Entry<E> element = from;
+
+            while (element != to && element != currentTail) {
+                final Entry<E> next = element.next;
+
+                if (next == element) {
+                    // Dequeued meanwhile, so the compare-and-set on the head will fail anyway.
+                    return;
                 }
+
+                element = next;
+            }
+
+            if (element == to || tail.compareAndSet(currentTail, to)) {
+                // Tail is already at or after the new sentinel.
+                return;
             }
         }
+    }
 
+    /**
+     * Returns the entry holding the first element.
+     *
+     * @return {@code null} if queue is empty
+     */
+    private Entry<E> first() {
+        while (true) {
+            final Entry<E> currentHead = head.get();
+            final Entry<E> next = currentHead.next;
+
+            if (next != currentHead) {
+                return next;
+            }
+            // Read a dequeued sentinel: Retry with the new one.
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new EntryIterator();
     }
 
     @Override
     public int hashCode() {
-        final Entry<E> currentTop = head.get();
+        int hash = 1;
 
-        if (null == currentTop) {
-            return 0;
+        // Folded in order like List#hashCode(), so no recursion over the chain.
+        for (final E element : this) {
+            hash = 31 * hash + element.hashCode();
         }
 
-        return currentTop.hashCode();
+        return hash;
     }
 
     @Override
@@ -121,8 +421,16 @@ final class ConcurrentQueue<E> implements Queue<E> {
             return false;
         }
 
-        final ConcurrentQueue other = (ConcurrentQueue) obj;
-        return Objects.equal(head.get(), other.head.get()) && Objects.equal(tail.get(), other.tail.get());
+        final Iterator<E> elements = iterator();
+        final Iterator<?> others = ((ConcurrentQueue<?>) obj).iterator();
+
+        while (elements.hasNext() && others.hasNext()) {
+            if (!Objects.equal(elements.next(), others.next())) {
+                return false;
+            }
+        }
+
+        return !elements.hasNext() && !others.hasNext();
     }
 
     @Override
@@ -130,7 +438,7 @@ final class ConcurrentQueue<E> implements Queue<E> {
         final StringBuilder buffer = new StringBuilder();
         buffer.append(getClass().getSimpleName()).append('[');
 
-        Entry<E> element = head.get();
+        Entry<E> element = first();
         boolean first = true;
 
         while (null != element) {
@@ -139,7 +447,7 @@ final class ConcurrentQueue<E> implements Queue<E> {
             }
 
             buffer.append(element.value);
-            element = element.next;
+            element = element.successor();
             first = false;
         }
 
@@ -156,14 +464,31 @@ final class ConcurrentQueue<E> implements Queue<E> {
      */
     private static final class Entry<T> {
 
+        /**
+         * Updates {@link #next} w/o allocating an atomic reference per entry.
+         */
+        @SuppressWarnings("rawtypes")
+        private static final AtomicReferenceFieldUpdater<Entry, Entry> NEXT
+            = AtomicReferenceFieldUpdater.newUpdater(Entry.class, Entry.class, "next");
+
         /**
          * Entry element.
+         * <p>
+         * Cleared when the entry becomes the sentinel.
+         * </p>
          */
-        private final T value;
+        private T value;
         /**
          * Link to next entry, maybe {@code null}.
          */
-        private Entry<T> next;
+        private volatile Entry<T> next;
+        /**
+         * Position in the queue, the initial sentinel has position 0.
+         * <p>
+         * Only changed before the entry is published by a compare-and-set on {@link #next}.
+         * </p>
+         */
+        private long position;
 
         /**
          * Dedicated constructor.
@@ -175,19 +500,114 @@ final class ConcurrentQueue<E> implements Queue<E> {
             this.value = element;
         }
 
+        /**
+         * Atomically sets the next entry if the current one is the expected one.
+         *
+         * @param expect expected next entry
+         * @param update new next entry
+         * @return {@code true} if successful
+         */
+        boolean casNext(final Entry<T> expect, final Entry<T> update) {
+            return NEXT.compareAndSet(this, expect, update);
+        }
+
+        /**
+         * Eventually sets the next entry.
+         *
+         * @param update new next entry
+         */
+        void lazySetNext(final Entry<T> update) {
+            NEXT.lazySet(this, update);
+        }
+
+        /**
+         * Returns the next entry.
+         *
+         * @return {@code null} if this is the last entry or was dequeued meanwhile
+         */
+        Entry<T> successor() {
+            final Entry<T> current = next;
+            return current == this ? null : current;
+        }
+
+    }
+
+    /**
+     * Iterates from the head to the end of the queue.
+     * <p>
+     * Entries with a cleared value are dequeued and skipped. If the iterator runs into a dequeued sentinel it restarts
+     * at the current head, because all entries before the current head are dequeued too. So it returns each element
+     * at most once. {@code null} elements are skipped as well, since they are indistinguishable from cleared values.
+     * </p>
+     */
+    private final class EntryIterator implements Iterator<E> {
+
+        /**
+         * Entry of the next element, {@code null} if there are no more elements.
+         */
+        private Entry<E> nextEntry;
+        /**
+         * Value of {@link #nextEntry} read before it may be cleared.
+         */
+        private E nextValue;
+
+        /**
+         * Dedicated constructor.
+         */
+        EntryIterator() {
+            super();
+            advance(first());
+        }
+
+        /**
+         * Finds the next entry which is still queued.
+         *
+         * @param start first entry to check, may be {@code null}
+         */
+        private void advance(final Entry<E> start) {
+            Entry<E> entry = start;
+
+            while (null != entry) {
+                final E value = entry.value;
+
+                if (null != value) {
+                    nextEntry = entry;
+                    nextValue = value;
+                    return;
+                }
+
+                entry = successorOrFirst(entry);
+            }
+
+            nextEntry = null;
+            nextValue = null;
+        }
+
+        /**
+         * Returns the next entry or restarts at the head if the entry was dequeued meanwhile.
+         *
+         * @param entry not {@code null}
+         * @return {@code null} if there are no more entries
+         */
+        private Entry<E> successorOrFirst(final Entry<E> entry) {
+            final Entry<E> next = entry.next;
+            return next == entry ? first() : next;
+        }
+
         @Override
-        public int hashCode() {
-            return Objects.hashCode(value, next);
+        public boolean hasNext() {
+            return null != nextEntry;
         }
 
         @Override
-        public boolean equals(final Object obj) {
-            if (!(obj instanceof Entry)) {
-                return false;
+        public E next() {
+            if (null == nextEntry) {
+                throw new NoSuchElementException();
             }
 
-            final Entry other = (Entry) obj;
-            return Objects.equal(value, other.value) && Objects.equal(next, other.next);
+            final E value = nextValue;
+            advance(successorOrFirst(nextEntry));
+            return value;
         }
 
     }
@@ -12,13 +12,18 @@
 package de.weltraumschaf.commons.concurrent;
 
 import de.weltraumschaf.commons.guava.Objects;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import net.jcip.annotations.ThreadSafe;
 
 /**
  * Stack implemented with compare-and-set algorithm from Brian Goetz.
  * <p>
- * Implemented with a linked list.
+ * Implemented with a linked list. Each entry knows its depth, so the size is read from the top entry in constant time
+ * w/o an additional counter which all threads would update.
  * </p>
  *
  * <pre>
@@ -34,18 +39,47 @@ import net.jcip.annotations.ThreadSafe;
  */
 @Deprecated
 @ThreadSafe
-final class ConcurrentStack<E> implements Stack<E> {
+final class ConcurrentStack<E> implements InstrumentedStack<E> {
 
     /**
      * References the top of the stack.
      */
     private final AtomicReference<Entry<E>> top = new AtomicReference<>();
+    /**
+     * Records operations, {@code null} if not instrumented.
+     */
+    private final Instrumentation instrumentation;
+
+    /**
+     * Creates a stack which is not instrumented.
+     */
+    ConcurrentStack() {
+        this(false);
+    }
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param instrumented whether to record operations and contention
+     */
+    ConcurrentStack(final boolean instrumented) {
+        super();
+        instrumentation = instrumented ? new Instrumentation() : null;
+    }
 
     @Override
     public boolean isEmpty() {
         return null == top.get();
     }
 
+    @Override
+    public int size() {
+        final Entry<E> currentTop = top.get();
+        return null == currentTop
+            ? 0
+            : (int) Math.min(currentTop.depth, Integer.MAX_VALUE);
+    }
+
     @Override
     public E peek() {
         final Entry<E> currentTop = top.get();
@@ -57,40 +91,198 @@ final class ConcurrentStack<E> implements Stack<E> {
     @Override
     public E pop() {
         Entry<E> currentTop;
+        int casFailures = 0;
 
         while (true) {
             currentTop = top.get();
 
             if (null == currentTop) {
+                recordRemove(0, casFailures);
                 return null;
             }
 
             if (top.compareAndSet(currentTop, currentTop.next)) {
+                recordRemove(1, casFailures);
                 return currentTop.value;
             }
+
+            ++casFailures;
         }
     }
 
     @Override
     public void push(final E element) {
+        int casFailures = 0;
+
         while (true) {
             final Entry<E> currentTop = top.get();
 
             if (top.compareAndSet(currentTop, new Entry<>(element, currentTop))) {
+                recordAdd(1, casFailures);
                 break;
             }
+
+            ++casFailures;
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Links the elements to a chain first and pushes the whole chain with a single compare-and-set.
+     * </p>
+     */
     @Override
-    public int hashCode() {
-        final Entry<E> currentTop = top.get();
+    public void addAll(final Collection<? extends E> elements) {
+        if (null == elements) {
+            throw new NullPointerException("Parameter 'elements' must not be null!");
+        }
+
+        Entry<E> bottom = null;
+        Entry<E> chain = null;
+        int count = 0;
+
+        for (final E element : elements) {
+            chain = new Entry<>(element, chain);
+            ++count;
+
+            if (null == bottom) {
+                bottom = chain;
+            }
+        }
+
+        if (null == chain) {
+            return;
+        }
+
+        int casFailures = 0;
+
+        while (true) {
+            final Entry<E> currentTop = top.get();
+            // The chain is not published yet, so we may relink and renumber it.
+            bottom.next = currentTop;
+            long depth = (null == currentTop ? 0 : currentTop.depth) + count;
+
+            for (Entry<E> entry = chain; entry != currentTop; entry = entry.next) {
+                entry.depth = depth--;
+            }
+
+            if (top.compareAndSet(currentTop, chain)) {
+                recordAdd(count, casFailures);
+                break;
+            }
+
+            ++casFailures;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Pops the whole chain of up to {@code max} entries with a single compare-and-set.
+     * </p>
+     */
+    @Override
+    public int drainTo(final Consumer<? super E> consumer, final int max) {
+        if (null == consumer) {
+            throw new NullPointerException("Parameter 'consumer' must not be null!");
+        }
 
-        if (null == currentTop) {
+        if (max < 0) {
+            throw new IllegalArgumentException("Parameter 'max' must not be negative!");
+        }
+
+        if (max == 0) {
             return 0;
         }
 
-        return currentTop.hashCode();
+        int casFailures = 0;
+
+        while (true) {
+            final Entry<E> currentTop = top.get();
+
+            if (null == currentTop) {
+                recordRemove(0, casFailures);
+                return 0;
+            }
+
+            Entry<E> last = currentTop;
+            int count = 1;
+
+            while (count < max && null != last.next) {
+                last = last.next;
+                ++count;
+            }
+
+            if (top.compareAndSet(currentTop, last.next)) {
+                recordRemove(count, casFailures);
+                Entry<E> element = currentTop;
+
+                for (int i = 0; i < count; ++i) {
+                    consumer.accept(element.value);
+                    element = element.next;
+                }
+
+                return count;
+            }
+
+            ++casFailures;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if this stack is not instrumented
+     */
+    @Override
+    public ContentionSnapshot snapshot() {
+        if (null == instrumentation) {
+            throw new IllegalStateException("Stack is not instrumented!");
+        }
+
+        return instrumentation.snapshot();
+    }
+
+    /**
+     * Records an add operation if instrumented.
+     *
+     * @param elements number of added elements
+     * @param casFailures number of failed compare-and-set
+     */
+    private void recordAdd(final int elements, final int casFailures) {
+        if (null != instrumentation) {
+            instrumentation.recordAdd(elements, casFailures);
+        }
+    }
+
+    /**
+     * Records a remove operation if instrumented.
+     *
+     * @param elements number of removed elements
+     * @param casFailures number of failed compare-and-set
+     */
+    private void recordRemove(final int elements, final int casFailures) {
+        if (null != instrumentation) {
+            instrumentation.recordRemove(elements, casFailures);
+        }
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new EntryIterator<>(top.get());
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+
+        // Folded in order like List#hashCode(), so no recursion over the chain.
+        for (Entry<E> entry = top.get(); null != entry; entry = entry.next) {
+            hash = 31 * hash + (null == entry.value ? 0 : entry.value.hashCode());
+        }
+
+        return hash;
     }
 
     @Override
@@ -99,8 +291,20 @@ final class ConcurrentStack<E> implements Stack<E> {
             return false;
         }
 
-        final ConcurrentStack other = (ConcurrentStack) obj;
-        return Objects.equal(top.get(), other.top.get());
+        final ConcurrentStack<?> other = (ConcurrentStack<?>) obj;
+        Entry<?> entry = top.get();
+        Entry<?> otherEntry = other.top.get();
+
+        while (null != entry && null != otherEntry) {
+            if (!Objects.equal(entry.value, otherEntry.value)) {
+                return false;
+            }
+
+            entry = entry.next;
+            otherEntry = otherEntry.next;
+        }
+
+        return entry == otherEntry;
     }
 
     @Override
@@ -140,8 +344,18 @@ final class ConcurrentStack<E> implements Stack<E> {
         private final T value;
         /**
          * Link to next entry, maybe {@code null}.
+         * <p>
+         * Only changed before the entry is published by a compare-and-set on the top.
+         * </p>
+         */
+        private Entry<T> next;
+        /**
+         * Number of entries from this one to the bottom of the stack.
+         * <p>
+         * Only changed before the entry is published by a compare-and-set on the top.
+         * </p>
          */
-        private final Entry<T> next;
+        private long depth;
 
         /**
          * Dedicated constructor.
@@ -153,21 +367,50 @@ final class ConcurrentStack<E> implements Stack<E> {
             super();
             this.value = element;
             this.next = next;
+            this.depth = null == next ? 1 : next.depth + 1;
+        }
+
+    }
+
+    /**
+     * Iterates from an entry to the bottom of the stack.
+     * <p>
+     * Popped entries keep their link, so the iterator walks the stack as it was when the iterator was created.
+     * </p>
+     *
+     * @param <T> type of entry object
+     */
+    private static final class EntryIterator<T> implements Iterator<T> {
+
+        /**
+         * Entry of the next element, {@code null} if there are no more elements.
+         */
+        private Entry<T> nextEntry;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param top first entry to iterate, may be {@code null}
+         */
+        EntryIterator(final Entry<T> top) {
+            super();
+            nextEntry = top;
         }
 
         @Override
-        public int hashCode() {
-            return Objects.hashCode(value, next);
+        public boolean hasNext() {
+            return null != nextEntry;
         }
 
         @Override
-        public boolean equals(Object obj) {
-            if (!(obj instanceof Entry)) {
-                return false;
+        public T next() {
+            if (null == nextEntry) {
+                throw new NoSuchElementException();
             }
 
-            final Entry other = (Entry) obj;
-            return Objects.equal(value, other.value) && Objects.equal(next, other.next);
+            final T value = nextEntry.value;
+            nextEntry = nextEntry.next;
+            return value;
         }
 
     }
@@ -0,0 +1,242 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import de.weltraumschaf.commons.guava.Objects;
+import java.util.concurrent.TimeUnit;
+import net.jcip.annotations.Immutable;
+
+/**
+ * Point in time view of the counters of an instrumented stack or queue.
+ * <p>
+ * The counters are summed up w/o stopping the threads which update them, so a snapshot taken under load is only
+ * approximately consistent. Rates are computed from two snapshots:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * final ContentionSnapshot before = queue.snapshot();
+ * // ...
+ * final ContentionSnapshot after = queue.snapshot();
+ * final double addsPerSecond = after.addRate(before);
+ * }</pre>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@Immutable
+public final class ContentionSnapshot {
+
+    /**
+     * Nano seconds per second.
+     */
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Number of added (pushed, enqueued) elements.
+     */
+    private final long added;
+    /**
+     * Number of removed (popped, dequeued) elements.
+     */
+    private final long removed;
+    /**
+     * Number of add operations.
+     */
+    private final long addOperations;
+    /**
+     * Number of remove operations, including those which found nothing.
+     */
+    private final long removeOperations;
+    /**
+     * Number of failed compare-and-set while adding.
+     */
+    private final long addCasFailures;
+    /**
+     * Number of failed compare-and-set while removing.
+     */
+    private final long removeCasFailures;
+    /**
+     * When the snapshot was taken, from {@link System#nanoTime()}.
+     */
+    private final long nanoTime;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param added number of added elements
+     * @param removed number of removed elements
+     * @param addOperations number of add operations
+     * @param removeOperations number of remove operations, including those which found nothing
+     * @param addCasFailures number of failed compare-and-set while adding
+     * @param removeCasFailures number of failed compare-and-set while removing
+     * @param nanoTime when the snapshot was taken
+     */
+    ContentionSnapshot(final long added, final long removed, final long addOperations, final long removeOperations,
+        final long addCasFailures, final long removeCasFailures, final long nanoTime) {
+        super();
+        this.added = added;
+        this.removed = removed;
+        this.addOperations = addOperations;
+        this.removeOperations = removeOperations;
+        this.addCasFailures = addCasFailures;
+        this.removeCasFailures = removeCasFailures;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Number of added (pushed, enqueued) elements.
+     *
+     * @return not negative
+     */
+    public long added() {
+        return added;
+    }
+
+    /**
+     * Number of removed (popped, dequeued) elements.
+     *
+     * @return not negative
+     */
+    public long removed() {
+        return removed;
+    }
+
+    /**
+     * Number of failed compare-and-set while adding.
+     *
+     * @return not negative
+     */
+    public long addCasFailures() {
+        return addCasFailures;
+    }
+
+    /**
+     * Number of failed compare-and-set while removing.
+     *
+     * @return not negative
+     */
+    public long removeCasFailures() {
+        return removeCasFailures;
+    }
+
+    /**
+     * When the snapshot was taken.
+     *
+     * @return value of {@link System#nanoTime()}
+     */
+    public long nanoTime() {
+        return nanoTime;
+    }
+
+    /**
+     * Approximate number of elements in the stack or queue.
+     *
+     * @return not negative
+     */
+    public long approximateDepth() {
+        return Math.max(0, added - removed);
+    }
+
+    /**
+     * Average failed compare-and-set per add operation.
+     * <p>
+     * A value near 0 means no contention, a value of 1 means every operation had to retry once on average.
+     * </p>
+     *
+     * @return {@code 0} if there was no operation
+     */
+    public double addCasFailuresPerOperation() {
+        return ratio(addCasFailures, addOperations);
+    }
+
+    /**
+     * Average failed compare-and-set per remove operation.
+     * <p>
+     * Divides by all remove attempts, including those which found the stack or queue empty, because their failed
+     * compare-and-set are counted as well.
+     * </p>
+     *
+     * @return {@code 0} if there was no operation
+     */
+    public double removeCasFailuresPerOperation() {
+        return ratio(removeCasFailures, removeOperations);
+    }
+
+    /**
+     * Added elements per second since a previous snapshot.
+     *
+     * @param previous must not be {@code null}
+     * @return {@code 0} if no time elapsed
+     */
+    public double addRate(final ContentionSnapshot previous) {
+        return rate(added - validate(previous).added, previous);
+    }
+
+    /**
+     * Removed elements per second since a previous snapshot.
+     *
+     * @param previous must not be {@code null}
+     * @return {@code 0} if no time elapsed
+     */
+    public double removeRate(final ContentionSnapshot previous) {
+        return rate(removed - validate(previous).removed, previous);
+    }
+
+    /**
+     * Computes a rate per second.
+     *
+     * @param delta counted events since previous snapshot
+     * @param previous not {@code null}
+     * @return events per second
+     */
+    private double rate(final long delta, final ContentionSnapshot previous) {
+        final long elapsed = nanoTime - previous.nanoTime;
+        return elapsed <= 0 ? 0 : delta * NANOS_PER_SECOND / elapsed;
+    }
+
+    /**
+     * Divides w/o failing on zero divisor.
+     *
+     * @param dividend any
+     * @param divisor any
+     * @return {@code 0} if divisor is {@code 0}
+     */
+    private static double ratio(final long dividend, final long divisor) {
+        return divisor == 0 ? 0 : (double) dividend / divisor;
+    }
+
+    /**
+     * Validates a previous snapshot.
+     *
+     * @param previous must not be {@code null}
+     * @return the parameter
+     */
+    private static ContentionSnapshot validate(final ContentionSnapshot previous) {
+        if (null == previous) {
+            throw new NullPointerException("Parameter 'previous' must not be null!");
+        }
+
+        return previous;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+            .add("added", added)
+            .add("removed", removed)
+            .add("addCasFailures", addCasFailures)
+            .add("removeCasFailures", removeCasFailures)
+            .toString();
+    }
+
+}
@@ -0,0 +1,341 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import de.weltraumschaf.commons.guava.Objects;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Stack implemented with the elimination backoff algorithm from Danny Hendler, Nir Shavit and Lena Yerushalmi.
+ * <p>
+ * This is a {@link ConcurrentStack Treiber stack} which does not simply retry if the compare-and-set on the top fails.
+ * Instead the thread backs off to a randomly chosen slot of an elimination array: A pushing thread offers its entry in
+ * a free slot and waits a short time for a popping thread to take it. A popping thread which finds an offered entry
+ * takes it. Such a pair of operations cancels each other out and so neither of them has to touch the top. If no
+ * partner shows up the thread retries on the top.
+ * </p>
+ * <p>
+ * Under low contention this behaves like the plain Treiber stack. Under high contention the elimination array spreads
+ * the threads over several memory locations instead of letting all of them fight for the single top reference.
+ * </p>
+ *
+ * @since 2.3.0
+ * @param <E> type of stack entries
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+final class EliminationBackoffStack<E> implements Stack<E> {
+
+    /**
+     * How often a pushing thread checks its offered entry before it withdraws it.
+     */
+    static final int DEFAULT_SPINS = 64;
+
+    /**
+     * References the top of the stack.
+     */
+    private final AtomicReference<Entry<E>> top = new AtomicReference<>();
+    /**
+     * Slots where pushing threads offer their entries; {@code null} marks a free slot.
+     */
+    private final AtomicReferenceArray<Entry<E>> eliminationArray;
+    /**
+     * How often a pushing thread checks its offered entry before it withdraws it.
+     */
+    private final int spins;
+
+    /**
+     * Creates a stack with one elimination slot per two available processors.
+     */
+    EliminationBackoffStack() {
+        this(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), DEFAULT_SPINS);
+    }
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param capacity number of elimination slots, must be greater than 0
+     * @param spins how often a pushing thread waits for a partner, must not be negative
+     */
+    EliminationBackoffStack(final int capacity, final int spins) {
+        super();
+
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Parameter 'capacity' must be greater than 0!");
+        }
+
+        if (spins < 0) {
+            throw new IllegalArgumentException("Parameter 'spins' must not be negative!");
+        }
+
+        this.eliminationArray = new AtomicReferenceArray<>(capacity);
+        this.spins = spins;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return null == top.get();
+    }
+
+    @Override
+    public int size() {
+        final Entry<E> currentTop = top.get();
+        return null == currentTop
+            ? 0
+            : (int) Math.min(currentTop.depth, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public E peek() {
+        final Entry<E> currentTop = top.get();
+        return null == currentTop
+            ? null
+            : currentTop.value;
+    }
+
+    @Override
+    public E pop() {
+        while (true) {
+            final Entry<E> currentTop = top.get();
+
+            if (null == currentTop) {
+                return null;
+            }
+
+            if (top.compareAndSet(currentTop, currentTop.next)) {
+                return currentTop.value;
+            }
+
+            final Entry<E> eliminated = takeOffered();
+
+            if (null != eliminated) {
+                return eliminated.value;
+            }
+        }
+    }
+
+    @Override
+    public void push(final E element) {
+        while (true) {
+            final Entry<E> currentTop = top.get();
+            final Entry<E> node = new Entry<>(element, currentTop);
+
+            if (top.compareAndSet(currentTop, node)) {
+                return;
+            }
+
+            if (offer(node)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Offers an entry in a random slot and waits for a popping thread to take it.
+     *
+     * @param node offered entry
+     * @return {@code true} if a popping thread took the entry, {@code false} if it must be pushed on the top
+     */
+    private boolean offer(final Entry<E> node) {
+        final int slot = randomSlot();
+
+        if (!eliminationArray.compareAndSet(slot, null, node)) {
+            // Slot is occupied by another pushing thread.
+            return false;
+        }
+
+        for (int i = 0; i < spins; ++i) {
+            if (eliminationArray.get(slot) != node) {
+                return true;
+            }
+
+            Thread.onSpinWait();
+        }
+
+        // Withdraw the offer. If this fails a popping thread took the entry meanwhile.
+        return !eliminationArray.compareAndSet(slot, node, null);
+    }
+
+    /**
+     * Takes an entry offered by a pushing thread from a random slot.
+     *
+     * @return {@code null} if there was no offer in the slot or another thread was faster
+     */
+    private Entry<E> takeOffered() {
+        final int slot = randomSlot();
+        final Entry<E> offered = eliminationArray.get(slot);
+
+        if (null != offered && eliminationArray.compareAndSet(slot, offered, null)) {
+            return offered;
+        }
+
+        return null;
+    }
+
+    /**
+     * Chooses the slot to back off.
+     *
+     * @return index into the elimination array
+     */
+    private int randomSlot() {
+        return ThreadLocalRandom.current().nextInt(eliminationArray.length());
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new EntryIterator<>(top.get());
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+
+        // Folded in order like List#hashCode(), so no recursion over the chain.
+        for (Entry<E> entry = top.get(); null != entry; entry = entry.next) {
+            hash = 31 * hash + (null == entry.value ? 0 : entry.value.hashCode());
+        }
+
+        return hash;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof EliminationBackoffStack)) {
+            return false;
+        }
+
+        final EliminationBackoffStack<?> other = (EliminationBackoffStack<?>) obj;
+        Entry<?> entry = top.get();
+        Entry<?> otherEntry = other.top.get();
+
+        while (null != entry && null != otherEntry) {
+            if (!Objects.equal(entry.value, otherEntry.value)) {
+                return false;
+            }
+
+            entry = entry.next;
+            otherEntry = otherEntry.next;
+        }
+
+        return entry == otherEntry;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buffer = new StringBuilder();
+        buffer.append(getClass().getSimpleName()).append('[');
+
+        Entry<E> element = top.get();
+        boolean first = true;
+
+        while (null != element) {
+            if (!first) {
+                buffer.append(", ");
+            }
+
+            buffer.append(element.value);
+            element = element.next;
+            first = false;
+        }
+
+        return buffer.append(']').toString();
+    }
+
+    /**
+     * Linked list entry.
+     * <p>
+     * Not used outside the class.
+     * </p>
+     *
+     * @param <T> type of entry object
+     */
+    private static final class Entry<T> {
+
+        /**
+         * Entry element.
+         */
+        private final T value;
+        /**
+         * Link to next entry, maybe {@code null}.
+         */
+        private final Entry<T> next;
+        /**
+         * Number of entries from this one to the bottom of the stack.
+         * <p>
+         * Meaningless for entries which were eliminated instead of pushed.
+         * </p>
+         */
+        private final long depth;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param element entry element
+         * @param next next element
+         */
+        Entry(final T element, final Entry<T> next) {
+            super();
+            this.value = element;
+            this.next = next;
+            this.depth = null == next ? 1 : next.depth + 1;
+        }
+
+    }
+
+    /**
+     * Iterates from an entry to the bottom of the stack.
+     * <p>
+     * Popped entries keep their link, so the iterator walks the stack as it was when the iterator was created.
+     * </p>
+     *
+     * @param <T> type of entry object
+     */
+    private static final class EntryIterator<T> implements Iterator<T> {
+
+        /**
+         * Entry of the next element, {@code null} if there are no more elements.
+         */
+        private Entry<T> nextEntry;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param top first entry to iterate, may be {@code null}
+         */
+        EntryIterator(final Entry<T> top) {
+            super();
+            nextEntry = top;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return null != nextEntry;
+        }
+
+        @Override
+        public T next() {
+            if (null == nextEntry) {
+                throw new NoSuchElementException();
+            }
+
+            final T value = nextEntry.value;
+            nextEntry = nextEntry.next;
+            return value;
+        }
+
+    }
+}
@@ -0,0 +1,599 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Forks subtasks, joins them by a policy and guarantees that none of them outlives the scope.
+ * <p>
+ * The policy decides when the scope is done: {@link #all() All} subtasks must succeed, the {@link #firstSuccess() first
+ * success} is enough, or a {@link #quorum(int) quorum} of them must succeed. As soon as the outcome is known the
+ * remaining subtasks are cancelled by interruption. Joining with a timeout cancels them on the deadline. Failures are
+ * aggregated into one {@link ExecutionException}: Its cause is the first failure and the others are suppressed by it.
+ * </p>
+ * <p>
+ * Subtasks run on virtual threads if the JVM supports them. On the Java 17 baseline they run on a shared pool of
+ * platform threads, which are reused by all scopes.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * try (FanOutScope<Price> scope = FanOutScope.quorum(2)) {
+ *     scope.fork(() -> vendorA.price(item));
+ *     scope.fork(() -> vendorB.price(item));
+ *     scope.fork(() -> vendorC.price(item));
+ *     final List<Price> prices = scope.join(100, TimeUnit.MILLISECONDS);
+ * }
+ * }</pre>
+ * <p>
+ * Forking and joining are meant for the thread which opened the scope. Subtasks must respond to interruption, because
+ * closing waits until all of them have terminated.
+ * </p>
+ *
+ * @since 2.3.0
+ * @param <T> type of subtask results
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+public final class FanOutScope<T> implements AutoCloseable {
+
+    /**
+     * Number of successful subtasks the scope needs, {@code 0} if all must succeed.
+     */
+    private final int quorum;
+    /**
+     * Starts the subtasks.
+     */
+    private final ExecutorService executor;
+    /**
+     * Whether the executor belongs to this scope and must be shut down on close.
+     */
+    private final boolean ownsExecutor;
+    /**
+     * Guards the state.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /**
+     * Signalled if a subtask terminated.
+     */
+    private final Condition terminated = lock.newCondition();
+    /**
+     * All forked subtasks in fork order.
+     */
+    private final List<Subtask> subtasks = new ArrayList<>();
+    /**
+     * Results of successful subtasks in completion order.
+     */
+    private final List<T> successes = new ArrayList<>();
+    /**
+     * Failures of subtasks in completion order.
+     */
+    private final List<Throwable> failures = new ArrayList<>();
+    /**
+     * Number of subtasks which have not terminated yet.
+     */
+    private int running;
+    /**
+     * Set if the outcome is known, so further results are ignored.
+     */
+    private boolean decided;
+    /**
+     * Set on join.
+     */
+    private boolean joined;
+    /**
+     * Set on close.
+     */
+    private boolean closed;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param quorum number of successful subtasks the scope needs, {@code 0} if all must succeed
+     */
+    private FanOutScope(final int quorum) {
+        super();
+        this.quorum = quorum;
+        ownsExecutor = VirtualThreads.isSupported();
+        executor = ownsExecutor ? VirtualThreads.newExecutor() : PlatformThreads.EXECUTOR;
+    }
+
+    /**
+     * Create a scope which needs all subtasks to succeed.
+     * <p>
+     * The first failure cancels the others. {@link #join()} returns the results in fork order.
+     * </p>
+     *
+     * @param <T> type of subtask results
+     * @return new instance
+     */
+    public static <T> FanOutScope<T> all() {
+        return new FanOutScope<>(0);
+    }
+
+    /**
+     * Create a scope which needs one subtask to succeed.
+     * <p>
+     * The first success cancels the others. {@link #join()} returns a list with its result. It fails only if all
+     * subtasks failed.
+     * </p>
+     *
+     * @param <T> type of subtask results
+     * @return new instance
+     */
+    public static <T> FanOutScope<T> firstSuccess() {
+        return new FanOutScope<>(1);
+    }
+
+    /**
+     * Create a scope which needs the given number of subtasks to succeed.
+     * <p>
+     * Reaching the quorum cancels the others. {@link #join()} returns their results in completion order. It fails as
+     * soon as so many subtasks failed that the quorum can't be reached anymore.
+     * </p>
+     *
+     * @param <T> type of subtask results
+     * @param quorum greater than 0
+     * @return new instance
+     */
+    public static <T> FanOutScope<T> quorum(final int quorum) {
+        if (quorum < 1) {
+            throw new IllegalArgumentException("Parameter 'quorum' must be greater than 0!");
+        }
+
+        return new FanOutScope<>(quorum);
+    }
+
+    /**
+     * Starts a subtask.
+     *
+     * @param task must not be {@code null}
+     * @throws IllegalStateException if the scope is already joined or closed
+     */
+    public void fork(final Callable<? extends T> task) {
+        if (null == task) {
+            throw new NullPointerException("Parameter 'task' must not be null!");
+        }
+
+        lock.lock();
+
+        try {
+            if (closed) {
+                throw new IllegalStateException("Scope is closed!");
+            }
+
+            if (joined) {
+                throw new IllegalStateException("Scope is already joined!");
+            }
+
+            final Subtask subtask = new Subtask(task);
+            subtasks.add(subtask);
+            ++running;
+
+            if (decided) {
+                // Never start it, the outcome is already known.
+                subtask.cancel();
+            } else {
+                subtask.future = executor.submit(subtask);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the outcome is known.
+     *
+     * @return results as described by the policy
+     * @throws InterruptedException if the waiting thread is interrupted, the subtasks are cancelled then
+     * @throws ExecutionException if the policy failed, with the first failure as cause and the others suppressed
+     */
+    public List<T> join() throws InterruptedException, ExecutionException {
+        try {
+            return join(Long.MAX_VALUE);
+        } catch (final TimeoutException ex) {
+            throw new IllegalStateException("Join w/o timeout must not time out!", ex);
+        }
+    }
+
+    /**
+     * Waits until the outcome is known, but at most the given time.
+     *
+     * @param timeout how long to wait at most
+     * @param unit must not be {@code null}
+     * @return results as described by the policy
+     * @throws InterruptedException if the waiting thread is interrupted, the subtasks are cancelled then
+     * @throws ExecutionException if the policy failed, with the first failure as cause and the others suppressed
+     * @throws TimeoutException if the deadline elapsed, the subtasks are cancelled then
+     */
+    public List<T> join(final long timeout, final TimeUnit unit)
+        throws InterruptedException, ExecutionException, TimeoutException {
+        if (null == unit) {
+            throw new NullPointerException("Parameter 'unit' must not be null!");
+        }
+
+        return join(unit.toNanos(timeout));
+    }
+
+    /**
+     * Waits until the outcome is known.
+     *
+     * @param timeoutNanos {@link Long#MAX_VALUE} to wait forever
+     * @return results as described by the policy
+     * @throws InterruptedException if the waiting thread is interrupted
+     * @throws ExecutionException if the policy failed
+     * @throws TimeoutException if the deadline elapsed
+     */
+    private List<T> join(final long timeoutNanos)
+        throws InterruptedException, ExecutionException, TimeoutException {
+        lock.lock();
+
+        try {
+            if (closed) {
+                throw new IllegalStateException("Scope is closed!");
+            }
+
+            if (joined) {
+                throw new IllegalStateException("Scope is already joined!");
+            }
+
+            joined = true;
+
+            if (isDecided()) {
+                decide();
+            }
+
+            long remaining = timeoutNanos;
+
+            try {
+                while (!decided && running > 0) {
+                    if (remaining <= 0) {
+                        decide();
+                        throw new TimeoutException(String.format(
+                            "Deadline elapsed with %d of %d subtasks running!", running, subtasks.size()));
+                    }
+
+                    if (remaining == Long.MAX_VALUE) {
+                        terminated.await();
+                    } else {
+                        remaining = terminated.awaitNanos(remaining);
+                    }
+                }
+            } catch (final InterruptedException ex) {
+                decide();
+                throw ex;
+            }
+
+            decide();
+            return outcome();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Computes the outcome, must hold the lock and all relevant subtasks must have terminated.
+     *
+     * @return results as described by the policy
+     * @throws ExecutionException if the policy failed
+     */
+    private List<T> outcome() throws ExecutionException {
+        if (quorum == 0) {
+            if (!failures.isEmpty()) {
+                throw aggregate();
+            }
+
+            final List<T> results = new ArrayList<>(subtasks.size());
+
+            for (final Subtask subtask : subtasks) {
+                results.add(subtask.result);
+            }
+
+            return Collections.unmodifiableList(results);
+        }
+
+        if (successes.size() >= quorum) {
+            return Collections.unmodifiableList(new ArrayList<>(successes.subList(0, quorum)));
+        }
+
+        throw aggregate();
+    }
+
+    /**
+     * Aggregates the failures into one exception.
+     *
+     * @return never {@code null}
+     */
+    private ExecutionException aggregate() {
+        final String message = String.format("%d of %d subtasks failed!", failures.size(), subtasks.size());
+
+        if (failures.isEmpty()) {
+            return new ExecutionException(message, null);
+        }
+
+        final ExecutionException aggregated = new ExecutionException(message, failures.get(0));
+
+        for (final Throwable failure : failures.subList(1, failures.size())) {
+            aggregated.addSuppressed(failure);
+        }
+
+        return aggregated;
+    }
+
+    /**
+     * Marks the outcome as known and cancels all subtasks still running, must hold the lock.
+     */
+    private void decide() {
+        if (decided) {
+            return;
+        }
+
+        decided = true;
+
+        for (final Subtask subtask : subtasks) {
+            subtask.cancel();
+        }
+    }
+
+    /**
+     * Records the outcome of a terminated subtask.
+     *
+     * @param subtask terminated subtask
+     * @param result result if succeeded
+     * @param failure {@code null} if succeeded
+     */
+    private void terminated(final Subtask subtask, final T result, final Throwable failure) {
+        lock.lock();
+
+        try {
+            --running;
+
+            if (!decided) {
+                if (null == failure) {
+                    subtask.result = result;
+                    successes.add(result);
+                } else {
+                    failures.add(failure);
+                }
+
+                if (isDecided()) {
+                    decide();
+                }
+            }
+
+            terminated.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether the outcome is known w/o waiting for the running subtasks, must hold the lock.
+     *
+     * @return {@code true} if known
+     */
+    private boolean isDecided() {
+        if (quorum == 0) {
+            return !failures.isEmpty();
+        }
+
+        // Failed if so many failed that the running ones can't reach the quorum anymore.
+        return successes.size() >= quorum || successes.size() + running < quorum && joined;
+    }
+
+    /**
+     * Cancels the running subtasks and waits until all have terminated.
+     * <p>
+     * Waiting is not interruptible, but the interrupt status is restored afterwards.
+     * </p>
+     */
+    @Override
+    public void close() {
+        boolean interrupted = false;
+        lock.lock();
+
+        try {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            decide();
+
+            while (running > 0) {
+                try {
+                    terminated.await();
+                } catch (final InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Whether subtasks run on virtual threads.
+     *
+     * @return {@code false} if they run on platform threads
+     */
+    public boolean isVirtual() {
+        return ownsExecutor;
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+
+        try {
+            return getClass().getSimpleName() + "[quorum=" + quorum + ", forked=" + subtasks.size()
+                + ", running=" + running + ", succeeded=" + successes.size() + ", failed=" + failures.size() + ']';
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs a forked task and reports its outcome.
+     */
+    private final class Subtask implements Runnable {
+
+        /**
+         * The forked task.
+         */
+        private final Callable<? extends T> task;
+        /**
+         * Set by the thread which runs or cancels the task first.
+         */
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        /**
+         * Cancels the task, {@code null} until submitted.
+         */
+        private Future<?> future;
+        /**
+         * Result if succeeded, guarded by the lock.
+         */
+        private T result;
+        /**
+         * Whether the subtask reported its termination, guarded by the lock.
+         */
+        private boolean reported;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param task the forked task
+         */
+        Subtask(final Callable<? extends T> task) {
+            super();
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                // Cancelled before it started.
+                return;
+            }
+
+            T value = null;
+            Throwable failure = null;
+
+            try {
+                value = task.call();
+            } catch (final Exception | Error ex) {
+                failure = ex;
+            }
+
+            report(value, failure);
+        }
+
+        /**
+         * Reports the termination once.
+         *
+         * @param value result if succeeded
+         * @param failure {@code null} if succeeded
+         */
+        private void report(final T value, final Throwable failure) {
+            lock.lock();
+
+            try {
+                if (reported) {
+                    return;
+                }
+
+                reported = true;
+                terminated(this, value, failure);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Interrupts the running task or prevents it from running, must hold the lock.
+         */
+        void cancel() {
+            if (reported) {
+                return;
+            }
+
+            if (claimed.compareAndSet(false, true)) {
+                // Never runs, so it is reported here.
+                if (null != future) {
+                    future.cancel(false);
+                }
+
+                report(null, null);
+                return;
+            }
+
+            // Reports itself when the task returns.
+            future.cancel(true);
+        }
+
+    }
+
+    /**
+     * Fallback if virtual threads are not supported.
+     */
+    private static final class PlatformThreads {
+
+        /**
+         * Shared by all scopes, idle threads terminate after a minute.
+         */
+        private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory());
+
+    }
+
+    /**
+     * Creates numbered daemon threads, so that subtasks never prevent the JVM from exiting.
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+
+        /**
+         * Numbers the threads.
+         */
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "fan-out-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.atomic.LongAdder;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Counts operations and contention of a stack or queue.
+ * <p>
+ * The counters are {@link LongAdder striped}, so recording from many threads does not add contention on its own.
+ * Instrumented data structures hold a reference to an instance; data structures which are not instrumented hold
+ * {@code null} and so only pay a never taken branch.
+ * </p>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+final class Instrumentation {
+
+    /**
+     * Number of added elements.
+     */
+    private final LongAdder added = new LongAdder();
+    /**
+     * Number of removed elements.
+     */
+    private final LongAdder removed = new LongAdder();
+    /**
+     * Number of add operations.
+     */
+    private final LongAdder addOperations = new LongAdder();
+    /**
+     * Number of remove operations, including those which found nothing.
+     */
+    private final LongAdder removeOperations = new LongAdder();
+    /**
+     * Number of failed compare-and-set while adding.
+     */
+    private final LongAdder addCasFailures = new LongAdder();
+    /**
+     * Number of failed compare-and-set while removing.
+     */
+    private final LongAdder removeCasFailures = new LongAdder();
+
+    /**
+     * Records a completed add operation.
+     *
+     * @param elements number of added elements
+     * @param casFailures number of failed compare-and-set
+     */
+    void recordAdd(final int elements, final int casFailures) {
+        added.add(elements);
+        addOperations.increment();
+
+        if (casFailures > 0) {
+            addCasFailures.add(casFailures);
+        }
+    }
+
+    /**
+     * Records a completed remove operation.
+     *
+     * @param elements number of removed elements, {@code 0} if the data structure was empty
+     * @param casFailures number of failed compare-and-set
+     */
+    void recordRemove(final int elements, final int casFailures) {
+        removed.add(elements);
+        // Counted even if empty, because the failed compare-and-set of such operations are counted, too.
+        removeOperations.increment();
+
+        if (casFailures > 0) {
+            removeCasFailures.add(casFailures);
+        }
+    }
+
+    /**
+     * Sums up the counters.
+     *
+     * @return never {@code null}
+     */
+    ContentionSnapshot snapshot() {
+        return new ContentionSnapshot(
+            added.sum(),
+            removed.sum(),
+            addOperations.sum(),
+            removeOperations.sum(),
+            addCasFailures.sum(),
+            removeCasFailures.sum(),
+            System.nanoTime());
+    }
+
+}
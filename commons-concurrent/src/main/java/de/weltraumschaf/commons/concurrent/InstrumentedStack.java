@@ -0,0 +1,36 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Stack which counts its operations and contention.
+ * <p>
+ * Implementations may be obtained by {@link Concurrent#newInstrumentedStack() the factory}.
+ * </p>
+ *
+ * @since 2.3.0
+ * @param <E> type of stack entries
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+public interface InstrumentedStack<E> extends Stack<E> {
+
+    /**
+     * Sums up the counters recorded so far.
+     *
+     * @return never {@code null}
+     */
+    ContentionSnapshot snapshot();
+
+}
@@ -0,0 +1,44 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+/**
+ * Computes the limit of a {@link ConcurrencyLimiter} from the measured round trips.
+ * <p>
+ * Algorithms may keep state. They are only called by one thread at a time, but each limiter needs its own instance.
+ * Implementations are obtained by {@link LimitAlgorithms}.
+ * </p>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public interface LimitAlgorithm {
+
+    /**
+     * The limit to start with.
+     *
+     * @return greater than 0
+     */
+    int initialLimit();
+
+    /**
+     * Computes the new limit after a round trip.
+     *
+     * @param limit current limit
+     * @param rttNanos duration of the round trip
+     * @param inFlight number of permits in flight when the permit of the round trip was acquired, including it
+     * @param dropped whether the round trip failed because the downstream was overloaded
+     * @return greater than 0
+     */
+    int update(int limit, long rttNanos, int inFlight, boolean dropped);
+
+}
@@ -0,0 +1,310 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Factory to create {@link LimitAlgorithm limit algorithms}.
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public final class LimitAlgorithms {
+
+    /**
+     * Default factor the AIMD limit is multiplied with on overload.
+     */
+    private static final double DEFAULT_BACKOFF_RATIO = 0.9;
+    /**
+     * Default weight of a new limit computed by the gradient.
+     */
+    private static final double DEFAULT_SMOOTHING = 0.2;
+    /**
+     * Default number of samples after which the gradient measures the minimum round trip time again.
+     */
+    private static final int DEFAULT_PROBE_INTERVAL = 1000;
+    /**
+     * How much a round trip time may exceed the minimum before the gradient decreases the limit.
+     */
+    private static final double RTT_TOLERANCE = 1.5;
+    /**
+     * Smallest gradient, so the limit is at most halved per sample.
+     */
+    private static final double MIN_GRADIENT = 0.5;
+
+    /**
+     * Hidden for utility class.
+     */
+    private LimitAlgorithms() {
+        super();
+        throw new UnsupportedOperationException("Must not be called!");
+    }
+
+    /**
+     * Create an additive increase multiplicative decrease algorithm which only backs off on dropped round trips.
+     *
+     * @param initialLimit limit to start with, between min and max
+     * @param minLimit greater than 0
+     * @param maxLimit not less than min
+     * @return new instance
+     */
+    public static LimitAlgorithm aimd(final int initialLimit, final int minLimit, final int maxLimit) {
+        return aimd(initialLimit, minLimit, maxLimit, DEFAULT_BACKOFF_RATIO, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Create an additive increase multiplicative decrease algorithm.
+     * <p>
+     * The limit grows by one per round trip as long as at least half of it is in use. If a round trip is dropped or
+     * takes longer than the timeout, the limit is multiplied by the backoff ratio. This is robust and simple, but the
+     * limit oscillates: It grows until the downstream is overloaded.
+     * </p>
+     *
+     * @param initialLimit limit to start with, between min and max
+     * @param minLimit greater than 0
+     * @param maxLimit not less than min
+     * @param backoffRatio greater than 0 and less than 1
+     * @param timeout round trips taking longer count as dropped, greater than 0
+     * @param unit must not be {@code null}
+     * @return new instance
+     */
+    public static LimitAlgorithm aimd(final int initialLimit, final int minLimit, final int maxLimit,
+        final double backoffRatio, final long timeout, final TimeUnit unit) {
+        validateLimits(initialLimit, minLimit, maxLimit);
+
+        if (!(backoffRatio > 0 && backoffRatio < 1)) {
+            throw new IllegalArgumentException("Parameter 'backoffRatio' must be greater than 0 and less than 1!");
+        }
+
+        if (timeout < 1) {
+            throw new IllegalArgumentException("Parameter 'timeout' must be greater than 0!");
+        }
+
+        if (null == unit) {
+            throw new NullPointerException("Parameter 'unit' must not be null!");
+        }
+
+        return new AimdLimit(initialLimit, minLimit, maxLimit, backoffRatio, unit.toNanos(timeout));
+    }
+
+    /**
+     * Create an algorithm which follows the gradient of the round trip time.
+     * <p>
+     * It compares each round trip time with the minimum, which is the latency of the unloaded downstream. If the round
+     * trip takes clearly longer, requests queue up in the downstream and the limit is decreased proportionally.
+     * Otherwise the limit grows by the square root of itself, which allows a small queue. New limits are smoothed, so
+     * the limit settles near the capacity of the downstream instead of oscillating like with
+     * {@link #aimd(int, int, int) AIMD}.
+     * </p>
+     * <p>
+     * The latency of the downstream may change over time. So every thousand round trips the limit is reduced to let
+     * the queue drain and the minimum is measured again.
+     * </p>
+     *
+     * @param initialLimit limit to start with, between min and max
+     * @param minLimit greater than 0
+     * @param maxLimit not less than min
+     * @return new instance
+     */
+    public static LimitAlgorithm gradient(final int initialLimit, final int minLimit, final int maxLimit) {
+        validateLimits(initialLimit, minLimit, maxLimit);
+        return new GradientLimit(initialLimit, minLimit, maxLimit, DEFAULT_SMOOTHING, DEFAULT_PROBE_INTERVAL);
+    }
+
+    /**
+     * Throws an exception if the limits are inconsistent.
+     *
+     * @param initialLimit between min and max
+     * @param minLimit greater than 0
+     * @param maxLimit not less than min
+     */
+    private static void validateLimits(final int initialLimit, final int minLimit, final int maxLimit) {
+        if (minLimit < 1) {
+            throw new IllegalArgumentException("Parameter 'minLimit' must be greater than 0!");
+        }
+
+        if (maxLimit < minLimit) {
+            throw new IllegalArgumentException("Parameter 'maxLimit' must not be less than 'minLimit'!");
+        }
+
+        if (initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException(
+                "Parameter 'initialLimit' must not be less than 'minLimit' or greater than 'maxLimit'!");
+        }
+    }
+
+    /**
+     * Additive increase multiplicative decrease.
+     */
+    @NotThreadSafe
+    private static final class AimdLimit implements LimitAlgorithm {
+
+        /**
+         * Limit to start with.
+         */
+        private final int initialLimit;
+        /**
+         * Lower bound of the limit.
+         */
+        private final int minLimit;
+        /**
+         * Upper bound of the limit.
+         */
+        private final int maxLimit;
+        /**
+         * Factor to decrease the limit.
+         */
+        private final double backoffRatio;
+        /**
+         * Round trips taking longer count as dropped.
+         */
+        private final long timeoutNanos;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param initialLimit limit to start with
+         * @param minLimit lower bound of the limit
+         * @param maxLimit upper bound of the limit
+         * @param backoffRatio factor to decrease the limit
+         * @param timeoutNanos round trips taking longer count as dropped
+         */
+        AimdLimit(final int initialLimit, final int minLimit, final int maxLimit, final double backoffRatio,
+            final long timeoutNanos) {
+            super();
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.backoffRatio = backoffRatio;
+            this.timeoutNanos = timeoutNanos;
+        }
+
+        @Override
+        public int initialLimit() {
+            return initialLimit;
+        }
+
+        @Override
+        public int update(final int limit, final long rttNanos, final int inFlight, final boolean dropped) {
+            if (dropped || rttNanos > timeoutNanos) {
+                return Math.max(minLimit, (int) (limit * backoffRatio));
+            }
+
+            if (inFlight * 2 >= limit) {
+                return Math.min(maxLimit, limit + 1);
+            }
+
+            // Not used enough to know whether a greater limit would be fine.
+            return limit;
+        }
+
+    }
+
+    /**
+     * Follows the gradient of the round trip time.
+     */
+    @NotThreadSafe
+    private static final class GradientLimit implements LimitAlgorithm {
+
+        /**
+         * Limit to start with.
+         */
+        private final int initialLimit;
+        /**
+         * Lower bound of the limit.
+         */
+        private final int minLimit;
+        /**
+         * Upper bound of the limit.
+         */
+        private final int maxLimit;
+        /**
+         * Weight of a new limit.
+         */
+        private final double smoothing;
+        /**
+         * Number of samples after which the minimum round trip time is measured again.
+         */
+        private final int probeInterval;
+        /**
+         * Samples since the last probe.
+         */
+        private int samples;
+        /**
+         * Limit with fraction, so that small changes accumulate.
+         */
+        private double estimatedLimit;
+        /**
+         * Minimum round trip time since the last probe, {@code 0} until the first sample.
+         */
+        private long minRtt;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param initialLimit limit to start with
+         * @param minLimit lower bound of the limit
+         * @param maxLimit upper bound of the limit
+         * @param smoothing weight of a new limit
+         * @param probeInterval number of samples after which the minimum round trip time is measured again
+         */
+        GradientLimit(final int initialLimit, final int minLimit, final int maxLimit, final double smoothing,
+            final int probeInterval) {
+            super();
+            this.initialLimit = initialLimit;
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.smoothing = smoothing;
+            this.probeInterval = probeInterval;
+            estimatedLimit = initialLimit;
+        }
+
+        @Override
+        public int initialLimit() {
+            return initialLimit;
+        }
+
+        @Override
+        public int update(final int limit, final long rttNanos, final int inFlight, final boolean dropped) {
+            final long rtt = Math.max(1, rttNanos);
+
+            if (++samples >= probeInterval) {
+                // Let the queue drain, so that the next samples show the latency of the unloaded downstream.
+                samples = 0;
+                minRtt = 0;
+                estimatedLimit = Math.max(minLimit, Math.min(estimatedLimit, Math.sqrt(estimatedLimit)));
+                return (int) estimatedLimit;
+            }
+
+            if (minRtt == 0 || rtt < minRtt) {
+                minRtt = rtt;
+            }
+
+            if (!dropped && inFlight < estimatedLimit / 2) {
+                // Not used enough to know whether a greater limit would be fine.
+                return (int) estimatedLimit;
+            }
+
+            final double gradient = dropped
+                ? MIN_GRADIENT
+                : Math.max(MIN_GRADIENT, Math.min(1.0, RTT_TOLERANCE * minRtt / rtt));
+            final double queueSize = Math.sqrt(estimatedLimit);
+            final double newLimit = estimatedLimit * gradient + queueSize;
+            estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+                estimatedLimit * (1 - smoothing) + newLimit * smoothing));
+            return (int) estimatedLimit;
+        }
+
+    }
+}
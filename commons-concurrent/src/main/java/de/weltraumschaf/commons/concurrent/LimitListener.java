@@ -0,0 +1,34 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+/**
+ * Gets notified if a {@link ConcurrencyLimiter} changes its limit.
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@FunctionalInterface
+public interface LimitListener {
+
+    /**
+     * Called by the thread which released the permit that caused the change.
+     * <p>
+     * Must return quickly, because it delays the releasing thread.
+     * </p>
+     *
+     * @param oldLimit limit before the change
+     * @param newLimit limit after the change
+     */
+    void limitChanged(int oldLimit, int newLimit);
+
+}
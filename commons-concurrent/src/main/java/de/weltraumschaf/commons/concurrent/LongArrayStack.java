@@ -0,0 +1,99 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Bounded stack of {@code long} values.
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+final class LongArrayStack extends AbstractPrimitiveArrayStack implements LongStack {
+
+    /**
+     * Holds the values.
+     * <p>
+     * Written only by the thread which owns the slot, before pushing it.
+     * </p>
+     */
+    private final long[] values;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param capacity must be greater than 0
+     */
+    LongArrayStack(final int capacity) {
+        super(capacity);
+        values = new long[capacity];
+    }
+
+    @Override
+    public long peek(final long emptyValue) {
+        while (true) {
+            final long stamped = stampedTop();
+            final int slot = index(stamped);
+
+            if (NONE == slot) {
+                return emptyValue;
+            }
+
+            final long value = values[slot];
+
+            if (stamped == stampedTop()) {
+                return value;
+            }
+        }
+    }
+
+    @Override
+    public long pop(final long emptyValue) {
+        final int slot = popSlot();
+
+        if (NONE == slot) {
+            return emptyValue;
+        }
+
+        final long value = values[slot];
+        release(slot);
+        return value;
+    }
+
+    @Override
+    public void push(final long value) {
+        if (!offer(value)) {
+            throw new IllegalStateException(String.format("Stack is full (capacity %d)!", capacity()));
+        }
+    }
+
+    @Override
+    public boolean offer(final long value) {
+        final int slot = allocate();
+
+        if (NONE == slot) {
+            return false;
+        }
+
+        values[slot] = value;
+        pushSlot(slot);
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[capacity=" + capacity() + ']';
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Bounded queue (FIFO) of primitive {@code long} values.
+ * <p>
+ * Unlike {@link Queue Queue&lt;Long&gt;} no value is boxed and no entry is allocated per value.
+ * </p>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+public interface LongQueue {
+
+    /**
+     * Check if queue is empty.
+     *
+     * @return {@code true} if empty; else {@code false}
+     */
+    boolean isEmpty();
+
+    /**
+     * Add value to the tail of queue.
+     *
+     * @param value added value
+     * @throws IllegalStateException if the queue is full
+     */
+    void add(long value);
+
+    /**
+     * Add value to the tail of queue if it is not full.
+     *
+     * @param value added value
+     * @return {@code true} if the value was added, {@code false} if the queue is full
+     */
+    boolean offer(long value);
+
+    /**
+     * Get value from head of queue.
+     * <p>
+     * Since there is no {@code null} for primitives the caller passes the value returned if the queue is empty.
+     * </p>
+     *
+     * @param emptyValue returned if the queue is empty
+     * @return first value or {@code emptyValue}
+     */
+    long get(long emptyValue);
+
+}
@@ -0,0 +1,76 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Bounded queue of {@code long} values for many producing and consuming threads.
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+final class LongRingBufferQueue extends AbstractPrimitiveRingBuffer implements LongQueue {
+
+    /**
+     * Holds the values.
+     * <p>
+     * Written and read only in between claiming and publishing a position.
+     * </p>
+     */
+    private final long[] values;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param capacity must be greater than 0, rounded up to the next power of two
+     */
+    LongRingBufferQueue(final int capacity) {
+        super(capacity);
+        values = new long[capacity()];
+    }
+
+    @Override
+    public void add(final long value) {
+        if (!offer(value)) {
+            throw new IllegalStateException(String.format("Queue is full (capacity %d)!", capacity()));
+        }
+    }
+
+    @Override
+    public boolean offer(final long value) {
+        final long position = claimOffer();
+
+        if (NONE == position) {
+            return false;
+        }
+
+        values[index(position)] = value;
+        publishOffer(position);
+        return true;
+    }
+
+    @Override
+    public long get(final long emptyValue) {
+        final long position = claimGet();
+
+        if (NONE == position) {
+            return emptyValue;
+        }
+
+        final long value = values[index(position)];
+        releaseGet(position);
+        return value;
+    }
+
+}
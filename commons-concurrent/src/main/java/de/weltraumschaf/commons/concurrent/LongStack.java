@@ -0,0 +1,73 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Bounded stack (LIFO) of primitive {@code long} values.
+ * <p>
+ * Unlike {@link Stack Stack&lt;Long&gt;} no value is boxed and no entry is allocated per value.
+ * </p>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+public interface LongStack {
+
+    /**
+     * Check if stack is empty.
+     *
+     * @return {@code true} if empty; else {@code false}
+     */
+    boolean isEmpty();
+
+    /**
+     * Returns the top value of stack w/o remove it.
+     * <p>
+     * Since there is no {@code null} for primitives the caller passes the value returned if the stack is empty.
+     * </p>
+     *
+     * @param emptyValue returned if the stack is empty
+     * @return top value or {@code emptyValue}
+     */
+    long peek(long emptyValue);
+
+    /**
+     * Returns the top value of stack and removes it.
+     * <p>
+     * Since there is no {@code null} for primitives the caller passes the value returned if the stack is empty.
+     * </p>
+     *
+     * @param emptyValue returned if the stack is empty
+     * @return top value or {@code emptyValue}
+     */
+    long pop(long emptyValue);
+
+    /**
+     * Push value on top of the stack.
+     *
+     * @param value pushed value
+     * @throws IllegalStateException if the stack is full
+     */
+    void push(long value);
+
+    /**
+     * Push value on top of the stack if it is not full.
+     *
+     * @param value pushed value
+     * @return {@code true} if the value was pushed, {@code false} if the stack is full
+     */
+    boolean offer(long value);
+
+}
@@ -0,0 +1,921 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Durable queue for binary messages backed by memory mapped files.
+ * <p>
+ * Messages are appended to segment files of fixed size which are mapped into memory. If a message does not fit into
+ * the rest of a segment, the segment is closed by an end marker and the message goes into the next one. Segments are
+ * deleted as soon as all of their messages are consumed. The positions of the next message to write and to read are
+ * held in a small mapped cursor file, so the queue continues where it stopped if it is opened again.
+ * </p>
+ * <p>
+ * Producers and consumers claim a record with a compare-and-set on the respective cursor directly in the mapped
+ * memory. A producer marks its record as claimed with the message length, copies the message into it and publishes it
+ * by writing the record header last. Consumers get a read only view of the record, so reading copies nothing.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * SEGMENT     READ                                  WRITE
+ * [len|msg_0, len|msg_1, len|msg_2, len|msg_3, ..., 0, 0, 0]
+ * }</pre>
+ * <p>
+ * Everything written to the mappings survives a crash of the process, because the operating system writes the pages
+ * back to the files. Use {@link #flush()} to make messages survive a crash of the operating system, too. On open, the
+ * queue drops torn records which were claimed but not completely written when the process died. The directory must not
+ * be opened by more than one instance at the same time.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * try (MappedQueue queue = new MappedQueue(Paths.get("/var/spool/work"))) {
+ *     queue.add(ByteBuffer.wrap(message));
+ *     final ByteBuffer next = queue.get();
+ * }
+ * }</pre>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+public final class MappedQueue implements Queue<ByteBuffer>, Closeable {
+
+    /**
+     * Default size of a segment file in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    /**
+     * Minimum size of a segment file in bytes.
+     */
+    public static final int MIN_SEGMENT_SIZE = 64;
+    /**
+     * Records start at multiples of this, so that their headers are accessed atomically.
+     */
+    private static final int ALIGNMENT = Long.BYTES;
+    /**
+     * Size of the record header which holds the message length plus one.
+     */
+    private static final int HEADER_SIZE = Integer.BYTES;
+    /**
+     * Header of a record which is not written yet.
+     */
+    private static final int UNWRITTEN = 0;
+    /**
+     * Header of the record which closes a segment. Headers below are claimed records, see {@link #claimed(int)}.
+     */
+    private static final int END_OF_SEGMENT = -1;
+    /**
+     * Offset of the write cursor in the cursor file.
+     */
+    private static final int WRITE_CURSOR = 0;
+    /**
+     * Offset of the read cursor in the cursor file, on its own cache line.
+     */
+    private static final int READ_CURSOR = 64;
+    /**
+     * Size of the cursor file in bytes.
+     */
+    private static final int CURSORS_SIZE = 128;
+    /**
+     * Name of the cursor file.
+     */
+    private static final String CURSORS_FILE = "cursors";
+    /**
+     * File name extension of segment files.
+     */
+    private static final String SEGMENT_SUFFIX = ".segment";
+    /**
+     * Accesses record headers in mapped memory.
+     */
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    /**
+     * Accesses cursors in mapped memory.
+     */
+    private static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * Where the files are stored.
+     */
+    private final Path directory;
+    /**
+     * Size of a segment file in bytes.
+     */
+    private final int segmentSize;
+    /**
+     * Holds the lock on the cursor file.
+     */
+    private final FileChannel cursorsChannel;
+    /**
+     * Prevents that the directory is opened twice.
+     */
+    private final FileLock lock;
+    /**
+     * Mapped cursor file.
+     */
+    private final MappedByteBuffer cursors;
+    /**
+     * Mapped segments by index.
+     */
+    private final ConcurrentMap<Long, Segment> segments = new ConcurrentHashMap<>();
+    /**
+     * Number of queued messages.
+     */
+    private final LongAdder count = new LongAdder();
+    /**
+     * Last segment written to, racy cache to spare the map lookup.
+     */
+    private Segment lastWritten;
+    /**
+     * Last segment read from, racy cache to spare the map lookup.
+     */
+    private Segment lastRead;
+    /**
+     * Write cursor found on open, claimed records before it were torn by a crash.
+     */
+    private final long recovered;
+    /**
+     * Set on close.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Opens a queue with segments of {@link #DEFAULT_SEGMENT_SIZE default size}.
+     *
+     * @param directory must not be {@code null}, created if it does not exist
+     * @throws IOException if the files can't be created or read
+     */
+    public MappedQueue(final Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Dedicated constructor.
+     * <p>
+     * The segment size limits the size of a single message. It must not be changed for an existing queue.
+     * </p>
+     *
+     * @param directory must not be {@code null}, created if it does not exist
+     * @param segmentSize multiple of 8, not less than {@link #MIN_SEGMENT_SIZE}
+     * @throws IOException if the files can't be created or read
+     */
+    public MappedQueue(final Path directory, final int segmentSize) throws IOException {
+        super();
+
+        if (null == directory) {
+            throw new NullPointerException("Parameter 'directory' must not be null!");
+        }
+
+        if (segmentSize < MIN_SEGMENT_SIZE || segmentSize % ALIGNMENT != 0) {
+            throw new IllegalArgumentException(String.format(
+                "Parameter 'segmentSize' must be a multiple of %d not less than %d!", ALIGNMENT, MIN_SEGMENT_SIZE));
+        }
+
+        this.directory = Files.createDirectories(directory);
+        this.segmentSize = segmentSize;
+        cursorsChannel = FileChannel.open(directory.resolve(CURSORS_FILE),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            lock = lockCursors();
+            cursors = cursorsChannel.map(FileChannel.MapMode.READ_WRITE, 0, CURSORS_SIZE);
+            recovered = recover();
+        } catch (final IOException | RuntimeException ex) {
+            cursorsChannel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Locks the cursor file for this instance.
+     *
+     * @return never {@code null}
+     * @throws IOException if the lock can't be acquired
+     */
+    private FileLock lockCursors() throws IOException {
+        FileLock acquired;
+
+        try {
+            acquired = cursorsChannel.tryLock();
+        } catch (final OverlappingFileLockException ex) {
+            acquired = null;
+        }
+
+        if (null == acquired) {
+            throw new IOException(String.format("Queue in '%s' is already opened!", directory));
+        }
+
+        return acquired;
+    }
+
+    /**
+     * Restores the write cursor and the count from the records following the read cursor.
+     * <p>
+     * The write cursor is advanced before the record is written, so the persisted one may point behind torn records.
+     * Also the pages of the cursor file and the segments may be written back in any order. So the records themselves
+     * are the truth: Torn records which were claimed are skipped, because their header tells their size. Everything
+     * after the last record is cleared so that it is not mistaken as record later. This includes a record whose claim
+     * was not written at all, because then the position of the following records is unknown.
+     * </p>
+     *
+     * @return the restored write cursor
+     * @throws IOException if obsolete segments can't be deleted
+     */
+    private long recover() throws IOException {
+        long position = readCursor();
+        long records = 0;
+
+        while (true) {
+            final MappedByteBuffer segment = segment(index(position), false);
+
+            if (null == segment) {
+                break;
+            }
+
+            final int offset = offset(position);
+            final int header = (int) INT.getVolatile(segment, offset);
+
+            if (END_OF_SEGMENT == header) {
+                position += segmentSize - offset;
+                continue;
+            }
+
+            if (UNWRITTEN == header || recordSize(length(header)) > segmentSize - offset) {
+                clear(segment, offset);
+                break;
+            }
+
+            position += recordSize(length(header));
+
+            if (header > UNWRITTEN) {
+                ++records;
+            }
+        }
+
+        LONG.setVolatile(cursors, WRITE_CURSOR, position);
+        count.add(records);
+        deleteSegmentsOutside(index(readCursor()), index(position));
+        return position;
+    }
+
+    /**
+     * Zeroes a segment from the offset to its end.
+     *
+     * @param segment not {@code null}
+     * @param offset multiple of {@link #ALIGNMENT}
+     */
+    private void clear(final MappedByteBuffer segment, final int offset) {
+        for (int i = offset; i < segmentSize; i += Long.BYTES) {
+            // Only touch dirty pages.
+            if (0 != segment.getLong(i)) {
+                segment.putLong(i, 0);
+            }
+        }
+    }
+
+    /**
+     * Deletes segment files left over by a crash.
+     *
+     * @param first index of the first live segment
+     * @param last index of the last live segment
+     * @throws IOException if a file can't be deleted
+     */
+    private void deleteSegmentsOutside(final long first, final long last) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (final Path file : files) {
+                final String name = file.getFileName().toString();
+                final long index = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+
+                if (index < first || index > last) {
+                    segments.remove(index);
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * The size of a segment file in bytes.
+     *
+     * @return multiple of 8
+     */
+    public int segmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * The maximum size of a message in bytes.
+     *
+     * @return greater than 0
+     */
+    public int maxMessageSize() {
+        return segmentSize - HEADER_SIZE;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Copies the remaining bytes of the element into the queue. The position of the element is not changed.
+     * </p>
+     *
+     * @param element must not be {@code null}
+     * @throws IllegalArgumentException if the element is larger than {@link #maxMessageSize()}
+     * @throws IllegalStateException if the queue is closed
+     * @throws UncheckedIOException if a new segment can't be created, the queue is not changed then
+     */
+    @Override
+    public void add(final ByteBuffer element) {
+        if (null == element) {
+            throw new NullPointerException("Parameter 'element' must not be null!");
+        }
+
+        checkOpen();
+        final int length = element.remaining();
+
+        if (length > maxMessageSize()) {
+            throw new IllegalArgumentException(String.format(
+                "Element of %d bytes is larger than the maximum message size %d!", length, maxMessageSize()));
+        }
+
+        final int recordSize = recordSize(length);
+
+        while (true) {
+            final long position = (long) LONG.getVolatile(cursors, WRITE_CURSOR);
+            final int offset = offset(position);
+            // Mapped before the record is claimed, so that a failure does not leave a claimed record nobody writes.
+            final MappedByteBuffer segment = segment(index(position), true);
+
+            if (offset + recordSize > segmentSize) {
+                // Does not fit: Whoever closes the segment writes the end marker.
+                if (LONG.compareAndSet(cursors, WRITE_CURSOR, position, position - offset + segmentSize)) {
+                    INT.setRelease(segment, offset, END_OF_SEGMENT);
+                    continue;
+                }
+            } else if (LONG.compareAndSet(cursors, WRITE_CURSOR, position, position + recordSize)) {
+                // Tells the recovery how to skip the record if the process dies before it is published.
+                INT.setRelease(segment, offset, claimed(length));
+                segment.put(offset + HEADER_SIZE, element, element.position(), length);
+                // Publishes the message.
+                INT.setRelease(segment, offset, length + 1);
+                count.increment();
+                return;
+            }
+
+            // Another producer was faster. The position may be so outdated that the segment was consumed meanwhile,
+            // then it was created again by the mapping above.
+            if (index(position) < index(readCursor())) {
+                release(index(position));
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned buffer is a read only view into the mapped segment, so nothing is copied. It stays valid even if
+     * the segment is deleted meanwhile.
+     * </p>
+     *
+     * @return read only, {@code null} if queue is empty
+     * @throws IllegalStateException if the queue is closed
+     */
+    @Override
+    public ByteBuffer get() {
+        checkOpen();
+
+        while (true) {
+            final long position = readCursor();
+            final MappedByteBuffer segment = segment(index(position), false);
+
+            if (null == segment) {
+                if (position == readCursor()) {
+                    // The producers have not started the segment yet.
+                    return null;
+                }
+
+                continue;
+            }
+
+            final int offset = offset(position);
+            final int header = (int) INT.getAcquire(segment, offset);
+
+            if (UNWRITTEN == header || isInProgress(position, header)) {
+                if (position == readCursor()) {
+                    return null;
+                }
+
+                continue;
+            }
+
+            if (END_OF_SEGMENT == header) {
+                final long next = position - offset + segmentSize;
+
+                if (LONG.compareAndSet(cursors, READ_CURSOR, position, next)) {
+                    release(index(position));
+                }
+
+                continue;
+            }
+
+            final int length = length(header);
+            final long next = position + recordSize(length);
+
+            if (LONG.compareAndSet(cursors, READ_CURSOR, position, next)) {
+                if (offset(next) == 0) {
+                    // The record filled the segment up to its end.
+                    release(index(position));
+                }
+
+                if (header < END_OF_SEGMENT) {
+                    // Torn by a crash.
+                    continue;
+                }
+
+                count.decrement();
+                return segment.slice(offset + HEADER_SIZE, length).asReadOnlyBuffer();
+            }
+            // Another consumer was faster.
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Restored from the segments when the queue is opened.
+     * </p>
+     */
+    @Override
+    public int size() {
+        return (int) Math.max(0, Math.min(count.sum(), Integer.MAX_VALUE));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Returns read only views into the mapped segments, like {@link #get()}.
+     * </p>
+     */
+    @Override
+    public Iterator<ByteBuffer> iterator() {
+        checkOpen();
+        return new RecordIterator();
+    }
+
+    /**
+     * View of this queue which copies the messages from and into byte arrays.
+     * <p>
+     * Convenient if the messages are processed as arrays anyway. Use this queue directly to avoid the copy on read.
+     * </p>
+     *
+     * @return never {@code null}, backed by this queue
+     */
+    public Queue<byte[]> asByteArrayQueue() {
+        return new ByteArrayQueue();
+    }
+
+    /**
+     * Writes all changes of the mapped files to the storage device.
+     *
+     * @throws IllegalStateException if the queue is closed
+     */
+    public void flush() {
+        checkOpen();
+
+        for (final Segment segment : segments.values()) {
+            segment.buffer.force();
+        }
+
+        cursors.force();
+    }
+
+    /**
+     * Flushes and releases the files.
+     * <p>
+     * Buffers returned by {@link #get()} stay valid.
+     * </p>
+     *
+     * @throws IOException if the cursor file can't be released
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        flush();
+        closed = true;
+        segments.clear();
+        lastWritten = null;
+        lastRead = null;
+
+        try {
+            lock.release();
+        } finally {
+            cursorsChannel.close();
+        }
+    }
+
+    /**
+     * Whether the queue is closed.
+     *
+     * @return {@code true} after {@link #close()}
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[directory=" + directory + ", size=" + size() + ']';
+    }
+
+    /**
+     * Throws an exception if the queue is closed.
+     */
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Queue is closed!");
+        }
+    }
+
+    /**
+     * Position of the next record to read.
+     *
+     * @return not negative
+     */
+    private long readCursor() {
+        return (long) LONG.getVolatile(cursors, READ_CURSOR);
+    }
+
+    /**
+     * Maps a position to the index of its segment.
+     *
+     * @param position not negative
+     * @return not negative
+     */
+    private long index(final long position) {
+        return position / segmentSize;
+    }
+
+    /**
+     * Maps a position to its offset in the segment.
+     *
+     * @param position not negative
+     * @return less than segment size
+     */
+    private int offset(final long position) {
+        return (int) (position % segmentSize);
+    }
+
+    /**
+     * Computes the size of a record including header and padding.
+     *
+     * @param length message length in bytes
+     * @return multiple of {@link #ALIGNMENT}
+     */
+    private static int recordSize(final int length) {
+        return (HEADER_SIZE + length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    /**
+     * Computes the header of a claimed record which is not published yet.
+     *
+     * @param length message length in bytes
+     * @return less than {@link #END_OF_SEGMENT}
+     */
+    private static int claimed(final int length) {
+        return -length - 2;
+    }
+
+    /**
+     * Gets the message length from the header of a published or claimed record.
+     *
+     * @param header neither {@link #UNWRITTEN} nor {@link #END_OF_SEGMENT}
+     * @return not negative
+     */
+    private static int length(final int header) {
+        return header > UNWRITTEN ? header - 1 : -header - 2;
+    }
+
+    /**
+     * Whether a record is claimed by a producer which is still writing it.
+     * <p>
+     * Claimed records before the write cursor found on open were torn by a crash.
+     * </p>
+     *
+     * @param position position of the record
+     * @param header header of the record
+     * @return {@code true} if the record will be published
+     */
+    private boolean isInProgress(final long position, final int header) {
+        return header < END_OF_SEGMENT && position >= recovered;
+    }
+
+    /**
+     * Returns a mapped segment.
+     *
+     * @param index index of segment
+     * @param create {@code true} to create a missing segment file
+     * @return {@code null} if the segment file does not exist and {@code create} is {@code false}
+     * @throws UncheckedIOException if the segment file can't be mapped
+     */
+    private MappedByteBuffer segment(final long index, final boolean create) {
+        final Segment cached = create ? lastWritten : lastRead;
+
+        if (null != cached && cached.index == index) {
+            return cached.buffer;
+        }
+
+        Segment segment = segments.get(index);
+
+        if (null == segment) {
+            segment = map(index, create);
+
+            if (null == segment) {
+                return null;
+            }
+
+            final Segment raced = segments.putIfAbsent(index, segment);
+
+            if (null != raced) {
+                segment = raced;
+            }
+        }
+
+        if (create) {
+            lastWritten = segment;
+        } else {
+            lastRead = segment;
+        }
+
+        return segment.buffer;
+    }
+
+    /**
+     * Maps a segment file.
+     *
+     * @param index index of segment
+     * @param create {@code true} to create a missing segment file
+     * @return {@code null} if the segment file does not exist and {@code create} is {@code false}
+     * @throws UncheckedIOException if the segment file can't be mapped
+     */
+    private Segment map(final long index, final boolean create) {
+        final Path file = directory.resolve(String.format("%020d%s", index, SEGMENT_SUFFIX));
+        final StandardOpenOption[] options = create
+            ? new StandardOpenOption[]{StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE}
+            : new StandardOpenOption[]{StandardOpenOption.READ, StandardOpenOption.WRITE};
+
+        try (FileChannel channel = FileChannel.open(file, options)) {
+            // Grows the file to the segment size filled with zeroes.
+            return new Segment(index, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        } catch (final NoSuchFileException ex) {
+            return null;
+        } catch (final IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Deletes a consumed segment.
+     * <p>
+     * The mapping itself is released by the garbage collector, when no returned buffer references it anymore. If the
+     * file can't be deleted now, it is deleted when the queue is opened the next time.
+     * </p>
+     *
+     * @param index index of segment
+     */
+    private void release(final long index) {
+        final Segment segment = segments.remove(index);
+        final Path file = directory.resolve(String.format("%020d%s", index, SEGMENT_SUFFIX));
+
+        try {
+            Files.deleteIfExists(file);
+        } catch (final IOException ex) {
+            // Deleted on next open.
+        }
+
+        if (null != segment && lastRead == segment) {
+            lastRead = null;
+        }
+    }
+
+    /**
+     * Mapped segment file.
+     */
+    private static final class Segment {
+
+        /**
+         * Index of the segment.
+         */
+        private final long index;
+        /**
+         * Mapped file.
+         */
+        private final MappedByteBuffer buffer;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param index index of the segment
+         * @param buffer mapped file
+         */
+        Segment(final long index, final MappedByteBuffer buffer) {
+            super();
+            this.index = index;
+            this.buffer = buffer;
+        }
+
+    }
+
+    /**
+     * Iterates the records from the read cursor to the first record which is not written yet.
+     * <p>
+     * A record is only returned if the read cursor has not passed it after its header was read.
+     * </p>
+     */
+    private final class RecordIterator implements Iterator<ByteBuffer> {
+
+        /**
+         * Position of the next record to read.
+         */
+        private long position = readCursor();
+        /**
+         * Next element to return, {@code null} if there are no more elements.
+         */
+        private ByteBuffer nextElement;
+
+        /**
+         * Dedicated constructor.
+         */
+        RecordIterator() {
+            super();
+            advance();
+        }
+
+        /**
+         * Reads records until it finds one which is still queued.
+         */
+        private void advance() {
+            nextElement = null;
+
+            while (true) {
+                // Skip the records consumed meanwhile.
+                position = Math.max(position, readCursor());
+                final MappedByteBuffer segment = segment(index(position), false);
+
+                if (null == segment) {
+                    if (position < readCursor()) {
+                        continue;
+                    }
+
+                    return;
+                }
+
+                final int offset = offset(position);
+                final int header = (int) INT.getAcquire(segment, offset);
+
+                if (UNWRITTEN == header || isInProgress(position, header)) {
+                    if (position < readCursor()) {
+                        continue;
+                    }
+
+                    return;
+                }
+
+                if (END_OF_SEGMENT == header) {
+                    position += segmentSize - offset;
+                    continue;
+                }
+
+                final boolean queued = readCursor() <= position && header > UNWRITTEN;
+                position += recordSize(length(header));
+
+                if (queued) {
+                    nextElement = segment.slice(offset + HEADER_SIZE, length(header)).asReadOnlyBuffer();
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return null != nextElement;
+        }
+
+        @Override
+        public ByteBuffer next() {
+            if (null == nextElement) {
+                throw new NoSuchElementException();
+            }
+
+            final ByteBuffer element = nextElement;
+            advance();
+            return element;
+        }
+
+    }
+
+    /**
+     * Copies messages from and into byte arrays.
+     */
+    private final class ByteArrayQueue implements Queue<byte[]> {
+
+        @Override
+        public boolean isEmpty() {
+            return MappedQueue.this.isEmpty();
+        }
+
+        @Override
+        public void add(final byte[] element) {
+            if (null == element) {
+                throw new NullPointerException("Parameter 'element' must not be null!");
+            }
+
+            MappedQueue.this.add(ByteBuffer.wrap(element));
+        }
+
+        @Override
+        public byte[] get() {
+            final ByteBuffer element = MappedQueue.this.get();
+            return null == element ? null : toArray(element);
+        }
+
+        @Override
+        public int size() {
+            return MappedQueue.this.size();
+        }
+
+        @Override
+        public Iterator<byte[]> iterator() {
+            final Iterator<ByteBuffer> elements = MappedQueue.this.iterator();
+
+            return new Iterator<byte[]>() {
+                @Override
+                public boolean hasNext() {
+                    return elements.hasNext();
+                }
+
+                @Override
+                public byte[] next() {
+                    return toArray(elements.next());
+                }
+            };
+        }
+
+        /**
+         * Copies the remaining bytes.
+         *
+         * @param element not {@code null}
+         * @return never {@code null}
+         */
+        private byte[] toArray(final ByteBuffer element) {
+            final byte[] bytes = new byte[element.remaining()];
+            element.get(bytes);
+            return bytes;
+        }
+
+        @Override
+        public String toString() {
+            return MappedQueue.this.toString();
+        }
+
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Bounded queue for many producing and many consuming threads implemented with the algorithm from Dmitry Vyukov.
+ * <p>
+ * Each slot has its own sequence number which tells whose turn it is: If it equals the position of a producer the
+ * slot is free for this position. If it equals the position of a consumer plus one the slot holds the element for this
+ * position. Producers and consumers claim their position with a compare-and-set on tail respectively head and publish
+ * the slot for the other side by advancing its sequence number.
+ * </p>
+ * <p>
+ * The queue does not accept {@code null} elements.
+ * </p>
+ *
+ * @since 2.3.0
+ * @param <E> type of queue entries
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+final class MpmcRingBufferQueue<E> extends AbstractRingBufferQueue<E> {
+
+    /**
+     * Sequence number per slot.
+     */
+    private final AtomicLongArray sequences;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param capacity must be greater than 0, rounded up to the next power of two
+     */
+    MpmcRingBufferQueue(final int capacity) {
+        super(capacity);
+        sequences = new AtomicLongArray(capacity());
+
+        for (int i = 0; i < sequences.length(); ++i) {
+            sequences.set(i, i);
+        }
+    }
+
+    @Override
+    public boolean offer(final E element) {
+        checkNotNull(element);
+
+        while (true) {
+            final long currentTail = tail.get();
+            final int index = index(currentTail);
+            final long distance = sequences.get(index) - currentTail;
+
+            if (distance < 0) {
+                // The slot still holds the element of the previous round.
+                return false;
+            }
+
+            if (distance == 0 && tail.compareAndSet(currentTail, currentTail + 1)) {
+                buffer.lazySet(index, element);
+                sequences.lazySet(index, currentTail + 1);
+                return true;
+            }
+            // Another producer was faster.
+        }
+    }
+
+    @Override
+    public E get() {
+        while (true) {
+            final long currentHead = head.get();
+            final int index = index(currentHead);
+            final long distance = sequences.get(index) - (currentHead + 1);
+
+            if (distance < 0) {
+                // The slot is not filled yet.
+                return null;
+            }
+
+            if (distance == 0 && head.compareAndSet(currentHead, currentHead + 1)) {
+                final E element = buffer.get(index);
+                buffer.lazySet(index, null);
+                sequences.lazySet(index, currentHead + capacity());
+                return element;
+            }
+            // Another consumer was faster.
+        }
+    }
+
+}
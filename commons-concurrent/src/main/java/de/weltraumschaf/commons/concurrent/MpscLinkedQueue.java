@@ -0,0 +1,237 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Unbounded queue for many producing threads and exactly one consuming thread.
+ * <p>
+ * Implemented with a linked list which starts with a sentinel entry like {@link ConcurrentQueue}. Producers append
+ * with a single compare-and-set on the tail and link the predecessor afterwards. The single consumer needs no
+ * compare-and-set at all: It follows the link of the sentinel and makes the successor the new sentinel. If a producer
+ * swung the tail but has not linked its entry yet, the consumer spins until it is linked.
+ * </p>
+ * <p>
+ * Each entry knows its position in the queue, so the size is known in constant time. The queue allocates only one entry
+ * per element, so an empty queue costs only the sentinel. This suits many queues with few elements, like the mailboxes
+ * of {@link ActorRuntime actors}.
+ * </p>
+ * <p>
+ * The queue does not accept {@code null} elements.
+ * </p>
+ *
+ * @since 2.3.0
+ * @param <E> type of queue entries
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+final class MpscLinkedQueue<E> implements Queue<E> {
+
+    /**
+     * References the sentinel, only written by the consumer.
+     */
+    private final AtomicReference<Entry<E>> head;
+    /**
+     * References the last entry.
+     */
+    private final AtomicReference<Entry<E>> tail;
+
+    /**
+     * Dedicated constructor.
+     */
+    MpscLinkedQueue() {
+        super();
+        final Entry<E> sentinel = new Entry<>(null, 0);
+        head = new AtomicReference<>(sentinel);
+        tail = new AtomicReference<>(sentinel);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    @Override
+    public void add(final E element) {
+        if (null == element) {
+            throw new NullPointerException("Parameter 'element' must not be null!");
+        }
+
+        while (true) {
+            final Entry<E> last = tail.get();
+            final Entry<E> entry = new Entry<>(element, last.position + 1);
+
+            if (tail.compareAndSet(last, entry)) {
+                last.next = entry;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public E get() {
+        final Entry<E> sentinel = head.get();
+        Entry<E> first = sentinel.next;
+
+        if (null == first) {
+            if (sentinel == tail.get()) {
+                return null;
+            }
+
+            // A producer swung the tail, but has not linked its entry yet.
+            do {
+                Thread.onSpinWait();
+                first = sentinel.next;
+            } while (null == first);
+        }
+
+        final E element = first.value;
+        first.value = null;
+        head.lazySet(first);
+        return element;
+    }
+
+    @Override
+    public int size() {
+        // Read the head first, so that the size is not negative.
+        final long first = head.get().position;
+        return (int) Math.min(tail.get().position - first, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new EntryIterator<>(head.get().next);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder buffer = new StringBuilder(getClass().getSimpleName()).append('[');
+        boolean first = true;
+
+        for (final E element : this) {
+            if (!first) {
+                buffer.append(", ");
+            }
+
+            buffer.append(element);
+            first = false;
+        }
+
+        return buffer.append(']').toString();
+    }
+
+    /**
+     * Entry of the linked list.
+     *
+     * @param <T> type of the element
+     */
+    private static final class Entry<T> {
+
+        /**
+         * Position in the queue, the initial sentinel has position 0.
+         */
+        private final long position;
+        /**
+         * Entry element, cleared when the entry becomes the sentinel.
+         */
+        private T value;
+        /**
+         * Link to next entry, {@code null} until the producer linked it.
+         */
+        private volatile Entry<T> next;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param value entry element
+         * @param position position in the queue
+         */
+        Entry(final T value, final long position) {
+            super();
+            this.value = value;
+            this.position = position;
+        }
+
+    }
+
+    /**
+     * Weakly consistent iterator which skips elements the consumer took meanwhile.
+     *
+     * @param <T> type of the elements
+     */
+    private static final class EntryIterator<T> implements Iterator<T> {
+
+        /**
+         * Entry of the next element, {@code null} if there are no more elements.
+         */
+        private Entry<T> nextEntry;
+        /**
+         * Value of {@link #nextEntry} read before it may be cleared.
+         */
+        private T nextValue;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param start first entry, may be {@code null}
+         */
+        EntryIterator(final Entry<T> start) {
+            super();
+            advance(start);
+        }
+
+        /**
+         * Finds the next entry which is still queued.
+         *
+         * @param start first entry to check, may be {@code null}
+         */
+        private void advance(final Entry<T> start) {
+            Entry<T> entry = start;
+
+            while (null != entry) {
+                final T value = entry.value;
+
+                if (null != value) {
+                    nextEntry = entry;
+                    nextValue = value;
+                    return;
+                }
+
+                entry = entry.next;
+            }
+
+            nextEntry = null;
+            nextValue = null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return null != nextEntry;
+        }
+
+        @Override
+        public T next() {
+            if (null == nextEntry) {
+                throw new NoSuchElementException();
+            }
+
+            final T value = nextValue;
+            advance(nextEntry.next);
+            return value;
+        }
+
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Bounded queue for many producing threads and exactly one consuming thread.
+ * <p>
+ * Producers claim a slot with a compare-and-set on the tail and then publish the element into the slot with an
+ * ordered write. The single consumer needs no compare-and-set: It waits until the claimed slot is filled, clears it and
+ * advances the head.
+ * </p>
+ * <p>
+ * The queue does not accept {@code null} elements.
+ * </p>
+ *
+ * @since 2.3.0
+ * @param <E> type of queue entries
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+final class MpscRingBufferQueue<E> extends AbstractRingBufferQueue<E> {
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param capacity must be greater than 0, rounded up to the next power of two
+     */
+    MpscRingBufferQueue(final int capacity) {
+        super(capacity);
+    }
+
+    @Override
+    public boolean offer(final E element) {
+        checkNotNull(element);
+
+        while (true) {
+            final long currentTail = tail.get();
+
+            if (currentTail - head.get() > mask) {
+                return false;
+            }
+
+            if (tail.compareAndSet(currentTail, currentTail + 1)) {
+                buffer.lazySet(index(currentTail), element);
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public E get() {
+        final long currentHead = head.get();
+        final int index = index(currentHead);
+        E element = buffer.get(index);
+
+        if (null == element) {
+            if (currentHead >= tail.get()) {
+                return null;
+            }
+
+            // A producer claimed the slot, but has not published the element yet.
+            do {
+                Thread.onSpinWait();
+                element = buffer.get(index);
+            } while (null == element);
+        }
+
+        buffer.lazySet(index, null);
+        head.lazySet(currentHead + 1);
+        return element;
+    }
+
+}
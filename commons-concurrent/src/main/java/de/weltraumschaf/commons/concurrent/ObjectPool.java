@@ -0,0 +1,568 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.lang.ref.Cleaner;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import net.jcip.annotations.NotThreadSafe;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Lock-free pool for objects which are expensive to create, like large buffers or parsers.
+ * <p>
+ * Each thread caches a few idle objects in a thread local array, so acquiring and returning on the same thread touches
+ * no shared state at all. If the local cache is empty or full, the thread falls back to a shared
+ * {@link Concurrent#newStack() compare-and-set stack}. Acquiring never blocks: If no idle object is available, the
+ * factory creates a new one.
+ * </p>
+ * <p>
+ * The maximum size bounds the idle objects in the shared stack. Each thread caches up to eight more, but not more than
+ * the maximum size. Returned objects beyond that are left to the garbage collector. A reset hook is called on each
+ * returned object before it becomes idle, so the next user gets it in a clean state.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * final ObjectPool<StringBuilder> pool = new ObjectPool<>(StringBuilder::new, sb -> sb.setLength(0), 64);
+ *
+ * try (ObjectPool.Lease<StringBuilder> lease = pool.acquire()) {
+ *     final StringBuilder buffer = lease.get();
+ *     // ...
+ * }
+ * }</pre>
+ * <p>
+ * With leak detection each lease records where it was acquired. If a lease becomes unreachable before it was closed,
+ * its object is lost for the pool and the handler gets an exception whose stack trace shows the acquisition. Recording
+ * the stack trace is expensive, so enable it only to hunt leaks.
+ * </p>
+ *
+ * @since 2.3.0
+ * @param <T> type of pooled objects
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+public final class ObjectPool<T> {
+
+    /**
+     * Default number of idle objects each thread caches.
+     */
+    private static final int DEFAULT_LOCAL_SIZE = 8;
+
+    /**
+     * Creates new objects.
+     */
+    private final Supplier<? extends T> factory;
+    /**
+     * Called on each returned object.
+     */
+    private final Consumer<? super T> reset;
+    /**
+     * Maximum number of idle objects in the shared stack.
+     */
+    private final int maxSize;
+    /**
+     * Maximum number of idle objects per thread.
+     */
+    private final int localSize;
+    /**
+     * Idle objects shared by all threads.
+     */
+    private final Stack<Slot<T>> shared = Concurrent.newStack();
+    /**
+     * Idle objects of the current thread.
+     */
+    private final ThreadLocal<LocalCache<T>> local;
+    /**
+     * Number of objects created by the factory.
+     */
+    private final AtomicLong created = new AtomicLong();
+    /**
+     * {@code null} if leaks are not detected.
+     */
+    private final LeakDetector leakDetector;
+
+    /**
+     * Creates a pool which does not reset returned objects.
+     *
+     * @param factory must not be {@code null}
+     * @param maxSize greater than 0
+     */
+    public ObjectPool(final Supplier<? extends T> factory, final int maxSize) {
+        this(factory, object -> { }, maxSize);
+    }
+
+    /**
+     * Creates a pool which does not detect leaks.
+     *
+     * @param factory must not be {@code null}
+     * @param reset called on each returned object, must not be {@code null}
+     * @param maxSize greater than 0
+     */
+    public ObjectPool(final Supplier<? extends T> factory, final Consumer<? super T> reset, final int maxSize) {
+        this(factory, reset, maxSize, Math.min(DEFAULT_LOCAL_SIZE, maxSize), null);
+    }
+
+    /**
+     * Creates a pool which detects leases never closed.
+     *
+     * @param factory must not be {@code null}
+     * @param reset called on each returned object, must not be {@code null}
+     * @param maxSize greater than 0
+     * @param leakHandler called by a background thread for each leak, must not be {@code null}
+     */
+    public ObjectPool(final Supplier<? extends T> factory, final Consumer<? super T> reset, final int maxSize,
+        final Consumer<? super Throwable> leakHandler) {
+        this(factory, reset, maxSize, Math.min(DEFAULT_LOCAL_SIZE, maxSize), requireLeakHandler(leakHandler));
+    }
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param factory must not be {@code null}
+     * @param reset must not be {@code null}
+     * @param maxSize greater than 0
+     * @param localSize not negative
+     * @param leakHandler {@code null} to not detect leaks
+     */
+    ObjectPool(final Supplier<? extends T> factory, final Consumer<? super T> reset, final int maxSize,
+        final int localSize, final Consumer<? super Throwable> leakHandler) {
+        super();
+
+        if (null == factory) {
+            throw new NullPointerException("Parameter 'factory' must not be null!");
+        }
+
+        if (null == reset) {
+            throw new NullPointerException("Parameter 'reset' must not be null!");
+        }
+
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Parameter 'maxSize' must be greater than 0!");
+        }
+
+        if (localSize < 0) {
+            throw new IllegalArgumentException("Parameter 'localSize' must not be negative!");
+        }
+
+        this.factory = factory;
+        this.reset = reset;
+        this.maxSize = maxSize;
+        this.localSize = localSize;
+        local = ThreadLocal.withInitial(() -> new LocalCache<>(localSize));
+        leakDetector = null == leakHandler ? null : new LeakDetector(leakHandler);
+    }
+
+    /**
+     * Throws an exception if the handler is {@code null}.
+     *
+     * @param leakHandler checked handler
+     * @return the handler
+     */
+    private static Consumer<? super Throwable> requireLeakHandler(final Consumer<? super Throwable> leakHandler) {
+        if (null == leakHandler) {
+            throw new NullPointerException("Parameter 'leakHandler' must not be null!");
+        }
+
+        return leakHandler;
+    }
+
+    /**
+     * Takes an idle object or creates a new one.
+     * <p>
+     * The lease must be closed to return the object.
+     * </p>
+     *
+     * @return never {@code null}
+     */
+    public Lease<T> acquire() {
+        Slot<T> slot = local.get().pop();
+
+        if (null == slot) {
+            slot = shared.pop();
+        }
+
+        if (null == slot) {
+            slot = create();
+        }
+
+        if (null != slot.leak) {
+            slot.leak.acquiredAt = new IllegalStateException("Lease was never closed! It was acquired here.");
+        }
+
+        return new SlotLease<>(slot);
+    }
+
+    /**
+     * Number of objects created so far.
+     *
+     * @return not negative
+     */
+    public long created() {
+        return created.get();
+    }
+
+    /**
+     * Number of leases detected which were never closed.
+     *
+     * @return always {@code 0} if leaks are not detected
+     */
+    public long leaked() {
+        return null == leakDetector ? 0 : leakDetector.leaked.sum();
+    }
+
+    /**
+     * Maximum number of idle objects in the shared stack.
+     *
+     * @return greater than 0
+     */
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Creates a new slot.
+     *
+     * @return never {@code null}
+     */
+    private Slot<T> create() {
+        final T object = factory.get();
+
+        if (null == object) {
+            throw new NullPointerException("Factory created null!");
+        }
+
+        created.incrementAndGet();
+        final Slot<T> slot = new Slot<>(this, object);
+
+        if (null != leakDetector) {
+            slot.leak = new LeakState();
+            slot.cleanable = LeakDetector.CLEANER.register(slot, new LeakAction(slot.leak, leakDetector));
+        }
+
+        return slot;
+    }
+
+    /**
+     * Resets the object of the slot and makes it idle again.
+     *
+     * @param slot returned slot
+     */
+    private void release(final Slot<T> slot) {
+        if (null != slot.leak) {
+            slot.leak.acquiredAt = null;
+        }
+
+        try {
+            reset.accept(slot.object);
+        } catch (final RuntimeException ex) {
+            // Do not pool objects in unknown state.
+            discard(slot);
+            throw ex;
+        }
+
+        if (local.get().push(slot)) {
+            return;
+        }
+
+        // Checking the size first may exceed the maximum by the number of concurrently returning threads.
+        if (shared.size() < maxSize) {
+            shared.push(slot);
+        } else {
+            discard(slot);
+        }
+    }
+
+    /**
+     * Leaves the slot to the garbage collector.
+     *
+     * @param slot idle slot
+     */
+    private static void discard(final Slot<?> slot) {
+        if (null != slot.cleanable) {
+            // Unregisters from the cleaner, nothing is reported because it is not borrowed.
+            slot.cleanable.clean();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[maxSize=" + maxSize + ", localSize=" + localSize
+            + ", created=" + created.get() + ", shared=" + shared.size() + ", leaked=" + leaked() + ']';
+    }
+
+    /**
+     * Grants exclusive use of a pooled object until closed.
+     * <p>
+     * Neither the lease nor its object must be used after closing, because they are handed out again.
+     * </p>
+     *
+     * @param <T> type of pooled objects
+     */
+    public interface Lease<T> extends AutoCloseable {
+
+        /**
+         * The pooled object.
+         *
+         * @return never {@code null}
+         * @throws IllegalStateException if the lease is closed
+         */
+        T get();
+
+        /**
+         * Resets the object and returns it to the pool.
+         *
+         * @throws IllegalStateException if the lease is already closed
+         */
+        @Override
+        void close();
+
+    }
+
+    /**
+     * Holds a pooled object.
+     *
+     * @param <T> type of pooled objects
+     */
+    @NotThreadSafe
+    private static final class Slot<T> {
+
+        /**
+         * The owning pool.
+         */
+        private final ObjectPool<T> pool;
+        /**
+         * The pooled object.
+         */
+        private final T object;
+        /**
+         * {@code null} if leaks are not detected.
+         */
+        private LeakState leak;
+        /**
+         * {@code null} if leaks are not detected.
+         */
+        private Cleaner.Cleanable cleanable;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param pool owning pool
+         * @param object pooled object
+         */
+        Slot(final ObjectPool<T> pool, final T object) {
+            super();
+            this.pool = pool;
+            this.object = object;
+        }
+
+    }
+
+    /**
+     * Lease of a slot.
+     * <p>
+     * Created for each acquisition, because the slot is handed out again once closed: A stale lease must neither
+     * reach the object of the next user nor return it to the pool.
+     * </p>
+     *
+     * @param <T> type of pooled objects
+     */
+    @NotThreadSafe
+    private static final class SlotLease<T> implements Lease<T> {
+
+        /**
+         * The leased slot.
+         */
+        private final Slot<T> slot;
+        /**
+         * Whether the lease is closed.
+         */
+        private boolean closed;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param slot leased slot
+         */
+        SlotLease(final Slot<T> slot) {
+            super();
+            this.slot = slot;
+        }
+
+        @Override
+        public T get() {
+            if (closed) {
+                throw new IllegalStateException("Lease is already closed!");
+            }
+
+            return slot.object;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                throw new IllegalStateException("Lease is already closed!");
+            }
+
+            closed = true;
+            slot.pool.release(slot);
+        }
+
+    }
+
+    /**
+     * Idle slots of one thread.
+     *
+     * @param <T> type of pooled objects
+     */
+    @NotThreadSafe
+    private static final class LocalCache<T> {
+
+        /**
+         * Idle slots, used as stack.
+         */
+        private final Object[] slots;
+        /**
+         * Number of idle slots.
+         */
+        private int size;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param capacity maximum number of idle slots
+         */
+        LocalCache(final int capacity) {
+            super();
+            slots = new Object[capacity];
+        }
+
+        /**
+         * Takes the most recently returned slot, its object is most likely still in the CPU cache.
+         *
+         * @return {@code null} if empty
+         */
+        @SuppressWarnings("unchecked")
+        Slot<T> pop() {
+            if (size == 0) {
+                return null;
+            }
+
+            final Slot<T> slot = (Slot<T>) slots[--size];
+            slots[size] = null;
+            return slot;
+        }
+
+        /**
+         * Adds an idle slot.
+         *
+         * @param slot added slot
+         * @return {@code false} if full
+         */
+        boolean push(final Slot<T> slot) {
+            if (size == slots.length) {
+                return false;
+            }
+
+            slots[size++] = slot;
+            return true;
+        }
+
+    }
+
+    /**
+     * Leak state of a slot.
+     * <p>
+     * Separate from the slot, because the cleaner must not reference the slot it watches.
+     * </p>
+     */
+    private static final class LeakState {
+
+        /**
+         * Where the slot was acquired, {@code null} if it is idle.
+         */
+        private volatile Throwable acquiredAt;
+
+    }
+
+    /**
+     * Counts and reports leaks of one pool.
+     */
+    @ThreadSafe
+    private static final class LeakDetector {
+
+        /**
+         * Shared by all pools, its thread is only started if a pool detects leaks.
+         */
+        private static final Cleaner CLEANER = Cleaner.create();
+
+        /**
+         * Called for each leak.
+         */
+        private final Consumer<? super Throwable> handler;
+        /**
+         * Number of leaks.
+         */
+        private final LongAdder leaked = new LongAdder();
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param handler called for each leak
+         */
+        LeakDetector(final Consumer<? super Throwable> handler) {
+            super();
+            this.handler = handler;
+        }
+
+    }
+
+    /**
+     * Runs if a slot became unreachable or was discarded.
+     */
+    private static final class LeakAction implements Runnable {
+
+        /**
+         * State of the watched slot.
+         */
+        private final LeakState state;
+        /**
+         * Detector of the owning pool.
+         */
+        private final LeakDetector detector;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param state state of the watched slot
+         * @param detector detector of the owning pool
+         */
+        LeakAction(final LeakState state, final LeakDetector detector) {
+            super();
+            this.state = state;
+            this.detector = detector;
+        }
+
+        @Override
+        public void run() {
+            final Throwable acquiredAt = state.acquiredAt;
+
+            if (null != acquiredAt) {
+                detector.leaked.increment();
+                detector.handler.accept(acquiredAt);
+            }
+        }
+
+    }
+}
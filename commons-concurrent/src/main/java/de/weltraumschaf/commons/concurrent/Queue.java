@@ -12,6 +12,13 @@
 
 package de.weltraumschaf.commons.concurrent;
 
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import net.jcip.annotations.ThreadSafe;
 
 /**
@@ -24,7 +31,7 @@ import net.jcip.annotations.ThreadSafe;
  */
 @Deprecated
 @ThreadSafe
-public interface Queue<E> {
+public interface Queue<E> extends Iterable<E> {
 
     /**
      * Check if queue is empty.
@@ -35,11 +42,30 @@ public interface Queue<E> {
 
     /**
      * Add element to the tail of queue.
+     * <p>
+     * Bounded queues throw an {@link IllegalStateException} if the queue is full. Use {@link #offer(Object)} to add
+     * elements w/o exception.
+     * </p>
      *
      * @param element added entry
      */
     void add(E element);
 
+    /**
+     * Add element to the tail of queue if it is not full.
+     * <p>
+     * Unbounded queues are never full and always accept the element.
+     * </p>
+     *
+     * @param element added entry
+     * @return {@code true} if the element was added, {@code false} if the queue is full
+     * @since 2.3.0
+     */
+    default boolean offer(final E element) {
+        add(element);
+        return true;
+    }
+
     /**
      * Get element from head of queue.
      *
@@ -47,4 +73,114 @@ public interface Queue<E> {
      */
     E get();
 
+    /**
+     * Add all elements to the tail of queue in iteration order of the collection.
+     * <p>
+     * Implementations may link all elements at once so that they pay the synchronization only once. Bounded queues
+     * throw an {@link IllegalStateException} if the queue becomes full. Elements added until then stay in the queue.
+     * </p>
+     *
+     * @param elements must not be {@code null}
+     * @since 2.3.0
+     */
+    default void addAll(final Collection<? extends E> elements) {
+        if (null == elements) {
+            throw new NullPointerException("Parameter 'elements' must not be null!");
+        }
+
+        for (final E element : elements) {
+            add(element);
+        }
+    }
+
+    /**
+     * Get up to {@code max} elements from head of queue and pass them in queue order to the consumer.
+     * <p>
+     * Implementations may remove all elements at once so that they pay the synchronization only once.
+     * </p>
+     *
+     * @param consumer must not be {@code null}
+     * @param max must not be negative
+     * @return number of elements passed to the consumer, {@code 0} if queue is empty
+     * @since 2.3.0
+     */
+    default int drainTo(final Consumer<? super E> consumer, final int max) {
+        if (null == consumer) {
+            throw new NullPointerException("Parameter 'consumer' must not be null!");
+        }
+
+        if (max < 0) {
+            throw new IllegalArgumentException("Parameter 'max' must not be negative!");
+        }
+
+        int count = 0;
+
+        while (count < max) {
+            final E element = get();
+
+            if (null == element) {
+                break;
+            }
+
+            consumer.accept(element);
+            ++count;
+        }
+
+        return count;
+    }
+
+    /**
+     * Number of elements in the queue.
+     * <p>
+     * Implementations answer in constant time. Under concurrent modification the result is only a snapshot which may
+     * be outdated as soon as it is returned.
+     * </p>
+     *
+     * @return not negative, {@link Integer#MAX_VALUE} if there are more elements
+     * @since 2.3.0
+     */
+    int size();
+
+    /**
+     * Returns a weakly consistent iterator over the elements from head to tail.
+     * <p>
+     * The iterator never throws a {@link java.util.ConcurrentModificationException} and never blocks. It returns each
+     * element at most once and reflects the state of the queue at some point at or since its creation. It may or may not
+     * reflect modifications after that. Removing elements by the iterator is not supported.
+     * </p>
+     *
+     * @return never {@code null}
+     * @since 2.3.0
+     */
+    @Override
+    Iterator<E> iterator();
+
+    /**
+     * Returns a weakly consistent spliterator over the elements from head to tail.
+     * <p>
+     * The spliterator has the same guarantees as {@link #iterator()}. It splits off growing batches of elements, so
+     * parallel streams process them in parallel.
+     * </p>
+     *
+     * @return never {@code null}
+     * @since 2.3.0
+     */
+    @Override
+    default Spliterator<E> spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.CONCURRENT);
+    }
+
+    /**
+     * Returns a sequential stream over the elements from head to tail.
+     * <p>
+     * Use {@link Stream#parallel()} to process the elements in parallel.
+     * </p>
+     *
+     * @return never {@code null}
+     * @since 2.3.0
+     */
+    default Stream<E> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
 }
@@ -0,0 +1,76 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Limits the rate at which permits are handed out, e.g. to throttle calls to another service.
+ * <p>
+ * Non-blocking callers ask with {@link #tryAcquire(int)} and skip or reject their work if they get no permit. Callers
+ * which may wait use {@link #acquire(int)}, which parks the thread until the permits are available. Implementations
+ * are obtained by {@link RateLimiters}.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * final RateLimiter limiter = RateLimiters.tokenBucket(100, 10);
+ *
+ * if (limiter.tryAcquire()) {
+ *     callService();
+ * }
+ * }</pre>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+public interface RateLimiter {
+
+    /**
+     * Acquires one permit if it is available immediately.
+     *
+     * @return {@code true} if the permit was acquired, else {@code false}
+     */
+    default boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * Acquires permits if they are available immediately.
+     * <p>
+     * Either all or no permits are acquired.
+     * </p>
+     *
+     * @param permits greater than 0, not greater than the capacity of the limiter
+     * @return {@code true} if the permits were acquired, else {@code false}
+     */
+    boolean tryAcquire(int permits);
+
+    /**
+     * Acquires one permit and waits until it is available.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    default void acquire() throws InterruptedException {
+        acquire(1);
+    }
+
+    /**
+     * Acquires permits and waits until they are available.
+     *
+     * @param permits greater than 0, not greater than the capacity of the limiter
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    void acquire(int permits) throws InterruptedException;
+
+}
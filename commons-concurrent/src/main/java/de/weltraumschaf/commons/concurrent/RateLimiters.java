@@ -0,0 +1,83 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Factory to create {@link RateLimiter rate limiters}.
+ * <p>
+ * Both limiters keep their whole state in a single long which is updated by one compare-and-set per acquisition.
+ * Rejections are decided from the read state alone w/o any write, so a saturated limiter scales with the number of
+ * cores.
+ * </p>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public final class RateLimiters {
+
+    /**
+     * Hidden for utility class.
+     */
+    private RateLimiters() {
+        super();
+        throw new UnsupportedOperationException("Must not be called!");
+    }
+
+    /**
+     * Create a token bucket which holds up to one second of permits.
+     *
+     * @param permitsPerSecond greater than 0, not greater than 1,000,000,000
+     * @return new instance
+     */
+    public static RateLimiter tokenBucket(final int permitsPerSecond) {
+        return tokenBucket(permitsPerSecond, permitsPerSecond);
+    }
+
+    /**
+     * Create a token bucket.
+     * <p>
+     * The bucket refills continuously with the given rate and holds up to {@code burst} permits. So after a pause up
+     * to {@code burst} permits are handed out at once. It starts full.
+     * </p>
+     *
+     * @param permitsPerSecond greater than 0, not greater than 1,000,000,000
+     * @param burst greater than 0
+     * @return new instance
+     */
+    public static RateLimiter tokenBucket(final long permitsPerSecond, final int burst) {
+        return new TokenBucketRateLimiter(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    /**
+     * Create a sliding window which hands out up to {@code limit} permits within any window.
+     * <p>
+     * The window is approximated by the count of the current fixed window plus the count of the previous one weighted
+     * by its part still covered by the sliding window. So there are no bursts of twice the limit at window boundaries
+     * like with fixed windows.
+     * </p>
+     *
+     * @param limit greater than 0, not greater than {@value SlidingWindowRateLimiter#MAX_LIMIT}
+     * @param window greater than 0
+     * @param unit must not be {@code null}
+     * @return new instance
+     */
+    public static RateLimiter slidingWindow(final int limit, final long window, final TimeUnit unit) {
+        if (null == unit) {
+            throw new NullPointerException("Parameter 'unit' must not be null!");
+        }
+
+        return new SlidingWindowRateLimiter(limit, unit.toNanos(window), System::nanoTime);
+    }
+
+}
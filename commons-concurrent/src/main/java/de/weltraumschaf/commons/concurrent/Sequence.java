@@ -0,0 +1,124 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Atomic long counter which occupies a cache line on its own.
+ * <p>
+ * Counters which are written by different threads must not share a cache line, otherwise each write invalidates the
+ * line for all the other threads (false sharing). The JVM lays out the fields of a super class before the fields of
+ * its sub classes. So the value is surrounded by padding fields from the super and the sub class.
+ * </p>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+final class Sequence extends SequenceRightPadding {
+
+    /**
+     * Updates the value.
+     */
+    private static final AtomicLongFieldUpdater<SequenceValue> VALUE
+        = AtomicLongFieldUpdater.newUpdater(SequenceValue.class, "value");
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param initial initial value
+     */
+    Sequence(final long initial) {
+        super();
+        VALUE.set(this, initial);
+    }
+
+    /**
+     * Get the current value.
+     *
+     * @return current value
+     */
+    long get() {
+        return value;
+    }
+
+    /**
+     * Eventually sets the value.
+     * <p>
+     * Cheaper than a volatile write, but guarantees that writes before are visible to threads which see the new value.
+     * </p>
+     *
+     * @param update new value
+     */
+    void lazySet(final long update) {
+        VALUE.lazySet(this, update);
+    }
+
+    /**
+     * Atomically sets the value if the current value is the expected one.
+     *
+     * @param expect expected value
+     * @param update new value
+     * @return {@code true} if successful
+     */
+    boolean compareAndSet(final long expect, final long update) {
+        return VALUE.compareAndSet(this, expect, update);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(value);
+    }
+
+}
+
+/**
+ * Padding in front of the value.
+ */
+@SuppressWarnings("unused")
+abstract class SequenceLeftPadding {
+    // Padding.
+    protected long p01;
+    protected long p02;
+    protected long p03;
+    protected long p04;
+    protected long p05;
+    protected long p06;
+    protected long p07;
+}
+
+/**
+ * Holds the value.
+ */
+abstract class SequenceValue extends SequenceLeftPadding {
+    /**
+     * The value.
+     */
+    protected volatile long value;
+}
+
+/**
+ * Padding behind the value.
+ */
+@SuppressWarnings("unused")
+abstract class SequenceRightPadding extends SequenceValue {
+    // Padding.
+    protected long p11;
+    protected long p12;
+    protected long p13;
+    protected long p14;
+    protected long p15;
+    protected long p16;
+    protected long p17;
+}
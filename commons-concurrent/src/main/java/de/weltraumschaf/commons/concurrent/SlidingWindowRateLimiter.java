@@ -0,0 +1,217 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Sliding window approximated by two fixed windows.
+ * <p>
+ * The permits acquired in the current and in the previous fixed window are counted. The sliding window ending now
+ * covers the current window and the tail of the previous one, so its count is estimated as the count of the current
+ * window plus the count of the previous one weighted by its covered part.
+ * </p>
+ * <p>
+ * Both counts and the index of the current window are packed into one long, so one compare-and-set updates all of
+ * them consistently:
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * 63            42 41          21 20           0
+ * [window index  ][previous count][current count]
+ * }</pre>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+final class SlidingWindowRateLimiter implements RateLimiter {
+
+    /**
+     * Bits per count.
+     */
+    static final int COUNT_BITS = 21;
+    /**
+     * Greatest supported limit.
+     */
+    static final int MAX_LIMIT = (1 << COUNT_BITS) - 1;
+    /**
+     * Bits of the window index.
+     */
+    private static final int WINDOW_BITS = Long.SIZE - 2 * COUNT_BITS;
+    /**
+     * Masks a count.
+     */
+    private static final long COUNT_MASK = MAX_LIMIT;
+    /**
+     * Masks the window index, which wraps around.
+     */
+    private static final long WINDOW_MASK = (1L << WINDOW_BITS) - 1;
+
+    /**
+     * Maximum permits per window.
+     */
+    private final int limit;
+    /**
+     * Length of a window.
+     */
+    private final long windowNanos;
+    /**
+     * Source of {@link System#nanoTime()}.
+     */
+    private final LongSupplier clock;
+    /**
+     * Start of the first window.
+     */
+    private final long origin;
+    /**
+     * Packed window index and counts.
+     */
+    private final Sequence state = new Sequence(0);
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param limit greater than 0, not greater than {@link #MAX_LIMIT}
+     * @param windowNanos greater than 0
+     * @param clock not {@code null}
+     */
+    SlidingWindowRateLimiter(final int limit, final long windowNanos, final LongSupplier clock) {
+        super();
+
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException(String.format("Parameter 'limit' must be between 1 and %d!", MAX_LIMIT));
+        }
+
+        if (windowNanos < 1) {
+            throw new IllegalArgumentException("Parameter 'window' must be greater than 0!");
+        }
+
+        this.limit = limit;
+        this.windowNanos = windowNanos;
+        this.clock = clock;
+        origin = clock.getAsLong();
+    }
+
+    @Override
+    public boolean tryAcquire(final int permits) {
+        return tryAcquireOrWait(permits) == 0;
+    }
+
+    @Override
+    public void acquire(final int permits) throws InterruptedException {
+        for (long wait = tryAcquireOrWait(permits); wait > 0; wait = tryAcquireOrWait(permits)) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            LockSupport.parkNanos(this, wait);
+        }
+    }
+
+    /**
+     * Acquires the permits if available.
+     *
+     * @param permits greater than 0, not greater than limit
+     * @return {@code 0} if acquired, else the nano seconds until they may be available
+     */
+    private long tryAcquireOrWait(final int permits) {
+        if (permits < 1 || permits > limit) {
+            throw new IllegalArgumentException(String.format("Parameter 'permits' must be between 1 and %d!", limit));
+        }
+
+        while (true) {
+            final long elapsed = clock.getAsLong() - origin;
+            final long window = elapsed / windowNanos;
+            final long offset = elapsed - window * windowNanos;
+            final long current = state.get();
+            final long stored = current >>> (2 * COUNT_BITS);
+            final long index = window & WINDOW_MASK;
+            final long ahead = (stored - index) & WINDOW_MASK;
+
+            if (ahead != 0 && ahead < WINDOW_MASK / 2) {
+                // Another thread read the clock later and already moved on: Read it again.
+                continue;
+            }
+
+            final long rolled = roll(current, stored, index);
+            final long wait = waitNanos(rolled, offset, permits);
+
+            if (wait > 0) {
+                // Rejected w/o writing the shared state.
+                return wait;
+            }
+
+            if (state.compareAndSet(current, rolled + permits)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Moves the state to the current window.
+     *
+     * @param current packed state
+     * @param stored window index of the state
+     * @param index current window index
+     * @return packed state of the current window
+     */
+    private static long roll(final long current, final long stored, final long index) {
+        if (stored == index) {
+            return current;
+        }
+
+        final long previous = ((index - stored) & WINDOW_MASK) == 1 ? current & COUNT_MASK : 0;
+        return index << (2 * COUNT_BITS) | previous << COUNT_BITS;
+    }
+
+    /**
+     * Computes how long to wait until the permits fit into the sliding window.
+     *
+     * @param state packed state of the current window
+     * @param offset nano seconds elapsed in the current window
+     * @param permits wanted permits
+     * @return {@code 0} if the permits fit now, else a time greater than 0
+     */
+    private long waitNanos(final long state, final long offset, final int permits) {
+        final long current = state & COUNT_MASK;
+        final long previous = (state >>> COUNT_BITS) & COUNT_MASK;
+
+        if (current + permits > limit) {
+            // Only the next window has room.
+            return windowNanos - offset;
+        }
+
+        final long remaining = windowNanos - offset;
+        final double estimate = previous * ((double) remaining / windowNanos) + current;
+
+        if (estimate + permits <= limit) {
+            return 0;
+        }
+
+        // The weight of the previous window must decrease until the permits fit.
+        final double allowedWeight = (double) (limit - current - permits) / previous;
+        final long due = (long) Math.ceil(windowNanos * (1.0 - allowedWeight));
+        return Math.max(1, due - offset);
+    }
+
+    @Override
+    public String toString() {
+        final long current = state.get();
+        return getClass().getSimpleName() + "[limit=" + limit + ", windowNanos=" + windowNanos
+            + ", previous=" + ((current >>> COUNT_BITS) & COUNT_MASK) + ", current=" + (current & COUNT_MASK) + ']';
+    }
+
+}
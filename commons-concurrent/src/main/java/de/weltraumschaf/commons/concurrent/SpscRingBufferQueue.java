@@ -0,0 +1,89 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Bounded queue for exactly one producing and one consuming thread.
+ * <p>
+ * Neither side needs a compare-and-set: Each position is written by one thread only and published with an ordered
+ * write. The producer caches the last head it saw and the consumer the last tail it saw, so each side only reads the
+ * other side's position if the cached one is exhausted.
+ * </p>
+ * <p>
+ * The queue does not accept {@code null} elements.
+ * </p>
+ *
+ * @since 2.3.0
+ * @param <E> type of queue entries
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+final class SpscRingBufferQueue<E> extends AbstractRingBufferQueue<E> {
+
+    /**
+     * Last seen head, only accessed by the producer.
+     */
+    private long headCache;
+    /**
+     * Last seen tail, only accessed by the consumer.
+     */
+    private long tailCache;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param capacity must be greater than 0, rounded up to the next power of two
+     */
+    SpscRingBufferQueue(final int capacity) {
+        super(capacity);
+    }
+
+    @Override
+    public boolean offer(final E element) {
+        checkNotNull(element);
+        final long currentTail = tail.get();
+
+        if (currentTail - headCache > mask) {
+            headCache = head.get();
+
+            if (currentTail - headCache > mask) {
+                return false;
+            }
+        }
+
+        buffer.lazySet(index(currentTail), element);
+        tail.lazySet(currentTail + 1);
+        return true;
+    }
+
+    @Override
+    public E get() {
+        final long currentHead = head.get();
+
+        if (currentHead >= tailCache) {
+            tailCache = tail.get();
+
+            if (currentHead >= tailCache) {
+                return null;
+            }
+        }
+
+        final int index = index(currentHead);
+        final E element = buffer.get(index);
+        buffer.lazySet(index, null);
+        head.lazySet(currentHead + 1);
+        return element;
+    }
+
+}
@@ -12,6 +12,13 @@
 
 package de.weltraumschaf.commons.concurrent;
 
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import net.jcip.annotations.ThreadSafe;
 
 /**
@@ -24,7 +31,7 @@ import net.jcip.annotations.ThreadSafe;
  */
 @Deprecated
 @ThreadSafe
-public interface Stack<E> {
+public interface Stack<E> extends Iterable<E> {
 
     /**
      * Check if stack is empty.
@@ -54,4 +61,114 @@ public interface Stack<E> {
      */
     void push(E element);
 
+    /**
+     * Push all elements in iteration order of the collection on top of the stack.
+     * <p>
+     * So the last element of the collection becomes the top. Implementations may push all elements at once so that
+     * they pay the synchronization only once.
+     * </p>
+     *
+     * @param elements must not be {@code null}
+     * @since 2.3.0
+     */
+    default void addAll(final Collection<? extends E> elements) {
+        if (null == elements) {
+            throw new NullPointerException("Parameter 'elements' must not be null!");
+        }
+
+        for (final E element : elements) {
+            push(element);
+        }
+    }
+
+    /**
+     * Pop up to {@code max} elements from top of the stack and pass them in stack order to the consumer.
+     * <p>
+     * Implementations may pop all elements at once so that they pay the synchronization only once.
+     * </p>
+     *
+     * @param consumer must not be {@code null}
+     * @param max must not be negative
+     * @return number of elements passed to the consumer, {@code 0} if stack is empty
+     * @since 2.3.0
+     */
+    default int drainTo(final Consumer<? super E> consumer, final int max) {
+        if (null == consumer) {
+            throw new NullPointerException("Parameter 'consumer' must not be null!");
+        }
+
+        if (max < 0) {
+            throw new IllegalArgumentException("Parameter 'max' must not be negative!");
+        }
+
+        int count = 0;
+
+        while (count < max) {
+            final E element = pop();
+
+            if (null == element) {
+                break;
+            }
+
+            consumer.accept(element);
+            ++count;
+        }
+
+        return count;
+    }
+
+    /**
+     * Number of elements in the stack.
+     * <p>
+     * Implementations answer in constant time. Under concurrent modification the result is only a snapshot which may
+     * be outdated as soon as it is returned.
+     * </p>
+     *
+     * @return not negative, {@link Integer#MAX_VALUE} if there are more elements
+     * @since 2.3.0
+     */
+    int size();
+
+    /**
+     * Returns a weakly consistent iterator over the elements from top to bottom.
+     * <p>
+     * The iterator never throws a {@link java.util.ConcurrentModificationException} and never blocks. It returns each
+     * element at most once and reflects the state of the stack at some point at or since its creation. It may or may not
+     * reflect modifications after that. Removing elements by the iterator is not supported.
+     * </p>
+     *
+     * @return never {@code null}
+     * @since 2.3.0
+     */
+    @Override
+    Iterator<E> iterator();
+
+    /**
+     * Returns a weakly consistent spliterator over the elements from top to bottom.
+     * <p>
+     * The spliterator has the same guarantees as {@link #iterator()}. It splits off growing batches of elements, so
+     * parallel streams process them in parallel.
+     * </p>
+     *
+     * @return never {@code null}
+     * @since 2.3.0
+     */
+    @Override
+    default Spliterator<E> spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.CONCURRENT);
+    }
+
+    /**
+     * Returns a sequential stream over the elements from top to bottom.
+     * <p>
+     * Use {@link Stream#parallel()} to process the elements in parallel.
+     * </p>
+     *
+     * @return never {@code null}
+     * @since 2.3.0
+     */
+    default Stream<E> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
 }
@@ -0,0 +1,220 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Token bucket implemented as generic cell rate algorithm.
+ * <p>
+ * Instead of a token count and the time of the last refill the state is the single number of tokens handed out since
+ * the bucket was created. The tokens in the bucket are derived from it: All tokens produced until now minus the ones
+ * handed out, capped by the burst. Acquiring permits adds to the handed out tokens. So the whole state is one long and
+ * there is no refill step.
+ * </p>
+ * <p>
+ * The produced tokens are computed from the elapsed nano seconds with integer arithmetic only, so high rates which
+ * are no divisor of a billion have no rounding error.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * CREATED                     NOW
+ * |---|---|---|---|---|---|---|-----> time
+ *   7 tokens produced, 2 handed out => 5 tokens
+ * }</pre>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+final class TokenBucketRateLimiter implements RateLimiter {
+
+    /**
+     * Nano seconds per second.
+     */
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    /**
+     * Greatest supported rate.
+     */
+    private static final long MAX_PERMITS_PER_SECOND = NANOS_PER_SECOND;
+
+    /**
+     * Tokens produced per second.
+     */
+    private final long permitsPerSecond;
+    /**
+     * Maximum number of tokens.
+     */
+    private final int burst;
+    /**
+     * Source of {@link System#nanoTime()}.
+     */
+    private final LongSupplier clock;
+    /**
+     * When the bucket was created.
+     */
+    private final long origin;
+    /**
+     * Number of tokens handed out, reserved ones included.
+     */
+    private final Sequence handedOut;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param permitsPerSecond greater than 0, not greater than 1,000,000,000
+     * @param burst greater than 0
+     * @param clock not {@code null}
+     */
+    TokenBucketRateLimiter(final long permitsPerSecond, final int burst, final LongSupplier clock) {
+        super();
+
+        if (permitsPerSecond < 1 || permitsPerSecond > MAX_PERMITS_PER_SECOND) {
+            throw new IllegalArgumentException(String.format(
+                "Parameter 'permitsPerSecond' must be between 1 and %d!", MAX_PERMITS_PER_SECOND));
+        }
+
+        if (burst < 1) {
+            throw new IllegalArgumentException("Parameter 'burst' must be greater than 0!");
+        }
+
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.clock = clock;
+        origin = clock.getAsLong();
+        // Starts full.
+        handedOut = new Sequence(-burst);
+    }
+
+    @Override
+    public boolean tryAcquire(final int permits) {
+        validate(permits);
+
+        while (true) {
+            final long produced = produced(clock.getAsLong());
+            final long current = handedOut.get();
+            final long next = base(current, produced) + permits;
+
+            if (next > produced) {
+                // Not enough tokens: Reject w/o writing the shared state.
+                return false;
+            }
+
+            if (handedOut.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The permits are reserved before the thread parks, so waiting threads are served in order. They stay consumed
+     * also if the thread is interrupted while waiting.
+     * </p>
+     */
+    @Override
+    public void acquire(final int permits) throws InterruptedException {
+        validate(permits);
+        long next;
+
+        while (true) {
+            final long current = handedOut.get();
+            next = base(current, produced(clock.getAsLong())) + permits;
+
+            if (handedOut.compareAndSet(current, next)) {
+                break;
+            }
+        }
+
+        final long until = origin + nanosUntil(next);
+
+        for (long wait = until - clock.getAsLong(); wait > 0; wait = until - clock.getAsLong()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            LockSupport.parkNanos(this, wait);
+        }
+    }
+
+    /**
+     * Caps the tokens at the burst.
+     *
+     * @param current handed out tokens
+     * @param produced tokens produced until now
+     * @return handed out tokens so that at most burst tokens are left
+     */
+    private long base(final long current, final long produced) {
+        return Math.max(current, produced - burst);
+    }
+
+    /**
+     * Number of tokens produced since creation.
+     *
+     * @param now current time
+     * @return not negative
+     */
+    private long produced(final long now) {
+        // Compute by difference because nano time may overflow.
+        final long elapsed = now - origin;
+        // Split in whole and partial seconds, so that the multiplication does not overflow.
+        return elapsed / NANOS_PER_SECOND * permitsPerSecond
+            + elapsed % NANOS_PER_SECOND * permitsPerSecond / NANOS_PER_SECOND;
+    }
+
+    /**
+     * Nano seconds after creation when the tokens are produced.
+     *
+     * @param tokens not negative
+     * @return not negative
+     */
+    private long nanosUntil(final long tokens) {
+        // Rounded up, so that the tokens are produced for sure.
+        final long partial = tokens % permitsPerSecond * NANOS_PER_SECOND;
+        return tokens / permitsPerSecond * NANOS_PER_SECOND
+            + (partial + permitsPerSecond - 1) / permitsPerSecond;
+    }
+
+    /**
+     * Throws an exception if the permits are out of range.
+     *
+     * @param permits checked permits
+     */
+    private void validate(final int permits) {
+        if (permits < 1 || permits > burst) {
+            throw new IllegalArgumentException(String.format(
+                "Parameter 'permits' must be between 1 and %d!", burst));
+        }
+    }
+
+    /**
+     * Number of tokens available now.
+     *
+     * @return not negative
+     */
+    int available() {
+        final long tokens = produced(clock.getAsLong()) - handedOut.get();
+        return (int) Math.max(0, Math.min(tokens, burst));
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[permitsPerSecond=" + permitsPerSecond + ", burst=" + burst
+            + ", available=" + available() + ']';
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Holds mutable state which is read on every request, but written rarely.
+ * <p>
+ * Readers work like with a sequence lock: They read the version, copy what they need out of the state and check
+ * whether the version is still the same. If a writer intervened, they retry under a read lock. So as long as nobody
+ * writes, reading costs no write to shared memory at all and readers on different cores do not contend on a cache line,
+ * unlike {@code synchronized} or a {@link java.util.concurrent.locks.ReentrantReadWriteLock} which count their
+ * readers. Writers mutate the state in place under an exclusive lock, so unlike copy-on-write nothing is allocated.
+ * </p>
+ * <p>
+ * The price is that an optimistic reader may see the state in the middle of a write. So reader functions must only
+ * read and must not act on what they read before they return: Their result is discarded and they are called again if
+ * the version changed meanwhile. Exceptions thrown while reading inconsistent state are discarded too. This suits small
+ * states of primitive fields or arrays best.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * final VersionedValue<long[]> range = new VersionedValue<>(new long[]{0, 100});
+ * range.write(bounds -> {
+ *     bounds[0] = 10;
+ *     bounds[1] = 20;
+ * });
+ * final long width = range.read(bounds -> bounds[1] - bounds[0]);
+ * }</pre>
+ *
+ * @since 2.3.0
+ * @param <T> type of the state
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+public final class VersionedValue<T> {
+
+    /**
+     * Validates optimistic reads and excludes writers.
+     */
+    private final StampedLock lock = new StampedLock();
+    /**
+     * The state, only mutated under the write lock.
+     */
+    private final T state;
+    /**
+     * Number of writes, only written under the write lock.
+     */
+    private long version;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param state must not be {@code null}
+     */
+    public VersionedValue(final T state) {
+        super();
+
+        if (null == state) {
+            throw new NullPointerException("Parameter 'state' must not be null!");
+        }
+
+        this.state = state;
+    }
+
+    /**
+     * Reads from the state.
+     * <p>
+     * The reader is called at least once and at most twice: Optimistically w/o lock and if a writer intervened again
+     * under the read lock.
+     * </p>
+     *
+     * @param <R> type of result
+     * @param reader must not be {@code null}, must not modify the state
+     * @return result of the reader from a consistent state
+     */
+    public <R> R read(final Function<? super T, ? extends R> reader) {
+        if (null == reader) {
+            throw new NullPointerException("Parameter 'reader' must not be null!");
+        }
+
+        final long stamp = lock.tryOptimisticRead();
+
+        if (stamp != 0) {
+            try {
+                final R result = reader.apply(state);
+
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (final RuntimeException ex) {
+                if (lock.validate(stamp)) {
+                    // Consistent state, so it is a real failure.
+                    throw ex;
+                }
+            }
+        }
+
+        final long readStamp = lock.readLock();
+
+        try {
+            return reader.apply(state);
+        } finally {
+            lock.unlockRead(readStamp);
+        }
+    }
+
+    /**
+     * Mutates the state exclusively and increments the version.
+     * <p>
+     * The version is also incremented if the writer throws an exception, because it may have mutated the state
+     * partially.
+     * </p>
+     *
+     * @param writer must not be {@code null}
+     */
+    public void write(final Consumer<? super T> writer) {
+        if (null == writer) {
+            throw new NullPointerException("Parameter 'writer' must not be null!");
+        }
+
+        final long stamp = lock.writeLock();
+
+        try {
+            writer.accept(state);
+        } finally {
+            ++version;
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Number of writes so far.
+     *
+     * @return not negative
+     */
+    public long version() {
+        final long stamp = lock.tryOptimisticRead();
+        final long current = version;
+
+        if (stamp != 0 && lock.validate(stamp)) {
+            return current;
+        }
+
+        final long readStamp = lock.readLock();
+
+        try {
+            return version;
+        } finally {
+            lock.unlockRead(readStamp);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return read(current -> getClass().getSimpleName() + "[version=" + version + ", state=" + current + ']');
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates executors on virtual threads if the running JVM supports them.
+ * <p>
+ * The project is compiled for Java 17, which has no virtual threads. So they are looked up once by reflection and
+ * callers fall back to platform threads if the lookup fails.
+ * </p>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+final class VirtualThreads {
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()}, {@code null} if not supported.
+     */
+    private static final MethodHandle NEW_EXECUTOR = lookupNewExecutor();
+
+    /**
+     * Hidden for utility class.
+     */
+    private VirtualThreads() {
+        super();
+        throw new UnsupportedOperationException("Must not be called!");
+    }
+
+    /**
+     * Looks up the factory method of the executor.
+     *
+     * @return {@code null} if not supported
+     */
+    private static MethodHandle lookupNewExecutor() {
+        try {
+            return MethodHandles.publicLookup().findStatic(
+                Executors.class,
+                "newVirtualThreadPerTaskExecutor",
+                MethodType.methodType(ExecutorService.class));
+        } catch (final NoSuchMethodException | IllegalAccessException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether the running JVM supports virtual threads.
+     *
+     * @return {@code true} since Java 21
+     */
+    static boolean isSupported() {
+        return null != NEW_EXECUTOR;
+    }
+
+    /**
+     * Creates an executor which starts a new virtual thread per task.
+     *
+     * @return never {@code null}
+     * @throws UnsupportedOperationException if virtual threads are not supported
+     */
+    static ExecutorService newExecutor() {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JVM!");
+        }
+
+        try {
+            return (ExecutorService) NEW_EXECUTOR.invokeExact();
+        } catch (final RuntimeException | Error ex) {
+            throw ex;
+        } catch (final Throwable ex) {
+            throw new IllegalStateException("Can't create virtual thread executor!", ex);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Factory to create {@link WaitStrategy wait strategies}.
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public final class WaitStrategies {
+
+    /**
+     * Default minimum park time of {@link #parking()}.
+     */
+    private static final long DEFAULT_MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+    /**
+     * Default maximum park time of {@link #parking()}.
+     */
+    private static final long DEFAULT_MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    /**
+     * How often the yielding and parking strategies spin before they yield.
+     */
+    private static final int SPIN_TRIES = 100;
+    /**
+     * How often the parking strategy yields before it parks.
+     */
+    private static final int YIELD_TRIES = 100;
+
+    /**
+     * Hidden for utility class.
+     */
+    private WaitStrategies() {
+        super();
+        throw new UnsupportedOperationException("Must not be called!");
+    }
+
+    /**
+     * Create a strategy which polls in a tight loop.
+     * <p>
+     * Lowest latency, but occupies a CPU core per waiting thread. Use only if there are more cores than threads.
+     * </p>
+     *
+     * @return new instance
+     */
+    public static WaitStrategy busySpin() {
+        return new BusySpinWaitStrategy();
+    }
+
+    /**
+     * Create a strategy which spins shortly and then yields the CPU to other threads between polls.
+     *
+     * @return new instance
+     */
+    public static WaitStrategy yielding() {
+        return new YieldingWaitStrategy();
+    }
+
+    /**
+     * Create a strategy which spins, yields and then parks with exponential back off between 1 micro and 1 milli
+     * second.
+     *
+     * @return new instance
+     */
+    public static WaitStrategy parking() {
+        return parking(DEFAULT_MIN_PARK_NANOS, DEFAULT_MAX_PARK_NANOS);
+    }
+
+    /**
+     * Create a strategy which spins, yields and then parks with exponential back off.
+     * <p>
+     * The maximum park time bounds the latency added to a wake up.
+     * </p>
+     *
+     * @param minParkNanos first park time, must be greater than 0
+     * @param maxParkNanos upper bound of park time, must not be less than {@code minParkNanos}
+     * @return new instance
+     */
+    public static WaitStrategy parking(final long minParkNanos, final long maxParkNanos) {
+        if (minParkNanos < 1) {
+            throw new IllegalArgumentException("Parameter 'minParkNanos' must be greater than 0!");
+        }
+
+        if (maxParkNanos < minParkNanos) {
+            throw new IllegalArgumentException("Parameter 'maxParkNanos' must not be less than 'minParkNanos'!");
+        }
+
+        return new ParkingWaitStrategy(minParkNanos, maxParkNanos);
+    }
+
+    /**
+     * Create a strategy which blocks on a condition until it is signalled.
+     * <p>
+     * No CPU usage while waiting, but adding an element must signal the waiting threads. Each queue needs its own
+     * instance.
+     * </p>
+     *
+     * @return new instance
+     */
+    public static WaitStrategy blocking() {
+        return new BlockingWaitStrategy();
+    }
+
+    /**
+     * Computes the deadline for a timeout.
+     *
+     * @param timeoutNanos {@link Long#MAX_VALUE} for no timeout
+     * @return {@link Long#MAX_VALUE} for no deadline
+     */
+    private static long deadline(final long timeoutNanos) {
+        return timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : System.nanoTime() + timeoutNanos;
+    }
+
+    /**
+     * Computes the time left until the deadline.
+     *
+     * @param deadline {@link Long#MAX_VALUE} for no deadline
+     * @return less than 1 if elapsed
+     */
+    private static long remaining(final long deadline) {
+        return deadline == Long.MAX_VALUE ? Long.MAX_VALUE : deadline - System.nanoTime();
+    }
+
+    /**
+     * Common base for strategies which poll in a loop and idle between the polls.
+     */
+    private abstract static class IdlingWaitStrategy implements WaitStrategy {
+
+        @Override
+        public final <E> E waitFor(final Supplier<E> source, final long timeoutNanos) throws InterruptedException {
+            final long deadline = deadline(timeoutNanos);
+            int round = 0;
+
+            while (true) {
+                final E element = source.get();
+
+                if (null != element) {
+                    return element;
+                }
+
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+
+                final long remaining = remaining(deadline);
+
+                if (remaining <= 0) {
+                    return null;
+                }
+
+                idle(round, remaining);
+
+                if (round < Integer.MAX_VALUE) {
+                    ++round;
+                }
+            }
+        }
+
+        /**
+         * Idles between two polls.
+         *
+         * @param round number of unsuccessful polls before
+         * @param remainingNanos time left until timeout
+         */
+        protected abstract void idle(int round, long remainingNanos);
+    }
+
+    /**
+     * Polls in a tight loop.
+     */
+    @ThreadSafe
+    private static final class BusySpinWaitStrategy extends IdlingWaitStrategy {
+
+        @Override
+        protected void idle(final int round, final long remainingNanos) {
+            Thread.onSpinWait();
+        }
+
+    }
+
+    /**
+     * Spins and then yields.
+     */
+    @ThreadSafe
+    private static final class YieldingWaitStrategy extends IdlingWaitStrategy {
+
+        @Override
+        protected void idle(final int round, final long remainingNanos) {
+            if (round < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+
+    }
+
+    /**
+     * Spins, yields and then parks with exponential back off.
+     */
+    @ThreadSafe
+    private static final class ParkingWaitStrategy extends IdlingWaitStrategy {
+
+        /**
+         * First park time.
+         */
+        private final long minParkNanos;
+        /**
+         * Upper bound of park time.
+         */
+        private final long maxParkNanos;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param minParkNanos first park time
+         * @param maxParkNanos upper bound of park time
+         */
+        ParkingWaitStrategy(final long minParkNanos, final long maxParkNanos) {
+            super();
+            this.minParkNanos = minParkNanos;
+            this.maxParkNanos = maxParkNanos;
+        }
+
+        @Override
+        protected void idle(final int round, final long remainingNanos) {
+            if (round < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (round < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                final int shift = Math.min(round - SPIN_TRIES - YIELD_TRIES, Long.SIZE - 2);
+                final long backoff = minParkNanos << shift;
+                final long park = backoff <= 0 || backoff > maxParkNanos ? maxParkNanos : backoff;
+                LockSupport.parkNanos(Math.min(park, remainingNanos));
+            }
+        }
+
+    }
+
+    /**
+     * Blocks on a condition.
+     */
+    @ThreadSafe
+    private static final class BlockingWaitStrategy implements WaitStrategy {
+
+        /**
+         * Guards the condition.
+         */
+        private final ReentrantLock lock = new ReentrantLock();
+        /**
+         * Signalled if the source has new elements.
+         */
+        private final Condition notEmpty = lock.newCondition();
+        /**
+         * Number of waiting threads, so that signalling is free as long as nobody waits.
+         */
+        private final AtomicInteger waiters = new AtomicInteger();
+
+        @Override
+        public <E> E waitFor(final Supplier<E> source, final long timeoutNanos) throws InterruptedException {
+            final E polled = source.get();
+
+            if (null != polled) {
+                return polled;
+            }
+
+            long remaining = timeoutNanos;
+            lock.lockInterruptibly();
+
+            try {
+                // Announce before polling again, otherwise a producer may skip the signal we wait for.
+                waiters.incrementAndGet();
+
+                try {
+                    while (true) {
+                        final E element = source.get();
+
+                        if (null != element) {
+                            return element;
+                        }
+
+                        if (remaining <= 0) {
+                            return null;
+                        }
+
+                        if (remaining == Long.MAX_VALUE) {
+                            notEmpty.await();
+                        } else {
+                            remaining = notEmpty.awaitNanos(remaining);
+                        }
+                    }
+                } finally {
+                    waiters.decrementAndGet();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void signalAll() {
+            // Ring buffers publish with a release store only, which may pass the load of the waiters otherwise.
+            VarHandle.fullFence();
+
+            if (waiters.get() == 0) {
+                return;
+            }
+
+            lock.lock();
+
+            try {
+                notEmpty.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+    }
+}
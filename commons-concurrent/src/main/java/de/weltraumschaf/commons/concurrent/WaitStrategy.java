@@ -0,0 +1,52 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.function.Supplier;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Decides how a consumer waits for an element of an empty queue.
+ * <p>
+ * The strategies trade latency against CPU usage: Spinning reacts fastest, but burns a whole core per waiting thread.
+ * Blocking on a condition uses no CPU at all while waiting, but pays for the wake up. Implementations are obtained by
+ * {@link WaitStrategies}.
+ * </p>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+public interface WaitStrategy {
+
+    /**
+     * Polls the source until it returns an element or the timeout elapses.
+     *
+     * @param <E> type of polled elements
+     * @param source returns {@code null} if there is no element, must not be {@code null}
+     * @param timeoutNanos how long to wait at most, {@link Long#MAX_VALUE} to wait forever
+     * @return {@code null} if timed out
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    <E> E waitFor(Supplier<E> source, long timeoutNanos) throws InterruptedException;
+
+    /**
+     * Wakes up waiting threads because the source has new elements.
+     * <p>
+     * Only necessary for strategies which block. The default does nothing.
+     * </p>
+     */
+    default void signalAll() {
+        // Nothing to wake up.
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Double ended queue with one owning thread and many stealing threads.
+ * <p>
+ * The owner uses the bottom end like a stack (LIFO) which keeps recently pushed work hot in its caches. Other threads
+ * steal from the top end (FIFO) and so take the oldest work, which in divide-and-conquer algorithms usually is the
+ * largest chunk. Owner and thieves only contend if there is one element left.
+ * </p>
+ *
+ * @since 2.3.0
+ * @param <E> type of deque entries
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+public interface WorkStealingDeque<E> {
+
+    /**
+     * Check if deque is empty.
+     *
+     * @return {@code true} if empty; else {@code false}
+     */
+    boolean isEmpty();
+
+    /**
+     * Push element at the bottom.
+     * <p>
+     * Must only be called by the owning thread.
+     * </p>
+     *
+     * @param element must not be {@code null}
+     */
+    void push(E element);
+
+    /**
+     * Pop element from the bottom.
+     * <p>
+     * Must only be called by the owning thread.
+     * </p>
+     *
+     * @return {@code null} if deque is empty
+     */
+    E pop();
+
+    /**
+     * Steal element from the top.
+     * <p>
+     * May be called by any thread.
+     * </p>
+     *
+     * @return {@code null} if deque is empty or another thread took the element concurrently
+     */
+    E steal();
+
+}
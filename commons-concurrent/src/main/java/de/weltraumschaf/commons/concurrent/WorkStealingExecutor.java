@@ -0,0 +1,307 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Lightweight executor for {@link WorkStealingTask divide-and-conquer tasks}.
+ * <p>
+ * Each worker thread owns a {@link WorkStealingDeque}. Tasks forked by a worker go to the bottom of its own deque and
+ * the worker takes them from there again, so it mostly works on data which is still in its caches. Idle workers steal
+ * from the top of the deques of randomly chosen other workers. Tasks invoked from outside are put into a shared
+ * submission queue.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * try (WorkStealingExecutor executor = new WorkStealingExecutor()) {
+ *     final long result = executor.invoke(new Fibonacci(30));
+ * }
+ * }</pre>
+ *
+ * @since 2.3.0
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+public final class WorkStealingExecutor implements AutoCloseable {
+
+    /**
+     * How long idle workers wait for work until they check for shut down.
+     */
+    private static final long IDLE_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /**
+     * Tasks invoked by threads which are not workers.
+     */
+    private final Queue<WorkStealingTask<?>> submissions = Concurrent.newQueue();
+    /**
+     * Decides how idle workers wait for work.
+     */
+    private final WaitStrategy idleStrategy = WaitStrategies.parking();
+    /**
+     * All workers, started in the constructor.
+     */
+    private final Worker[] workers;
+    /**
+     * Set on shut down.
+     */
+    private volatile boolean shutdown;
+
+    /**
+     * Creates an executor with one worker per available processor.
+     */
+    public WorkStealingExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param parallelism number of worker threads, must be greater than 0
+     */
+    public WorkStealingExecutor(final int parallelism) {
+        super();
+
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parameter 'parallelism' must be greater than 0!");
+        }
+
+        workers = new Worker[parallelism];
+
+        for (int i = 0; i < parallelism; ++i) {
+            workers[i] = new Worker(i);
+        }
+
+        for (final Worker worker : workers) {
+            worker.start();
+        }
+    }
+
+    /**
+     * Number of worker threads.
+     *
+     * @return greater than 0
+     */
+    public int parallelism() {
+        return workers.length;
+    }
+
+    /**
+     * Executes the task and waits for its result.
+     *
+     * @param <T> type of result
+     * @param task must not be {@code null}
+     * @return may be {@code null}
+     * @throws IllegalStateException if the executor is shut down before the task started
+     * @throws RuntimeException if the computation threw it
+     */
+    public <T> T invoke(final WorkStealingTask<T> task) {
+        if (null == task) {
+            throw new NullPointerException("Parameter 'task' must not be null!");
+        }
+
+        if (shutdown) {
+            throw new IllegalStateException("Executor is shut down!");
+        }
+
+        final Thread current = Thread.currentThread();
+
+        if (current instanceof Worker && ((Worker) current).owner() == this) {
+            task.run();
+        } else {
+            submissions.add(task);
+
+            // The executor may have been closed after the check above, so nobody may take the task anymore.
+            if (shutdown) {
+                cancelSubmissions();
+            }
+        }
+
+        return task.join();
+    }
+
+    /**
+     * Stops all workers and waits until they terminated.
+     * <p>
+     * Tasks which were not started yet are not executed anymore, instead their callers get an
+     * {@link IllegalStateException}.
+     * </p>
+     */
+    @Override
+    public void close() {
+        shutdown = true;
+        cancelSubmissions();
+
+        for (final Worker worker : workers) {
+            if (worker == Thread.currentThread()) {
+                continue;
+            }
+
+            try {
+                worker.join();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fails all submitted tasks which were not taken by a worker yet.
+     */
+    private void cancelSubmissions() {
+        WorkStealingTask<?> task = submissions.get();
+
+        while (null != task) {
+            task.cancel(new IllegalStateException("Executor is shut down!"));
+            task = submissions.get();
+        }
+    }
+
+    /**
+     * Whether the executor is shut down.
+     *
+     * @return {@code true} if {@link #close()} was called
+     */
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Worker thread which owns a deque.
+     */
+    final class Worker extends Thread {
+
+        /**
+         * Forked tasks of this worker.
+         */
+        private final WorkStealingDeque<WorkStealingTask<?>> deque = new ChaseLevDeque<>();
+        /**
+         * Index in {@link #workers}.
+         */
+        private final int index;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param index index in {@link #workers}
+         */
+        Worker(final int index) {
+            super("work-stealing-worker-" + index);
+            this.index = index;
+            setDaemon(true);
+        }
+
+        /**
+         * The executor this worker belongs to.
+         *
+         * @return never {@code null}
+         */
+        WorkStealingExecutor owner() {
+            return WorkStealingExecutor.this;
+        }
+
+        /**
+         * Pushes a forked task.
+         *
+         * @param task never {@code null}
+         */
+        void push(final WorkStealingTask<?> task) {
+            deque.push(task);
+        }
+
+        @Override
+        public void run() {
+            while (!shutdown) {
+                final WorkStealingTask<?> task;
+
+                try {
+                    task = idleStrategy.waitFor(this::findTask, IDLE_TIMEOUT_NANOS);
+                } catch (final InterruptedException ex) {
+                    continue;
+                }
+
+                if (null != task) {
+                    task.run();
+                }
+            }
+        }
+
+        /**
+         * Executes other tasks until the joined one is done.
+         *
+         * @param joined task to wait for
+         */
+        void helpUntilDone(final WorkStealingTask<?> joined) {
+            while (!joined.isDone()) {
+                final WorkStealingTask<?> task = findTask();
+
+                if (null == task) {
+                    // Another worker executes the joined task and there is nothing else to do.
+                    Thread.yield();
+                } else {
+                    task.run();
+                }
+            }
+        }
+
+        /**
+         * Looks for work in the own deque, the submissions and the deques of other workers.
+         *
+         * @return {@code null} if there is no work
+         */
+        private WorkStealingTask<?> findTask() {
+            final WorkStealingTask<?> own = deque.pop();
+
+            if (null != own) {
+                return own;
+            }
+
+            final WorkStealingTask<?> submitted = submissions.get();
+
+            if (null != submitted) {
+                return submitted;
+            }
+
+            return steal();
+        }
+
+        /**
+         * Steals from the other workers, starting with a random one.
+         *
+         * @return {@code null} if there was nothing to steal
+         */
+        private WorkStealingTask<?> steal() {
+            final int count = workers.length;
+            final int start = ThreadLocalRandom.current().nextInt(count);
+
+            for (int i = 0; i < count; ++i) {
+                final int victim = (start + i) % count;
+
+                if (victim == index) {
+                    continue;
+                }
+
+                final WorkStealingTask<?> stolen = workers[victim].deque.steal();
+
+                if (null != stolen) {
+                    return stolen;
+                }
+            }
+
+            return null;
+        }
+    }
+}
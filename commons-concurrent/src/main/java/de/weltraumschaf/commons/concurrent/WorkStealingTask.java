@@ -0,0 +1,180 @@
+/*
+ * LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com> wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" <weltraumschaf(at)googlemail(dot)com>
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.locks.LockSupport;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Task for divide-and-conquer algorithms executed by a {@link WorkStealingExecutor}.
+ * <p>
+ * A task splits its work into sub tasks, {@link #fork() forks} all but one of them, computes the last one by itself
+ * and then {@link #join() joins} the forked ones. Forked tasks are pushed on the deque of the current worker, where
+ * idle workers may steal them. A joining worker does not block, but executes other tasks until the joined one is done.
+ * </p>
+ *
+ * <pre>
+ * {@code
+ * final class Fibonacci extends WorkStealingTask<Long> {
+ *     private final int n;
+ *
+ *     Fibonacci(final int n) {
+ *         this.n = n;
+ *     }
+ *
+ *     protected Long compute() {
+ *         if (n < 2) {
+ *             return (long) n;
+ *         }
+ *
+ *         final Fibonacci first = new Fibonacci(n - 1);
+ *         first.fork();
+ *         return new Fibonacci(n - 2).compute() + first.join();
+ *     }
+ * }
+ * }</pre>
+ *
+ * @since 2.3.0
+ * @param <T> type of result
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+public abstract class WorkStealingTask<T> {
+
+    /**
+     * Longest park time of a non worker thread waiting for the task.
+     */
+    private static final long MAX_PARK_NANOS = 1_000_000L;
+
+    /**
+     * Set after result or failure are set.
+     */
+    private volatile boolean done;
+    /**
+     * Result of computation, published by {@link #done}.
+     */
+    private T result;
+    /**
+     * Failure of computation, published by {@link #done}.
+     */
+    private Throwable failure;
+
+    /**
+     * Computes the result of this task.
+     *
+     * @return may be {@code null}
+     */
+    protected abstract T compute();
+
+    /**
+     * Schedules this task for asynchronous execution by the executor of the current worker.
+     *
+     * @return this task
+     * @throws IllegalStateException if not called from within a task executed by a {@link WorkStealingExecutor}
+     */
+    public final WorkStealingTask<T> fork() {
+        final Thread current = Thread.currentThread();
+
+        if (!(current instanceof WorkStealingExecutor.Worker)) {
+            throw new IllegalStateException("Tasks must be forked from within a WorkStealingExecutor!");
+        }
+
+        ((WorkStealingExecutor.Worker) current).push(this);
+        return this;
+    }
+
+    /**
+     * Returns the result of the computation when it is done.
+     * <p>
+     * Workers execute other tasks while waiting. Other threads park.
+     * </p>
+     *
+     * @return may be {@code null}
+     * @throws RuntimeException if the computation threw it
+     * @throws Error if the computation threw it
+     */
+    public final T join() {
+        if (!done) {
+            final Thread current = Thread.currentThread();
+
+            if (current instanceof WorkStealingExecutor.Worker) {
+                ((WorkStealingExecutor.Worker) current).helpUntilDone(this);
+            } else {
+                awaitDone();
+            }
+        }
+
+        return report();
+    }
+
+    /**
+     * Whether the computation completed normally or failed.
+     *
+     * @return {@code true} if done, else {@code false}
+     */
+    public final boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Executes the computation and records its outcome.
+     */
+    final void run() {
+        try {
+            result = compute();
+        } catch (final RuntimeException | Error ex) {
+            failure = ex;
+        }
+
+        done = true;
+    }
+
+    /**
+     * Fails the task without executing it.
+     *
+     * @param cause never {@code null}
+     */
+    final void cancel(final RuntimeException cause) {
+        failure = cause;
+        done = true;
+    }
+
+    /**
+     * Parks the current thread with exponential back off until the task is done.
+     */
+    private void awaitDone() {
+        long park = 1;
+
+        while (!done) {
+            LockSupport.parkNanos(park);
+            park = Math.min(park << 1, MAX_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Returns the result or throws the failure.
+     *
+     * @return may be {@code null}
+     */
+    private T report() {
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+
+        return result;
+    }
+
+}
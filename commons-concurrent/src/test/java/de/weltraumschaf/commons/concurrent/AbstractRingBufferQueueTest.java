@@ -0,0 +1,49 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests for {@link AbstractRingBufferQueue}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class AbstractRingBufferQueueTest {
+
+    @Test
+    public void roundToPowerOfTwo() {
+        assertThat(AbstractRingBufferQueue.roundToPowerOfTwo(1), is(1));
+        assertThat(AbstractRingBufferQueue.roundToPowerOfTwo(2), is(2));
+        assertThat(AbstractRingBufferQueue.roundToPowerOfTwo(3), is(4));
+        assertThat(AbstractRingBufferQueue.roundToPowerOfTwo(4), is(4));
+        assertThat(AbstractRingBufferQueue.roundToPowerOfTwo(1000), is(1024));
+        assertThat(AbstractRingBufferQueue.roundToPowerOfTwo(1 << 30), is(1 << 30));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void roundToPowerOfTwo_zeroThrowsException() {
+        AbstractRingBufferQueue.roundToPowerOfTwo(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void roundToPowerOfTwo_tooLargeThrowsException() {
+        AbstractRingBufferQueue.roundToPowerOfTwo((1 << 30) + 1);
+    }
+
+    @Test
+    public void capacity() {
+        assertThat(new MpmcRingBufferQueue<String>(5).capacity(), is(8));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Messages per second processed by an {@link ActorRuntime} on carrier threads.
+ * <p>
+ * Each invocation sends a batch of messages round robin to the actors and waits until all are processed. With a
+ * throughput of 1 each message pays the scheduling, with a greater throughput a busy actor processes many messages per
+ * scheduling. Many actors show the cost of scheduling each of them.
+ * </p>
+ * <p>
+ * Run {@link #main(String[])} from the test class path.
+ * </p>
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ActorRuntimeBenchmark {
+
+    /**
+     * Messages sent per invocation.
+     */
+    private static final int BATCH = 10_000;
+
+    /**
+     * Maximum number of messages an actor processes before it yields.
+     */
+    @Param({"1", "64"})
+    private int throughput;
+
+    /**
+     * Number of actors the messages are spread over.
+     */
+    @Param({"1", "1000"})
+    private int actors;
+
+    /**
+     * The runtime under test.
+     */
+    private ActorRuntime runtime;
+
+    /**
+     * Receive the messages.
+     */
+    private ActorRef<Integer>[] refs;
+
+    /**
+     * Number of processed messages.
+     */
+    private final AtomicLong processed = new AtomicLong();
+
+    /**
+     * Number of sent messages.
+     */
+    private long sent;
+
+    /**
+     * Spawns the actors.
+     */
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void spawnActors() {
+        runtime = new ActorRuntime(Runtime.getRuntime().availableProcessors(), throughput);
+        refs = (ActorRef<Integer>[]) new ActorRef<?>[actors];
+
+        for (int i = 0; i < actors; ++i) {
+            refs[i] = runtime.spawn(message -> processed.incrementAndGet());
+        }
+    }
+
+    /**
+     * Closes the runtime.
+     */
+    @TearDown
+    public void closeRuntime() {
+        runtime.close();
+    }
+
+    /**
+     * Sends a batch and waits until it is processed.
+     *
+     * @return number of processed messages
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long sendAndProcess() {
+        for (int i = 0; i < BATCH; ++i) {
+            refs[i % actors].tell(i);
+        }
+
+        sent += BATCH;
+
+        while (processed.get() < sent) {
+            Thread.onSpinWait();
+        }
+
+        return sent;
+    }
+
+    /**
+     * Runs all parameter combinations.
+     *
+     * @param args not used
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder()
+            .include(ActorRuntimeBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link ActorRuntime}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class ActorRuntimeTest {
+
+    @Rule
+    //CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    //CHECKSTYLE:ON
+
+    private final ActorRuntime sut = new ActorRuntime(2, 8);
+
+    @After
+    public void close() {
+        sut.close();
+    }
+
+    @Test
+    public void construct_throughputLessThanOneThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'throughput' must be greater than 0!");
+
+        new ActorRuntime(1, 0);
+    }
+
+    @Test
+    public void construct_carriersLessThanOneThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'carriers' must be greater than 0!");
+
+        new ActorRuntime(0, 1);
+    }
+
+    @Test
+    public void construct_usesVirtualThreadsIfSupported() {
+        try (ActorRuntime runtime = new ActorRuntime()) {
+            assertThat(runtime.isVirtual(), is(VirtualThreads.isSupported()));
+            assertThat(runtime.throughput(), is(ActorRuntime.DEFAULT_THROUGHPUT));
+        }
+
+        assertThat(sut.isVirtual(), is(false));
+    }
+
+    @Test
+    public void spawn_nullThrowsException() {
+        thrown.expect(NullPointerException.class);
+        thrown.expectMessage("Parameter 'actor' must not be null!");
+
+        sut.spawn(null);
+    }
+
+    @Test
+    public void spawn_closedRuntimeThrowsException() {
+        sut.close();
+
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Runtime is closed!");
+
+        sut.spawn(message -> { });
+    }
+
+    @Test
+    public void tell_nullThrowsException() {
+        thrown.expect(NullPointerException.class);
+        thrown.expectMessage("Parameter 'message' must not be null!");
+
+        sut.spawn(message -> { }).tell(null);
+    }
+
+    @Test(timeout = 10_000)
+    public void processesMessagesInOrderOfSender() throws InterruptedException {
+        final List<Integer> received = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1_000);
+        final ActorRef<Integer> actor = sut.spawn(message -> {
+            // Plain list: The runtime never calls an actor concurrently.
+            received.add(message);
+            done.countDown();
+        });
+
+        for (int i = 0; i < 1_000; ++i) {
+            assertThat(actor.tell(i), is(true));
+        }
+
+        done.await();
+
+        for (int i = 0; i < 1_000; ++i) {
+            assertThat(received.get(i), is(i));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void neverRunsAnActorConcurrently() throws InterruptedException {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(4 * 10_000);
+        final ActorRef<Integer> actor = sut.spawn(message -> {
+            if (running.incrementAndGet() > 1) {
+                overlaps.incrementAndGet();
+            }
+
+            running.decrementAndGet();
+            done.countDown();
+        });
+        final List<Thread> senders = new ArrayList<>();
+
+        for (int t = 0; t < 4; ++t) {
+            senders.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; ++i) {
+                    actor.tell(i);
+                }
+            }));
+        }
+
+        senders.forEach(Thread::start);
+        done.await();
+
+        assertThat(overlaps.get(), is(0));
+    }
+
+    @Test(timeout = 10_000)
+    public void busyActorYieldsAfterThroughput() throws InterruptedException {
+        final List<String> trace = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done = new CountDownLatch(40);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        try (ActorRuntime runtime = new ActorRuntime(1, 4)) {
+            final ActorRef<String> gate = runtime.spawn(message -> start.await());
+            final ActorRef<Integer> first = runtime.spawn(message -> {
+                trace.add("first");
+                done.countDown();
+            });
+            final ActorRef<Integer> second = runtime.spawn(message -> {
+                trace.add("second");
+                done.countDown();
+            });
+            // Blocks the only carrier until both mailboxes are filled.
+            gate.tell("wait");
+
+            for (int i = 0; i < 20; ++i) {
+                first.tell(i);
+                second.tell(i);
+            }
+
+            start.countDown();
+            done.await();
+        }
+
+        assertThat(trace.subList(0, 8), contains(
+            "first", "first", "first", "first", "second", "second", "second", "second"));
+        assertThat(trace.subList(8, 12), everyItem(is("first")));
+    }
+
+    @Test(timeout = 10_000)
+    public void failingActorIsStopped() throws InterruptedException {
+        final CountDownLatch failed = new CountDownLatch(1);
+        final AtomicInteger received = new AtomicInteger();
+        final ActorRef<String> actor = sut.spawn(message -> {
+            received.incrementAndGet();
+
+            if ("boom".equals(message)) {
+                failed.countDown();
+                throw new IllegalStateException("boom");
+            }
+        });
+
+        actor.tell("boom");
+        failed.await();
+
+        while (!actor.isStopped()) {
+            Thread.yield();
+        }
+
+        assertThat(actor.failure(), is(instanceOf(IllegalStateException.class)));
+        assertThat(actor.tell("foo"), is(false));
+        assertThat(received.get(), is(1));
+    }
+
+    @Test(timeout = 10_000)
+    public void stoppedActorDiscardsMessages() throws InterruptedException {
+        final AtomicInteger received = new AtomicInteger();
+        final CountDownLatch first = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ActorRef<Integer> actor = sut.spawn(message -> {
+            received.incrementAndGet();
+            first.countDown();
+            release.await();
+        });
+
+        actor.tell(1);
+        actor.tell(2);
+        first.await();
+        actor.stop();
+        release.countDown();
+
+        assertThat(actor.isStopped(), is(true));
+        assertThat(actor.failure(), is(nullValue()));
+        assertThat(actor.tell(3), is(false));
+        sut.close();
+        assertThat(received.get(), is(1));
+    }
+
+    @Test(timeout = 10_000)
+    public void actorsStopIfRuntimeIsClosed() {
+        final ActorRef<String> actor = sut.spawn(message -> { });
+        sut.close();
+
+        assertThat(sut.isClosed(), is(true));
+        assertThat(actor.tell("foo"), is(false));
+        assertThat(actor.isStopped(), is(true));
+        assertThat(actor.tell("bar"), is(false));
+    }
+
+    @Test(timeout = 60_000)
+    public void runsHundredThousandActors() throws InterruptedException {
+        final int actors = 100_000;
+        final CountDownLatch done = new CountDownLatch(actors);
+        final List<ActorRef<Integer>> refs = new ArrayList<>(actors);
+
+        for (int i = 0; i < actors; ++i) {
+            final int[] sum = new int[1];
+            refs.add(sut.spawn(message -> {
+                sum[0] += message;
+
+                if (sum[0] == 6) {
+                    done.countDown();
+                }
+            }));
+        }
+
+        for (int message = 1; message <= 3; ++message) {
+            for (final ActorRef<Integer> ref : refs) {
+                ref.tell(message);
+            }
+        }
+
+        assertThat(done.await(50, TimeUnit.SECONDS), is(true));
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests for {@link BlockingQueueFacade}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class BlockingQueueFacadeTest {
+
+    private final BlockingQueue<String> sut = Concurrent.newBlockingQueue(
+        Concurrent.<String>newQueue(), WaitStrategies.blocking());
+
+    @Test(expected = NullPointerException.class)
+    public void construct_nullQueueThrowsException() {
+        Concurrent.newBlockingQueue(null, WaitStrategies.blocking());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void construct_nullWaitStrategyThrowsException() {
+        Concurrent.newBlockingQueue(Concurrent.newQueue(), null);
+    }
+
+    @Test
+    public void delegatesNonBlockingOperations() {
+        assertThat(sut.isEmpty(), is(true));
+        assertThat(sut.get(), is(nullValue()));
+
+        sut.add("foo");
+        assertThat(sut.offer("bar"), is(true));
+        sut.addAll(Arrays.asList("baz"));
+        assertThat(sut.isEmpty(), is(false));
+        assertThat(sut.toString(), is(equalTo("BlockingQueueFacade[ConcurrentQueue[foo, bar, baz]]")));
+
+        assertThat(sut.get(), is(equalTo("foo")));
+        assertThat(sut.drainTo(element -> { }, 5), is(2));
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void offer_returnsFalseIfDelegateIsFull() {
+        final BlockingQueue<String> bounded = Concurrent.newBlockingQueue(
+            Concurrent.<String>newSpscQueue(1), WaitStrategies.blocking());
+
+        assertThat(bounded.offer("foo"), is(true));
+        assertThat(bounded.offer("bar"), is(false));
+    }
+
+    @Test
+    public void take_returnsAvailableElementImmediately() throws InterruptedException {
+        sut.add("foo");
+
+        assertThat(sut.take(), is(equalTo("foo")));
+    }
+
+    @Test
+    public void poll_returnsNullAfterTimeout() throws InterruptedException {
+        assertThat(sut.poll(10, TimeUnit.MILLISECONDS), is(nullValue()));
+        assertThat(sut.poll(0, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void poll_nullUnitThrowsException() throws InterruptedException {
+        sut.poll(1, null);
+    }
+
+    @Test(timeout = 10_000)
+    public void take_waitsForElementWithEachStrategy() throws InterruptedException {
+        for (final WaitStrategy strategy : Arrays.asList(
+            WaitStrategies.busySpin(),
+            WaitStrategies.yielding(),
+            WaitStrategies.parking(),
+            WaitStrategies.blocking())) {
+            final BlockingQueue<String> queue = Concurrent.newBlockingQueue(Concurrent.<String>newQueue(), strategy);
+            final AtomicReference<String> taken = new AtomicReference<>();
+            final Thread consumer = new Thread(() -> {
+                try {
+                    taken.set(queue.take());
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+
+            consumer.start();
+            Thread.sleep(20);
+            queue.add("foo");
+            consumer.join();
+
+            assertThat(taken.get(), is(equalTo("foo")));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void take_throwsExceptionIfInterrupted() throws InterruptedException {
+        for (final WaitStrategy strategy : Arrays.asList(
+            WaitStrategies.busySpin(),
+            WaitStrategies.yielding(),
+            WaitStrategies.parking(),
+            WaitStrategies.blocking())) {
+            final BlockingQueue<String> queue = Concurrent.newBlockingQueue(Concurrent.<String>newQueue(), strategy);
+            final AtomicReference<Throwable> thrown = new AtomicReference<>();
+            final Thread consumer = new Thread(() -> {
+                try {
+                    queue.take();
+                } catch (final InterruptedException ex) {
+                    thrown.set(ex);
+                }
+            });
+
+            consumer.start();
+            Thread.sleep(20);
+            consumer.interrupt();
+            consumer.join();
+
+            assertThat(thrown.get(), is(instanceOf(InterruptedException.class)));
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void take_doesNotMissSignalOfSpscRingBuffer() throws InterruptedException {
+        assertTakesAll(Concurrent.<Integer>newSpscQueue(4), 1, 1);
+    }
+
+    @Test(timeout = 60_000)
+    public void take_doesNotMissSignalOfMpmcRingBuffer() throws InterruptedException {
+        assertTakesAll(Concurrent.<Integer>newMpmcQueue(4), 4, 4);
+    }
+
+    @Test(timeout = 60_000)
+    public void take_doesNotMissSignalOfLinkedQueue() throws InterruptedException {
+        assertTakesAll(Concurrent.<Integer>newQueue(), 4, 4);
+    }
+
+    /**
+     * Producers put the elements while consumers take them, blocked on a condition whenever the queue runs empty.
+     * <p>
+     * A lost signal leaves a consumer waiting forever, so the test times out.
+     * </p>
+     */
+    private static void assertTakesAll(final Queue<Integer> delegate, final int producers, final int consumers)
+        throws InterruptedException {
+        final int perProducer = 200_000;
+        final int total = perProducer * producers;
+        final BlockingQueue<Integer> queue = Concurrent.newBlockingQueue(delegate, WaitStrategies.blocking());
+        final AtomicLong sum = new AtomicLong();
+        final List<Thread> threads = new ArrayList<>();
+
+        for (int i = 0; i < producers; ++i) {
+            threads.add(new Thread(() -> {
+                for (int element = 1; element <= perProducer; ++element) {
+                    while (!queue.offer(element)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+
+        for (int i = 0; i < consumers; ++i) {
+            final int share = total / consumers + (i < total % consumers ? 1 : 0);
+            threads.add(new Thread(() -> {
+                try {
+                    for (int taken = 0; taken < share; ++taken) {
+                        sum.addAndGet(queue.take());
+                    }
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(sum.get(), is((long) producers * perProducer * (perProducer + 1) / 2));
+        assertThat(queue.isEmpty(), is(true));
+    }
+}
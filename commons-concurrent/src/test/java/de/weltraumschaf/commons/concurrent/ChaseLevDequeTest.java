@@ -0,0 +1,136 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ChaseLevDeque}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class ChaseLevDequeTest {
+
+    private final WorkStealingDeque<String> sut = new ChaseLevDeque<>(2);
+
+    @Test
+    public void isEmpty() {
+        assertThat(sut.isEmpty(), is(true));
+        sut.push("foo");
+        assertThat(sut.isEmpty(), is(false));
+        sut.pop();
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void push_nullThrowsException() {
+        sut.push(null);
+    }
+
+    @Test
+    public void pushAndPop_lifo() {
+        assertThat(sut.pop(), is(nullValue()));
+
+        sut.push("foo");
+        sut.push("bar");
+        sut.push("baz");
+
+        assertThat(sut.pop(), is(equalTo("baz")));
+        assertThat(sut.pop(), is(equalTo("bar")));
+        assertThat(sut.pop(), is(equalTo("foo")));
+        assertThat(sut.pop(), is(nullValue()));
+    }
+
+    @Test
+    public void pushAndSteal_fifo() {
+        assertThat(sut.steal(), is(nullValue()));
+
+        sut.push("foo");
+        sut.push("bar");
+        sut.push("baz");
+
+        assertThat(sut.steal(), is(equalTo("foo")));
+        assertThat(sut.steal(), is(equalTo("bar")));
+        assertThat(sut.pop(), is(equalTo("baz")));
+        assertThat(sut.steal(), is(nullValue()));
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void growsBeyondInitialCapacity() {
+        for (int i = 0; i < 100; ++i) {
+            sut.push("e" + i);
+        }
+
+        assertThat(sut.steal(), is(equalTo("e0")));
+        assertThat(sut.toString(), is(equalTo("ChaseLevDeque[size=99]")));
+
+        for (int i = 99; i > 0; --i) {
+            assertThat(sut.pop(), is(equalTo("e" + i)));
+        }
+
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test(timeout = 30_000)
+    public void ownerAndThievesNeitherLoseNorDuplicateElements() throws InterruptedException {
+        final WorkStealingDeque<Integer> deque = new ChaseLevDeque<>(4);
+        final int total = 200_000;
+        final AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        final AtomicBoolean ownerDone = new AtomicBoolean();
+        final List<Thread> thieves = new ArrayList<>();
+
+        for (int t = 0; t < 3; ++t) {
+            thieves.add(new Thread(() -> {
+                while (!ownerDone.get() || !deque.isEmpty()) {
+                    final Integer stolen = deque.steal();
+
+                    if (null != stolen) {
+                        seen.incrementAndGet(stolen);
+                    }
+                }
+            }));
+        }
+
+        for (final Thread thief : thieves) {
+            thief.start();
+        }
+
+        for (int i = 0; i < total; ++i) {
+            deque.push(i);
+
+            if (i % 3 == 0) {
+                final Integer popped = deque.pop();
+
+                if (null != popped) {
+                    seen.incrementAndGet(popped);
+                }
+            }
+        }
+
+        ownerDone.set(true);
+
+        for (final Thread thief : thieves) {
+            thief.join();
+        }
+
+        for (int i = 0; i < total; ++i) {
+            assertThat("Element " + i, seen.get(i), is(1));
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link ConcurrencyLimiter}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class ConcurrencyLimiterTest {
+
+    @Rule
+    //CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    //CHECKSTYLE:ON
+
+    private final AtomicLong clock = new AtomicLong(Long.MAX_VALUE - 1_000);
+    private final List<long[]> samples = new ArrayList<>();
+    private final ConcurrencyLimiter sut = new ConcurrencyLimiter(new RecordingLimit(2), clock::get);
+
+    /**
+     * Records the samples and increases the limit by one per successful and decreases by one per dropped round trip.
+     */
+    private final class RecordingLimit implements LimitAlgorithm {
+        private final int initialLimit;
+
+        RecordingLimit(final int initialLimit) {
+            super();
+            this.initialLimit = initialLimit;
+        }
+
+        @Override
+        public int initialLimit() {
+            return initialLimit;
+        }
+
+        @Override
+        public int update(final int limit, final long rttNanos, final int inFlight, final boolean dropped) {
+            samples.add(new long[]{rttNanos, inFlight, dropped ? 1 : 0});
+            return dropped ? Math.max(1, limit - 1) : limit + 1;
+        }
+    }
+
+    @Test
+    public void construct_nullAlgorithmThrowsException() {
+        thrown.expect(NullPointerException.class);
+        thrown.expectMessage("Parameter 'algorithm' must not be null!");
+
+        new ConcurrencyLimiter(null);
+    }
+
+    @Test
+    public void startsWithInitialLimit() {
+        assertThat(sut.limit(), is(2));
+        assertThat(sut.inFlight(), is(0));
+    }
+
+    @Test
+    public void tryAcquire_upToLimit() {
+        assertThat(sut.tryAcquire(), is(notNullValue()));
+        assertThat(sut.tryAcquire(), is(notNullValue()));
+        assertThat(sut.tryAcquire(), is(nullValue()));
+        assertThat(sut.inFlight(), is(2));
+    }
+
+    @Test
+    public void release_passesRoundTripToAlgorithm() {
+        final ConcurrencyLimiter.Permit first = sut.tryAcquire();
+        sut.tryAcquire();
+        clock.addAndGet(500);
+
+        first.release();
+
+        assertThat(samples, hasSize(1));
+        assertThat(samples.get(0), is(new long[]{500, 1, 0}));
+        assertThat(sut.limit(), is(3));
+        assertThat(sut.inFlight(), is(1));
+        assertThat(sut.tryAcquire(), is(notNullValue()));
+        assertThat(sut.tryAcquire(), is(notNullValue()));
+        assertThat(sut.tryAcquire(), is(nullValue()));
+    }
+
+    @Test
+    public void drop_passesDroppedRoundTripToAlgorithm() {
+        sut.tryAcquire().drop();
+
+        assertThat(samples.get(0)[2], is(1L));
+        assertThat(sut.limit(), is(1));
+        assertThat(sut.inFlight(), is(0));
+    }
+
+    @Test
+    public void ignore_releasesWithoutSample() {
+        sut.tryAcquire().ignore();
+
+        assertThat(samples, is(empty()));
+        assertThat(sut.limit(), is(2));
+        assertThat(sut.inFlight(), is(0));
+    }
+
+    @Test
+    public void releaseTwiceThrowsException() {
+        final ConcurrencyLimiter.Permit permit = sut.tryAcquire();
+        permit.release();
+
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Permit is already released!");
+
+        permit.drop();
+    }
+
+    @Test
+    public void algorithmReturningInvalidLimitThrowsExceptionButReleases() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(new LimitAlgorithm() {
+            @Override
+            public int initialLimit() {
+                return 1;
+            }
+
+            @Override
+            public int update(final int limit, final long rttNanos, final int inFlight, final boolean dropped) {
+                return 0;
+            }
+        });
+
+        try {
+            limiter.tryAcquire().release();
+        } catch (final IllegalStateException ex) {
+            assertThat(ex.getMessage(), is("Algorithm computed limit 0, but it must be greater than 0!"));
+        }
+
+        assertThat(limiter.inFlight(), is(0));
+        assertThat(limiter.limit(), is(1));
+    }
+
+    @Test
+    public void listenersAreNotifiedOnChangedLimit() {
+        final List<String> changes = new ArrayList<>();
+        final LimitListener listener = (oldLimit, newLimit) -> changes.add(oldLimit + "->" + newLimit);
+        sut.addListener(listener);
+
+        sut.tryAcquire().release();
+        sut.tryAcquire().drop();
+        sut.removeListener(listener);
+        sut.tryAcquire().release();
+
+        assertThat(changes, contains("2->3", "3->2"));
+    }
+
+    @Test
+    public void listenersAreNotNotifiedOnUnchangedLimit() {
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(LimitAlgorithms.aimd(5, 5, 5));
+        final List<String> changes = new ArrayList<>();
+        limiter.addListener((oldLimit, newLimit) -> changes.add(oldLimit + "->" + newLimit));
+
+        limiter.tryAcquire().drop();
+
+        assertThat(changes, is(empty()));
+    }
+
+    @Test
+    public void addListener_nullThrowsException() {
+        thrown.expect(NullPointerException.class);
+        thrown.expectMessage("Parameter 'listener' must not be null!");
+
+        sut.addListener(null);
+    }
+
+    @Test
+    public void acquire_withTimeoutReturnsNullIfLimitReached() throws InterruptedException {
+        sut.tryAcquire();
+        sut.tryAcquire();
+
+        assertThat(sut.acquire(10, TimeUnit.MILLISECONDS), is(nullValue()));
+    }
+
+    @Test(timeout = 10_000)
+    public void acquire_waitsForRelease() throws InterruptedException {
+        final ConcurrencyLimiter.Permit first = sut.tryAcquire();
+        sut.tryAcquire();
+        final AtomicReference<ConcurrencyLimiter.Permit> acquired = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+
+        new Thread(() -> {
+            try {
+                acquired.set(sut.acquire());
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                done.countDown();
+            }
+        }).start();
+
+        assertThat(done.await(50, TimeUnit.MILLISECONDS), is(false));
+        first.ignore();
+        done.await();
+
+        assertThat(acquired.get(), is(notNullValue()));
+        assertThat(sut.inFlight(), is(2));
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Throughput of {@link ConcurrentQueue} compared to {@link ConcurrentLinkedQueue} with producers and consumers.
+ * <p>
+ * The bounded {@link MpmcRingBufferQueue} is measured too. Its producers do not block if it is full, so the
+ * throughput of the producer side also counts rejected offers.
+ * </p>
+ * <p>
+ * Run {@link #main(String[])} from the test class path to measure with 1, 2, 4 .. N producers and as many consumers,
+ * where N is half the available processors. A single group may also be run with the JMH command line option
+ * {@code -tg}, e.g. {@code -tg 4,4} for four producers and four consumers.
+ * </p>
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentQueueBenchmark {
+
+    /**
+     * Element added by producers.
+     */
+    private static final Integer ELEMENT = 42;
+
+    /**
+     * Capacity of the bounded queue.
+     */
+    private static final int CAPACITY = 1024;
+
+    /**
+     * Which implementation to measure.
+     */
+    @Param({"commons", "jdk", "mpmc"})
+    private String implementation;
+
+    /**
+     * The queue under test, shared by all threads of a group.
+     */
+    private Queue<Integer> queue;
+
+    /**
+     * Creates a fresh queue per iteration so that a queue grown by faster producers does not distort the next one.
+     */
+    @Setup(Level.Iteration)
+    public void createQueue() {
+        switch (implementation) {
+            case "jdk":
+                queue = new JdkQueue<>();
+                break;
+            case "mpmc":
+                queue = Concurrent.newMpmcQueue(CAPACITY);
+                break;
+            default:
+                queue = Concurrent.newQueue();
+                break;
+        }
+    }
+
+    /**
+     * Producer side.
+     *
+     * @return whether the element was added
+     */
+    @Benchmark
+    @Group("addGet")
+    @GroupThreads(1)
+    public boolean add() {
+        return queue.offer(ELEMENT);
+    }
+
+    /**
+     * Consumer side.
+     *
+     * @return consumed element, may be {@code null}
+     */
+    @Benchmark
+    @Group("addGet")
+    @GroupThreads(1)
+    public Integer get() {
+        return queue.get();
+    }
+
+    /**
+     * Runs the group with 1..N producers and consumers.
+     *
+     * @param args not used
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        final int max = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        for (int threads = 1; threads <= max; threads *= 2) {
+            final Options options = new OptionsBuilder()
+                .include(ConcurrentQueueBenchmark.class.getSimpleName())
+                .threadGroups(threads, threads)
+                .build();
+            new Runner(options).run();
+        }
+    }
+
+    /**
+     * Adapts the JDK queue to the interface of this library.
+     *
+     * @param <E> type of queue entries
+     */
+    static final class JdkQueue<E> implements Queue<E> {
+
+        /**
+         * Delegate.
+         */
+        private final ConcurrentLinkedQueue<E> delegate = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public boolean isEmpty() {
+            return delegate.isEmpty();
+        }
+
+        @Override
+        public void add(final E element) {
+            delegate.add(element);
+        }
+
+        @Override
+        public E get() {
+            return delegate.poll();
+        }
+
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return delegate.iterator();
+        }
+    }
+}
@@ -17,6 +17,11 @@ import edu.umd.cs.mtc.TestFramework;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import org.junit.Test;
 
 /**
@@ -99,4 +104,137 @@ public class ConcurrentQueueMutlithreadTest extends MultithreadedTestCase {
         assertThat(sut.get(), is(nullValue()));
     }
 
-}
\ No newline at end of file
+    @Test(timeout = 30_000)
+    public void multipleProducersAndConsumersNeitherLoseNorDuplicateElements() throws InterruptedException {
+        final int producers = 4;
+        final int consumers = 4;
+        final int elementsPerProducer = 50_000;
+        final int total = producers * elementsPerProducer;
+        final AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch consumed = new CountDownLatch(total);
+        final List<Thread> threads = new ArrayList<>();
+
+        for (int p = 0; p < producers; ++p) {
+            final int offset = p * elementsPerProducer;
+            threads.add(new Thread(() -> {
+                awaitQuietly(start);
+
+                for (int i = 0; i < elementsPerProducer; ++i) {
+                    sut.add(offset + i);
+                }
+            }));
+        }
+
+        for (int c = 0; c < consumers; ++c) {
+            threads.add(new Thread(() -> {
+                awaitQuietly(start);
+
+                while (consumed.getCount() > 0) {
+                    final Integer element = sut.get();
+
+                    if (null != element) {
+                        seen.incrementAndGet(element);
+                        consumed.countDown();
+                    }
+                }
+            }));
+        }
+
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+
+        start.countDown();
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int i = 0; i < total; ++i) {
+            assertThat("Element " + i, seen.get(i), is(1));
+        }
+
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test(timeout = 30_000)
+    public void batchProducersAndConsumersNeitherLoseNorDuplicateElements() throws InterruptedException {
+        final int producers = 4;
+        final int consumers = 4;
+        final int batchesPerProducer = 5_000;
+        final int batchSize = 10;
+        final int total = producers * batchesPerProducer * batchSize;
+        final AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch consumed = new CountDownLatch(total);
+        final List<Thread> threads = new ArrayList<>();
+
+        for (int p = 0; p < producers; ++p) {
+            final int offset = p * batchesPerProducer * batchSize;
+            threads.add(new Thread(() -> {
+                awaitQuietly(start);
+
+                for (int b = 0; b < batchesPerProducer; ++b) {
+                    final Integer[] batch = new Integer[batchSize];
+
+                    for (int i = 0; i < batchSize; ++i) {
+                        batch[i] = offset + b * batchSize + i;
+                    }
+
+                    sut.addAll(Arrays.asList(batch));
+                }
+            }));
+        }
+
+        for (int c = 0; c < consumers; ++c) {
+            final boolean batched = c % 2 == 0;
+            threads.add(new Thread(() -> {
+                awaitQuietly(start);
+
+                while (consumed.getCount() > 0) {
+                    if (batched) {
+                        sut.drainTo(element -> {
+                            seen.incrementAndGet(element);
+                            consumed.countDown();
+                        }, 7);
+                    } else {
+                        final Integer element = sut.get();
+
+                        if (null != element) {
+                            seen.incrementAndGet(element);
+                            consumed.countDown();
+                        }
+                    }
+                }
+            }));
+        }
+
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+
+        start.countDown();
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int i = 0; i < total; ++i) {
+            assertThat("Element " + i, seen.get(i), is(1));
+        }
+
+        assertThat(sut.isEmpty(), is(true));
+        sut.add(1);
+        assertThat(sut.get(), is(1));
+    }
+
+    private static void awaitQuietly(final CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -13,6 +13,12 @@ package de.weltraumschaf.commons.concurrent;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import org.junit.Test;
 
 /**
@@ -90,7 +96,7 @@ public class ConcurrentQueueTest {
         // reverse order
         otherSut.add("bar");
         otherSut.add("foo");
-        assertThat(sut.hashCode(), is(otherSut.hashCode()));
+        assertThat(sut.hashCode(), is(not(otherSut.hashCode())));
     }
 
     @Test
@@ -142,4 +148,169 @@ public class ConcurrentQueueTest {
         sut.add("baz");
         assertThat(sut.toString(), is(equalTo("ConcurrentQueue[foo, bar, baz]")));
     }
+
+    @Test
+    public void addAll() {
+        sut.add("foo");
+        sut.addAll(Arrays.asList("bar", "baz", "snafu"));
+        sut.add("qux");
+
+        assertThat(sut.toString(), is(equalTo("ConcurrentQueue[foo, bar, baz, snafu, qux]")));
+        assertThat(sut.get(), is(equalTo("foo")));
+        assertThat(sut.get(), is(equalTo("bar")));
+        assertThat(sut.get(), is(equalTo("baz")));
+        assertThat(sut.get(), is(equalTo("snafu")));
+        assertThat(sut.get(), is(equalTo("qux")));
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void addAll_empty() {
+        sut.addAll(Collections.<String>emptyList());
+
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void addAll_nullThrowsException() {
+        sut.addAll(null);
+    }
+
+    @Test
+    public void drainTo() {
+        sut.addAll(Arrays.asList("foo", "bar", "baz"));
+        final List<String> drained = new ArrayList<>();
+
+        assertThat(sut.drainTo(drained::add, 2), is(2));
+        assertThat(drained, contains("foo", "bar"));
+        assertThat(sut.drainTo(drained::add, 2), is(1));
+        assertThat(drained, contains("foo", "bar", "baz"));
+        assertThat(sut.drainTo(drained::add, 2), is(0));
+        assertThat(sut.isEmpty(), is(true));
+
+        sut.add("snafu");
+        assertThat(sut.get(), is(equalTo("snafu")));
+    }
+
+    @Test
+    public void drainTo_zeroMax() {
+        sut.add("foo");
+
+        assertThat(sut.drainTo(element -> { }, 0), is(0));
+        assertThat(sut.get(), is(equalTo("foo")));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void drainTo_nullConsumerThrowsException() {
+        sut.drainTo(null, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void drainTo_negativeMaxThrowsException() {
+        sut.drainTo(element -> { }, -1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void snapshot_notInstrumentedThrowsException() {
+        new ConcurrentQueue<String>().snapshot();
+    }
+
+    @Test
+    public void snapshot_countsElementsAndOperations() {
+        final InstrumentedQueue<String> instrumented = Concurrent.newInstrumentedQueue();
+        instrumented.add("foo");
+        instrumented.addAll(Arrays.asList("bar", "baz"));
+        instrumented.get();
+        instrumented.drainTo(element -> { }, 1);
+
+        final ContentionSnapshot snapshot = instrumented.snapshot();
+
+        assertThat(snapshot.added(), is(3L));
+        assertThat(snapshot.removed(), is(2L));
+        assertThat(snapshot.approximateDepth(), is(1L));
+        assertThat(snapshot.addCasFailures(), is(0L));
+        assertThat(snapshot.removeCasFailures(), is(0L));
+    }
+
+    @Test
+    public void size() {
+        assertThat(sut.size(), is(0));
+
+        sut.add("foo");
+        sut.addAll(Arrays.asList("bar", "baz"));
+        assertThat(sut.size(), is(3));
+
+        sut.get();
+        assertThat(sut.size(), is(2));
+
+        sut.drainTo(element -> { }, 5);
+        assertThat(sut.size(), is(0));
+
+        sut.addAll(Arrays.asList("foo", "bar"));
+        assertThat(sut.size(), is(2));
+    }
+
+    @Test
+    public void iterator() {
+        sut.add("foo");
+        sut.add("bar");
+        sut.add("baz");
+        final List<String> iterated = new ArrayList<>();
+
+        for (final String element : sut) {
+            iterated.add(element);
+        }
+
+        assertThat(iterated, contains("foo", "bar", "baz"));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void iterator_nextOnEmptyThrowsException() {
+        sut.iterator().next();
+    }
+
+    @Test
+    public void iterator_skipsDequeuedElements() {
+        sut.addAll(Arrays.asList("foo", "bar", "baz", "snafu"));
+        final Iterator<String> iterator = sut.iterator();
+
+        assertThat(iterator.next(), is("foo"));
+        sut.get();
+        sut.get();
+        sut.get();
+        sut.add("hooray");
+
+        // Already read before the elements were dequeued.
+        assertThat(iterator.next(), is("bar"));
+        assertThat(iterator.next(), is("snafu"));
+        assertThat(iterator.next(), is("hooray"));
+        assertThat(iterator.hasNext(), is(false));
+    }
+
+    @Test
+    public void parallelStream() {
+        for (int i = 0; i < 10_000; ++i) {
+            sut.add(String.valueOf(i));
+        }
+
+        assertThat(sut.stream().parallel().mapToInt(Integer::parseInt).sum(), is(49_995_000));
+        assertThat(sut.stream().findFirst().get(), is("0"));
+    }
+
+    @Test
+    public void hashCodeAndEquals_longQueueDoesNotOverflow() {
+        final Queue<String> otherSut = Concurrent.newQueue();
+
+        for (int i = 0; i < 1_000_000; ++i) {
+            sut.add("foo");
+            otherSut.add("foo");
+        }
+
+        assertThat(sut.hashCode(), is(otherSut.hashCode()));
+        assertThat(sut.equals(otherSut), is(true));
+
+        otherSut.get();
+        assertThat(sut.equals(otherSut), is(false));
+        assertThat(otherSut.equals(sut), is(false));
+    }
 }
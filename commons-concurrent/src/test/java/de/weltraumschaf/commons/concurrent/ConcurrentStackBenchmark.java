@@ -0,0 +1,102 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Throughput of {@link EliminationBackoffStack} compared to {@link ConcurrentStack} with growing thread count.
+ * <p>
+ * Each thread pushes an element and pops one. Run {@link #main(String[])} from the test class path to measure with 1,
+ * 2, 4 .. N threads, where N is the number of available processors. A single thread count may also be run with the
+ * JMH command line option {@code -t}.
+ * </p>
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentStackBenchmark {
+
+    /**
+     * Element pushed by all threads.
+     */
+    private static final Integer ELEMENT = 42;
+
+    /**
+     * Which implementation to measure.
+     */
+    @Param({"treiber", "elimination"})
+    private String implementation;
+
+    /**
+     * The stack under test, shared by all threads.
+     */
+    private Stack<Integer> stack;
+
+    /**
+     * Creates a fresh stack per iteration.
+     */
+    @Setup(Level.Iteration)
+    public void createStack() {
+        stack = "elimination".equals(implementation) ? Concurrent.newEliminationStack() : Concurrent.newStack();
+    }
+
+    /**
+     * Pushes and pops one element.
+     *
+     * @return popped element, may be {@code null}
+     */
+    @Benchmark
+    public Integer pushPop() {
+        stack.push(ELEMENT);
+        return stack.pop();
+    }
+
+    /**
+     * Runs the benchmark with 1..N threads.
+     *
+     * @param args not used
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        final int max = Runtime.getRuntime().availableProcessors();
+
+        for (int threads = 1; threads <= max; threads *= 2) {
+            final Options options = new OptionsBuilder()
+                .include(ConcurrentStackBenchmark.class.getSimpleName())
+                .threads(threads)
+                .build();
+            new Runner(options).run();
+        }
+    }
+}
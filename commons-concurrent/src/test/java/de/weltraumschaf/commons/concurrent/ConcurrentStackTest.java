@@ -13,6 +13,13 @@ package de.weltraumschaf.commons.concurrent;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.assertThat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.hamcrest.Matchers.contains;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import org.junit.Test;
 
 /**
@@ -85,7 +92,7 @@ public class ConcurrentStackTest {
         // reverse order
         otherSut.push("bar");
         otherSut.push("foo");
-        assertThat(sut.hashCode(), is(otherSut.hashCode()));
+        assertThat(sut.hashCode(), is(not(otherSut.hashCode())));
     }
 
     @Test
@@ -137,4 +144,161 @@ public class ConcurrentStackTest {
         sut.push("baz");
         assertThat(sut.toString(), is(equalTo("ConcurrentStack[baz, bar, foo]")));
     }
+
+    @Test
+    public void addAll() {
+        sut.push("foo");
+        sut.addAll(Arrays.asList("bar", "baz", "snafu"));
+
+        assertThat(sut.pop(), is(equalTo("snafu")));
+        assertThat(sut.pop(), is(equalTo("baz")));
+        assertThat(sut.pop(), is(equalTo("bar")));
+        assertThat(sut.pop(), is(equalTo("foo")));
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void addAll_empty() {
+        sut.addAll(Collections.<String>emptyList());
+
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void addAll_nullThrowsException() {
+        sut.addAll(null);
+    }
+
+    @Test
+    public void drainTo() {
+        sut.addAll(Arrays.asList("foo", "bar", "baz"));
+        final List<String> drained = new ArrayList<>();
+
+        assertThat(sut.drainTo(drained::add, 2), is(2));
+        assertThat(drained, contains("baz", "bar"));
+        assertThat(sut.drainTo(drained::add, 2), is(1));
+        assertThat(drained, contains("baz", "bar", "foo"));
+        assertThat(sut.drainTo(drained::add, 2), is(0));
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void drainTo_zeroMax() {
+        sut.push("foo");
+
+        assertThat(sut.drainTo(element -> { }, 0), is(0));
+        assertThat(sut.pop(), is(equalTo("foo")));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void drainTo_nullConsumerThrowsException() {
+        sut.drainTo(null, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void drainTo_negativeMaxThrowsException() {
+        sut.drainTo(element -> { }, -1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void snapshot_notInstrumentedThrowsException() {
+        new ConcurrentStack<String>().snapshot();
+    }
+
+    @Test
+    public void snapshot_countsElementsAndOperations() {
+        final InstrumentedStack<String> instrumented = Concurrent.newInstrumentedStack();
+        instrumented.push("foo");
+        instrumented.addAll(Arrays.asList("bar", "baz"));
+        instrumented.pop();
+        instrumented.drainTo(element -> { }, 5);
+        instrumented.pop();
+
+        final ContentionSnapshot snapshot = instrumented.snapshot();
+
+        assertThat(snapshot.added(), is(3L));
+        assertThat(snapshot.removed(), is(3L));
+        assertThat(snapshot.approximateDepth(), is(0L));
+        assertThat(snapshot.addCasFailures(), is(0L));
+        assertThat(snapshot.removeCasFailures(), is(0L));
+    }
+
+    @Test
+    public void size() {
+        assertThat(sut.size(), is(0));
+
+        sut.push("foo");
+        sut.addAll(Arrays.asList("bar", "baz"));
+        assertThat(sut.size(), is(3));
+
+        sut.pop();
+        assertThat(sut.size(), is(2));
+
+        sut.drainTo(element -> { }, 5);
+        assertThat(sut.size(), is(0));
+
+        sut.addAll(Arrays.asList("foo", "bar"));
+        assertThat(sut.size(), is(2));
+    }
+
+    @Test
+    public void iterator() {
+        sut.push("foo");
+        sut.push("bar");
+        sut.push("baz");
+        final List<String> iterated = new ArrayList<>();
+
+        for (final String element : sut) {
+            iterated.add(element);
+        }
+
+        assertThat(iterated, contains("baz", "bar", "foo"));
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void iterator_nextOnEmptyThrowsException() {
+        sut.iterator().next();
+    }
+
+    @Test
+    public void iterator_isWeaklyConsistent() {
+        sut.addAll(Arrays.asList("foo", "bar", "baz"));
+        final Iterator<String> iterator = sut.iterator();
+
+        assertThat(iterator.next(), is("baz"));
+        sut.pop();
+        sut.pop();
+        sut.push("snafu");
+
+        assertThat(iterator.next(), is("bar"));
+        assertThat(iterator.next(), is("foo"));
+        assertThat(iterator.hasNext(), is(false));
+    }
+
+    @Test
+    public void parallelStream() {
+        for (int i = 0; i < 10_000; ++i) {
+            sut.push(String.valueOf(i));
+        }
+
+        assertThat(sut.stream().parallel().mapToInt(Integer::parseInt).sum(), is(49_995_000));
+        assertThat(sut.stream().findFirst().get(), is("9999"));
+    }
+
+    @Test
+    public void hashCodeAndEquals_deepStackDoesNotOverflow() {
+        final Stack<String> otherSut = Concurrent.newStack();
+
+        for (int i = 0; i < 1_000_000; ++i) {
+            sut.push("foo");
+            otherSut.push("foo");
+        }
+
+        assertThat(sut.hashCode(), is(otherSut.hashCode()));
+        assertThat(sut.equals(otherSut), is(true));
+
+        otherSut.pop();
+        assertThat(sut.equals(otherSut), is(false));
+        assertThat(otherSut.equals(sut), is(false));
+    }
 }
@@ -61,6 +61,24 @@ public class ConcurrentTest {
         assertThat(two, is(not(sameInstance(three))));
     }
 
+    @Test
+    public void newEliminationStack_neverNull() {
+        assertThat(Concurrent.newEliminationStack(), is(not(nullValue())));
+        assertThat(Concurrent.newEliminationStack(), is(not(nullValue())));
+        assertThat(Concurrent.newEliminationStack(), is(not(nullValue())));
+    }
+
+    @Test
+    public void newEliminationStack_alwaysNewInstance() {
+        final Stack<Object> one = Concurrent.newEliminationStack();
+        final Stack<Object> two = Concurrent.newEliminationStack();
+        final Stack<Object> three = Concurrent.newEliminationStack();
+
+        assertThat(one, is(not(sameInstance(two))));
+        assertThat(one, is(not(sameInstance(three))));
+        assertThat(two, is(not(sameInstance(three))));
+    }
+
     @Test
     public void newQueue_neverNull() {
         assertThat(Concurrent.newQueue(), is(not(nullValue())));
@@ -78,4 +96,20 @@ public class ConcurrentTest {
         assertThat(one, is(not(sameInstance(three))));
         assertThat(two, is(not(sameInstance(three))));
     }
+
+    @Test
+    public void newRingBufferQueues_haveRequestedCapacity() {
+        assertThat(((AbstractRingBufferQueue<Object>) Concurrent.newSpscQueue(8)).capacity(), is(8));
+        assertThat(((AbstractRingBufferQueue<Object>) Concurrent.newMpscQueue(8)).capacity(), is(8));
+        assertThat(((AbstractRingBufferQueue<Object>) Concurrent.newMpmcQueue(8)).capacity(), is(8));
+    }
+
+    @Test
+    public void newWorkStealingDeque_alwaysNewInstance() {
+        final WorkStealingDeque<Object> one = Concurrent.newWorkStealingDeque();
+        final WorkStealingDeque<Object> two = Concurrent.newWorkStealingDeque();
+
+        assertThat(one, is(not(nullValue())));
+        assertThat(one, is(not(sameInstance(two))));
+    }
 }
@@ -0,0 +1,88 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ContentionSnapshot}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class ContentionSnapshotTest {
+
+    private final ContentionSnapshot previous = new ContentionSnapshot(10, 4, 10, 4, 2, 0, 0);
+    private final ContentionSnapshot current
+        = new ContentionSnapshot(30, 14, 20, 8, 12, 4, TimeUnit.SECONDS.toNanos(2));
+
+    @Test
+    public void approximateDepth() {
+        assertThat(current.approximateDepth(), is(16L));
+    }
+
+    @Test
+    public void approximateDepth_neverNegative() {
+        assertThat(new ContentionSnapshot(1, 2, 1, 2, 0, 0, 0).approximateDepth(), is(0L));
+    }
+
+    @Test
+    public void casFailuresPerOperation() {
+        assertThat(current.addCasFailuresPerOperation(), is(0.6));
+        assertThat(current.removeCasFailuresPerOperation(), is(0.5));
+    }
+
+    @Test
+    public void casFailuresPerOperation_zeroWithoutOperations() {
+        final ContentionSnapshot empty = new ContentionSnapshot(0, 0, 0, 0, 0, 0, 0);
+
+        assertThat(empty.addCasFailuresPerOperation(), is(0.0));
+        assertThat(empty.removeCasFailuresPerOperation(), is(0.0));
+    }
+
+    @Test
+    public void removeCasFailuresPerOperation_countsRemovesWhichFoundNothing() {
+        final Instrumentation instrumentation = new Instrumentation();
+        instrumentation.recordRemove(0, 3);
+        instrumentation.recordRemove(1, 1);
+
+        final ContentionSnapshot snapshot = instrumentation.snapshot();
+
+        assertThat(snapshot.removed(), is(1L));
+        assertThat(snapshot.removeCasFailures(), is(4L));
+        assertThat(snapshot.removeCasFailuresPerOperation(), is(2.0));
+    }
+
+    @Test
+    public void rates() {
+        assertThat(current.addRate(previous), is(10.0));
+        assertThat(current.removeRate(previous), is(5.0));
+    }
+
+    @Test
+    public void rates_zeroIfNoTimeElapsed() {
+        assertThat(previous.addRate(previous), is(0.0));
+        assertThat(previous.removeRate(previous), is(0.0));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void addRate_nullThrowsException() {
+        current.addRate(null);
+    }
+
+    @Test
+    public void testToString() {
+        assertThat(current.toString(), startsWith("ContentionSnapshot{added=30, removed=14"));
+    }
+}
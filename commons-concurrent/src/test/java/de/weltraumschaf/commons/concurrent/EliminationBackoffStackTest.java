@@ -0,0 +1,184 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertThat;
+import java.util.Arrays;
+import org.junit.Test;
+
+/**
+ * Tests for {@link EliminationBackoffStack}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class EliminationBackoffStackTest {
+
+    private final Stack<String> sut = Concurrent.newEliminationStack();
+
+    @Test(expected = IllegalArgumentException.class)
+    public void construct_zeroCapacityThrowsException() {
+        new EliminationBackoffStack<String>(0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void construct_negativeSpinsThrowsException() {
+        new EliminationBackoffStack<String>(1, -1);
+    }
+
+    @Test
+    public void isEmpty() {
+        assertThat(sut.isEmpty(), is(true));
+        sut.push("foo");
+        assertThat(sut.isEmpty(), is(false));
+        sut.pop();
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void peek() {
+        assertThat(sut.peek(), is(nullValue()));
+        sut.push("foo");
+        sut.push("bar");
+
+        assertThat(sut.peek(), is(equalTo("bar")));
+        assertThat(sut.pop(), is(equalTo("bar")));
+        assertThat(sut.peek(), is(equalTo("foo")));
+        assertThat(sut.pop(), is(equalTo("foo")));
+    }
+
+    @Test
+    public void pushAndPop() {
+        assertThat(sut.pop(), is(nullValue()));
+
+        sut.push("foo");
+        sut.push("bar");
+        sut.push("baz");
+
+        assertThat(sut.pop(), is(equalTo("baz")));
+        assertThat(sut.pop(), is(equalTo("bar")));
+        assertThat(sut.pop(), is(equalTo("foo")));
+        assertThat(sut.pop(), is(nullValue()));
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testHashCodeAndEquals() {
+        final Stack<String> otherSut = Concurrent.newEliminationStack();
+        assertThat(sut.equals(otherSut), is(true));
+        assertThat(sut.hashCode(), is(otherSut.hashCode()));
+
+        sut.push("foo");
+        sut.push("bar");
+        assertThat(sut.equals(otherSut), is(false));
+
+        otherSut.push("foo");
+        otherSut.push("bar");
+        assertThat(sut.equals(otherSut), is(true));
+        assertThat(sut.hashCode(), is(otherSut.hashCode()));
+
+        assertThat(sut.equals(null), is(false));
+        assertThat(sut.equals(Concurrent.<String>newStack()), is(false));
+    }
+
+    @Test
+    public void hashCode_dependsOnOrder() {
+        final Stack<String> otherSut = Concurrent.newEliminationStack();
+        sut.push("foo");
+        sut.push("bar");
+        otherSut.push("bar");
+        otherSut.push("foo");
+
+        assertThat(sut.hashCode(), is(not(otherSut.hashCode())));
+    }
+
+    @Test
+    public void testToString() {
+        assertThat(sut.toString(), is(equalTo("EliminationBackoffStack[]")));
+
+        sut.push("foo");
+        sut.push("bar");
+        assertThat(sut.toString(), is(equalTo("EliminationBackoffStack[bar, foo]")));
+    }
+
+    @Test(timeout = 30_000)
+    public void concurrentPushAndPopNeitherLoseNorDuplicateElements() throws InterruptedException {
+        // Single slot and long spinning to force eliminations.
+        final Stack<Integer> stack = new EliminationBackoffStack<>(1, 10_000);
+        final int threadCount = 8;
+        final int elementsPerThread = 20_000;
+        final int total = threadCount * elementsPerThread;
+        final AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < threadCount; ++t) {
+            final int offset = t * elementsPerThread;
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                for (int i = 0; i < elementsPerThread; ++i) {
+                    stack.push(offset + i);
+                    final Integer popped = stack.pop();
+
+                    if (null != popped) {
+                        seen.incrementAndGet(popped);
+                    }
+                }
+            }));
+        }
+
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+
+        start.countDown();
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        Integer rest = stack.pop();
+
+        while (null != rest) {
+            seen.incrementAndGet(rest);
+            rest = stack.pop();
+        }
+
+        for (int i = 0; i < total; ++i) {
+            assertThat("Element " + i, seen.get(i), is(1));
+        }
+    }
+
+    @Test
+    public void sizeAndIterator() {
+        sut.push("foo");
+        sut.push("bar");
+        final List<String> iterated = new ArrayList<>();
+        sut.forEach(iterated::add);
+
+        assertThat(sut.size(), is(2));
+        assertThat(iterated, is(Arrays.asList("bar", "foo")));
+
+        sut.pop();
+        assertThat(sut.size(), is(1));
+    }
+}
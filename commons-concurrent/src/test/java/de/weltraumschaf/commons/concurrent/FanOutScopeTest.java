@@ -0,0 +1,311 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link FanOutScope}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class FanOutScopeTest {
+
+    @Rule
+    //CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    //CHECKSTYLE:ON
+
+    private final AtomicInteger interrupted = new AtomicInteger();
+
+    /**
+     * Blocks until interrupted and counts the interruption.
+     */
+    private String blockForever() {
+        try {
+            new CountDownLatch(1).await();
+        } catch (final InterruptedException ex) {
+            interrupted.incrementAndGet();
+        }
+
+        return "never";
+    }
+
+    private static String sleepAndReturn(final long millis, final String value) throws InterruptedException {
+        Thread.sleep(millis);
+        return value;
+    }
+
+    @Test
+    public void quorum_lessThanOneThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'quorum' must be greater than 0!");
+
+        FanOutScope.quorum(0);
+    }
+
+    @Test
+    public void fork_nullThrowsException() {
+        try (FanOutScope<String> scope = FanOutScope.all()) {
+            thrown.expect(NullPointerException.class);
+            thrown.expectMessage("Parameter 'task' must not be null!");
+
+            scope.fork(null);
+        }
+    }
+
+    @Test
+    public void usesVirtualThreadsIfSupported() {
+        try (FanOutScope<String> scope = FanOutScope.all()) {
+            assertThat(scope.isVirtual(), is(VirtualThreads.isSupported()));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void all_returnsResultsInForkOrder() throws Exception {
+        try (FanOutScope<String> scope = FanOutScope.all()) {
+            scope.fork(() -> sleepAndReturn(50, "foo"));
+            scope.fork(() -> "bar");
+            scope.fork(() -> sleepAndReturn(10, "baz"));
+
+            assertThat(scope.join(), contains("foo", "bar", "baz"));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void all_withoutSubtasksReturnsEmptyList() throws Exception {
+        try (FanOutScope<String> scope = FanOutScope.all()) {
+            assertThat(scope.join(), is(empty()));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void all_firstFailureCancelsOthers() throws Exception {
+        try (FanOutScope<String> scope = FanOutScope.all()) {
+            scope.fork(this::blockForever);
+            scope.fork(() -> {
+                throw new IOException("foo");
+            });
+
+            try {
+                scope.join();
+                fail("Expected ExecutionException!");
+            } catch (final ExecutionException ex) {
+                assertThat(ex.getCause(), is(instanceOf(IOException.class)));
+                assertThat(ex.getMessage(), is("1 of 2 subtasks failed!"));
+            }
+        }
+
+        assertThat(interrupted.get(), is(1));
+    }
+
+    @Test(timeout = 10_000)
+    public void firstSuccess_cancelsOthers() throws Exception {
+        try (FanOutScope<String> scope = FanOutScope.firstSuccess()) {
+            scope.fork(this::blockForever);
+            scope.fork(() -> {
+                throw new IOException("foo");
+            });
+            scope.fork(() -> sleepAndReturn(20, "bar"));
+
+            assertThat(scope.join(), contains("bar"));
+        }
+
+        assertThat(interrupted.get(), is(1));
+    }
+
+    @Test(timeout = 10_000)
+    public void firstSuccess_aggregatesFailuresIfAllFail() throws Exception {
+        try (FanOutScope<String> scope = FanOutScope.firstSuccess()) {
+            scope.fork(() -> {
+                throw new IOException("foo");
+            });
+            scope.fork(() -> {
+                throw new IllegalStateException("bar");
+            });
+
+            try {
+                scope.join();
+                fail("Expected ExecutionException!");
+            } catch (final ExecutionException ex) {
+                assertThat(ex.getMessage(), is("2 of 2 subtasks failed!"));
+                assertThat(ex.getSuppressed(), is(arrayWithSize(1)));
+                assertThat(ex.getCause().getMessage(), is(either(equalTo("foo")).or(equalTo("bar"))));
+                assertThat(ex.getSuppressed()[0].getMessage(), is(not(ex.getCause().getMessage())));
+            }
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void quorum_returnsFirstSuccessesAndCancelsOthers() throws Exception {
+        try (FanOutScope<String> scope = FanOutScope.quorum(2)) {
+            scope.fork(() -> sleepAndReturn(30, "foo"));
+            scope.fork(this::blockForever);
+            scope.fork(() -> "bar");
+
+            assertThat(scope.join(), contains("bar", "foo"));
+        }
+
+        assertThat(interrupted.get(), is(1));
+    }
+
+    @Test(timeout = 10_000)
+    public void quorum_failsAsSoonAsItIsUnreachable() throws Exception {
+        try (FanOutScope<String> scope = FanOutScope.quorum(2)) {
+            scope.fork(this::blockForever);
+            scope.fork(() -> {
+                throw new IOException("foo");
+            });
+            scope.fork(() -> {
+                throw new IOException("bar");
+            });
+
+            try {
+                scope.join();
+                fail("Expected ExecutionException!");
+            } catch (final ExecutionException ex) {
+                assertThat(ex.getMessage(), is("2 of 3 subtasks failed!"));
+            }
+        }
+
+        assertThat(interrupted.get(), is(1));
+    }
+
+    @Test(timeout = 10_000)
+    public void join_cancelsSubtasksOnDeadline() throws Exception {
+        try (FanOutScope<String> scope = FanOutScope.all()) {
+            scope.fork(this::blockForever);
+            scope.fork(() -> "foo");
+
+            try {
+                scope.join(50, TimeUnit.MILLISECONDS);
+                fail("Expected TimeoutException!");
+            } catch (final TimeoutException ex) {
+                assertThat(ex.getMessage(), is("Deadline elapsed with 1 of 2 subtasks running!"));
+            }
+        }
+
+        assertThat(interrupted.get(), is(1));
+    }
+
+    @Test(timeout = 10_000)
+    public void join_twiceThrowsException() throws Exception {
+        try (FanOutScope<String> scope = FanOutScope.all()) {
+            scope.join();
+
+            thrown.expect(IllegalStateException.class);
+            thrown.expectMessage("Scope is already joined!");
+
+            scope.join();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void fork_afterJoinThrowsException() throws Exception {
+        try (FanOutScope<String> scope = FanOutScope.all()) {
+            scope.join();
+
+            thrown.expect(IllegalStateException.class);
+            thrown.expectMessage("Scope is already joined!");
+
+            scope.fork(() -> "foo");
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void fork_afterCloseThrowsException() {
+        final FanOutScope<String> scope = FanOutScope.all();
+        scope.close();
+
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Scope is closed!");
+
+        scope.fork(() -> "foo");
+    }
+
+    @Test(timeout = 10_000)
+    public void close_cancelsAndWaitsForSubtasks() {
+        final CountDownLatch started = new CountDownLatch(1);
+
+        try (FanOutScope<String> scope = FanOutScope.all()) {
+            scope.fork(() -> {
+                started.countDown();
+                return blockForever();
+            });
+            started.await();
+        } catch (final InterruptedException ex) {
+            fail("Unexpected interrupt!");
+        }
+
+        // Close returned, so the subtask has terminated.
+        assertThat(interrupted.get(), is(1));
+    }
+
+    @Test(timeout = 10_000)
+    public void forkAfterFailureIsNeverStarted() throws Exception {
+        final AtomicInteger started = new AtomicInteger();
+
+        try (FanOutScope<String> scope = FanOutScope.all()) {
+            final CountDownLatch failed = new CountDownLatch(1);
+            scope.fork(() -> {
+                failed.countDown();
+                throw new IOException("foo");
+            });
+            failed.await();
+
+            while (!scope.toString().contains("running=0")) {
+                Thread.yield();
+            }
+
+            scope.fork(() -> {
+                started.incrementAndGet();
+                return "bar";
+            });
+
+            try {
+                scope.join();
+                fail("Expected ExecutionException!");
+            } catch (final ExecutionException ex) {
+                assertThat(ex.getCause().getMessage(), is("foo"));
+            }
+        }
+
+        assertThat(started.get(), is(0));
+    }
+
+    @Test(timeout = 30_000)
+    public void fansOutManySubtasks() throws Exception {
+        try (FanOutScope<Integer> scope = FanOutScope.all()) {
+            for (int i = 0; i < 1_000; ++i) {
+                final int value = i;
+                scope.fork(() -> value);
+            }
+
+            final List<Integer> results = scope.join(20, TimeUnit.SECONDS);
+
+            assertThat(results, hasSize(1_000));
+            assertThat(results.get(999), is(999));
+        }
+    }
+}
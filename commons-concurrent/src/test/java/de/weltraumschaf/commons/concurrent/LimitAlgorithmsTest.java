@@ -0,0 +1,201 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link LimitAlgorithms}.
+ * <p>
+ * The convergence tests run a {@link SimulatedBackend} with 10 workers and 10 ms service time, so the optimal
+ * throughput is 1000 calls per second at a limit of 10.
+ * </p>
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class LimitAlgorithmsTest {
+
+    private static final int WORKERS = 10;
+
+    @Rule
+    //CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    //CHECKSTYLE:ON
+
+    private static SimulatedBackend backend(final LimitAlgorithm algorithm) {
+        return new SimulatedBackend(WORKERS, 10, 20, TimeUnit.MILLISECONDS, algorithm);
+    }
+
+    @Test
+    public void invokeConstructorByReflectionThrowsException() throws Exception {
+        final Constructor<LimitAlgorithms> ctor = LimitAlgorithms.class.getDeclaredConstructor();
+        ctor.setAccessible(true);
+
+        thrown.expect(either(instanceOf(UnsupportedOperationException.class))
+                .or(instanceOf(InvocationTargetException.class)));
+        ctor.newInstance();
+    }
+
+    @Test
+    public void aimd_minLimitLessThanOneThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'minLimit' must be greater than 0!");
+
+        LimitAlgorithms.aimd(1, 0, 10);
+    }
+
+    @Test
+    public void aimd_maxLimitLessThanMinThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'maxLimit' must not be less than 'minLimit'!");
+
+        LimitAlgorithms.aimd(5, 5, 4);
+    }
+
+    @Test
+    public void gradient_initialLimitOutOfBoundsThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'initialLimit' must not be less than 'minLimit' or greater than 'maxLimit'!");
+
+        LimitAlgorithms.gradient(11, 1, 10);
+    }
+
+    @Test
+    public void aimd_backoffRatioOutOfRangeThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'backoffRatio' must be greater than 0 and less than 1!");
+
+        LimitAlgorithms.aimd(1, 1, 10, 1.0, 1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void aimd_nullUnitThrowsException() {
+        thrown.expect(NullPointerException.class);
+        thrown.expectMessage("Parameter 'unit' must not be null!");
+
+        LimitAlgorithms.aimd(1, 1, 10, 0.5, 1, null);
+    }
+
+    @Test
+    public void aimd_increasesAdditivelyAndDecreasesMultiplicatively() {
+        final LimitAlgorithm sut = LimitAlgorithms.aimd(10, 1, 12, 0.5, 1, TimeUnit.SECONDS);
+
+        assertThat(sut.initialLimit(), is(10));
+        assertThat(sut.update(10, 1_000, 10, false), is(11));
+        assertThat(sut.update(12, 1_000, 12, false), is(12));
+        assertThat(sut.update(10, 1_000, 10, true), is(5));
+        assertThat(sut.update(10, TimeUnit.SECONDS.toNanos(2), 10, false), is(5));
+        assertThat(sut.update(1, 1_000, 1, true), is(1));
+    }
+
+    @Test
+    public void aimd_doesNotIncreaseIfMostlyUnused() {
+        final LimitAlgorithm sut = LimitAlgorithms.aimd(10, 1, 100);
+
+        assertThat(sut.update(10, 1_000, 4, false), is(10));
+    }
+
+    @Test
+    public void gradient_decreasesIfLatencyGrows() {
+        final LimitAlgorithm sut = LimitAlgorithms.gradient(100, 1, 1000);
+        int limit = sut.initialLimit();
+
+        for (int i = 0; i < 100; ++i) {
+            limit = sut.update(limit, 1_000, limit, false);
+        }
+
+        final int beforeLatencyGrows = limit;
+        limit = sut.update(limit, 10_000, limit, false);
+
+        assertThat(limit, is(lessThan(beforeLatencyGrows)));
+    }
+
+    @Test
+    public void gradient_decreasesOnDrop() {
+        final LimitAlgorithm sut = LimitAlgorithms.gradient(100, 1, 1000);
+
+        assertThat(sut.update(100, 1_000, 100, true), is(lessThan(100)));
+    }
+
+    @Test
+    public void gradient_doesNotIncreaseIfMostlyUnused() {
+        final LimitAlgorithm sut = LimitAlgorithms.gradient(100, 1, 1000);
+
+        assertThat(sut.update(100, 1_000, 10, false), is(100));
+    }
+
+    @Test
+    public void staticLimitTooLowWastesThroughput() {
+        final SimulatedBackend backend = backend(LimitAlgorithms.aimd(2, 2, 2));
+
+        assertThat(backend.run(10, TimeUnit.SECONDS), is(lessThan(backend.capacity() * 0.3)));
+    }
+
+    @Test
+    public void aimd_convergesTowardsOptimalThroughputFromLowLimit() {
+        final SimulatedBackend backend = backend(LimitAlgorithms.aimd(1, 1, 1000));
+        backend.run(10, TimeUnit.SECONDS);
+
+        assertThat(backend.run(10, TimeUnit.SECONDS), is(greaterThan(backend.capacity() * 0.9)));
+        // Queue delay of two service times allows up to three times the workers before calls are dropped.
+        assertThat(backend.meanLimit(), is(both(greaterThan((double) WORKERS)).and(lessThan(WORKERS * 3.5))));
+    }
+
+    @Test
+    public void aimd_convergesTowardsOptimalThroughputFromHighLimit() {
+        final SimulatedBackend backend = backend(LimitAlgorithms.aimd(500, 1, 1000));
+        backend.run(10, TimeUnit.SECONDS);
+
+        assertThat(backend.run(10, TimeUnit.SECONDS), is(greaterThan(backend.capacity() * 0.9)));
+        assertThat(backend.meanLimit(), is(both(greaterThan((double) WORKERS)).and(lessThan(WORKERS * 3.5))));
+    }
+
+    @Test
+    public void gradient_convergesTowardsOptimalThroughputFromLowLimit() {
+        final SimulatedBackend backend = backend(LimitAlgorithms.gradient(1, 1, 1000));
+        backend.run(10, TimeUnit.SECONDS);
+
+        assertThat(backend.run(10, TimeUnit.SECONDS), is(greaterThan(backend.capacity() * 0.9)));
+        // Settles with a small queue, so that calls are rarely dropped.
+        assertThat(backend.meanLimit(), is(both(greaterThan((double) WORKERS)).and(lessThan(WORKERS * 2.5))));
+        assertThat(backend.dropped(), is(lessThan(backend.completed() / 20)));
+    }
+
+    @Test
+    public void gradient_convergesTowardsOptimalThroughputFromHighLimit() {
+        final SimulatedBackend backend = backend(LimitAlgorithms.gradient(500, 1, 1000));
+        backend.run(10, TimeUnit.SECONDS);
+
+        assertThat(backend.run(10, TimeUnit.SECONDS), is(greaterThan(backend.capacity() * 0.9)));
+        // Settles with a small queue, so that calls are rarely dropped.
+        assertThat(backend.meanLimit(), is(both(greaterThan((double) WORKERS)).and(lessThan(WORKERS * 2.5))));
+        assertThat(backend.dropped(), is(lessThan(backend.completed() / 20)));
+    }
+
+    @Test
+    public void gradient_dropsLessThanAimd() {
+        final SimulatedBackend aimd = backend(LimitAlgorithms.aimd(10, 1, 1000));
+        final SimulatedBackend gradient = backend(LimitAlgorithms.gradient(10, 1, 1000));
+
+        aimd.run(10, TimeUnit.SECONDS);
+        gradient.run(10, TimeUnit.SECONDS);
+
+        assertThat(gradient.dropped(), is(lessThan(aimd.dropped())));
+    }
+}
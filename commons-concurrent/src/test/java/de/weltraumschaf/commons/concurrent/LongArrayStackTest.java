@@ -0,0 +1,144 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link LongArrayStack}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class LongArrayStackTest {
+
+    @Rule
+    //CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    //CHECKSTYLE:ON
+
+    private final LongStack sut = Concurrent.newLongStack(3);
+
+    @Test
+    public void construct_zeroCapacityThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'capacity' must be greater than 0!");
+
+        Concurrent.newLongStack(0);
+    }
+
+    @Test
+    public void isEmpty() {
+        assertThat(sut.isEmpty(), is(true));
+        sut.push(1);
+        assertThat(sut.isEmpty(), is(false));
+        sut.pop(-1);
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void pushPopAndPeek() {
+        assertThat(sut.peek(-1), is(-1L));
+        assertThat(sut.pop(-1), is(-1L));
+
+        sut.push(1);
+        sut.push(2);
+        sut.push(3);
+
+        assertThat(sut.peek(-1), is(3L));
+        assertThat(sut.pop(-1), is(3L));
+        assertThat(sut.peek(-1), is(2L));
+        assertThat(sut.pop(-1), is(2L));
+        assertThat(sut.pop(-1), is(1L));
+        assertThat(sut.pop(-1), is(-1L));
+    }
+
+    @Test
+    public void offer_returnsFalseIfFull() {
+        assertThat(sut.offer(1), is(true));
+        assertThat(sut.offer(2), is(true));
+        assertThat(sut.offer(3), is(true));
+        assertThat(sut.offer(4), is(false));
+
+        assertThat(sut.pop(-1), is(3L));
+        assertThat(sut.offer(4), is(true));
+        assertThat(sut.pop(-1), is(4L));
+    }
+
+    @Test
+    public void push_throwsExceptionIfFull() {
+        sut.push(1);
+        sut.push(2);
+        sut.push(3);
+
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Stack is full (capacity 3)!");
+        sut.push(4);
+    }
+
+    @Test
+    public void testToString() {
+        assertThat(sut.toString(), is(equalTo("LongArrayStack[capacity=3]")));
+    }
+
+    @Test(timeout = 30_000)
+    public void concurrentPushAndPopNeitherLoseNorDuplicateValues() throws InterruptedException {
+        final LongStack stack = Concurrent.newLongStack(16);
+        final int threadCount = 8;
+        final int valuesPerThread = 20_000;
+        final int total = threadCount * valuesPerThread;
+        final AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        final List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < threadCount; ++t) {
+            final int offset = t * valuesPerThread;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < valuesPerThread; ++i) {
+                    while (!stack.offer(offset + i)) {
+                        Thread.yield();
+                    }
+
+                    final long value = stack.pop(-1);
+
+                    if (value >= 0) {
+                        seen.incrementAndGet((int) value);
+                    }
+                }
+            }));
+        }
+
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        long rest = stack.pop(-1);
+
+        while (rest >= 0) {
+            seen.incrementAndGet((int) rest);
+            rest = stack.pop(-1);
+        }
+
+        for (int i = 0; i < total; ++i) {
+            assertThat("Value " + i, seen.get(i), is(1));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link LongRingBufferQueue}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class LongRingBufferQueueTest {
+
+    @Rule
+    //CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    //CHECKSTYLE:ON
+
+    private final LongQueue sut = Concurrent.newLongQueue(4);
+
+    @Test
+    public void isEmpty() {
+        assertThat(sut.isEmpty(), is(true));
+        sut.add(1);
+        assertThat(sut.isEmpty(), is(false));
+        sut.get(-1);
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void addAndGet() {
+        assertThat(sut.get(-1), is(-1L));
+
+        sut.add(1);
+        sut.add(2);
+        sut.add(3);
+
+        assertThat(sut.get(-1), is(1L));
+        assertThat(sut.get(-1), is(2L));
+        assertThat(sut.get(-1), is(3L));
+        assertThat(sut.get(-1), is(-1L));
+    }
+
+    @Test
+    public void offer_returnsFalseIfFull() {
+        for (int i = 0; i < 4; ++i) {
+            assertThat(sut.offer(i), is(true));
+        }
+
+        assertThat(sut.offer(4), is(false));
+        assertThat(sut.get(-1), is(0L));
+        assertThat(sut.offer(4), is(true));
+    }
+
+    @Test
+    public void add_throwsExceptionIfFull() {
+        for (int i = 0; i < 4; ++i) {
+            sut.add(i);
+        }
+
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Queue is full (capacity 4)!");
+        sut.add(4);
+    }
+
+    @Test
+    public void testToString() {
+        sut.add(1);
+        assertThat(sut.toString(), is(equalTo("LongRingBufferQueue[capacity=4, size=1]")));
+    }
+
+    @Test(timeout = 30_000)
+    public void concurrentProducersAndConsumersNeitherLoseNorDuplicateValues() throws InterruptedException {
+        final LongQueue queue = Concurrent.newLongQueue(64);
+        final int threadCount = 4;
+        final int valuesPerProducer = 50_000;
+        final int total = threadCount * valuesPerProducer;
+        final AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        final List<Thread> threads = new ArrayList<>();
+
+        for (int p = 0; p < threadCount; ++p) {
+            final int offset = p * valuesPerProducer;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < valuesPerProducer; ++i) {
+                    while (!queue.offer(offset + i)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+            threads.add(new Thread(() -> {
+                int consumed = 0;
+
+                while (consumed < valuesPerProducer) {
+                    final long value = queue.get(-1);
+
+                    if (value < 0) {
+                        Thread.yield();
+                    } else {
+                        seen.incrementAndGet((int) value);
+                        ++consumed;
+                    }
+                }
+            }));
+        }
+
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int i = 0; i < total; ++i) {
+            assertThat("Value " + i, seen.get(i), is(1));
+        }
+    }
+}
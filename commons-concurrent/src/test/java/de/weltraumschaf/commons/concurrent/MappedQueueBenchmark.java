@@ -0,0 +1,161 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Throughput of {@link MappedQueue} with producers and consumers of small messages.
+ * <p>
+ * The queue is stored in a temporary directory, so run it on the device to measure. Producers stop adding if the
+ * backlog exceeds a million messages, so that fast producers do not fill the disk. Like rejected offers of bounded
+ * queues, such skipped adds are counted as operations of the producer side.
+ * </p>
+ * <p>
+ * Run {@link #main(String[])} from the test class path to measure with 1, 2, 4 .. N producers and as many consumers,
+ * where N is half the available processors.
+ * </p>
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappedQueueBenchmark {
+
+    /**
+     * Producers skip adding above this backlog.
+     */
+    private static final int MAX_BACKLOG = 1_000_000;
+
+    /**
+     * Size of a message in bytes.
+     */
+    @Param({"16", "128"})
+    private int messageSize;
+
+    /**
+     * Directory of the queue.
+     */
+    private Path directory;
+
+    /**
+     * The queue under test, shared by all threads of a group.
+     */
+    private MappedQueue queue;
+
+    /**
+     * Added message, only read by the producers.
+     */
+    private ByteBuffer message;
+
+    /**
+     * Opens the queue in a new temporary directory.
+     *
+     * @throws IOException if the queue can't be created
+     */
+    @Setup(Level.Trial)
+    public void openQueue() throws IOException {
+        directory = Files.createTempDirectory(MappedQueueBenchmark.class.getSimpleName());
+        queue = new MappedQueue(directory);
+        message = ByteBuffer.allocateDirect(messageSize);
+    }
+
+    /**
+     * Closes the queue and deletes its directory.
+     *
+     * @throws IOException if the files can't be deleted
+     */
+    @TearDown(Level.Trial)
+    public void deleteQueue() throws IOException {
+        queue.close();
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    /**
+     * Producer side.
+     *
+     * @return whether the message was added
+     */
+    @Benchmark
+    @Group("addGet")
+    @GroupThreads(1)
+    public boolean add() {
+        if (queue.size() > MAX_BACKLOG) {
+            return false;
+        }
+
+        queue.add(message);
+        return true;
+    }
+
+    /**
+     * Consumer side.
+     *
+     * @return consumed message, may be {@code null}
+     */
+    @Benchmark
+    @Group("addGet")
+    @GroupThreads(1)
+    public ByteBuffer get() {
+        return queue.get();
+    }
+
+    /**
+     * Runs the group with 1..N producers and consumers.
+     *
+     * @param args not used
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        final int max = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+        for (int threads = 1; threads <= max; threads *= 2) {
+            final Options options = new OptionsBuilder()
+                .include(MappedQueueBenchmark.class.getSimpleName())
+                .threadGroups(threads, threads)
+                .build();
+            new Runner(options).run();
+        }
+    }
+}
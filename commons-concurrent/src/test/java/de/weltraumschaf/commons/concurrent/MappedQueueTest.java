@@ -0,0 +1,444 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.Stream;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link MappedQueue}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class MappedQueueTest {
+
+    @Rule
+    //CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    //CHECKSTYLE:ON
+    @Rule
+    //CHECKSTYLE:OFF
+    public final TemporaryFolder tmp = new TemporaryFolder();
+    //CHECKSTYLE:ON
+
+    private Path directory;
+    private MappedQueue sut;
+
+    @Before
+    public void open() throws IOException {
+        directory = tmp.getRoot().toPath().resolve("queue");
+        sut = new MappedQueue(directory, 64);
+    }
+
+    @After
+    public void close() throws IOException {
+        sut.close();
+    }
+
+    private static ByteBuffer message(final String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String text(final ByteBuffer message) {
+        return null == message ? null : StandardCharsets.UTF_8.decode(message).toString();
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".segment")).count();
+        }
+    }
+
+    @Test
+    public void construct_nullDirectoryThrowsException() throws IOException {
+        thrown.expect(NullPointerException.class);
+        thrown.expectMessage("Parameter 'directory' must not be null!");
+
+        new MappedQueue(null);
+    }
+
+    @Test
+    public void construct_tooSmallSegmentThrowsException() throws IOException {
+        thrown.expect(IllegalArgumentException.class);
+
+        new MappedQueue(tmp.newFolder().toPath(), 56);
+    }
+
+    @Test
+    public void construct_unalignedSegmentThrowsException() throws IOException {
+        thrown.expect(IllegalArgumentException.class);
+
+        new MappedQueue(tmp.newFolder().toPath(), 100);
+    }
+
+    @Test
+    public void construct_openedTwiceThrowsException() throws IOException {
+        thrown.expect(IOException.class);
+        thrown.expectMessage("is already opened!");
+
+        new MappedQueue(directory, 64);
+    }
+
+    @Test
+    public void maxMessageSize() {
+        assertThat(sut.segmentSize(), is(64));
+        assertThat(sut.maxMessageSize(), is(60));
+    }
+
+    @Test
+    public void isEmpty() {
+        assertThat(sut.isEmpty(), is(true));
+
+        sut.add(message("foo"));
+        assertThat(sut.isEmpty(), is(false));
+
+        sut.get();
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void addAndGet() {
+        assertThat(sut.get(), is(nullValue()));
+
+        sut.add(message("foo"));
+        sut.add(message("bar"));
+        sut.add(message("baz"));
+
+        assertThat(text(sut.get()), is("foo"));
+        assertThat(text(sut.get()), is("bar"));
+        assertThat(text(sut.get()), is("baz"));
+        assertThat(sut.get(), is(nullValue()));
+    }
+
+    @Test
+    public void add_emptyMessage() {
+        sut.add(ByteBuffer.allocate(0));
+
+        assertThat(sut.get().remaining(), is(0));
+        assertThat(sut.get(), is(nullValue()));
+    }
+
+    @Test
+    public void add_doesNotChangePositionOfElement() {
+        final ByteBuffer element = ByteBuffer.allocateDirect(8);
+        element.putInt(23).putInt(42).flip().position(4);
+
+        sut.add(element);
+
+        assertThat(element.position(), is(4));
+        assertThat(sut.get().getInt(), is(42));
+    }
+
+    @Test
+    public void add_nullThrowsException() {
+        thrown.expect(NullPointerException.class);
+
+        sut.add(null);
+    }
+
+    @Test
+    public void add_tooLargeThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Element of 61 bytes is larger than the maximum message size 60!");
+
+        sut.add(ByteBuffer.allocate(61));
+    }
+
+    @Test
+    public void get_returnsReadOnlyView() {
+        sut.add(message("foo"));
+
+        assertThat(sut.get().isReadOnly(), is(true));
+    }
+
+    @Test
+    public void rollsOverSegmentsAndDeletesConsumedOnes() throws IOException {
+        // 20 bytes are a record of 24 bytes, so two fit into a segment.
+        for (int i = 0; i < 10; ++i) {
+            sut.add(message(String.format("message-%012d", i)));
+        }
+
+        assertThat(segmentFiles(), is(5L));
+
+        for (int i = 0; i < 10; ++i) {
+            assertThat(text(sut.get()), is(String.format("message-%012d", i)));
+        }
+
+        assertThat(sut.get(), is(nullValue()));
+        assertThat(segmentFiles(), is(lessThanOrEqualTo(1L)));
+    }
+
+    @Test
+    public void messagesFillingWholeSegment() throws IOException {
+        sut.add(ByteBuffer.allocate(60));
+        sut.add(ByteBuffer.allocate(60));
+        sut.add(message("foo"));
+
+        assertThat(sut.get().remaining(), is(60));
+        assertThat(sut.get().remaining(), is(60));
+        assertThat(text(sut.get()), is("foo"));
+        assertThat(segmentFiles(), is(1L));
+    }
+
+    @Test
+    public void size() {
+        assertThat(sut.size(), is(0));
+
+        for (int i = 0; i < 5; ++i) {
+            sut.add(message("foo" + i));
+        }
+
+        assertThat(sut.size(), is(5));
+
+        sut.get();
+        assertThat(sut.size(), is(4));
+    }
+
+    @Test
+    public void iterator() {
+        sut.addAll(Arrays.asList(message("foo"), message("bar"), message("baz")));
+        sut.get();
+        final List<String> iterated = new ArrayList<>();
+
+        for (final ByteBuffer element : sut) {
+            iterated.add(text(element));
+        }
+
+        assertThat(iterated, contains("bar", "baz"));
+        assertThat(sut.size(), is(2));
+    }
+
+    @Test
+    public void survivesReopen() throws IOException {
+        sut.add(message("foo"));
+        sut.add(message("bar"));
+        sut.add(message("baz"));
+        sut.get();
+        sut.close();
+
+        sut = new MappedQueue(directory, 64);
+
+        assertThat(sut.size(), is(2));
+        assertThat(text(sut.get()), is("bar"));
+
+        sut.add(message("snafu"));
+
+        assertThat(text(sut.get()), is("baz"));
+        assertThat(text(sut.get()), is("snafu"));
+        assertThat(sut.get(), is(nullValue()));
+    }
+
+    @Test
+    public void reopenDropsTornRecords() throws IOException {
+        sut.add(message("foo"));
+        sut.close();
+
+        // Simulates a producer which claimed the record at offset 8 but died before it wrote the claim header, and
+        // another one which completed its record at offset 16 after it. The size of the torn record is unknown, so
+        // everything after it is dropped.
+        final Path segment = directory.resolve(String.format("%020d.segment", 0));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            final ByteBuffer torn = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            torn.putInt(0).putInt(0xCAFE).putInt(4).putInt(0xBEEF).flip();
+            channel.write(torn, 8);
+        }
+
+        sut = new MappedQueue(directory, 64);
+
+        assertThat(sut.size(), is(1));
+        sut.add(ByteBuffer.allocate(4));
+        sut.add(message("bar"));
+
+        assertThat(text(sut.get()), is("foo"));
+        assertThat(sut.get().remaining(), is(4));
+        assertThat(text(sut.get()), is("bar"));
+        assertThat(sut.get(), is(nullValue()));
+    }
+
+    @Test
+    public void reopenSkipsClaimedTornRecords() throws IOException {
+        sut.add(message("foo"));
+        sut.close();
+
+        // Simulates a producer which claimed the record at offset 8 for a message of 4 bytes but died before it
+        // published it, and another one which completed its record at offset 16 after it.
+        final Path segment = directory.resolve(String.format("%020d.segment", 0));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            final ByteBuffer torn = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+            torn.putInt(-6).putInt(0xCAFE).putInt(4).put("bar".getBytes(StandardCharsets.UTF_8)).put((byte) 0).flip();
+            channel.write(torn, 8);
+        }
+
+        sut = new MappedQueue(directory, 64);
+
+        assertThat(sut.size(), is(2));
+        final List<String> iterated = new ArrayList<>();
+        sut.forEach(element -> iterated.add(text(element)));
+        assertThat(iterated, contains("foo", "bar"));
+
+        sut.add(message("baz"));
+
+        assertThat(text(sut.get()), is("foo"));
+        assertThat(text(sut.get()), is("bar"));
+        assertThat(text(sut.get()), is("baz"));
+        assertThat(sut.get(), is(nullValue()));
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void add_failedMappingDoesNotBlockQueue() throws IOException {
+        sut.add(ByteBuffer.allocate(20));
+        sut.add(ByteBuffer.allocate(20));
+        // The next segment can't be created while a directory has its name.
+        final Path blocked = Files.createDirectory(directory.resolve(String.format("%020d.segment", 1)));
+
+        try {
+            sut.add(ByteBuffer.allocate(20));
+            throw new AssertionError("Expected exception!");
+        } catch (final UncheckedIOException ex) {
+            Files.delete(blocked);
+        }
+
+        sut.add(message("bar"));
+
+        assertThat(sut.size(), is(3));
+        assertThat(sut.get().remaining(), is(20));
+        assertThat(sut.get().remaining(), is(20));
+        assertThat(text(sut.get()), is("bar"));
+        assertThat(sut.get(), is(nullValue()));
+    }
+
+    @Test
+    public void closedQueueThrowsException() throws IOException {
+        sut.close();
+
+        assertThat(sut.isClosed(), is(true));
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Queue is closed!");
+
+        sut.get();
+    }
+
+    @Test
+    public void close_releasesDirectory() throws IOException {
+        sut.add(message("foo"));
+        sut.close();
+        sut.close();
+
+        sut = new MappedQueue(directory, 64);
+
+        assertThat(text(sut.get()), is("foo"));
+    }
+
+    @Test
+    public void asByteArrayQueue() {
+        final Queue<byte[]> bytes = sut.asByteArrayQueue();
+        bytes.add(new byte[]{1, 2, 3});
+        sut.add(message("foo"));
+
+        assertThat(bytes.size(), is(2));
+        assertThat(bytes.iterator().next(), is(new byte[]{1, 2, 3}));
+        assertThat(bytes.get(), is(new byte[]{1, 2, 3}));
+        assertThat(new String(bytes.get(), StandardCharsets.UTF_8), is("foo"));
+        assertThat(bytes.get(), is(nullValue()));
+        assertThat(bytes.isEmpty(), is(true));
+    }
+
+    @Test(timeout = 30_000)
+    public void manyProducersAndConsumers() throws InterruptedException, IOException {
+        sut.close();
+        sut = new MappedQueue(tmp.newFolder().toPath(), 4096);
+        final int producers = 4;
+        final int consumers = 2;
+        final int perProducer = 20_000;
+        final AtomicIntegerArray seen = new AtomicIntegerArray(producers * perProducer);
+        final AtomicInteger consumed = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(producers + consumers);
+        final List<Throwable> errors = new ArrayList<>();
+
+        for (int p = 0; p < producers; ++p) {
+            final int producer = p;
+            new Thread(() -> {
+                try {
+                    final ByteBuffer element = ByteBuffer.allocate(Integer.BYTES);
+
+                    for (int i = 0; i < perProducer; ++i) {
+                        element.clear();
+                        element.putInt(producer * perProducer + i).flip();
+                        sut.add(element);
+                    }
+                } catch (final RuntimeException ex) {
+                    synchronized (errors) {
+                        errors.add(ex);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        for (int c = 0; c < consumers; ++c) {
+            new Thread(() -> {
+                try {
+                    while (consumed.get() < producers * perProducer) {
+                        final ByteBuffer element = sut.get();
+
+                        if (null == element) {
+                            Thread.yield();
+                            continue;
+                        }
+
+                        seen.incrementAndGet(element.getInt());
+                        consumed.incrementAndGet();
+                    }
+                } catch (final RuntimeException ex) {
+                    synchronized (errors) {
+                        errors.add(ex);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+
+        done.await();
+
+        assertThat(errors, is(empty()));
+        assertThat(consumed.get(), is(producers * perProducer));
+
+        for (int i = 0; i < seen.length(); ++i) {
+            assertThat(seen.get(i), is(1));
+        }
+    }
+}
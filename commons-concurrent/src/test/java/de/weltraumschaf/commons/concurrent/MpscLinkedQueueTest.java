@@ -0,0 +1,183 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link MpscLinkedQueue}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class MpscLinkedQueueTest {
+
+    @Rule
+    //CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    //CHECKSTYLE:ON
+
+    private final Queue<String> sut = Concurrent.newMpscQueue();
+
+    @Test
+    public void isEmpty() {
+        assertThat(sut.isEmpty(), is(true));
+        sut.add("foo");
+        assertThat(sut.isEmpty(), is(false));
+        sut.get();
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void addAndGet() {
+        assertThat(sut.get(), is(nullValue()));
+
+        sut.add("foo");
+        sut.add("bar");
+        sut.add("baz");
+
+        assertThat(sut.get(), is(equalTo("foo")));
+        assertThat(sut.get(), is(equalTo("bar")));
+        assertThat(sut.get(), is(equalTo("baz")));
+        assertThat(sut.get(), is(nullValue()));
+    }
+
+    @Test
+    public void offer_isNeverFull() {
+        for (int i = 0; i < 10_000; ++i) {
+            assertThat(sut.offer("foo" + i), is(true));
+        }
+
+        assertThat(sut.size(), is(10_000));
+    }
+
+    @Test
+    public void add_nullThrowsException() {
+        thrown.expect(NullPointerException.class);
+        thrown.expectMessage("Parameter 'element' must not be null!");
+
+        sut.add(null);
+    }
+
+    @Test
+    public void size() {
+        assertThat(sut.size(), is(0));
+
+        sut.add("foo");
+        sut.add("bar");
+        assertThat(sut.size(), is(2));
+
+        sut.get();
+        assertThat(sut.size(), is(1));
+
+        sut.get();
+        sut.get();
+        assertThat(sut.size(), is(0));
+    }
+
+    @Test
+    public void iterator_skipsTakenElements() {
+        sut.add("foo");
+        sut.add("bar");
+        sut.add("baz");
+        final Iterator<String> iterator = sut.iterator();
+
+        sut.get();
+        sut.get();
+
+        final List<String> iterated = new ArrayList<>();
+        iterator.forEachRemaining(iterated::add);
+        // The first element was read on creation of the iterator.
+        assertThat(iterated, contains("foo", "baz"));
+        assertThat(sut.stream().toArray(), is(arrayContaining("baz")));
+    }
+
+    @Test
+    public void testToString() {
+        assertThat(sut.toString(), is(equalTo("MpscLinkedQueue[]")));
+
+        sut.add("foo");
+        sut.add("bar");
+        assertThat(sut.toString(), is(equalTo("MpscLinkedQueue[foo, bar]")));
+
+        sut.get();
+        assertThat(sut.toString(), is(equalTo("MpscLinkedQueue[bar]")));
+    }
+
+    @Test(timeout = 30_000)
+    public void concurrentProducersNeitherLoseNorDuplicateElements() throws InterruptedException {
+        final Queue<Integer> queue = Concurrent.newMpscQueue();
+        final int producers = 4;
+        final int elementsPerProducer = 50_000;
+        final int total = producers * elementsPerProducer;
+        final AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        final List<Thread> threads = new ArrayList<>();
+
+        for (int p = 0; p < producers; ++p) {
+            final int offset = p * elementsPerProducer;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < elementsPerProducer; ++i) {
+                    queue.add(offset + i);
+                }
+            }));
+        }
+
+        final int[] lastOfProducer = new int[producers];
+        Arrays.fill(lastOfProducer, -1);
+        final Thread consumer = new Thread(() -> {
+            int consumed = 0;
+
+            while (consumed < total) {
+                final Integer element = queue.get();
+
+                if (null == element) {
+                    Thread.yield();
+                    continue;
+                }
+
+                seen.incrementAndGet(element);
+                final int producer = element / elementsPerProducer;
+
+                if (element <= lastOfProducer[producer]) {
+                    throw new AssertionError("Element " + element + " out of order!");
+                }
+
+                lastOfProducer[producer] = element;
+                ++consumed;
+            }
+        });
+        threads.add(consumer);
+
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int i = 0; i < total; ++i) {
+            assertThat("Element " + i, seen.get(i), is(1));
+        }
+
+        assertThat(queue.isEmpty(), is(true));
+        assertThat(queue.size(), is(0));
+    }
+}
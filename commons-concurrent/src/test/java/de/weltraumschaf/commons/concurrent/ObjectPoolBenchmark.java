@@ -0,0 +1,119 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares buffers taken from an {@link ObjectPool} shared by all threads with freshly allocated ones.
+ * <p>
+ * Each operation fills a {@link StringBuilder} with a token, like a scanner does. Allocation is cheap for small
+ * buffers, but the larger they are the more the zeroing and the garbage collection cost.
+ * </p>
+ * <p>
+ * Run {@link #main(String[])} from the test class path to measure with 1, 2, 4 .. N threads, where N is the number
+ * of available processors.
+ * </p>
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectPoolBenchmark {
+
+    /**
+     * Appended to the buffer.
+     */
+    private static final String TOKEN = "snafu";
+
+    /**
+     * Initial capacity of the buffers in characters.
+     */
+    @Param({"64", "8192"})
+    private int capacity;
+
+    /**
+     * The pool under test, shared by all threads.
+     */
+    private ObjectPool<StringBuilder> pool;
+
+    /**
+     * Creates the pool.
+     */
+    @Setup
+    public void createPool() {
+        pool = new ObjectPool<>(() -> new StringBuilder(capacity), buffer -> buffer.setLength(0), 64);
+    }
+
+    /**
+     * Allocates a new buffer per operation.
+     *
+     * @return the length of the buffer
+     */
+    @Benchmark
+    public int allocate() {
+        final StringBuilder buffer = new StringBuilder(capacity);
+        buffer.append(TOKEN);
+        return buffer.length();
+    }
+
+    /**
+     * Leases a buffer from the pool per operation.
+     *
+     * @return the length of the buffer
+     */
+    @Benchmark
+    public int pooled() {
+        try (ObjectPool.Lease<StringBuilder> lease = pool.acquire()) {
+            final StringBuilder buffer = lease.get();
+            buffer.append(TOKEN);
+            return buffer.length();
+        }
+    }
+
+    /**
+     * Runs with 1..N threads.
+     *
+     * @param args not used
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        final int max = Runtime.getRuntime().availableProcessors();
+
+        for (int threads = 1; threads <= max; threads *= 2) {
+            final Options options = new OptionsBuilder()
+                .include(ObjectPoolBenchmark.class.getSimpleName())
+                .threads(threads)
+                .build();
+            new Runner(options).run();
+        }
+    }
+}
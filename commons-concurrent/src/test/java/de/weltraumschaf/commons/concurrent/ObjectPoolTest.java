@@ -0,0 +1,294 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link ObjectPool}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class ObjectPoolTest {
+
+    @Rule
+    //CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    //CHECKSTYLE:ON
+
+    private final ObjectPool<StringBuilder> sut = new ObjectPool<>(StringBuilder::new, sb -> sb.setLength(0), 4);
+
+    @Test
+    public void construct_nullFactoryThrowsException() {
+        thrown.expect(NullPointerException.class);
+        thrown.expectMessage("Parameter 'factory' must not be null!");
+
+        new ObjectPool<>(null, 1);
+    }
+
+    @Test
+    public void construct_nullResetThrowsException() {
+        thrown.expect(NullPointerException.class);
+        thrown.expectMessage("Parameter 'reset' must not be null!");
+
+        new ObjectPool<>(Object::new, null, 1);
+    }
+
+    @Test
+    public void construct_maxSizeLessThanOneThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'maxSize' must be greater than 0!");
+
+        new ObjectPool<>(Object::new, 0);
+    }
+
+    @Test
+    public void construct_nullLeakHandlerThrowsException() {
+        thrown.expect(NullPointerException.class);
+        thrown.expectMessage("Parameter 'leakHandler' must not be null!");
+
+        new ObjectPool<>(Object::new, object -> { }, 1, null);
+    }
+
+    @Test
+    public void acquire_reusesReturnedObject() {
+        final StringBuilder first;
+
+        try (ObjectPool.Lease<StringBuilder> lease = sut.acquire()) {
+            first = lease.get();
+        }
+
+        try (ObjectPool.Lease<StringBuilder> lease = sut.acquire()) {
+            assertThat(lease.get(), is(sameInstance(first)));
+        }
+
+        assertThat(sut.created(), is(1L));
+    }
+
+    @Test
+    public void acquire_createsNewObjectIfNoneIdle() {
+        try (ObjectPool.Lease<StringBuilder> first = sut.acquire();
+            ObjectPool.Lease<StringBuilder> second = sut.acquire()) {
+            assertThat(first.get(), is(not(sameInstance(second.get()))));
+        }
+
+        assertThat(sut.created(), is(2L));
+    }
+
+    @Test
+    public void acquire_factoryReturningNullThrowsException() {
+        thrown.expect(NullPointerException.class);
+        thrown.expectMessage("Factory created null!");
+
+        new ObjectPool<>(() -> null, 1).acquire();
+    }
+
+    @Test
+    public void close_resetsObject() {
+        try (ObjectPool.Lease<StringBuilder> lease = sut.acquire()) {
+            lease.get().append("foo");
+        }
+
+        try (ObjectPool.Lease<StringBuilder> lease = sut.acquire()) {
+            assertThat(lease.get().length(), is(0));
+        }
+    }
+
+    @Test
+    public void close_discardsObjectIfResetFails() {
+        final ObjectPool<StringBuilder> pool = new ObjectPool<>(StringBuilder::new, sb -> {
+            throw new IllegalArgumentException("foo");
+        }, 4);
+
+        try {
+            pool.acquire().close();
+        } catch (final IllegalArgumentException ex) {
+            assertThat(ex.getMessage(), is("foo"));
+        }
+
+        pool.acquire();
+
+        assertThat(pool.created(), is(2L));
+    }
+
+    @Test
+    public void closeTwiceThrowsException() {
+        final ObjectPool.Lease<StringBuilder> lease = sut.acquire();
+        lease.close();
+
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Lease is already closed!");
+
+        lease.close();
+    }
+
+    @Test
+    public void getAfterCloseThrowsException() {
+        final ObjectPool.Lease<StringBuilder> lease = sut.acquire();
+        lease.close();
+
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Lease is already closed!");
+
+        lease.get();
+    }
+
+    @Test
+    public void closeAfterReacquireThrowsExceptionAndKeepsObjectLeased() {
+        final ObjectPool.Lease<StringBuilder> stale = sut.acquire();
+        stale.close();
+        final ObjectPool.Lease<StringBuilder> lease = sut.acquire();
+        lease.get().append("foo");
+
+        try {
+            stale.close();
+            throw new AssertionError("Expected closed lease!");
+        } catch (final IllegalStateException ex) {
+            assertThat(ex.getMessage(), is("Lease is already closed!"));
+        }
+
+        try {
+            stale.get();
+            throw new AssertionError("Expected closed lease!");
+        } catch (final IllegalStateException ex) {
+            assertThat(ex.getMessage(), is("Lease is already closed!"));
+        }
+
+        assertThat(lease.get().toString(), is("foo"));
+        assertThat(sut.acquire().get(), is(not(sameInstance(lease.get()))));
+    }
+
+    @Test
+    public void keepsAtMostMaxSizeIdleObjectsWithoutLocalCache() {
+        final ObjectPool<StringBuilder> pool = new ObjectPool<>(StringBuilder::new, sb -> { }, 4, 0, null);
+        final List<ObjectPool.Lease<StringBuilder>> leases = new ArrayList<>();
+
+        for (int i = 0; i < 6; ++i) {
+            leases.add(pool.acquire());
+        }
+
+        leases.forEach(ObjectPool.Lease::close);
+        leases.clear();
+
+        for (int i = 0; i < 6; ++i) {
+            leases.add(pool.acquire());
+        }
+
+        assertThat(pool.created(), is(8L));
+    }
+
+    @Test
+    public void localCacheKeepsObjectsInAdditionToSharedStack() {
+        final ObjectPool<StringBuilder> pool = new ObjectPool<>(StringBuilder::new, sb -> { }, 4, 2, null);
+        final List<ObjectPool.Lease<StringBuilder>> leases = new ArrayList<>();
+
+        for (int i = 0; i < 8; ++i) {
+            leases.add(pool.acquire());
+        }
+
+        leases.forEach(ObjectPool.Lease::close);
+        leases.clear();
+
+        for (int i = 0; i < 8; ++i) {
+            leases.add(pool.acquire());
+        }
+
+        assertThat(pool.created(), is(10L));
+    }
+
+    @Test(timeout = 10_000)
+    public void objectsReturnedByOtherThreadAreReused() throws InterruptedException {
+        final ObjectPool<StringBuilder> pool = new ObjectPool<>(StringBuilder::new, sb -> { }, 4, 0, null);
+        final ObjectPool.Lease<StringBuilder> lease = pool.acquire();
+        final StringBuilder object = lease.get();
+        final Thread other = new Thread(lease::close);
+        other.start();
+        other.join();
+
+        assertThat(pool.acquire().get(), is(sameInstance(object)));
+    }
+
+    @Test(timeout = 30_000)
+    public void detectsLeases() throws InterruptedException {
+        final CountDownLatch reported = new CountDownLatch(1);
+        final List<Throwable> leaks = Collections.synchronizedList(new ArrayList<>());
+        final ObjectPool<StringBuilder> pool = new ObjectPool<>(StringBuilder::new, sb -> { }, 4, leak -> {
+            leaks.add(leak);
+            reported.countDown();
+        });
+        pool.acquire().close();
+        leakLease(pool);
+
+        while (!reported.await(10, TimeUnit.MILLISECONDS)) {
+            System.gc();
+        }
+
+        assertThat(pool.leaked(), is(1L));
+        assertThat(leaks.get(0).getMessage(), is("Lease was never closed! It was acquired here."));
+        assertThat(leaks.get(0).getStackTrace()[1].getMethodName(), is("leakLease"));
+    }
+
+    private static void leakLease(final ObjectPool<StringBuilder> pool) {
+        pool.acquire();
+    }
+
+    @Test
+    public void leaked_isZeroWithoutLeakDetection() {
+        sut.acquire();
+
+        assertThat(sut.leaked(), is(0L));
+    }
+
+    @Test(timeout = 30_000)
+    public void concurrentLeasesAreExclusive() throws InterruptedException {
+        final ObjectPool<StringBuilder> pool = new ObjectPool<>(StringBuilder::new, sb -> sb.setLength(0), 8);
+        final Set<StringBuilder> inUse = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        final Thread[] threads = new Thread[4];
+
+        for (int t = 0; t < threads.length; ++t) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20_000; ++i) {
+                    try (ObjectPool.Lease<StringBuilder> lease = pool.acquire()) {
+                        final StringBuilder object = lease.get();
+
+                        if (!inUse.add(object) || object.length() != 0) {
+                            errors.add(new AssertionError("Object leased twice or not reset!"));
+                        }
+
+                        object.append(i);
+                        inUse.remove(object);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(errors, is(empty()));
+        assertThat(pool.created(), is(lessThanOrEqualTo(16L)));
+    }
+}
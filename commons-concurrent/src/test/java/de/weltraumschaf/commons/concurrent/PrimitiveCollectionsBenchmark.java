@@ -0,0 +1,154 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Throughput and allocation of the primitive queues and stacks compared to their boxing counterparts.
+ * <p>
+ * Run {@link #main(String[])} from the test class path: It enables the GC profiler and the column
+ * {@code gc.alloc.rate.norm} shows the allocated bytes per operation. It must be zero for the primitive variants.
+ * Values are chosen outside the cache of {@link Long#valueOf(long)}, so the boxing variants really allocate.
+ * </p>
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveCollectionsBenchmark {
+
+    /**
+     * Capacity of the bounded collections.
+     */
+    private static final int CAPACITY = 1024;
+
+    private final LongQueue longQueue = Concurrent.newLongQueue(CAPACITY);
+    private final IntQueue intQueue = Concurrent.newIntQueue(CAPACITY);
+    private final LongStack longStack = Concurrent.newLongStack(CAPACITY);
+    private final IntStack intStack = Concurrent.newIntStack(CAPACITY);
+    private final Queue<Long> boxedQueue = Concurrent.newQueue();
+    private final Stack<Long> boxedStack = Concurrent.newStack();
+
+    /**
+     * Next value to add, outside the cache of boxed values.
+     */
+    private long value;
+
+    /**
+     * Starts above the cache of boxed values.
+     */
+    @Setup(Level.Iteration)
+    public void resetValue() {
+        value = 1_000_000L;
+    }
+
+    /**
+     * Adds and gets a value.
+     *
+     * @return got value
+     */
+    @Benchmark
+    public long longQueue() {
+        longQueue.add(++value);
+        return longQueue.get(-1L);
+    }
+
+    /**
+     * Adds and gets a value.
+     *
+     * @return got value
+     */
+    @Benchmark
+    public int intQueue() {
+        intQueue.add((int) ++value);
+        return intQueue.get(-1);
+    }
+
+    /**
+     * Adds and gets a boxed value.
+     *
+     * @return got value
+     */
+    @Benchmark
+    public Long boxedQueue() {
+        boxedQueue.add(++value);
+        return boxedQueue.get();
+    }
+
+    /**
+     * Pushes and pops a value.
+     *
+     * @return popped value
+     */
+    @Benchmark
+    public long longStack() {
+        longStack.push(++value);
+        return longStack.pop(-1L);
+    }
+
+    /**
+     * Pushes and pops a value.
+     *
+     * @return popped value
+     */
+    @Benchmark
+    public int intStack() {
+        intStack.push((int) ++value);
+        return intStack.pop(-1);
+    }
+
+    /**
+     * Pushes and pops a boxed value.
+     *
+     * @return popped value
+     */
+    @Benchmark
+    public Long boxedStack() {
+        boxedStack.push(++value);
+        return boxedStack.pop();
+    }
+
+    /**
+     * Runs the benchmarks with GC profiler.
+     *
+     * @param args not used
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder()
+            .include(PrimitiveCollectionsBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build();
+        new Runner(options).run();
+    }
+}
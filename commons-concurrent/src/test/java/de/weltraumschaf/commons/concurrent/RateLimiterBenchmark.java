@@ -0,0 +1,115 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Permit checks per second of the {@link RateLimiters rate limiters} shared by all threads.
+ * <p>
+ * A {@code saturated} limiter allows a thousand permits per second, so nearly all checks are rejected. Rejections do
+ * not write the shared state and should scale with the threads. An {@code unsaturated} limiter allows about a billion
+ * permits per second, so nearly all checks are granted and contend on the compare-and-set.
+ * </p>
+ * <p>
+ * Run {@link #main(String[])} from the test class path to measure with 1, 2, 4 .. N threads, where N is the number
+ * of available processors.
+ * </p>
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    /**
+     * Which implementation to measure.
+     */
+    @Param({"tokenBucket", "slidingWindow"})
+    private String implementation;
+
+    /**
+     * Whether nearly all checks are rejected or granted.
+     */
+    @Param({"saturated", "unsaturated"})
+    private String load;
+
+    /**
+     * The limiter under test, shared by all threads.
+     */
+    private RateLimiter limiter;
+
+    /**
+     * Creates the limiter.
+     */
+    @Setup
+    public void createLimiter() {
+        final boolean saturated = "saturated".equals(load);
+
+        if ("slidingWindow".equals(implementation)) {
+            limiter = saturated
+                ? RateLimiters.slidingWindow(1_000, 1, TimeUnit.SECONDS)
+                : RateLimiters.slidingWindow(SlidingWindowRateLimiter.MAX_LIMIT, 1, TimeUnit.MILLISECONDS);
+        } else {
+            limiter = saturated
+                ? RateLimiters.tokenBucket(1_000)
+                : RateLimiters.tokenBucket(1_000_000_000L, 1_000_000);
+        }
+    }
+
+    /**
+     * Checks for one permit.
+     *
+     * @return whether the permit was granted
+     */
+    @Benchmark
+    public boolean tryAcquire() {
+        return limiter.tryAcquire();
+    }
+
+    /**
+     * Runs with 1..N threads.
+     *
+     * @param args not used
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        final int max = Runtime.getRuntime().availableProcessors();
+
+        for (int threads = 1; threads <= max; threads *= 2) {
+            final Options options = new OptionsBuilder()
+                .include(RateLimiterBenchmark.class.getSimpleName())
+                .threads(threads)
+                .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link RateLimiters}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class RateLimitersTest {
+
+    @Rule
+    //CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    //CHECKSTYLE:ON
+
+    @Test
+    public void invokeConstructorByReflectionThrowsException() throws Exception {
+        final Constructor<RateLimiters> ctor = RateLimiters.class.getDeclaredConstructor();
+        ctor.setAccessible(true);
+
+        thrown.expect(either(instanceOf(UnsupportedOperationException.class))
+                .or(instanceOf(InvocationTargetException.class)));
+        ctor.newInstance();
+    }
+
+    @Test
+    public void tokenBucket_holdsOneSecondOfPermits() {
+        final RateLimiter limiter = RateLimiters.tokenBucket(5);
+
+        assertThat(limiter, is(instanceOf(TokenBucketRateLimiter.class)));
+        assertThat(limiter.tryAcquire(5), is(true));
+        assertThat(limiter.tryAcquire(), is(false));
+    }
+
+    @Test
+    public void slidingWindow() {
+        final RateLimiter limiter = RateLimiters.slidingWindow(5, 1, TimeUnit.HOURS);
+
+        assertThat(limiter, is(instanceOf(SlidingWindowRateLimiter.class)));
+        assertThat(limiter.tryAcquire(5), is(true));
+        assertThat(limiter.tryAcquire(), is(false));
+    }
+
+    @Test
+    public void slidingWindow_nullUnitThrowsException() {
+        thrown.expect(NullPointerException.class);
+        thrown.expectMessage("Parameter 'unit' must not be null!");
+
+        RateLimiters.slidingWindow(5, 1, null);
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Discrete event simulation of a downstream with a fixed number of workers, driven by an unbounded demand.
+ * <p>
+ * Calls beyond the workers wait in a queue. A call which waited longer than the maximum queue delay is rejected when it
+ * would start, like a server which sheds load on time out. So the optimal limit is the number of workers: Less leaves
+ * workers idle and more only adds latency. The clock is simulated, so a run takes no real time and is reproducible.
+ * </p>
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+final class SimulatedBackend {
+
+    private final int workers;
+    private final long serviceNanos;
+    private final long maxQueueNanos;
+    private final Random random = new Random(42L);
+    private final PriorityQueue<Call> running = new PriorityQueue<>((a, b) -> Long.compare(a.end, b.end));
+    private final Queue<Call> waiting = new ArrayDeque<>();
+    private final ConcurrencyLimiter limiter;
+    private long now;
+    private long completed;
+    private long dropped;
+    private long limitSum;
+
+    /**
+     * @param workers number of calls served concurrently
+     * @param service mean service time of a call, varies by +/- 10 %
+     * @param maxQueue waiting longer rejects a call
+     * @param unit unit of the times
+     * @param algorithm algorithm under test
+     */
+    SimulatedBackend(final int workers, final long service, final long maxQueue, final TimeUnit unit,
+        final LimitAlgorithm algorithm) {
+        super();
+        this.workers = workers;
+        serviceNanos = unit.toNanos(service);
+        maxQueueNanos = unit.toNanos(maxQueue);
+        limiter = new ConcurrencyLimiter(algorithm, () -> now);
+    }
+
+    ConcurrencyLimiter limiter() {
+        return limiter;
+    }
+
+    /**
+     * Optimal throughput.
+     *
+     * @return calls per second
+     */
+    double capacity() {
+        return workers * (double) TimeUnit.SECONDS.toNanos(1) / serviceNanos;
+    }
+
+    long completed() {
+        return completed;
+    }
+
+    long dropped() {
+        return dropped;
+    }
+
+    /**
+     * Mean of the limit after each completed call.
+     *
+     * @return not negative
+     */
+    double meanLimit() {
+        return completed == 0 ? 0 : limitSum / (double) completed;
+    }
+
+    /**
+     * Runs the simulation for the given time.
+     *
+     * @param duration simulated time
+     * @param unit unit of duration
+     * @return completed calls per second
+     */
+    double run(final long duration, final TimeUnit unit) {
+        final long end = now + unit.toNanos(duration);
+        final long completedBefore = completed;
+        final long start = now;
+
+        while (now < end) {
+            submitUpToLimit();
+            final Call next = running.poll();
+            now = next.end;
+            next.permit.release();
+            ++completed;
+            limitSum += limiter.limit();
+            startWaiting();
+        }
+
+        return (completed - completedBefore) * (double) TimeUnit.SECONDS.toNanos(1) / (now - start);
+    }
+
+    private void submitUpToLimit() {
+        ConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+
+        while (null != permit) {
+            waiting.add(new Call(permit, now));
+            permit = limiter.tryAcquire();
+        }
+
+        startWaiting();
+    }
+
+    private void startWaiting() {
+        while (running.size() < workers && !waiting.isEmpty()) {
+            final Call call = waiting.poll();
+
+            if (now - call.submitted > maxQueueNanos) {
+                call.permit.drop();
+                ++dropped;
+                continue;
+            }
+
+            call.end = now + serviceNanos * 9 / 10 + (long) (random.nextDouble() * serviceNanos / 5);
+            running.add(call);
+        }
+    }
+
+    private static final class Call {
+        private final ConcurrencyLimiter.Permit permit;
+        private final long submitted;
+        private long end;
+
+        Call(final ConcurrencyLimiter.Permit permit, final long submitted) {
+            super();
+            this.permit = permit;
+            this.submitted = submitted;
+        }
+    }
+}
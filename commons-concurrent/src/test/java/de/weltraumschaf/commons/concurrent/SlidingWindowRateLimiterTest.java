@@ -0,0 +1,169 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link SlidingWindowRateLimiter}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class SlidingWindowRateLimiterTest {
+
+    private static final long WINDOW = 1_000;
+
+    @Rule
+    //CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    //CHECKSTYLE:ON
+
+    private final AtomicLong clock = new AtomicLong(Long.MAX_VALUE - WINDOW / 2);
+    private final SlidingWindowRateLimiter sut = new SlidingWindowRateLimiter(10, WINDOW, clock::get);
+
+    private int acquireAll() {
+        int acquired = 0;
+
+        while (sut.tryAcquire()) {
+            ++acquired;
+        }
+
+        return acquired;
+    }
+
+    @Test
+    public void construct_zeroLimitThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+
+        new SlidingWindowRateLimiter(0, WINDOW, clock::get);
+    }
+
+    @Test
+    public void construct_tooHighLimitThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+
+        new SlidingWindowRateLimiter(SlidingWindowRateLimiter.MAX_LIMIT + 1, WINDOW, clock::get);
+    }
+
+    @Test
+    public void construct_zeroWindowThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'window' must be greater than 0!");
+
+        new SlidingWindowRateLimiter(1, 0, clock::get);
+    }
+
+    @Test
+    public void tryAcquire_upToLimitPerWindow() {
+        assertThat(acquireAll(), is(10));
+
+        clock.addAndGet(WINDOW - 1);
+        assertThat(sut.tryAcquire(), is(false));
+    }
+
+    @Test
+    public void tryAcquire_weightsPreviousWindow() {
+        assertThat(acquireAll(), is(10));
+
+        // 75 % of the previous window are still covered.
+        clock.addAndGet(WINDOW + WINDOW / 4);
+        assertThat(acquireAll(), is(2));
+
+        // 25 % of the previous window and the 2 permits are covered.
+        clock.addAndGet(WINDOW / 2);
+        assertThat(acquireAll(), is(5));
+    }
+
+    @Test
+    public void tryAcquire_forgetsOlderWindows() {
+        acquireAll();
+        clock.addAndGet(2 * WINDOW);
+
+        assertThat(acquireAll(), is(10));
+    }
+
+    @Test
+    public void tryAcquire_allOrNothing() {
+        assertThat(sut.tryAcquire(8), is(true));
+        assertThat(sut.tryAcquire(3), is(false));
+        assertThat(sut.tryAcquire(2), is(true));
+    }
+
+    @Test
+    public void tryAcquire_moreThanLimitThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'permits' must be between 1 and 10!");
+
+        sut.tryAcquire(11);
+    }
+
+    @Test
+    public void acquire_waitsForPermits() throws InterruptedException {
+        final RateLimiter limiter = RateLimiters.slidingWindow(2, 10, TimeUnit.MILLISECONDS);
+        limiter.acquire(2);
+        final long start = System.nanoTime();
+
+        limiter.acquire(2);
+
+        assertThat(System.nanoTime() - start, is(greaterThan(0L)));
+        assertThat(limiter.tryAcquire(), is(false));
+    }
+
+    @Test
+    public void acquire_throwsExceptionIfInterrupted() throws InterruptedException {
+        final RateLimiter limiter = RateLimiters.slidingWindow(1, 1, TimeUnit.HOURS);
+        limiter.acquire();
+        Thread.currentThread().interrupt();
+
+        thrown.expect(InterruptedException.class);
+
+        limiter.acquire();
+    }
+
+    @Test
+    public void testToString() {
+        sut.tryAcquire(3);
+
+        assertThat(sut.toString(), is("SlidingWindowRateLimiter[limit=10, windowNanos=1000, previous=0, current=3]"));
+    }
+
+    @Test(timeout = 30_000)
+    public void tryAcquire_neverExceedsLimitUnderContention() throws InterruptedException {
+        final RateLimiter limiter = new SlidingWindowRateLimiter(1_000, WINDOW, clock::get);
+        final AtomicInteger granted = new AtomicInteger();
+        final Thread[] threads = new Thread[4];
+
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10_000; ++j) {
+                    if (limiter.tryAcquire()) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(granted.get(), is(1_000));
+    }
+}
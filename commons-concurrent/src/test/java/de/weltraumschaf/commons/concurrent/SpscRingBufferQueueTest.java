@@ -0,0 +1,170 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link SpscRingBufferQueue}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class SpscRingBufferQueueTest {
+
+    @Rule
+    //CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    //CHECKSTYLE:ON
+
+    private final Queue<String> sut = Concurrent.newSpscQueue(4);
+
+    @Test
+    public void isEmpty() {
+        assertThat(sut.isEmpty(), is(true));
+        sut.add("foo");
+        assertThat(sut.isEmpty(), is(false));
+        sut.get();
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void addAndGet() {
+        assertThat(sut.get(), is(nullValue()));
+
+        sut.add("foo");
+        sut.add("bar");
+        sut.add("baz");
+
+        assertThat(sut.get(), is(equalTo("foo")));
+        assertThat(sut.get(), is(equalTo("bar")));
+        assertThat(sut.get(), is(equalTo("baz")));
+        assertThat(sut.get(), is(nullValue()));
+    }
+
+    @Test
+    public void offer_returnsFalseIfFull() {
+        assertThat(sut.offer("a"), is(true));
+        assertThat(sut.offer("b"), is(true));
+        assertThat(sut.offer("c"), is(true));
+        assertThat(sut.offer("d"), is(true));
+        assertThat(sut.offer("e"), is(false));
+
+        assertThat(sut.get(), is(equalTo("a")));
+        assertThat(sut.offer("e"), is(true));
+        assertThat(sut.get(), is(equalTo("b")));
+        assertThat(sut.get(), is(equalTo("c")));
+        assertThat(sut.get(), is(equalTo("d")));
+        assertThat(sut.get(), is(equalTo("e")));
+        assertThat(sut.get(), is(nullValue()));
+    }
+
+    @Test
+    public void add_throwsExceptionIfFull() {
+        sut.add("a");
+        sut.add("b");
+        sut.add("c");
+        sut.add("d");
+
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Queue is full (capacity 4)!");
+        sut.add("e");
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void offer_nullThrowsException() {
+        sut.offer(null);
+    }
+
+    @Test
+    public void wrapsAroundManyTimes() {
+        for (int i = 0; i < 1_000; ++i) {
+            sut.add("foo" + i);
+            sut.add("bar" + i);
+            assertThat(sut.get(), is(equalTo("foo" + i)));
+            assertThat(sut.get(), is(equalTo("bar" + i)));
+        }
+
+        assertThat(sut.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testToString() {
+        assertThat(sut.toString(), is(equalTo("SpscRingBufferQueue[]")));
+
+        sut.add("foo");
+        sut.add("bar");
+        assertThat(sut.toString(), is(equalTo("SpscRingBufferQueue[foo, bar]")));
+
+        sut.get();
+        assertThat(sut.toString(), is(equalTo("SpscRingBufferQueue[bar]")));
+    }
+
+    @Test(timeout = 30_000)
+    public void concurrentProducersAndConsumersNeitherLoseNorDuplicateElements() throws InterruptedException {
+        final Queue<Integer> queue = Concurrent.newSpscQueue(64);
+        final int producers = 1;
+        final int consumers = 1;
+        final int elementsPerProducer = 50_000;
+        final int total = producers * elementsPerProducer;
+        final AtomicIntegerArray seen = new AtomicIntegerArray(total);
+        final CountDownLatch consumed = new CountDownLatch(total);
+        final List<Thread> threads = new ArrayList<>();
+
+        for (int p = 0; p < producers; ++p) {
+            final int offset = p * elementsPerProducer;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < elementsPerProducer; ++i) {
+                    while (!queue.offer(offset + i)) {
+                        Thread.yield();
+                    }
+                }
+            }));
+        }
+
+        for (int c = 0; c < consumers; ++c) {
+            threads.add(new Thread(() -> {
+                while (consumed.getCount() > 0) {
+                    final Integer element = queue.get();
+
+                    if (null == element) {
+                        Thread.yield();
+                    } else {
+                        seen.incrementAndGet(element);
+                        consumed.countDown();
+                    }
+                }
+            }));
+        }
+
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int i = 0; i < total; ++i) {
+            assertThat("Element " + i, seen.get(i), is(1));
+        }
+
+        assertThat(queue.isEmpty(), is(true));
+    }
+}
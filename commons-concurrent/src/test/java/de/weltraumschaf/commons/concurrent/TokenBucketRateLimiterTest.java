@@ -0,0 +1,216 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link TokenBucketRateLimiter}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class TokenBucketRateLimiterTest {
+
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Rule
+    //CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    //CHECKSTYLE:ON
+
+    // Starts shortly before the nano time overflows.
+    private final AtomicLong clock = new AtomicLong(Long.MAX_VALUE - INTERVAL);
+    private final TokenBucketRateLimiter sut = new TokenBucketRateLimiter(10, 3, clock::get);
+
+    @Test
+    public void construct_zeroRateThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+
+        new TokenBucketRateLimiter(0, 1, clock::get);
+    }
+
+    @Test
+    public void construct_tooHighRateThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+
+        new TokenBucketRateLimiter(1_000_000_001L, 1, clock::get);
+    }
+
+    @Test
+    public void construct_zeroBurstThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'burst' must be greater than 0!");
+
+        new TokenBucketRateLimiter(1, 0, clock::get);
+    }
+
+    @Test
+    public void tryAcquire_startsFull() {
+        assertThat(sut.available(), is(3));
+        assertThat(sut.tryAcquire(), is(true));
+        assertThat(sut.tryAcquire(), is(true));
+        assertThat(sut.tryAcquire(), is(true));
+        assertThat(sut.tryAcquire(), is(false));
+        assertThat(sut.available(), is(0));
+    }
+
+    @Test
+    public void tryAcquire_refillsWithRate() {
+        assertThat(sut.tryAcquire(3), is(true));
+
+        clock.addAndGet(INTERVAL - 1);
+        assertThat(sut.tryAcquire(), is(false));
+
+        clock.addAndGet(1);
+        assertThat(sut.tryAcquire(), is(true));
+        assertThat(sut.tryAcquire(), is(false));
+
+        clock.addAndGet(2 * INTERVAL + INTERVAL / 2);
+        assertThat(sut.tryAcquire(2), is(true));
+        assertThat(sut.tryAcquire(), is(false));
+
+        // The half interval is not lost.
+        clock.addAndGet(INTERVAL / 2);
+        assertThat(sut.tryAcquire(), is(true));
+    }
+
+    @Test
+    public void tryAcquire_highRateIsExact() {
+        // A billion divided by this rate is 3.33 nano seconds per permit.
+        final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(300_000_000L, 1_000, clock::get);
+        limiter.tryAcquire(1_000);
+        int granted = 0;
+
+        for (int i = 0; i < 1_000; ++i) {
+            clock.addAndGet(TimeUnit.MICROSECONDS.toNanos(1));
+
+            while (limiter.tryAcquire()) {
+                ++granted;
+            }
+        }
+
+        assertThat(granted, is(300_000));
+    }
+
+    @Test
+    public void tryAcquire_rateNotDividingBillionIsExact() {
+        final TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(3, 3, clock::get);
+        limiter.tryAcquire(3);
+
+        clock.addAndGet(333_333_333L);
+        assertThat(limiter.tryAcquire(), is(false));
+
+        clock.addAndGet(1);
+        assertThat(limiter.tryAcquire(), is(true));
+    }
+
+    @Test
+    public void tryAcquire_capsAtBurst() {
+        sut.tryAcquire(3);
+        clock.addAndGet(TimeUnit.HOURS.toNanos(1));
+
+        assertThat(sut.available(), is(3));
+        assertThat(sut.tryAcquire(3), is(true));
+        assertThat(sut.tryAcquire(), is(false));
+    }
+
+    @Test
+    public void tryAcquire_allOrNothing() {
+        assertThat(sut.tryAcquire(2), is(true));
+        assertThat(sut.tryAcquire(2), is(false));
+        assertThat(sut.tryAcquire(1), is(true));
+    }
+
+    @Test
+    public void tryAcquire_moreThanBurstThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'permits' must be between 1 and 3!");
+
+        sut.tryAcquire(4);
+    }
+
+    @Test
+    public void tryAcquire_zeroThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+
+        sut.tryAcquire(0);
+    }
+
+    @Test
+    public void acquire_reservesPermitsInAdvance() throws InterruptedException {
+        sut.tryAcquire(3);
+        clock.addAndGet(INTERVAL);
+        sut.acquire(1);
+
+        // The next acquisition waits for the reserved one.
+        assertThat(sut.tryAcquire(), is(false));
+    }
+
+    @Test
+    public void acquire_waitsForPermits() throws InterruptedException {
+        final RateLimiter limiter = RateLimiters.tokenBucket(100, 1);
+        limiter.acquire();
+        final long start = System.nanoTime();
+
+        limiter.acquire();
+        limiter.acquire();
+
+        assertThat(System.nanoTime() - start, is(greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(15))));
+    }
+
+    @Test
+    public void acquire_throwsExceptionIfInterrupted() throws InterruptedException {
+        final RateLimiter limiter = RateLimiters.tokenBucket(1, 1);
+        limiter.acquire();
+        Thread.currentThread().interrupt();
+
+        thrown.expect(InterruptedException.class);
+
+        limiter.acquire();
+    }
+
+    @Test
+    public void testToString() {
+        assertThat(sut.toString(), is("TokenBucketRateLimiter[permitsPerSecond=10, burst=3, available=3]"));
+    }
+
+    @Test(timeout = 30_000)
+    public void tryAcquire_neverExceedsLimitUnderContention() throws InterruptedException {
+        final RateLimiter limiter = new TokenBucketRateLimiter(1, 1_000, clock::get);
+        final AtomicInteger granted = new AtomicInteger();
+        final Thread[] threads = new Thread[4];
+
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 10_000; ++j) {
+                    if (limiter.tryAcquire()) {
+                        granted.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(granted.get(), is(1_000));
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link VersionedValue} with {@code synchronized} and a {@link ReentrantReadWriteLock} on read-mostly state.
+ * <p>
+ * The state is a pair of longs which a writer keeps consistent. Many readers read both, one writer updates them after
+ * burning some CPU, so writes are rare. The read throughput shows the cost of the readers contending on the lock state,
+ * which {@link VersionedValue} avoids.
+ * </p>
+ * <p>
+ * Run {@link #main(String[])} from the test class path to measure with 1, 2, 4 .. N readers, where N is the number of
+ * available processors minus one.
+ * </p>
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VersionedValueBenchmark {
+
+    /**
+     * CPU the writer burns between two writes.
+     */
+    private static final long WRITE_PAUSE_TOKENS = 10_000;
+
+    /**
+     * Which implementation to measure.
+     */
+    @Param({"versioned", "synchronized", "readWriteLock"})
+    private String implementation;
+
+    /**
+     * The holder under test, shared by all threads of a group.
+     */
+    private Holder holder;
+
+    /**
+     * Creates the holder.
+     */
+    @Setup
+    public void createHolder() {
+        switch (implementation) {
+            case "synchronized":
+                holder = new SynchronizedHolder();
+                break;
+            case "readWriteLock":
+                holder = new ReadWriteLockHolder();
+                break;
+            default:
+                holder = new VersionedHolder();
+                break;
+        }
+    }
+
+    /**
+     * Reader side.
+     *
+     * @return sum of the pair, always {@code 0}
+     */
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(3)
+    public long read() {
+        return holder.read();
+    }
+
+    /**
+     * Writer side.
+     */
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public void write() {
+        Blackhole.consumeCPU(WRITE_PAUSE_TOKENS);
+        holder.write(System.nanoTime());
+    }
+
+    /**
+     * Runs with 1..N readers and one writer.
+     *
+     * @param args not used
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        final int max = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+        for (int readers = 1; readers <= max; readers *= 2) {
+            final Options options = new OptionsBuilder()
+                .include(VersionedValueBenchmark.class.getSimpleName())
+                .threadGroups(readers, 1)
+                .build();
+            new Runner(options).run();
+        }
+    }
+
+    /**
+     * Common interface of the compared implementations.
+     */
+    private interface Holder {
+
+        long read();
+
+        void write(long value);
+    }
+
+    /**
+     * Guards the pair with a sequence lock.
+     */
+    private static final class VersionedHolder implements Holder {
+
+        private final VersionedValue<long[]> value = new VersionedValue<>(new long[2]);
+
+        @Override
+        public long read() {
+            return value.read(pair -> pair[0] + pair[1]);
+        }
+
+        @Override
+        public void write(final long newValue) {
+            value.write(pair -> {
+                pair[0] = newValue;
+                pair[1] = -newValue;
+            });
+        }
+    }
+
+    /**
+     * Guards the pair with the monitor.
+     */
+    private static final class SynchronizedHolder implements Holder {
+
+        private long first;
+        private long second;
+
+        @Override
+        public synchronized long read() {
+            return first + second;
+        }
+
+        @Override
+        public synchronized void write(final long newValue) {
+            first = newValue;
+            second = -newValue;
+        }
+    }
+
+    /**
+     * Guards the pair with a read write lock.
+     */
+    private static final class ReadWriteLockHolder implements Holder {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private long first;
+        private long second;
+
+        @Override
+        public long read() {
+            lock.readLock().lock();
+
+            try {
+                return first + second;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void write(final long newValue) {
+            lock.writeLock().lock();
+
+            try {
+                first = newValue;
+                second = -newValue;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link VersionedValue}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class VersionedValueTest {
+
+    @Rule
+    //CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    //CHECKSTYLE:ON
+
+    private final VersionedValue<long[]> sut = new VersionedValue<>(new long[]{0, 0});
+
+    @Test
+    public void construct_nullThrowsException() {
+        thrown.expect(NullPointerException.class);
+        thrown.expectMessage("Parameter 'state' must not be null!");
+
+        new VersionedValue<>(null);
+    }
+
+    @Test
+    public void read_nullThrowsException() {
+        thrown.expect(NullPointerException.class);
+        thrown.expectMessage("Parameter 'reader' must not be null!");
+
+        sut.read(null);
+    }
+
+    @Test
+    public void write_nullThrowsException() {
+        thrown.expect(NullPointerException.class);
+        thrown.expectMessage("Parameter 'writer' must not be null!");
+
+        sut.write(null);
+    }
+
+    @Test
+    public void readAndWrite() {
+        sut.write(pair -> {
+            pair[0] = 23;
+            pair[1] = 42;
+        });
+
+        assertThat(sut.read(pair -> pair[0] + pair[1]), is(65L));
+    }
+
+    @Test
+    public void write_incrementsVersion() {
+        assertThat(sut.version(), is(0L));
+
+        sut.write(pair -> pair[0] = 1);
+        sut.write(pair -> pair[0] = 2);
+
+        assertThat(sut.version(), is(2L));
+    }
+
+    @Test
+    public void write_incrementsVersionAlsoIfWriterFails() {
+        try {
+            sut.write(pair -> {
+                throw new IllegalStateException("foo");
+            });
+        } catch (final IllegalStateException ex) {
+            assertThat(ex.getMessage(), is("foo"));
+        }
+
+        assertThat(sut.version(), is(1L));
+        // Lock is released.
+        sut.write(pair -> pair[0] = 1);
+    }
+
+    @Test
+    public void read_throwsExceptionOfConsistentRead() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("foo");
+
+        sut.read(pair -> {
+            throw new IllegalArgumentException("foo");
+        });
+    }
+
+    @Test
+    public void read_retriesIfWriterIntervened() throws InterruptedException {
+        final AtomicInteger calls = new AtomicInteger();
+
+        final long result = sut.read(pair -> {
+            if (calls.incrementAndGet() == 1) {
+                final Thread writer = new Thread(() -> sut.write(p -> p[0] = 42));
+                writer.start();
+
+                try {
+                    writer.join();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+
+                // Stale result which must be discarded.
+                return -1L;
+            }
+
+            return pair[0];
+        });
+
+        assertThat(result, is(42L));
+        assertThat(calls.get(), is(2));
+    }
+
+    @Test
+    public void read_discardsExceptionOfInconsistentRead() {
+        final AtomicInteger calls = new AtomicInteger();
+
+        final long result = sut.read(pair -> {
+            if (calls.incrementAndGet() == 1) {
+                final Thread writer = new Thread(() -> sut.write(p -> p[0] = 42));
+                writer.start();
+
+                try {
+                    writer.join();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+
+                throw new ArrayIndexOutOfBoundsException("Torn read!");
+            }
+
+            return pair[0];
+        });
+
+        assertThat(result, is(42L));
+    }
+
+    @Test(timeout = 30_000)
+    public void readersNeverSeeTornWrites() throws InterruptedException {
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicLong torn = new AtomicLong();
+        final AtomicLong reads = new AtomicLong();
+        final List<Thread> threads = new ArrayList<>();
+
+        threads.add(new Thread(() -> {
+            for (long i = 1; i <= 100_000; ++i) {
+                final long value = i;
+                sut.write(pair -> {
+                    pair[0] = value;
+                    pair[1] = -value;
+                });
+            }
+
+            stop.set(true);
+        }));
+
+        for (int r = 0; r < 3; ++r) {
+            threads.add(new Thread(() -> {
+                while (!stop.get()) {
+                    if (sut.read(pair -> pair[0] + pair[1]) != 0) {
+                        torn.incrementAndGet();
+                    }
+
+                    reads.incrementAndGet();
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(torn.get(), is(0L));
+        assertThat(sut.version(), is(100_000L));
+        assertThat(sut.read(pair -> pair[0]), is(100_000L));
+    }
+
+    @Test
+    public void testToString() {
+        final VersionedValue<String> value = new VersionedValue<>("foo");
+
+        assertThat(value.toString(), is("VersionedValue[version=0, state=foo]"));
+    }
+}
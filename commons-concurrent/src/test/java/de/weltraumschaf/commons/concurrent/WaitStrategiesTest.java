@@ -0,0 +1,91 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link WaitStrategies}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class WaitStrategiesTest {
+
+    @Rule
+    //CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    //CHECKSTYLE:ON
+
+    @Test
+    public void invokeConstructorByReflectionThrowsException() throws Exception {
+        final Constructor<WaitStrategies> ctor = WaitStrategies.class.getDeclaredConstructor();
+        ctor.setAccessible(true);
+
+        thrown.expect(either(instanceOf(UnsupportedOperationException.class))
+                .or(instanceOf(InvocationTargetException.class)));
+        ctor.newInstance();
+    }
+
+    @Test
+    public void parking_minParkNanosMustBePositive() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'minParkNanos' must be greater than 0!");
+
+        WaitStrategies.parking(0, 1);
+    }
+
+    @Test
+    public void parking_maxParkNanosMustNotBeLessThanMin() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'maxParkNanos' must not be less than 'minParkNanos'!");
+
+        WaitStrategies.parking(2, 1);
+    }
+
+    @Test
+    public void waitFor_pollsUntilSourceReturnsElement() throws InterruptedException {
+        for (final WaitStrategy strategy : new WaitStrategy[] {
+            WaitStrategies.busySpin(), WaitStrategies.yielding(), WaitStrategies.parking(1, 1_000)}) {
+            final AtomicInteger polls = new AtomicInteger();
+
+            final String element = strategy.waitFor(() -> polls.incrementAndGet() < 300 ? null : "foo", Long.MAX_VALUE);
+
+            assertThat(element, is(equalTo("foo")));
+            assertThat(polls.get(), is(300));
+        }
+    }
+
+    @Test
+    public void waitFor_returnsNullAfterTimeout() throws InterruptedException {
+        for (final WaitStrategy strategy : new WaitStrategy[] {
+            WaitStrategies.busySpin(), WaitStrategies.yielding(), WaitStrategies.parking(), WaitStrategies.blocking()}) {
+            final long start = System.nanoTime();
+
+            assertThat(strategy.waitFor(() -> null, TimeUnit.MILLISECONDS.toNanos(5)), is(nullValue()));
+            assertThat(System.nanoTime() - start, is(greaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(5))));
+        }
+    }
+
+    @Test
+    public void signalAll_withoutWaitersDoesNothing() {
+        WaitStrategies.busySpin().signalAll();
+        WaitStrategies.blocking().signalAll();
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Latency of recursive workloads on {@link WorkStealingExecutor} compared to {@link ForkJoinPool}.
+ * <p>
+ * Two workloads: The naive Fibonacci spawns a huge amount of tiny tasks and so measures the scheduling overhead. The
+ * array sum splits a large array until a threshold and so measures a realistic data parallel workload.
+ * </p>
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorkStealingExecutorBenchmark {
+
+    private static final int FIBONACCI = 20;
+    private static final int SUM_LENGTH = 1 << 20;
+    private static final int SUM_THRESHOLD = 4096;
+
+    /**
+     * Number of worker threads for both executors.
+     */
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private WorkStealingExecutor executor;
+    private ForkJoinPool pool;
+    private long[] data;
+
+    /**
+     * Starts the executors.
+     */
+    @Setup(Level.Trial)
+    public void start() {
+        executor = new WorkStealingExecutor(parallelism);
+        pool = new ForkJoinPool(parallelism);
+        data = new long[SUM_LENGTH];
+
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = i;
+        }
+    }
+
+    /**
+     * Stops the executors.
+     */
+    @TearDown(Level.Trial)
+    public void stop() {
+        executor.close();
+        pool.shutdown();
+    }
+
+    /**
+     * Fibonacci on this library's executor.
+     *
+     * @return result
+     */
+    @Benchmark
+    public long fibonacciWorkStealing() {
+        return executor.invoke(new Fibonacci(FIBONACCI));
+    }
+
+    /**
+     * Fibonacci on the JDK's executor.
+     *
+     * @return result
+     */
+    @Benchmark
+    public long fibonacciForkJoin() {
+        return pool.invoke(new ForkJoinFibonacci(FIBONACCI));
+    }
+
+    /**
+     * Array sum on this library's executor.
+     *
+     * @return result
+     */
+    @Benchmark
+    public long sumWorkStealing() {
+        return executor.invoke(new Sum(data, 0, data.length));
+    }
+
+    /**
+     * Array sum on the JDK's executor.
+     *
+     * @return result
+     */
+    @Benchmark
+    public long sumForkJoin() {
+        return pool.invoke(new ForkJoinSum(data, 0, data.length));
+    }
+
+    /**
+     * Runs the benchmarks.
+     *
+     * @param args not used
+     * @throws RunnerException if the benchmark fails
+     */
+    public static void main(final String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder()
+            .include(WorkStealingExecutorBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+
+    /**
+     * Naive Fibonacci.
+     */
+    private static final class Fibonacci extends WorkStealingTask<Long> {
+        private final int n;
+
+        Fibonacci(final int n) {
+            super();
+            this.n = n;
+        }
+
+        @Override
+        protected Long compute() {
+            if (n < 2) {
+                return (long) n;
+            }
+
+            final Fibonacci first = new Fibonacci(n - 1);
+            first.fork();
+            return new Fibonacci(n - 2).compute() + first.join();
+        }
+    }
+
+    /**
+     * Naive Fibonacci.
+     */
+    private static final class ForkJoinFibonacci extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+        private final int n;
+
+        ForkJoinFibonacci(final int n) {
+            super();
+            this.n = n;
+        }
+
+        @Override
+        protected Long compute() {
+            if (n < 2) {
+                return (long) n;
+            }
+
+            final ForkJoinFibonacci first = new ForkJoinFibonacci(n - 1);
+            first.fork();
+            return new ForkJoinFibonacci(n - 2).compute() + first.join();
+        }
+    }
+
+    /**
+     * Sums an array range.
+     */
+    private static final class Sum extends WorkStealingTask<Long> {
+        private final long[] values;
+        private final int from;
+        private final int to;
+
+        Sum(final long[] values, final int from, final int to) {
+            super();
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= SUM_THRESHOLD) {
+                long sum = 0;
+
+                for (int i = from; i < to; ++i) {
+                    sum += values[i];
+                }
+
+                return sum;
+            }
+
+            final int middle = (from + to) >>> 1;
+            final Sum left = new Sum(values, from, middle);
+            left.fork();
+            return new Sum(values, middle, to).compute() + left.join();
+        }
+    }
+
+    /**
+     * Sums an array range.
+     */
+    private static final class ForkJoinSum extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+        private final long[] values;
+        private final int from;
+        private final int to;
+
+        ForkJoinSum(final long[] values, final int from, final int to) {
+            super();
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= SUM_THRESHOLD) {
+                long sum = 0;
+
+                for (int i = from; i < to; ++i) {
+                    sum += values[i];
+                }
+
+                return sum;
+            }
+
+            final int middle = (from + to) >>> 1;
+            final ForkJoinSum left = new ForkJoinSum(values, from, middle);
+            left.fork();
+            return new ForkJoinSum(values, middle, to).compute() + left.join();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link WorkStealingExecutor} and {@link WorkStealingTask}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class WorkStealingExecutorTest {
+
+    @Rule
+    //CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    //CHECKSTYLE:ON
+
+    private final WorkStealingExecutor sut = new WorkStealingExecutor(4);
+
+    @After
+    public void shutdown() {
+        sut.close();
+    }
+
+    @Test
+    public void construct_zeroParallelismThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'parallelism' must be greater than 0!");
+
+        new WorkStealingExecutor(0);
+    }
+
+    @Test
+    public void parallelism() {
+        assertThat(sut.parallelism(), is(4));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void invoke_nullThrowsException() {
+        sut.invoke(null);
+    }
+
+    @Test(timeout = 30_000)
+    public void invoke_computesRecursiveTask() {
+        assertThat(sut.invoke(new Fibonacci(25)), is(75_025L));
+        assertThat(sut.invoke(new Fibonacci(1)), is(1L));
+    }
+
+    @Test(timeout = 30_000)
+    public void invoke_rethrowsFailureOfSubTask() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("snafu");
+
+        sut.invoke(new WorkStealingTask<Void>() {
+            @Override
+            protected Void compute() {
+                final WorkStealingTask<Void> failing = new WorkStealingTask<Void>() {
+                    @Override
+                    protected Void compute() {
+                        throw new IllegalArgumentException("snafu");
+                    }
+                };
+                failing.fork();
+                return failing.join();
+            }
+        });
+    }
+
+    @Test
+    public void invoke_throwsExceptionIfShutDown() {
+        sut.close();
+        assertThat(sut.isShutdown(), is(true));
+
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Executor is shut down!");
+        sut.invoke(new Fibonacci(1));
+    }
+
+    @Test(timeout = 30_000)
+    public void close_failsQueuedSubmissions() throws InterruptedException {
+        final WorkStealingExecutor executor = new WorkStealingExecutor(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread blocker = new Thread(() -> executor.invoke(new WorkStealingTask<Void>() {
+            @Override
+            protected Void compute() {
+                started.countDown();
+
+                try {
+                    release.await();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+
+                return null;
+            }
+        }));
+        blocker.start();
+        started.await();
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Fibonacci queued = new Fibonacci(1);
+        final Thread caller = new Thread(() -> {
+            try {
+                executor.invoke(queued);
+            } catch (final IllegalStateException ex) {
+                failure.set(ex);
+            }
+        });
+        caller.start();
+
+        while (caller.getState() != Thread.State.TIMED_WAITING && caller.getState() != Thread.State.WAITING) {
+            Thread.yield();
+        }
+
+        final Thread closer = new Thread(executor::close);
+        closer.start();
+        caller.join();
+        release.countDown();
+        closer.join();
+        blocker.join();
+
+        assertThat(failure.get(), is(instanceOf(IllegalStateException.class)));
+        assertThat(failure.get().getMessage(), is("Executor is shut down!"));
+    }
+
+    @Test(timeout = 30_000)
+    public void close_racingInvokeDoesNotHang() throws InterruptedException {
+        for (int i = 0; i < 200; ++i) {
+            final WorkStealingExecutor executor = new WorkStealingExecutor(2);
+            final AtomicReference<Object> outcome = new AtomicReference<>();
+            final Thread caller = new Thread(() -> {
+                try {
+                    outcome.set(executor.invoke(new Fibonacci(10)));
+                } catch (final IllegalStateException ex) {
+                    outcome.set(ex);
+                }
+            });
+            caller.start();
+            executor.close();
+            caller.join();
+
+            assertThat(outcome.get(), is(anyOf(equalTo((Object) 55L), instanceOf(IllegalStateException.class))));
+        }
+    }
+
+    @Test
+    public void fork_outsideExecutorThrowsException() {
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("Tasks must be forked from within a WorkStealingExecutor!");
+
+        new Fibonacci(1).fork();
+    }
+
+    @Test
+    public void isDone() {
+        final Fibonacci task = new Fibonacci(10);
+        assertThat(task.isDone(), is(false));
+
+        sut.invoke(task);
+
+        assertThat(task.isDone(), is(true));
+        assertThat(task.join(), is(55L));
+    }
+
+    private static final class Fibonacci extends WorkStealingTask<Long> {
+
+        private final int n;
+
+        Fibonacci(final int n) {
+            super();
+            this.n = n;
+        }
+
+        @Override
+        protected Long compute() {
+            if (n < 2) {
+                return (long) n;
+            }
+
+            final Fibonacci first = new Fibonacci(n - 1);
+            first.fork();
+            return new Fibonacci(n - 2).compute() + first.join();
+        }
+    }
+}
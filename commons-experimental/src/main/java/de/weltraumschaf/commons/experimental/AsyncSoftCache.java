@@ -0,0 +1,308 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.experimental;
+
+import de.weltraumschaf.commons.validate.Validate;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Asynchronous variant of {@link SoftCache} which caches futures of values.
+ * <p>
+ * A miss starts the load by the {@link AsyncFinder async finder} and caches its future at once, so concurrent reads of
+ * the key share one load and nobody blocks on it. A blocking {@link SoftCache.Finder finder} is run by the
+ * {@link #executor(Executor) executor}, which starts a virtual thread per load if the JVM supports them, and uses the
+ * {@link ForkJoinPool#commonPool() common pool} otherwise. Futures which fail or complete with {@code null} are removed
+ * from the cache, so the next read loads again.
+ * </p>
+ * <p>
+ * The futures are stored in a {@link SoftCache}, unbounded or bounded by size. Its {@link #stats() statistics} count
+ * a load when it is started, so the load times only measure starting the loads.
+ * </p>
+ *
+ * @param <K> type of cache key
+ * @param <V> type of cached value
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@Experimental
+public class AsyncSoftCache<K, V> {
+
+    /**
+     * Default executor of blocking finders.
+     */
+    private static final Executor DEFAULT_EXECUTOR = newDefaultExecutor();
+
+    /**
+     * Holds the futures.
+     */
+    private final SoftCache<K, CompletableFuture<V>> cache;
+    /**
+     * Starts the loads of missing keys.
+     */
+    private AsyncFinder<K, V> finder = new NullFinder<>();
+    /**
+     * Runs the blocking finder.
+     */
+    private Executor executor = DEFAULT_EXECUTOR;
+
+    /**
+     * Creates an unbounded cache which holds its futures softly.
+     */
+    public AsyncSoftCache() {
+        this(new SoftCache<>());
+    }
+
+    /**
+     * Creates a cache which holds at most the given number of futures.
+     *
+     * @param maximumSize not less than 0
+     */
+    public AsyncSoftCache(final long maximumSize) {
+        this(new SoftCache<>(maximumSize));
+    }
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param cache must not be {@code null}
+     */
+    private AsyncSoftCache(final SoftCache<K, CompletableFuture<V>> cache) {
+        super();
+        this.cache = cache;
+        cache.finder(this::load);
+    }
+
+    /**
+     * Creates an executor on virtual threads if the JVM supports them.
+     * <p>
+     * The project is compiled for Java 17, so the factory is looked up by reflection.
+     * </p>
+     *
+     * @return never {@code null}
+     */
+    private static Executor newDefaultExecutor() {
+        try {
+            final MethodHandle factory = MethodHandles.publicLookup().findStatic(
+                Executors.class,
+                "newVirtualThreadPerTaskExecutor",
+                MethodType.methodType(ExecutorService.class));
+            return (ExecutorService) factory.invokeExact();
+        } catch (final Throwable ex) {
+            return ForkJoinPool.commonPool();
+        }
+    }
+
+    /**
+     * Get the future of a value from the cache.
+     * <p>
+     * If the key is not present yet, then the async finder is asked. The returned future is a copy of the cached one,
+     * so completing or cancelling it does not affect other callers.
+     * </p>
+     *
+     * @param key must not be {@code null}
+     * @return never {@code null}
+     */
+    public CompletableFuture<V> get(final K key) {
+        final CompletableFuture<V> future = cache.get(key);
+
+        // The future may have failed before the cache added it, and so before its callback could remove it.
+        if (isFailed(future)) {
+            cache.remove(key, future);
+        }
+
+        return future.copy();
+    }
+
+    /**
+     * Add the future of a value to the cache.
+     * <p>
+     * It is removed if it fails or completes with {@code null}.
+     * </p>
+     *
+     * @param key must not be {@code null}
+     * @param value must not be {@code null}
+     */
+    public void add(final K key, final CompletableFuture<V> value) {
+        cache.add(key, value);
+        removeIfFailed(key, value);
+    }
+
+    /**
+     * Removes the future of a value from the cache.
+     *
+     * @param key must not be {@code null}
+     */
+    public void remove(final K key) {
+        cache.remove(key);
+    }
+
+    /**
+     * Number of cached futures.
+     *
+     * @return not less than 0
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * Snapshot of the statistics.
+     *
+     * @return never {@code null}
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Set the async finder for this cache.
+     *
+     * @param f must not be {@code null}
+     */
+    public void asyncFinder(final AsyncFinder<K, V> f) {
+        finder = Validate.notNull(f, "f");
+    }
+
+    /**
+     * Set a blocking finder for this cache, which is run by the {@link #executor(Executor) executor}.
+     *
+     * @param f must not be {@code null}
+     */
+    public void finder(final SoftCache.Finder<K, V> f) {
+        Validate.notNull(f, "f");
+        finder = (key, e) -> CompletableFuture.supplyAsync(() -> {
+            final V value = f.find(key);
+
+            if (null == value) {
+                throw new NullPointerException(String.format("No value fond for key '%s'!", key));
+            }
+
+            return value;
+        }, e);
+    }
+
+    /**
+     * Set the executor which runs the finder.
+     * <p>
+     * Defaults to a virtual thread per load if the JVM supports them, and the {@link ForkJoinPool#commonPool() common
+     * pool} otherwise.
+     * </p>
+     *
+     * @param e must not be {@code null}
+     */
+    public void executor(final Executor e) {
+        executor = Validate.notNull(e, "e");
+    }
+
+    /**
+     * Starts the load of a missing key.
+     *
+     * @param key never {@code null}
+     * @return never {@code null}
+     */
+    private CompletableFuture<V> load(final K key) {
+        CompletableFuture<V> future;
+
+        try {
+            future = finder.find(key, executor);
+
+            if (null == future) {
+                throw new NullPointerException("Async finder must not return null!");
+            }
+        } catch (final RuntimeException ex) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(ex);
+        }
+
+        // Relays the outcome after removing a failed one, so that nobody sees the failure still cached.
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        future.whenComplete((value, ex) -> {
+            if (null != ex || null == value) {
+                cache.remove(key, result);
+            }
+
+            if (null == ex) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(ex instanceof CompletionException ? ex.getCause() : ex);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Removes a future from the cache once it fails.
+     *
+     * @param key never {@code null}
+     * @param future never {@code null}
+     */
+    private void removeIfFailed(final K key, final CompletableFuture<V> future) {
+        future.whenComplete((value, ex) -> {
+            if (null != ex || null == value) {
+                cache.remove(key, future);
+            }
+        });
+    }
+
+    /**
+     * Whether a future failed or completed with {@code null}.
+     *
+     * @param future never {@code null}
+     * @return {@code false} if not completed or completed with a value
+     */
+    private static boolean isFailed(final CompletableFuture<?> future) {
+        return future.isCompletedExceptionally() || future.isDone() && null == future.getNow(null);
+    }
+
+    /**
+     * Implementations of this interface start loading values not in the cache yet.
+     *
+     * @param <K> type of cache key
+     * @param <V> type of cached value
+     */
+    public interface AsyncFinder<K, V> {
+
+        /**
+         * Start to find a value for the key not already in the cache.
+         *
+         * @param key never {@code null}
+         * @param executor executor of the cache, may be used to run blocking work
+         * @return completes with the value, or {@code null} if not found, never {@code null}
+         */
+        CompletableFuture<V> find(K key, Executor executor);
+    }
+
+    /**
+     * Default implementation which does not find anything.
+     *
+     * @param <K> type of cache key
+     * @param <V> type of cached value
+     */
+    private static final class NullFinder<K, V> implements AsyncFinder<K, V> {
+
+        @Override
+        public CompletableFuture<V> find(final K key, final Executor executor) {
+            final CompletableFuture<V> future = new CompletableFuture<>();
+            future.completeExceptionally(
+                new NullPointerException(String.format("No value fond for key '%s'!", key)));
+            return future;
+        }
+
+    }
+}
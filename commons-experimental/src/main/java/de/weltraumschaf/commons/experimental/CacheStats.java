@@ -0,0 +1,225 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.experimental;
+
+import de.weltraumschaf.commons.guava.Objects;
+import de.weltraumschaf.commons.validate.Validate;
+import net.jcip.annotations.Immutable;
+
+/**
+ * Point in time view of the statistics of a {@link SoftCache}.
+ * <p>
+ * The counters are summed up w/o stopping the threads which update them, so a snapshot taken under load is only
+ * approximately consistent. Bulk loads by {@link SoftCache#getAll(java.util.Collection)} count as one load.
+ * </p>
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@Immutable
+public final class CacheStats {
+
+    /**
+     * Number of reads which found a cached value.
+     */
+    private final long hitCount;
+    /**
+     * Number of reads which found no cached value.
+     */
+    private final long missCount;
+    /**
+     * Number of loads which found a value.
+     */
+    private final long loadSuccessCount;
+    /**
+     * Number of loads which failed or found nothing.
+     */
+    private final long loadFailureCount;
+    /**
+     * Total time of all loads in nano seconds.
+     */
+    private final long totalLoadTime;
+    /**
+     * Number of entries removed by size, expiry or garbage collection.
+     */
+    private final long evictionCount;
+    /**
+     * Loads by the bit length of their time in nano seconds.
+     */
+    private final long[] loadTimes;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param hitCount number of reads which found a cached value
+     * @param missCount number of reads which found no cached value
+     * @param loadSuccessCount number of loads which found a value
+     * @param loadFailureCount number of loads which failed or found nothing
+     * @param totalLoadTime total time of all loads in nano seconds
+     * @param evictionCount number of entries removed by size, expiry or garbage collection
+     * @param loadTimes loads by the bit length of their time in nano seconds, not copied
+     */
+    CacheStats(final long hitCount, final long missCount, final long loadSuccessCount, final long loadFailureCount,
+        final long totalLoadTime, final long evictionCount, final long[] loadTimes) {
+        super();
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadFailureCount = loadFailureCount;
+        this.totalLoadTime = totalLoadTime;
+        this.evictionCount = evictionCount;
+        this.loadTimes = loadTimes;
+    }
+
+    /**
+     * Number of reads which found a cached value.
+     *
+     * @return not negative
+     */
+    public long hitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Number of reads which found no cached value.
+     * <p>
+     * Includes the reads which found the value in the off-heap tier or waited for the load of another thread.
+     * </p>
+     *
+     * @return not negative
+     */
+    public long missCount() {
+        return missCount;
+    }
+
+    /**
+     * Number of reads.
+     *
+     * @return not negative
+     */
+    public long requestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * Ratio of reads which found a cached value.
+     *
+     * @return between 0 and 1, {@code 1} if there was no read
+     */
+    public double hitRate() {
+        final long requests = requestCount();
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    /**
+     * Number of loads which found a value.
+     *
+     * @return not negative
+     */
+    public long loadSuccessCount() {
+        return loadSuccessCount;
+    }
+
+    /**
+     * Number of loads which failed or found nothing.
+     *
+     * @return not negative
+     */
+    public long loadFailureCount() {
+        return loadFailureCount;
+    }
+
+    /**
+     * Number of loads.
+     *
+     * @return not negative
+     */
+    public long loadCount() {
+        return loadSuccessCount + loadFailureCount;
+    }
+
+    /**
+     * Total time of all loads.
+     *
+     * @return nano seconds, not negative
+     */
+    public long totalLoadTime() {
+        return totalLoadTime;
+    }
+
+    /**
+     * Average time of a load.
+     *
+     * @return nano seconds, {@code 0} if there was no load
+     */
+    public double averageLoadPenalty() {
+        final long loads = loadCount();
+        return loads == 0 ? 0 : (double) totalLoadTime / loads;
+    }
+
+    /**
+     * Estimates a percentile of the load times.
+     * <p>
+     * The histogram has a bucket per power of two, so the result is the upper bound of the bucket of the percentile,
+     * which overestimates it by less than a factor of two.
+     * </p>
+     *
+     * @param percentile between 0 and 100
+     * @return nano seconds, {@code 0} if there was no load
+     */
+    public long loadTimePercentile(final double percentile) {
+        Validate.isTrue(percentile >= 0 && percentile <= 100, "Parameter 'percentile' must be between 0 and 100!");
+        // Ranked within the histogram, because loads completing during the snapshot may be in the counts only.
+        long loads = 0;
+
+        for (final long bucket : loadTimes) {
+            loads += bucket;
+        }
+
+        if (loads == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * loads));
+        long seen = 0;
+
+        for (int i = 0; i < loadTimes.length; ++i) {
+            seen += loadTimes[i];
+
+            if (seen >= rank) {
+                return i == Long.SIZE - 1 ? Long.MAX_VALUE : (1L << i) - 1;
+            }
+        }
+
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Number of entries removed by size, expiry or garbage collection.
+     *
+     * @return not negative
+     */
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+            .add("hitCount", hitCount)
+            .add("missCount", missCount)
+            .add("loadSuccessCount", loadSuccessCount)
+            .add("loadFailureCount", loadFailureCount)
+            .add("totalLoadTime", totalLoadTime)
+            .add("evictionCount", evictionCount)
+            .toString();
+    }
+}
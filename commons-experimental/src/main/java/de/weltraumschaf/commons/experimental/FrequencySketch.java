@@ -0,0 +1,239 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.experimental;
+
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Estimates how often keys were accessed recently.
+ * <p>
+ * Count-min sketch with four 4-bit counters per key, sixteen of them packed into a {@code long}. The estimate is the
+ * minimum of the four counters, so hash collisions only let it overestimate. Once the number of increments reaches ten
+ * times the table size, all counters are halved. So the sketch forgets old popularity and adapts to a changing
+ * workload, while it needs only eight bytes per cached entry.
+ * </p>
+ * <p>
+ * The table starts small and {@link #ensureCapacity(long) grows} with the number of cached entries, because the
+ * maximum of a cache bounded by weight says nothing about the number of its entries. Growing keeps all counts: The
+ * index of a key in the larger table only has more bits, so each element is copied to all elements sharing its lower
+ * bits.
+ * </p>
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@NotThreadSafe
+final class FrequencySketch {
+
+    /**
+     * Greatest counter value.
+     */
+    static final int MAX_FREQUENCY = 15;
+    /**
+     * Clears the highest bit of each counter after shifting right.
+     */
+    private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+    /**
+     * Lowest bit of each counter.
+     */
+    private static final long ONE_MASK = 0x1111_1111_1111_1111L;
+    /**
+     * Seeds of the four hash functions.
+     */
+    private static final long[] SEEDS = {
+        0xc3a5_c85c_97cb_3127L, 0xb492_b66f_be98_f273L, 0x9ae1_6a3b_2f90_404fL, 0xcbf2_9ce4_8422_2325L
+    };
+    /**
+     * Least table length.
+     */
+    private static final int MIN_TABLE_LENGTH = 16;
+    /**
+     * Greatest table length.
+     */
+    private static final int MAX_TABLE_LENGTH = 1 << 30;
+
+    /**
+     * Sixteen counters per element.
+     */
+    private long[] table;
+    /**
+     * Table length minus one.
+     */
+    private int tableMask;
+    /**
+     * Number of increments after which the counters are halved.
+     */
+    private int sampleSize;
+    /**
+     * Number of increments since the last halving.
+     */
+    private int size;
+
+    /**
+     * Creates a sketch of the least size.
+     */
+    FrequencySketch() {
+        super();
+        resize(MIN_TABLE_LENGTH);
+    }
+
+    /**
+     * Grows the table if it has less elements than the expected number of distinct keys.
+     * <p>
+     * The table grows to at least twice its length, so a cache filling up reallocates it only a few times.
+     * </p>
+     *
+     * @param expectedSize expected number of distinct keys
+     */
+    void ensureCapacity(final long expectedSize) {
+        if (expectedSize > table.length && table.length < MAX_TABLE_LENGTH) {
+            resize(tableLength(Math.max(expectedSize, 2L * table.length)));
+        }
+    }
+
+    /**
+     * Number of elements in the table.
+     *
+     * @return power of two
+     */
+    int tableLength() {
+        return table.length;
+    }
+
+    /**
+     * Replaces the table by a larger one with the same counts.
+     *
+     * @param length power of two, greater than the current length
+     */
+    private void resize(final int length) {
+        final long[] old = table;
+        table = new long[length];
+        tableMask = length - 1;
+        sampleSize = (int) Math.min(10L * length, Integer.MAX_VALUE);
+
+        if (null != old) {
+            for (int i = 0; i < length; i += old.length) {
+                System.arraycopy(old, 0, table, i, old.length);
+            }
+        }
+    }
+
+    /**
+     * Computes the power of two table length for a number of keys.
+     *
+     * @param expectedSize expected number of distinct keys
+     * @return power of two between {@link #MIN_TABLE_LENGTH} and {@link #MAX_TABLE_LENGTH}
+     */
+    static int tableLength(final long expectedSize) {
+        // Clamped first, so that rounding up can't overflow.
+        final int clamped = (int) Math.max(MIN_TABLE_LENGTH, Math.min(expectedSize, MAX_TABLE_LENGTH));
+        final int lower = Integer.highestOneBit(clamped);
+        return lower == clamped ? clamped : lower << 1;
+    }
+
+    /**
+     * Estimated number of recent accesses.
+     *
+     * @param key must not be {@code null}
+     * @return between 0 and {@link #MAX_FREQUENCY}
+     */
+    int frequency(final Object key) {
+        final int hash = spread(key.hashCode());
+        final int start = (hash & 3) << 2;
+        int frequency = MAX_FREQUENCY;
+
+        for (int i = 0; i < SEEDS.length; ++i) {
+            final int index = indexOf(hash, i);
+            final int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+
+        return frequency;
+    }
+
+    /**
+     * Records an access.
+     *
+     * @param key must not be {@code null}
+     */
+    void increment(final Object key) {
+        final int hash = spread(key.hashCode());
+        final int start = (hash & 3) << 2;
+        boolean added = false;
+
+        for (int i = 0; i < SEEDS.length; ++i) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Increments a counter unless it is saturated.
+     *
+     * @param index index of the element
+     * @param counter index of the counter in the element
+     * @return {@code false} if saturated
+     */
+    private boolean incrementAt(final int index, final int counter) {
+        final int offset = counter << 2;
+        final long mask = 0xfL << offset;
+
+        if ((table[index] & mask) == mask) {
+            return false;
+        }
+
+        table[index] += 1L << offset;
+        return true;
+    }
+
+    /**
+     * Halves all counters.
+     */
+    private void reset() {
+        int odd = 0;
+
+        for (int i = 0; i < table.length; ++i) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+
+        // Odd counters lose a half increment each.
+        size = (size >>> 1) - (odd >>> 2);
+    }
+
+    /**
+     * Index of the element for a hash function.
+     *
+     * @param hash spread hash of the key
+     * @param function index of the hash function
+     * @return index into the table
+     */
+    private int indexOf(final int hash, final int function) {
+        long index = (hash + SEEDS[function]) * SEEDS[function];
+        index += index >>> 32;
+        return (int) index & tableMask;
+    }
+
+    /**
+     * Improves poor hash codes.
+     *
+     * @param hashCode hash code of the key
+     * @return spread hash
+     */
+    private static int spread(final int hashCode) {
+        int hash = ((hashCode >>> 16) ^ hashCode) * 0x45d9f3b;
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.experimental;
+
+import de.weltraumschaf.commons.validate.Validate;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Stores serialized values by key in direct memory, the off-heap tier of a {@link SoftCache}.
+ * <p>
+ * The memory is allocated in slabs of equal size. Each slab belongs to a size class and is divided into slots of the
+ * class' size, which are powers of two from 64 bytes up to the slab size. A value takes a slot of the smallest class it
+ * fits in, so at most half of a slot is wasted and freed slots are reused as a whole without fragmentation.
+ * </p>
+ * <p>
+ * If no slab can be allocated anymore, a value takes the slot of the least recently used value of its class. Slabs are
+ * never moved to another class.
+ * </p>
+ *
+ * @param <K> type of cache key
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+final class SlabStore<K> {
+
+    /**
+     * Default size of a slab.
+     */
+    static final int DEFAULT_SLAB_SIZE = 1 << 20;
+    /**
+     * Size of the smallest slot.
+     */
+    private static final int MIN_SLOT_SIZE = 64;
+
+    /**
+     * Greatest number of bytes to allocate.
+     */
+    private final long capacity;
+    /**
+     * Size of a slab in bytes.
+     */
+    private final int slabSize;
+    /**
+     * Size classes from the smallest to the biggest slot.
+     */
+    private final SizeClass<K>[] classes;
+    /**
+     * Stored values by key.
+     */
+    private final Map<K, Slot<K>> index = new HashMap<>();
+    /**
+     * Number of allocated bytes.
+     */
+    private long allocated;
+
+    /**
+     * Creates a store with slabs of the default size.
+     *
+     * @param capacity greatest number of bytes to allocate, not less than the slab size
+     */
+    SlabStore(final long capacity) {
+        this(capacity, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param capacity greatest number of bytes to allocate, not less than the slab size
+     * @param slabSize power of two not less than 64
+     */
+    @SuppressWarnings("unchecked")
+    SlabStore(final long capacity, final int slabSize) {
+        super();
+        Validate.isTrue(slabSize >= MIN_SLOT_SIZE && Integer.bitCount(slabSize) == 1,
+            "Parameter 'slabSize' must be a power of two not less than 64!");
+        Validate.isTrue(capacity >= slabSize,
+            String.format("Parameter 'capacity' must not be less than the slab size %d!", slabSize));
+        this.capacity = capacity;
+        this.slabSize = slabSize;
+        classes = (SizeClass<K>[]) new SizeClass<?>[Integer.numberOfTrailingZeros(slabSize / MIN_SLOT_SIZE) + 1];
+
+        for (int i = 0; i < classes.length; ++i) {
+            classes[i] = new SizeClass<>(MIN_SLOT_SIZE << i);
+        }
+    }
+
+    /**
+     * Stores a value, replaces the stored one.
+     * <p>
+     * May evict the least recently used value of the same size class. Does not replace a value written later.
+     * </p>
+     *
+     * @param key must not be {@code null}
+     * @param bytes serialized value, not modified, must not be {@code null}
+     * @param writeTime time the value was written in nano seconds
+     * @param accessTime time the value was read last in nano seconds
+     * @return {@code false} if the value is bigger than a slab, its class has no slot or a newer value is stored
+     */
+    synchronized boolean put(final K key, final ByteBuffer bytes, final long writeTime, final long accessTime) {
+        final Slot<K> stored = index.get(key);
+
+        // Racing writers must not replace a newer value.
+        if (null != stored && stored.writeTime - writeTime > 0) {
+            return false;
+        }
+
+        remove(key);
+        final int length = bytes.remaining();
+
+        if (length > slabSize) {
+            return false;
+        }
+
+        final SizeClass<K> sizeClass = classes[classOf(length)];
+        final Slot<K> slot = allocate(sizeClass, key);
+
+        if (null == slot) {
+            return false;
+        }
+
+        slot.length = length;
+        slot.writeTime = writeTime;
+        slot.accessTime = accessTime;
+        final ByteBuffer target = slot.view();
+        target.put(bytes.duplicate());
+        sizeClass.used.put(key, slot);
+        index.put(key, slot);
+        return true;
+    }
+
+    /**
+     * Reads a stored value.
+     *
+     * @param key must not be {@code null}
+     * @return copy on the heap, {@code null} if not stored
+     */
+    synchronized Stored get(final K key) {
+        final Slot<K> slot = index.get(key);
+
+        if (null == slot) {
+            return null;
+        }
+
+        // Marks it as most recently used.
+        slot.sizeClass.used.get(key);
+        final ByteBuffer copy = ByteBuffer.allocate(slot.length);
+        copy.put(slot.view()).flip();
+        return new Stored(copy, slot.writeTime, slot.accessTime);
+    }
+
+    /**
+     * Removes a stored value.
+     *
+     * @param key must not be {@code null}
+     * @return {@code true} if it was stored
+     */
+    synchronized boolean remove(final K key) {
+        final Slot<K> slot = index.remove(key);
+
+        if (null == slot) {
+            return false;
+        }
+
+        slot.sizeClass.used.remove(key);
+        slot.sizeClass.free.add(slot);
+        return true;
+    }
+
+    /**
+     * Number of stored values.
+     *
+     * @return not less than 0
+     */
+    synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Number of allocated bytes.
+     *
+     * @return not greater than the capacity
+     */
+    synchronized long allocated() {
+        return allocated;
+    }
+
+    /**
+     * Index of the smallest size class a value fits in.
+     *
+     * @param length length of the value
+     * @return index into the classes
+     */
+    private static int classOf(final int length) {
+        if (length <= MIN_SLOT_SIZE) {
+            return 0;
+        }
+
+        return Integer.SIZE - Integer.numberOfLeadingZeros(length - 1) - Integer.numberOfTrailingZeros(MIN_SLOT_SIZE);
+    }
+
+    /**
+     * Takes a free slot, allocates a new slab or evicts the least recently used value of the class.
+     *
+     * @param sizeClass must not be {@code null}
+     * @param key key of the value to store
+     * @return {@code null} if the class has no slot
+     */
+    private Slot<K> allocate(final SizeClass<K> sizeClass, final K key) {
+        if (sizeClass.free.isEmpty() && allocated + slabSize <= capacity) {
+            final ByteBuffer slab = ByteBuffer.allocateDirect(slabSize);
+            allocated += slabSize;
+
+            for (int offset = 0; offset < slabSize; offset += sizeClass.slotSize) {
+                sizeClass.free.add(new Slot<>(sizeClass, slab, offset));
+            }
+        }
+
+        if (sizeClass.free.isEmpty()) {
+            final Iterator<Slot<K>> eldest = sizeClass.used.values().iterator();
+
+            if (!eldest.hasNext()) {
+                return null;
+            }
+
+            final Slot<K> victim = eldest.next();
+            remove(victim.key);
+        }
+
+        final Slot<K> slot = sizeClass.free.remove(sizeClass.free.size() - 1);
+        slot.key = key;
+        return slot;
+    }
+
+    /**
+     * Serialized value and its times read from the store.
+     */
+    static final class Stored {
+
+        /**
+         * Serialized value.
+         */
+        final ByteBuffer bytes;
+        /**
+         * Time the value was written in nano seconds.
+         */
+        final long writeTime;
+        /**
+         * Time the value was read last in nano seconds.
+         */
+        final long accessTime;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param bytes must not be {@code null}
+         * @param writeTime time the value was written in nano seconds
+         * @param accessTime time the value was read last in nano seconds
+         */
+        Stored(final ByteBuffer bytes, final long writeTime, final long accessTime) {
+            super();
+            this.bytes = bytes;
+            this.writeTime = writeTime;
+            this.accessTime = accessTime;
+        }
+    }
+
+    /**
+     * Slots of one size.
+     *
+     * @param <K> type of cache key
+     */
+    private static final class SizeClass<K> {
+
+        /**
+         * Size of the slots in bytes.
+         */
+        private final int slotSize;
+        /**
+         * Free slots.
+         */
+        private final List<Slot<K>> free = new ArrayList<>();
+        /**
+         * Used slots from least to most recently used.
+         */
+        private final Map<K, Slot<K>> used = new LinkedHashMap<>(16, 0.75f, true);
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param slotSize size of the slots in bytes
+         */
+        SizeClass(final int slotSize) {
+            super();
+            this.slotSize = slotSize;
+        }
+    }
+
+    /**
+     * Part of a slab holding one value.
+     *
+     * @param <K> type of cache key
+     */
+    private static final class Slot<K> {
+
+        /**
+         * Class of the slot.
+         */
+        private final SizeClass<K> sizeClass;
+        /**
+         * Slab of the slot.
+         */
+        private final ByteBuffer slab;
+        /**
+         * Position of the slot in the slab.
+         */
+        private final int offset;
+        /**
+         * Key of the stored value.
+         */
+        private K key;
+        /**
+         * Length of the stored value.
+         */
+        private int length;
+        /**
+         * Time the value was written in nano seconds.
+         */
+        private long writeTime;
+        /**
+         * Time the value was read last in nano seconds.
+         */
+        private long accessTime;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param sizeClass class of the slot
+         * @param slab slab of the slot
+         * @param offset position of the slot in the slab
+         */
+        Slot(final SizeClass<K> sizeClass, final ByteBuffer slab, final int offset) {
+            super();
+            this.sizeClass = sizeClass;
+            this.slab = slab;
+            this.offset = offset;
+        }
+
+        /**
+         * View of the stored value's bytes.
+         *
+         * @return new buffer
+         */
+        ByteBuffer view() {
+            final ByteBuffer view = slab.duplicate();
+            view.limit(offset + length).position(offset);
+            return view.slice();
+        }
+    }
+}
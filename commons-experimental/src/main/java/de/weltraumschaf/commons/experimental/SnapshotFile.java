@@ -0,0 +1,251 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.experimental;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * File holding a snapshot of the entries of a {@link SoftCache}.
+ * <p>
+ * The file starts with a magic number, the format version, the wall clock time of writing and the number of entries.
+ * Each entry is the age of its value in nano seconds followed by the key and the value, each serialized by a
+ * {@link SoftCache.Codec codec} and prefixed with its length. Each write goes to its own temporary file first which is
+ * moved then, so readers never see a partial snapshot and concurrent writers do not interfere. The last move wins. It is
+ * read memory mapped.
+ * </p>
+ *
+ * @param <K> type of cache key
+ * @param <V> type of cached value
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+final class SnapshotFile<K, V> {
+
+    /**
+     * Marks snapshot files.
+     */
+    private static final int MAGIC = 0x53434153;
+    /**
+     * Version of the format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Path of the file.
+     */
+    private final Path file;
+    /**
+     * Serializes the keys.
+     */
+    private final SoftCache.Codec<K> keys;
+    /**
+     * Serializes the values.
+     */
+    private final SoftCache.Codec<V> values;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param file must not be {@code null}
+     * @param keys must not be {@code null}
+     * @param values must not be {@code null}
+     */
+    SnapshotFile(final Path file, final SoftCache.Codec<K> keys, final SoftCache.Codec<V> values) {
+        super();
+        this.file = file;
+        this.keys = keys;
+        this.values = values;
+    }
+
+    /**
+     * Replaces the file with the given entries.
+     *
+     * @param entries must not be {@code null}
+     * @throws IOException if the file can't be written
+     */
+    void write(final List<Entry<K, V>> entries) throws IOException {
+        final Path absolute = file.toAbsolutePath();
+        final Path temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(entries.size());
+
+                for (final Entry<K, V> entry : entries) {
+                    out.writeLong(entry.ageNanos);
+                    write(out, keys.encode(entry.key));
+                    write(out, values.encode(entry.value));
+                }
+            }
+
+            try {
+                Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException ex) {
+                Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            // Only left if writing or moving failed.
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Writes serialized bytes prefixed with their length.
+     *
+     * @param out must not be {@code null}
+     * @param bytes bytes between position and limit, not modified
+     * @throws IOException if the bytes can't be written
+     */
+    private static void write(final DataOutputStream out, final ByteBuffer bytes) throws IOException {
+        out.writeInt(bytes.remaining());
+
+        if (bytes.hasArray()) {
+            out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        } else {
+            final byte[] copy = new byte[bytes.remaining()];
+            bytes.duplicate().get(copy);
+            out.write(copy);
+        }
+    }
+
+    /**
+     * Whether the file exists.
+     *
+     * @return {@code true} if there is a snapshot to read
+     */
+    boolean exists() {
+        return Files.exists(file);
+    }
+
+    /**
+     * Reads the entries in the order they were written.
+     * <p>
+     * The ages include the time since the file was written.
+     * </p>
+     *
+     * @param restorer receives each entry, must not be {@code null}
+     * @return number of entries read
+     * @throws IOException if the file can't be read or is no valid snapshot
+     */
+    int read(final Restorer<K, V> restorer) throws IOException {
+        final ByteBuffer map;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (map.getInt() != MAGIC || map.getInt() != VERSION) {
+                throw new IOException(String.format("File '%s' is not a cache snapshot!", file));
+            }
+
+            final long elapsed = TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - map.getLong()));
+            final int count = map.getInt();
+
+            for (int i = 0; i < count; ++i) {
+                final long age = map.getLong();
+                final K key = keys.decode(slice(map));
+                final V value = values.decode(slice(map));
+                restorer.restore(key, value, age + elapsed);
+            }
+
+            return count;
+        } catch (final BufferUnderflowException | IllegalArgumentException ex) {
+            throw new IOException(String.format("Snapshot '%s' is truncated!", file), ex);
+        }
+    }
+
+    /**
+     * Reads serialized bytes prefixed with their length.
+     *
+     * @param map must not be {@code null}
+     * @return view of the bytes
+     */
+    private static ByteBuffer slice(final ByteBuffer map) {
+        final int length = map.getInt();
+        final ByteBuffer bytes = map.duplicate();
+        bytes.limit(map.position() + length);
+        map.position(map.position() + length);
+        return bytes.slice();
+    }
+
+    /**
+     * Entry of a snapshot.
+     *
+     * @param <K> type of cache key
+     * @param <V> type of cached value
+     */
+    static final class Entry<K, V> {
+
+        /**
+         * Key of the entry.
+         */
+        private final K key;
+        /**
+         * Value of the entry.
+         */
+        private final V value;
+        /**
+         * Time since the value was written in nano seconds.
+         */
+        private final long ageNanos;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param key must not be {@code null}
+         * @param value must not be {@code null}
+         * @param ageNanos time since the value was written in nano seconds
+         */
+        Entry(final K key, final V value, final long ageNanos) {
+            super();
+            this.key = key;
+            this.value = value;
+            this.ageNanos = ageNanos;
+        }
+    }
+
+    /**
+     * Receives the entries read from a snapshot.
+     *
+     * @param <K> type of cache key
+     * @param <V> type of cached value
+     */
+    interface Restorer<K, V> {
+
+        /**
+         * Restores an entry.
+         *
+         * @param key never {@code null}
+         * @param value never {@code null}
+         * @param ageNanos time since the value was written in nano seconds
+         */
+        void restore(K key, V value, long ageNanos);
+    }
+}
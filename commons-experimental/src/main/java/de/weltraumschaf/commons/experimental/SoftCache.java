@@ -12,12 +12,74 @@
 package de.weltraumschaf.commons.experimental;
 
 import de.weltraumschaf.commons.validate.Validate;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
 
 /**
  * A simple in memory cache based on {@link SoftReference soft reference}.
+ * <p>
+ * By default the cache is unbounded and holds its values softly, so the garbage collector decides what to drop. Which
+ * entries survive depends on the heap size and the GC then. For a predictable hit rate create a bounded cache with
+ * {@link #SoftCache(long)} or {@link #SoftCache(long, Weigher)}. It holds its values strongly and evicts with the
+ * <a href="https://arxiv.org/abs/1512.00727">Window TinyLFU</a> policy: an entry only displaces another one if it was
+ * accessed more often recently, so one time scans do not flush the frequently used entries.
+ * </p>
+ * <p>
+ * Mappings whose values were cleared by the garbage collector are removed incrementally on writes and misses, or by
+ * {@link #cleanUp()}. So the keys of cleared values do not pile up under a churn of unique keys.
+ * </p>
+ * <p>
+ * Missing values are loaded by the {@link Finder finder} once per key: threads which miss the same key while it is
+ * loaded wait for the result of the loading thread. Failed loads are not cached, the next read tries again.
+ * {@link #getAll(Collection)} loads all missing keys by one call of the {@link BulkFinder bulk finder}, if set, and
+ * shares the loads in flight with other reads, too.
+ * </p>
+ * <p>
+ * Entries may expire a fixed time after they were written or last read. Reads treat expired entries as missing. Writes
+ * and misses additionally check a few entries each and remove the expired ones, so no thread per entry is needed. With
+ * {@link #refreshAfterWrite(long, TimeUnit) refresh after write} a read of an old entry returns its value and reloads
+ * it in the background.
+ * </p>
+ * <p>
+ * An optional {@link #offHeap(long, Codec) off-heap tier} keeps serialized values in direct memory, which the garbage
+ * collector does not scan. A bounded cache moves its evicted values there. An unbounded cache writes each value there,
+ * too, because once the garbage collector cleared a value it is gone. Misses look into the off-heap tier before they
+ * ask the finder.
+ * </p>
+ * <p>
+ * The cache counts hits, misses, loads and evictions with striped counters, see {@link #stats()}.
+ * </p>
+ * <p>
+ * To start warm after a restart, {@link #writeSnapshot(int) write a snapshot} of the hottest entries to a file on
+ * shutdown or periodically, and {@link #readSnapshot() read it} in the background on startup.
+ * </p>
+ * <p>
+ * Reads of a bounded cache record the access only if the eviction lock is free. Under contention some accesses are
+ * dropped, which hardly changes the eviction order, but readers never block on each other.
+ * </p>
  *
  * @param <K> type of cache key
  * @param <V> type of cached value
@@ -26,14 +88,116 @@ import java.util.concurrent.ConcurrentHashMap;
 @Experimental
 public class SoftCache<K, V> {
 
+    /**
+     * Maximum number of entries checked for expiry per write or miss.
+     */
+    private static final int SWEEP_LIMIT = 16;
     /**
      * Holds the cached data.
      */
-    private final Map<K, SoftReference<V>> data = new ConcurrentHashMap<>();
+    private final Map<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    /**
+     * Loads in flight by key.
+     */
+    private final Map<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    /**
+     * Receives the references of values cleared by the garbage collector.
+     */
+    private final ReferenceQueue<V> clearedValues = new ReferenceQueue<>();
+    /**
+     * Counts hits, misses, loads and evictions.
+     */
+    private final StatsCounter stats = new StatsCounter();
+    /**
+     * Eviction policy, {@code null} if unbounded.
+     */
+    private final WindowTinyLfu<K, V> policy;
+    /**
+     * Weighs the entries of a bounded cache.
+     */
+    private final Weigher<? super K, ? super V> weigher;
+    /**
+     * Guards the policy.
+     */
+    private final ReentrantLock evictionLock = new ReentrantLock();
     /**
      * Try to finds values if a key not present yet in cache.
      */
     private Finder<K, V> finder = new NullFinder<>();
+    /**
+     * Finds the values of several missing keys at once, {@code null} to ask the finder for each key.
+     */
+    private BulkFinder<K, V> bulkFinder;
+    /**
+     * Runs the refreshes.
+     */
+    private Executor executor = ForkJoinPool.commonPool();
+    /**
+     * Source of the time in nano seconds.
+     */
+    private LongSupplier ticker = System::nanoTime;
+    /**
+     * Time to live after write in nano seconds, 0 for never.
+     */
+    private long expireAfterWriteNanos;
+    /**
+     * Time to live after the last read in nano seconds, 0 for never.
+     */
+    private long expireAfterAccessNanos;
+    /**
+     * Time after write when a read refreshes an entry in nano seconds, 0 for never.
+     */
+    private long refreshAfterWriteNanos;
+    /**
+     * Off-heap tier, {@code null} if none.
+     */
+    private SlabStore<K> offHeap;
+    /**
+     * Serializes values for the off-heap tier.
+     */
+    private Codec<V> codec;
+    /**
+     * File of the snapshots, {@code null} if none.
+     */
+    private SnapshotFile<K, V> snapshot;
+    /**
+     * Position of the amortized search for expired entries, guarded by the eviction lock.
+     */
+    private Iterator<Node<K, V>> sweeper;
+
+    /**
+     * Creates an unbounded cache which holds its values softly.
+     */
+    public SoftCache() {
+        super();
+        policy = null;
+        weigher = null;
+    }
+
+    /**
+     * Creates a cache which holds at most the given number of entries.
+     *
+     * @param maximumSize not less than 0
+     */
+    public SoftCache(final long maximumSize) {
+        this(maximumSize, (key, value) -> 1);
+    }
+
+    /**
+     * Creates a cache whose entries weigh at most the given total weight.
+     * <p>
+     * An entry heavier than the maximum is evicted immediately.
+     * </p>
+     *
+     * @param maximumWeight not less than 0
+     * @param weigher must not be {@code null}
+     */
+    public SoftCache(final long maximumWeight, final Weigher<? super K, ? super V> weigher) {
+        super();
+        Validate.isTrue(maximumWeight >= 0, "Parameter 'maximumWeight' must not be less than 0!");
+        this.weigher = Validate.notNull(weigher, "weigher");
+        policy = new WindowTinyLfu<>(maximumWeight);
+    }
 
     /**
      * Get a value from the cache.
@@ -50,19 +214,94 @@ public class SoftCache<K, V> {
             throw new NullPointerException("Parameter 'key' must not be null!");
         }
 
-        final SoftReference<V> reference = data.get(key);
+        final V cached = cached(key);
 
-        if (null == reference || null == reference.get()) {
-            final V value = finder.find(key);
+        if (null == cached) {
+            stats.recordMisses(1);
+            return load(key);
+        }
 
-            if (null == value) {
-                throw new NullPointerException(String.format("No value fond for key '%s'!", key));
+        stats.recordHits(1);
+        return cached;
+    }
+
+    /**
+     * Get the values of several keys from the cache.
+     * <p>
+     * The missing keys are loaded by one call of the {@link #bulkFinder(BulkFinder) bulk finder}, or by the finder for
+     * each key if no bulk finder is set. Keys which are already loaded by other threads are not loaded again, but their
+     * results are awaited.
+     * </p>
+     *
+     * @param keys must not be {@code null} or contain {@code null}
+     * @return values by key in the order of the given keys, keys without value are missing, never {@code null}
+     */
+    public Map<K, V> getAll(final Collection<? extends K> keys) {
+        Validate.notNull(keys, "keys");
+        final Map<K, V> values = new LinkedHashMap<>();
+        final Map<K, CompletableFuture<V>> claimed = new LinkedHashMap<>();
+        final Map<K, CompletableFuture<V>> awaited = new LinkedHashMap<>();
+
+        for (final K key : keys) {
+            if (null == key) {
+                throw new NullPointerException("Parameter 'keys' must not contain null!");
+            }
+
+            if (values.containsKey(key) || claimed.containsKey(key) || awaited.containsKey(key)) {
+                continue;
+            }
+
+            final V cached = cached(key);
+
+            if (null != cached) {
+                values.put(key, cached);
+                continue;
+            }
+
+            final CompletableFuture<V> created = new CompletableFuture<>();
+            final CompletableFuture<V> inFlight = claim(key, created);
+
+            if (null == inFlight) {
+                claimed.put(key, created);
+            } else {
+                awaited.put(key, inFlight);
+            }
+        }
+
+        stats.recordHits(values.size());
+        stats.recordMisses(claimed.size() + awaited.size());
+
+        if (!claimed.isEmpty()) {
+            maintain();
+
+            try {
+                values.putAll(loadAll(claimed));
+            } finally {
+                for (final Map.Entry<K, CompletableFuture<V>> load : claimed.entrySet()) {
+                    loading.remove(load.getKey(), load.getValue());
+                }
+            }
+        }
+
+        for (final Map.Entry<K, CompletableFuture<V>> load : awaited.entrySet()) {
+            final V value = await(load.getValue());
+
+            if (null != value) {
+                values.put(load.getKey(), value);
             }
-            add(key, value);
-            return value;
         }
 
-        return reference.get();
+        final Map<K, V> ordered = new LinkedHashMap<>();
+
+        for (final K key : keys) {
+            final V value = values.get(key);
+
+            if (null != value) {
+                ordered.put(key, value);
+            }
+        }
+
+        return Collections.unmodifiableMap(ordered);
     }
 
     /**
@@ -74,11 +313,136 @@ public class SoftCache<K, V> {
     public void add(final K key, final V value) {
         Validate.notNull(key, "key");
         Validate.notNull(value, "value");
-        final SoftReference<V> reference = data.put(key, new SoftReference<>(value));
+        final long now = ticker.getAsLong();
+        store(key, value, now, now);
+    }
+
+    /**
+     * Adds a value to the heap and updates the off-heap tier.
+     *
+     * @param key must not be {@code null}
+     * @param value must not be {@code null}
+     * @param writeTime time the value was written in nano seconds
+     * @param accessTime time the value was read last in nano seconds
+     */
+    private void store(final K key, final V value, final long writeTime, final long accessTime) {
+        if (null != offHeap && null != policy) {
+            // Removed before, because the put may evict the value to the off-heap tier right away.
+            offHeap.remove(key);
+        }
+
+        put(key, value, writeTime, accessTime);
+
+        if (null != offHeap && null == policy) {
+            offHeap.put(key, codec.encode(value), writeTime, accessTime);
+        }
+    }
+
+    /**
+     * Adds a value to the heap.
+     *
+     * @param key must not be {@code null}
+     * @param value must not be {@code null}
+     * @param writeTime time the value was written in nano seconds
+     * @param accessTime time the value was read last in nano seconds
+     */
+    private void put(final K key, final V value, final long writeTime, final long accessTime) {
+        if (null == policy) {
+            final Node<K, V> node = new Node<>(key, value, 0, clearedValues, writeTime);
+            node.accessTime = accessTime;
+            clear(data.put(key, node));
+            maintain();
+            return;
+        }
+
+        final int weight = weigher.weigh(key, value);
+        Validate.isTrue(weight >= 0, "Weight must not be less than 0!");
+        final Node<K, V> node = new Node<>(key, value, weight, null, writeTime);
+        node.accessTime = accessTime;
+        final Node<K, V> replaced = data.put(key, node);
+        final List<Node<K, V>> evicted = new ArrayList<>();
+        evictionLock.lock();
+
+        try {
+            if (null != replaced) {
+                policy.remove(replaced);
+            }
+
+            // A concurrent add or remove may have replaced the node before we got the lock.
+            if (data.get(key) == node) {
+                policy.add(node, evicted::add);
+            }
+
+            // Victims replaced concurrently are not demoted.
+            evicted.removeIf(victim -> !data.remove(victim.key, victim));
+        } finally {
+            evictionLock.unlock();
+        }
+
+        if (!evicted.isEmpty()) {
+            stats.recordEvictions(evicted.size());
+        }
+
+        demote(evicted);
+        maintain();
+    }
+
+    /**
+     * Moves evicted values to the off-heap tier.
+     *
+     * @param evicted must not be {@code null}
+     */
+    private void demote(final List<Node<K, V>> evicted) {
+        if (null == offHeap) {
+            return;
+        }
+
+        for (final Node<K, V> node : evicted) {
+            final V value = node.value();
+
+            if (null != value) {
+                offHeap.put(node.key, codec.encode(value), node.writeTime, node.accessTime);
+            }
+        }
+    }
+
+    /**
+     * Moves a value from the off-heap tier to the heap.
+     * <p>
+     * A bounded cache removes it from the off-heap tier, an unbounded one keeps it there in case the garbage collector
+     * clears it again.
+     * </p>
+     *
+     * @param key must not be {@code null}
+     * @return {@code null} if not stored off-heap or expired
+     */
+    private V promote(final K key) {
+        if (null == offHeap) {
+            return null;
+        }
+
+        final SlabStore.Stored stored = offHeap.get(key);
+
+        if (null == stored) {
+            return null;
+        }
+
+        final long now = ticker.getAsLong();
+
+        if (isExpired(stored.writeTime, stored.accessTime, now)) {
+            offHeap.remove(key);
+            return null;
+        }
 
-        if (null != reference) {
-            reference.clear();
+        final V value = codec.decode(stored.bytes);
+
+        if (null != policy) {
+            // Removed before, because the put may evict the value to the off-heap tier again.
+            offHeap.remove(key);
         }
+
+        put(key, value, stored.writeTime, now);
+        return value;
     }
 
     /**
@@ -91,10 +455,108 @@ public class SoftCache<K, V> {
             throw new NullPointerException("Parameter 'key' must not be null!");
         }
 
-        final SoftReference<V> reference = data.remove(key);
+        final Node<K, V> node = data.remove(key);
+
+        if (null != node) {
+            discard(node);
+        }
+
+        if (null != offHeap) {
+            offHeap.remove(key);
+        }
+
+        maintain();
+    }
+
+    /**
+     * Removes value from cache if the key is mapped to it.
+     *
+     * @param key must not be {@code null}
+     * @param value must not be {@code null}
+     * @return {@code true} if removed
+     */
+    public boolean remove(final K key, final V value) {
+        Validate.notNull(key, "key");
+        Validate.notNull(value, "value");
+        final Node<K, V> node = data.get(key);
+
+        if (null == node || !value.equals(node.value()) || !data.remove(key, node)) {
+            return false;
+        }
+
+        discard(node);
+
+        if (null != offHeap) {
+            offHeap.remove(key);
+        }
+
+        maintain();
+        return true;
+    }
+
+    /**
+     * Number of cached entries.
+     * <p>
+     * Removes the mappings of values cleared by the garbage collector before, so this is an upper bound of the values
+     * which are still reachable.
+     * </p>
+     *
+     * @return not less than 0
+     */
+    public int size() {
+        removeCleared();
+        return data.size();
+    }
+
+    /**
+     * Removes the mappings of values cleared by the garbage collector and of expired entries.
+     * <p>
+     * This is done incrementally on writes and misses anyway. Call it to release the memory of a cache which is
+     * neither written nor missed for a long time.
+     * </p>
+     */
+    public void cleanUp() {
+        removeCleared();
+
+        if (expires()) {
+            final long now = ticker.getAsLong();
+
+            for (final Node<K, V> node : data.values()) {
+                if (isExpired(node, now)) {
+                    expire(node);
+                }
+            }
+        }
+    }
+
+    /**
+     * Snapshot of the statistics.
+     *
+     * @return never {@code null}
+     */
+    public CacheStats stats() {
+        return stats.snapshot();
+    }
+
+    /**
+     * Total weight of the cached entries.
+     * <p>
+     * For a cache bounded by size this is the number of entries. An unbounded cache has no weight.
+     * </p>
+     *
+     * @return not less than 0
+     */
+    public long weightedSize() {
+        if (null == policy) {
+            return 0;
+        }
+
+        evictionLock.lock();
 
-        if (null != reference) {
-            reference.clear();
+        try {
+            return policy.weightedSize();
+        } finally {
+            evictionLock.unlock();
         }
     }
 
@@ -108,34 +570,956 @@ public class SoftCache<K, V> {
     }
 
     /**
-     * Implementations of this interface may be used to provide values not in the cache yet.
+     * Set the bulk finder for {@link #getAll(Collection)}.
      *
-     * @param <K> type of cache key
-     * @param <V> type of cached value
+     * @param f must not be {@code null}
      */
-    public interface Finder<K, V> {
+    public void bulkFinder(final BulkFinder<K, V> f) {
+        bulkFinder = Validate.notNull(f, "f");
+    }
 
-        /**
-         * Try to find a value for the key not already in the cache.
-         *
-         * @param key must not be {@code null}
-         * @return may be {@code null}
-         */
-        V find(K key);
+    /**
+     * Add an off-heap tier of the given capacity.
+     * <p>
+     * The memory is allocated in slabs of 1 MiB as needed, values bigger than a slab are not stored off-heap. If the
+     * tier is full, values displace the least recently used ones of similar size. Set it before the cache is used.
+     * </p>
+     *
+     * @param capacity greatest number of bytes, not less than 1 MiB
+     * @param c serializes the values, must not be {@code null}
+     */
+    public void offHeap(final long capacity, final Codec<V> c) {
+        codec = Validate.notNull(c, "c");
+        offHeap = new SlabStore<>(capacity);
     }
 
     /**
-     * Default implementation which does not find anything.
+     * Set the file for snapshots of the cache.
      *
-     * @param <K> type of cache key
-     * @param <V> type of cached value
+     * @param file must not be {@code null}
+     * @param keys serializes the keys, must not be {@code null}
+     * @param values serializes the values, must not be {@code null}
      */
-    private static final class NullFinder<K, V> implements Finder<K, V> {
+    public void snapshot(final Path file, final Codec<K> keys, final Codec<V> values) {
+        snapshot = new SnapshotFile<>(
+            Validate.notNull(file, "file"), Validate.notNull(keys, "keys"), Validate.notNull(values, "values"));
+    }
 
-        @Override
-        public V find(final K key) {
-            return null;
+    /**
+     * Writes the hottest entries to the {@link #snapshot(Path, Codec, Codec) snapshot file}.
+     * <p>
+     * A bounded cache picks the entries accessed most often recently, an unbounded one those read or written last.
+     * The file is replaced atomically, so call it on shutdown or periodically while the cache is used.
+     * </p>
+     *
+     * @param maximumEntries greatest number of entries to write, not less than 0
+     * @return number of written entries
+     * @throws IOException if the file can't be written
+     */
+    public int writeSnapshot(final int maximumEntries) throws IOException {
+        Validate.isTrue(maximumEntries >= 0, "Parameter 'maximumEntries' must not be less than 0!");
+        final List<SnapshotFile.Entry<K, V>> entries = hottest(maximumEntries);
+        snapshotFile().write(entries);
+        return entries.size();
+    }
+
+    /**
+     * Reads the {@link #snapshot(Path, Codec, Codec) snapshot file} in the background by the
+     * {@link #executor(Executor) executor}.
+     * <p>
+     * Entries are restored in the order of their hotness, so the cache serves hits while the rest is read. Keys which
+     * are cached or loaded already and expired entries are skipped.
+     * </p>
+     *
+     * @return completes with the number of read entries, 0 if there is no snapshot
+     */
+    public CompletableFuture<Integer> readSnapshot() {
+        final SnapshotFile<K, V> file = snapshotFile();
+
+        return CompletableFuture.supplyAsync(() -> {
+            if (!file.exists()) {
+                return 0;
+            }
+
+            try {
+                return file.read(this::restore);
+            } catch (final IOException ex) {
+                throw new CompletionException(ex);
+            }
+        }, executor);
+    }
+
+    /**
+     * The snapshot file.
+     *
+     * @return never {@code null}
+     */
+    private SnapshotFile<K, V> snapshotFile() {
+        if (null == snapshot) {
+            throw new IllegalStateException("No snapshot file set!");
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Selects the hottest entries.
+     *
+     * @param maximumEntries greatest number of entries
+     * @return from the hottest to the coldest entry
+     */
+    private List<SnapshotFile.Entry<K, V>> hottest(final int maximumEntries) {
+        final long now = ticker.getAsLong();
+        final List<Hotness<K, V>> candidates = new ArrayList<>();
+
+        for (final Node<K, V> node : data.values()) {
+            final V value = node.value();
+
+            if (null != value && !isExpired(node, now)) {
+                candidates.add(new Hotness<>(node, value, frequency(node.key)));
+            }
         }
 
+        candidates.sort(Comparator.<Hotness<K, V>>comparingInt(candidate -> candidate.frequency)
+            .thenComparingLong(candidate -> candidate.node.accessTime)
+            .reversed());
+        final List<SnapshotFile.Entry<K, V>> hottest = new ArrayList<>();
+
+        for (final Hotness<K, V> candidate : candidates.subList(0, Math.min(maximumEntries, candidates.size()))) {
+            hottest.add(new SnapshotFile.Entry<>(candidate.node.key, candidate.value, now - candidate.node.writeTime));
+        }
+
+        return hottest;
+    }
+
+    /**
+     * Estimated number of recent accesses of a key.
+     *
+     * @param key must not be {@code null}
+     * @return 0 if unbounded
+     */
+    private int frequency(final K key) {
+        if (null == policy) {
+            return 0;
+        }
+
+        evictionLock.lock();
+
+        try {
+            return policy.frequency(key);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Restores an entry read from a snapshot unless the key is cached or loaded already.
+     *
+     * @param key must not be {@code null}
+     * @param value must not be {@code null}
+     * @param ageNanos time since the value was written in nano seconds
+     */
+    private void restore(final K key, final V value, final long ageNanos) {
+        final Restore<V> created = new Restore<>();
+
+        if (null != loading.putIfAbsent(key, created)) {
+            return;
+        }
+
+        try {
+            final Node<K, V> node = data.get(key);
+            final long now = ticker.getAsLong();
+
+            if ((null == node || null == node.value()) && !isExpired(now - ageNanos, now - ageNanos, now)) {
+                store(key, value, now - ageNanos, now);
+            }
+        } finally {
+            loading.remove(key, created);
+            created.complete(null);
+        }
+    }
+
+    /**
+     * Claims the load of a key unless another thread loads it already.
+     * <p>
+     * Restores are waited for, but not taken as loads: They neither ask the finder nor fail on behalf of the reader.
+     * So the key is claimed again afterwards, and the claiming load finds the restored value cached.
+     * </p>
+     *
+     * @param key must not be {@code null}
+     * @param created the load to claim, must not be {@code null}
+     * @return the load of another thread, {@code null} if claimed
+     */
+    private CompletableFuture<V> claim(final K key, final CompletableFuture<V> created) {
+        while (true) {
+            final CompletableFuture<V> inFlight = loading.putIfAbsent(key, created);
+
+            if (!(inFlight instanceof Restore)) {
+                return inFlight;
+            }
+
+            inFlight.join();
+        }
+    }
+
+    /**
+     * Set the executor which refreshes entries.
+     * <p>
+     * Defaults to the {@link ForkJoinPool#commonPool() common pool}. Use a dedicated one if the finder blocks on I/O.
+     * </p>
+     *
+     * @param e must not be {@code null}
+     */
+    public void executor(final Executor e) {
+        executor = Validate.notNull(e, "e");
+    }
+
+    /**
+     * Expire entries a fixed time after they were added or loaded.
+     * <p>
+     * Set it before the cache is used.
+     * </p>
+     *
+     * @param duration greater than 0
+     * @param unit must not be {@code null}
+     */
+    public void expireAfterWrite(final long duration, final TimeUnit unit) {
+        expireAfterWriteNanos = toNanos(duration, unit);
+    }
+
+    /**
+     * Expire entries a fixed time after they were added, loaded or read last.
+     * <p>
+     * Set it before the cache is used.
+     * </p>
+     *
+     * @param duration greater than 0
+     * @param unit must not be {@code null}
+     */
+    public void expireAfterAccess(final long duration, final TimeUnit unit) {
+        expireAfterAccessNanos = toNanos(duration, unit);
+    }
+
+    /**
+     * Refresh entries which are read a fixed time after they were added or loaded.
+     * <p>
+     * The read returns the old value and the finder reloads it in the background by the {@link #executor(Executor)
+     * executor}. If the reload fails, the old value stays until it expires. Set it before the cache is used.
+     * </p>
+     *
+     * @param duration greater than 0
+     * @param unit must not be {@code null}
+     */
+    public void refreshAfterWrite(final long duration, final TimeUnit unit) {
+        refreshAfterWriteNanos = toNanos(duration, unit);
+    }
+
+    /**
+     * Set the source of time.
+     * <p>
+     * Only for testing.
+     * </p>
+     *
+     * @param t must not be {@code null}
+     */
+    void ticker(final LongSupplier t) {
+        ticker = Validate.notNull(t, "t");
+    }
+
+    /**
+     * Converts a duration into nano seconds.
+     *
+     * @param duration greater than 0
+     * @param unit must not be {@code null}
+     * @return greater than 0
+     */
+    private static long toNanos(final long duration, final TimeUnit unit) {
+        Validate.isTrue(duration > 0, "Parameter 'duration' must be greater than 0!");
+        return Validate.notNull(unit, "unit").toNanos(duration);
+    }
+
+    /**
+     * Reads a cached value and records the access.
+     *
+     * @param key must not be {@code null}
+     * @return {@code null} if not cached
+     */
+    private V cached(final K key) {
+        final Node<K, V> node = data.get(key);
+        final V value = null == node ? null : node.value();
+
+        if (null == value) {
+            return null;
+        }
+
+        if (expires() || null != snapshot) {
+            final long now = ticker.getAsLong();
+
+            if (isExpired(node, now)) {
+                expire(node);
+                return null;
+            }
+
+            // Snapshots pick the entries read last if there are no frequencies.
+            if (expireAfterAccessNanos > 0 || null != snapshot) {
+                node.accessTime = now;
+            }
+
+            if (refreshAfterWriteNanos > 0 && now - node.writeTime >= refreshAfterWriteNanos) {
+                refresh(node);
+            }
+        }
+
+        recordRead(node);
+        return value;
+    }
+
+    /**
+     * Reloads the value of an entry in the background unless it is loaded already.
+     *
+     * @param node must not be {@code null}
+     */
+    private void refresh(final Node<K, V> node) {
+        final CompletableFuture<V> created = new CompletableFuture<>();
+
+        if (null != loading.putIfAbsent(node.key, created)) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> {
+                try {
+                    final V value = find(node.key);
+
+                    // Do not overwrite newer values or resurrect removed ones.
+                    if (null != value && data.get(node.key) == node) {
+                        add(node.key, value);
+                    }
+
+                    created.complete(value);
+                } catch (final RuntimeException | Error ex) {
+                    created.completeExceptionally(ex);
+                } finally {
+                    loading.remove(node.key, created);
+                }
+            });
+        } catch (final RejectedExecutionException ex) {
+            loading.remove(node.key, created);
+            created.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Loads a missing value, or waits for the thread which already loads it.
+     * <p>
+     * Loads complete with {@code null} if the finder did not find a value.
+     * </p>
+     * <p>
+     * The finder must not read the loaded key from this cache, or it waits for itself.
+     * </p>
+     *
+     * @param key must not be {@code null}
+     * @return never {@code null}
+     */
+    private V load(final K key) {
+        final CompletableFuture<V> created = new CompletableFuture<>();
+        final CompletableFuture<V> inFlight = claim(key, created);
+
+        if (null != inFlight) {
+            return found(key, await(inFlight));
+        }
+
+        maintain();
+
+        try {
+            // Another thread may have finished loading between our miss and claiming the load.
+            V value = cached(key);
+
+            if (null == value) {
+                value = promote(key);
+            }
+
+            if (null == value) {
+                value = find(key);
+
+                if (null != value) {
+                    add(key, value);
+                }
+            }
+
+            // Waiting threads throw themselves if nothing was found.
+            created.complete(value);
+            return found(key, value);
+        } catch (final RuntimeException | Error ex) {
+            created.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            loading.remove(key, created);
+        }
+    }
+
+    /**
+     * Loads the values of claimed keys, by the bulk finder if set.
+     * <p>
+     * Completes the claimed loads, with {@code null} for keys without value.
+     * </p>
+     *
+     * @param claimed loads claimed by the calling thread, must not be {@code null}
+     * @return loaded values by key, never {@code null}
+     */
+    private Map<K, V> loadAll(final Map<K, CompletableFuture<V>> claimed) {
+        final Map<K, V> loaded = new LinkedHashMap<>();
+
+        try {
+            final Set<K> missing = new LinkedHashSet<>();
+
+            for (final K key : claimed.keySet()) {
+                // Another thread may have finished loading between our miss and claiming the load.
+                final V cached = cached(key);
+                final V value = null == cached ? promote(key) : cached;
+
+                if (null == value) {
+                    missing.add(key);
+                } else {
+                    loaded.put(key, value);
+                }
+            }
+
+            if (!missing.isEmpty()) {
+                if (null == bulkFinder) {
+                    for (final K key : missing) {
+                        putFound(loaded, key, find(key));
+                    }
+                } else {
+                    final Map<K, V> found = findAll(missing);
+
+                    for (final K key : missing) {
+                        putFound(loaded, key, found.get(key));
+                    }
+                }
+            }
+
+            for (final Map.Entry<K, CompletableFuture<V>> load : claimed.entrySet()) {
+                load.getValue().complete(loaded.get(load.getKey()));
+            }
+
+            return loaded;
+        } catch (final RuntimeException | Error ex) {
+            for (final CompletableFuture<V> load : claimed.values()) {
+                load.completeExceptionally(ex);
+            }
+
+            throw ex;
+        }
+    }
+
+    /**
+     * Asks the finder and records the load.
+     *
+     * @param key must not be {@code null}
+     * @return {@code null} if not found
+     */
+    private V find(final K key) {
+        final long start = ticker.getAsLong();
+        boolean found = false;
+
+        try {
+            final V value = finder.find(key);
+            found = null != value;
+            return value;
+        } finally {
+            stats.recordLoad(ticker.getAsLong() - start, found);
+        }
+    }
+
+    /**
+     * Asks the bulk finder and records the load.
+     *
+     * @param keys must not be {@code null}
+     * @return found values by key, never {@code null}
+     */
+    private Map<K, V> findAll(final Set<K> keys) {
+        final long start = ticker.getAsLong();
+        boolean found = false;
+
+        try {
+            final Map<K, V> values = bulkFinder.findAll(Collections.unmodifiableSet(keys));
+            found = true;
+            return values;
+        } finally {
+            stats.recordLoad(ticker.getAsLong() - start, found);
+        }
+    }
+
+    /**
+     * Caches and collects a found value.
+     *
+     * @param loaded collects the values, must not be {@code null}
+     * @param key must not be {@code null}
+     * @param value {@code null} if not found
+     */
+    private void putFound(final Map<K, V> loaded, final K key, final V value) {
+        if (null != value) {
+            add(key, value);
+            loaded.put(key, value);
+        }
+    }
+
+    /**
+     * Throws if no value was found.
+     *
+     * @param <K> type of cache key
+     * @param <V> type of cached value
+     * @param key must not be {@code null}
+     * @param value may be {@code null}
+     * @return never {@code null}
+     */
+    private static <K, V> V found(final K key, final V value) {
+        if (null == value) {
+            throw new NullPointerException(String.format("No value fond for key '%s'!", key));
+        }
+
+        return value;
+    }
+
+    /**
+     * Waits for the load of another thread.
+     *
+     * @param <V> type of cached value
+     * @param inFlight must not be {@code null}
+     * @return {@code null} if not found
+     */
+    private static <V> V await(final CompletableFuture<V> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (final CompletionException ex) {
+            final Throwable cause = ex.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+
+            throw ex;
+        }
+    }
+
+    /**
+     * Records the read of a bounded cache's entry unless another thread holds the eviction lock.
+     *
+     * @param node must not be {@code null}
+     */
+    private void recordRead(final Node<K, V> node) {
+        if (null != policy && evictionLock.tryLock()) {
+            try {
+                policy.recordAccess(node);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Whether any expiry or refresh is set.
+     *
+     * @return {@code true} if entries get old
+     */
+    private boolean expires() {
+        return expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0 || refreshAfterWriteNanos > 0;
+    }
+
+    /**
+     * Whether an entry is expired.
+     *
+     * @param node must not be {@code null}
+     * @param now current time in nano seconds
+     * @return {@code true} if expired
+     */
+    private boolean isExpired(final Node<K, V> node, final long now) {
+        return isExpired(node.writeTime, node.accessTime, now);
+    }
+
+    /**
+     * Whether a value is expired.
+     *
+     * @param writeTime time the value was written in nano seconds
+     * @param accessTime time the value was read last in nano seconds
+     * @param now current time in nano seconds
+     * @return {@code true} if expired
+     */
+    private boolean isExpired(final long writeTime, final long accessTime, final long now) {
+        return expireAfterWriteNanos > 0 && now - writeTime >= expireAfterWriteNanos
+            || expireAfterAccessNanos > 0 && now - accessTime >= expireAfterAccessNanos;
+    }
+
+    /**
+     * Removes an expired entry unless it was replaced meanwhile.
+     *
+     * @param node must not be {@code null}
+     */
+    private void expire(final Node<K, V> node) {
+        if (data.remove(node.key, node)) {
+            discard(node);
+            stats.recordEvictions(1);
+
+            if (null != offHeap) {
+                offHeap.remove(node.key);
+            }
+        }
+    }
+
+    /**
+     * Releases a node removed from the map.
+     *
+     * @param node must not be {@code null}
+     */
+    private void discard(final Node<K, V> node) {
+        if (null == policy) {
+            clear(node);
+            return;
+        }
+
+        evictionLock.lock();
+
+        try {
+            policy.remove(node);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the mappings of cleared values and a few expired entries.
+     */
+    private void maintain() {
+        removeCleared();
+
+        if (expires() && evictionLock.tryLock()) {
+            try {
+                sweepExpired();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Checks the next few entries of the map and removes the expired ones.
+     * <p>
+     * Must be called with the eviction lock held.
+     * </p>
+     */
+    private void sweepExpired() {
+        final long now = ticker.getAsLong();
+
+        for (int i = Math.min(SWEEP_LIMIT, data.size()); i > 0; --i) {
+            if (null == sweeper || !sweeper.hasNext()) {
+                sweeper = data.values().iterator();
+
+                if (!sweeper.hasNext()) {
+                    return;
+                }
+            }
+
+            final Node<K, V> node = sweeper.next();
+
+            if (isExpired(node, now)) {
+                expire(node);
+            }
+        }
+    }
+
+    /**
+     * Clears and enqueues the reference to a softly held value, like the garbage collector does.
+     * <p>
+     * Only for testing.
+     * </p>
+     *
+     * @param key must not be {@code null}
+     */
+    void collect(final K key) {
+        final Node<K, V> node = data.get(key);
+
+        if (null != node && null != node.soft) {
+            node.soft.clear();
+            node.soft.enqueue();
+        }
+    }
+
+    /**
+     * Removes the mappings whose values were enqueued after the garbage collector cleared them.
+     */
+    @SuppressWarnings("unchecked") // Only value references of this cache are registered with the queue.
+    private void removeCleared() {
+        Reference<? extends V> cleared;
+
+        while (null != (cleared = clearedValues.poll())) {
+            final Node<K, V> node = ((ValueReference<K, V>) cleared).node;
+
+            if (data.remove(node.key, node)) {
+                stats.recordEvictions(1);
+            }
+        }
+    }
+
+    /**
+     * Clears the reference of a replaced or removed node.
+     *
+     * @param node may be {@code null}
+     */
+    private static void clear(final Node<?, ?> node) {
+        if (null != node && null != node.soft) {
+            node.soft.clear();
+        }
+    }
+
+    /**
+     * Implementations of this interface may be used to provide values not in the cache yet.
+     *
+     * @param <K> type of cache key
+     * @param <V> type of cached value
+     */
+    public interface Finder<K, V> {
+
+        /**
+         * Try to find a value for the key not already in the cache.
+         *
+         * @param key must not be {@code null}
+         * @return may be {@code null}
+         */
+        V find(K key);
+    }
+
+    /**
+     * Implementations of this interface may be used to provide the values of several keys not in the cache yet at
+     * once, e.g. by one query to the backing store.
+     *
+     * @param <K> type of cache key
+     * @param <V> type of cached value
+     */
+    public interface BulkFinder<K, V> {
+
+        /**
+         * Try to find the values for keys not already in the cache.
+         *
+         * @param keys never {@code null} or empty, not modifiable
+         * @return found values by key, keys without value may be missing, never {@code null}
+         */
+        Map<K, V> findAll(Set<K> keys);
+    }
+
+    /**
+     * Implementations of this interface serialize values to bytes and back.
+     *
+     * @param <T> type of serialized value
+     */
+    public interface Codec<T> {
+
+        /**
+         * Serializes a value.
+         *
+         * @param value never {@code null}
+         * @return bytes between position and limit, not modified by the cache, never {@code null}
+         */
+        ByteBuffer encode(T value);
+
+        /**
+         * Deserializes a value.
+         *
+         * @param bytes bytes between position and limit, never {@code null}
+         * @return never {@code null}
+         */
+        T decode(ByteBuffer bytes);
+    }
+
+    /**
+     * Implementations of this interface compute the weight of entries in a bounded cache.
+     * <p>
+     * The weight is computed once when an entry is added. It is relative to the maximum weight of the cache, e.g. the
+     * size of the value in bytes.
+     * </p>
+     *
+     * @param <K> type of cache key
+     * @param <V> type of cached value
+     */
+    public interface Weigher<K, V> {
+
+        /**
+         * Weighs an entry.
+         *
+         * @param key never {@code null}
+         * @param value never {@code null}
+         * @return not less than 0
+         */
+        int weigh(K key, V value);
+    }
+
+    /**
+     * Candidate for a snapshot.
+     *
+     * @param <K> type of cache key
+     * @param <V> type of cached value
+     */
+    private static final class Hotness<K, V> {
+
+        /**
+         * Node of the entry.
+         */
+        private final Node<K, V> node;
+        /**
+         * Value of the node, held strongly while the snapshot is written.
+         */
+        private final V value;
+        /**
+         * Estimated number of recent accesses.
+         */
+        private final int frequency;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param node must not be {@code null}
+         * @param value must not be {@code null}
+         * @param frequency estimated number of recent accesses
+         */
+        Hotness(final Node<K, V> node, final V value, final int frequency) {
+            super();
+            this.node = node;
+            this.value = value;
+            this.frequency = frequency;
+        }
+    }
+
+    /**
+     * Claim of a key while an entry is restored from the snapshot.
+     * <p>
+     * Completes with {@code null} once the entry is restored or skipped, even if restoring failed.
+     * </p>
+     *
+     * @param <V> type of cached value
+     */
+    private static final class Restore<V> extends CompletableFuture<V> {
+    }
+
+    /**
+     * Default implementation which does not find anything.
+     *
+     * @param <K> type of cache key
+     * @param <V> type of cached value
+     */
+    private static final class NullFinder<K, V> implements Finder<K, V> {
+
+        @Override
+        public V find(final K key) {
+            return null;
+        }
+
+    }
+
+    /**
+     * Cache entry.
+     * <p>
+     * Holds its value softly in an unbounded and strongly in a bounded cache. The links are guarded by the eviction
+     * lock.
+     * </p>
+     *
+     * @param <K> type of cache key
+     * @param <V> type of cached value
+     */
+    static final class Node<K, V> {
+
+        /**
+         * Key of the entry.
+         */
+        final K key;
+        /**
+         * Weight of the entry.
+         */
+        final int weight;
+        /**
+         * Strongly held value, {@code null} if held softly.
+         */
+        private final V strong;
+        /**
+         * Softly held value, {@code null} if held strongly.
+         */
+        private final ValueReference<K, V> soft;
+        /**
+         * Time of the write in nano seconds.
+         */
+        final long writeTime;
+        /**
+         * Time of the last read in nano seconds.
+         */
+        volatile long accessTime;
+        /**
+         * Previous node in the policy's queue.
+         */
+        Node<K, V> prev;
+        /**
+         * Next node in the policy's queue.
+         */
+        Node<K, V> next;
+        /**
+         * Queue of the policy this node is linked into.
+         */
+        int queue = WindowTinyLfu.NONE;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param key must not be {@code null}
+         * @param value must not be {@code null}
+         * @param weight not less than 0
+         * @param queue receives the reference to the value once cleared, {@code null} to hold the value strongly
+         * @param now time of the write in nano seconds
+         */
+        Node(final K key, final V value, final int weight, final ReferenceQueue<V> queue, final long now) {
+            super();
+            this.key = key;
+            this.weight = weight;
+            writeTime = now;
+            accessTime = now;
+            strong = null == queue ? value : null;
+            soft = null == queue ? null : new ValueReference<>(value, queue, this);
+        }
+
+        /**
+         * Value of the entry.
+         *
+         * @return {@code null} if cleared by the garbage collector
+         */
+        V value() {
+            return null == soft ? strong : soft.get();
+        }
+    }
+
+    /**
+     * Soft reference which knows the node it belongs to, so the node can be removed once the reference is enqueued.
+     *
+     * @param <K> type of cache key
+     * @param <V> type of cached value
+     */
+    private static final class ValueReference<K, V> extends SoftReference<V> {
+
+        /**
+         * Node holding this reference.
+         */
+        private final Node<K, V> node;
+
+        /**
+         * Dedicated constructor.
+         *
+         * @param value must not be {@code null}
+         * @param queue must not be {@code null}
+         * @param node must not be {@code null}
+         */
+        ValueReference(final V value, final ReferenceQueue<V> queue, final Node<K, V> node) {
+            super(value, queue);
+            this.node = node;
+        }
     }
 }
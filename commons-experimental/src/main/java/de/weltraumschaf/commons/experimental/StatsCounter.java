@@ -0,0 +1,130 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.experimental;
+
+import java.util.concurrent.atomic.LongAdder;
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * Counts hits, misses, loads and evictions of a {@link SoftCache}.
+ * <p>
+ * The counters are {@link LongAdder striped}, so recording from many threads does not add contention on its own. Load
+ * times are also counted in a histogram with a bucket per power of two nano seconds.
+ * </p>
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@ThreadSafe
+final class StatsCounter {
+
+    /**
+     * Number of reads which found a cached value.
+     */
+    private final LongAdder hits = new LongAdder();
+    /**
+     * Number of reads which found no cached value.
+     */
+    private final LongAdder misses = new LongAdder();
+    /**
+     * Number of loads which found a value.
+     */
+    private final LongAdder loadSuccesses = new LongAdder();
+    /**
+     * Number of loads which failed or found nothing.
+     */
+    private final LongAdder loadFailures = new LongAdder();
+    /**
+     * Total time of all loads in nano seconds.
+     */
+    private final LongAdder totalLoadTime = new LongAdder();
+    /**
+     * Number of entries removed by size, expiry or garbage collection.
+     */
+    private final LongAdder evictions = new LongAdder();
+    /**
+     * Loads by the bit length of their time in nano seconds.
+     */
+    private final LongAdder[] loadTimes = new LongAdder[Long.SIZE];
+
+    /**
+     * Dedicated constructor.
+     */
+    StatsCounter() {
+        super();
+
+        for (int i = 0; i < loadTimes.length; ++i) {
+            loadTimes[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records reads which found a cached value.
+     *
+     * @param count number of reads
+     */
+    void recordHits(final int count) {
+        hits.add(count);
+    }
+
+    /**
+     * Records reads which found no cached value.
+     *
+     * @param count number of reads
+     */
+    void recordMisses(final int count) {
+        misses.add(count);
+    }
+
+    /**
+     * Records a load.
+     *
+     * @param nanos time of the load
+     * @param success whether the load found a value
+     */
+    void recordLoad(final long nanos, final boolean success) {
+        final long time = Math.max(0, nanos);
+        (success ? loadSuccesses : loadFailures).increment();
+        totalLoadTime.add(time);
+        loadTimes[Math.min(Long.SIZE - 1, Long.SIZE - Long.numberOfLeadingZeros(time))].increment();
+    }
+
+    /**
+     * Records evicted entries.
+     *
+     * @param count number of entries
+     */
+    void recordEvictions(final int count) {
+        evictions.add(count);
+    }
+
+    /**
+     * Sums up the counters.
+     *
+     * @return never {@code null}
+     */
+    CacheStats snapshot() {
+        final long[] histogram = new long[loadTimes.length];
+
+        for (int i = 0; i < histogram.length; ++i) {
+            histogram[i] = loadTimes[i].sum();
+        }
+
+        return new CacheStats(
+            hits.sum(),
+            misses.sum(),
+            loadSuccesses.sum(),
+            loadFailures.sum(),
+            totalLoadTime.sum(),
+            evictions.sum(),
+            histogram);
+    }
+}
@@ -0,0 +1,330 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.experimental;
+
+import java.util.function.Consumer;
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * Window TinyLFU eviction policy of a bounded {@link SoftCache}.
+ * <p>
+ * New entries go to a small LRU window of 1% of the maximum weight. Entries falling out of the window are candidates
+ * for the main region, a segmented LRU of a probation and a protected segment. If the cache is too heavy, the candidate
+ * is admitted only if the {@link FrequencySketch frequency sketch} estimates it was accessed more often than the least
+ * recently used entry on probation, which is evicted then. Otherwise the candidate is evicted. So one time scans pass
+ * through the window without flushing the frequently used entries from the main region.
+ * </p>
+ * <p>
+ * Entries on probation move to the protected segment on their next access. The protected segment holds up to 80% of
+ * the main region. Its least recently used entries are demoted to probation again.
+ * </p>
+ *
+ * @param <K> type of cache key
+ * @param <V> type of cached value
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+@NotThreadSafe
+final class WindowTinyLfu<K, V> {
+
+    /**
+     * Queue of unlinked nodes.
+     */
+    static final int NONE = 0;
+    /**
+     * Queue of the admission window.
+     */
+    static final int WINDOW = 1;
+    /**
+     * Queue of the probation segment.
+     */
+    static final int PROBATION = 2;
+    /**
+     * Queue of the protected segment.
+     */
+    static final int PROTECTED = 3;
+
+    /**
+     * Greatest total weight.
+     */
+    private final long maximum;
+    /**
+     * Greatest weight of the window.
+     */
+    private final long windowMaximum;
+    /**
+     * Greatest weight of the protected segment.
+     */
+    private final long protectedMaximum;
+    /**
+     * Recent access frequencies of all keys.
+     */
+    private final FrequencySketch sketch;
+    /**
+     * Admission window.
+     */
+    private final NodeDeque<K, V> window = new NodeDeque<>();
+    /**
+     * Probation segment.
+     */
+    private final NodeDeque<K, V> probation = new NodeDeque<>();
+    /**
+     * Protected segment.
+     */
+    private final NodeDeque<K, V> protect = new NodeDeque<>();
+    /**
+     * Number of linked nodes.
+     */
+    private long entries;
+    /**
+     * Total weight of all linked nodes.
+     */
+    private long weightedSize;
+    /**
+     * Weight of the window.
+     */
+    private long windowWeight;
+    /**
+     * Weight of the protected segment.
+     */
+    private long protectedWeight;
+
+    /**
+     * Dedicated constructor.
+     *
+     * @param maximum greatest total weight, not less than 0
+     */
+    WindowTinyLfu(final long maximum) {
+        super();
+        this.maximum = maximum;
+        windowMaximum = Math.max(1, maximum / 100);
+        final long main = maximum - windowMaximum;
+        // 80% w/o overflow for huge maxima.
+        protectedMaximum = main / 10 * 8 + main % 10 * 8 / 10;
+        // Sized by the entries, the maximum may be a weight of bytes.
+        sketch = new FrequencySketch();
+    }
+
+    /**
+     * Total weight of all linked nodes.
+     *
+     * @return not less than 0
+     */
+    long weightedSize() {
+        return weightedSize;
+    }
+
+    /**
+     * Estimated number of recent accesses of a key.
+     *
+     * @param key must not be {@code null}
+     * @return between 0 and {@link FrequencySketch#MAX_FREQUENCY}
+     */
+    int frequency(final K key) {
+        return sketch.frequency(key);
+    }
+
+    /**
+     * Records the access of a linked node.
+     *
+     * @param node must not be {@code null}
+     */
+    void recordAccess(final SoftCache.Node<K, V> node) {
+        sketch.increment(node.key);
+
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToLast(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protect.addLast(node);
+                protectedWeight += node.weight;
+                demoteProtected();
+                break;
+            case PROTECTED:
+                protect.moveToLast(node);
+                break;
+            default:
+                // Unlinked concurrently.
+                break;
+        }
+    }
+
+    /**
+     * Links a new node and evicts until the cache is not too heavy anymore.
+     *
+     * @param node must not be {@code null}
+     * @param evicted receives each evicted node, may be the added one
+     */
+    void add(final SoftCache.Node<K, V> node, final Consumer<SoftCache.Node<K, V>> evicted) {
+        sketch.ensureCapacity(++entries);
+        sketch.increment(node.key);
+        node.queue = WINDOW;
+        window.addLast(node);
+        windowWeight += node.weight;
+        weightedSize += node.weight;
+        evict(evicted);
+    }
+
+    /**
+     * Unlinks a node.
+     *
+     * @param node must not be {@code null}
+     */
+    void remove(final SoftCache.Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                windowWeight -= node.weight;
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            case PROTECTED:
+                protect.remove(node);
+                protectedWeight -= node.weight;
+                break;
+            default:
+                return;
+        }
+
+        weightedSize -= node.weight;
+        --entries;
+        node.queue = NONE;
+    }
+
+    /**
+     * Moves the overflow of the window to probation and evicts from the main region until the total weight is within
+     * the maximum.
+     *
+     * @param evicted receives each evicted node
+     */
+    private void evict(final Consumer<SoftCache.Node<K, V>> evicted) {
+        while (windowWeight > windowMaximum && null != window.first) {
+            final SoftCache.Node<K, V> node = window.first;
+            window.remove(node);
+            windowWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+        }
+
+        while (weightedSize > maximum) {
+            final SoftCache.Node<K, V> victim = null == probation.first ? protect.first : probation.first;
+
+            if (null == victim) {
+                // Only the window is left.
+                final SoftCache.Node<K, V> node = window.first;
+                remove(node);
+                evicted.accept(node);
+                continue;
+            }
+
+            final SoftCache.Node<K, V> candidate = probation.last;
+            final SoftCache.Node<K, V> evict;
+
+            if (victim == candidate || null == candidate) {
+                evict = victim;
+            } else if (candidate.weight > maximum) {
+                evict = candidate;
+            } else {
+                evict = sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+            }
+
+            remove(evict);
+            evicted.accept(evict);
+        }
+    }
+
+    /**
+     * Demotes the least recently used protected nodes to probation while the segment is too heavy.
+     */
+    private void demoteProtected() {
+        while (protectedWeight > protectedMaximum && null != protect.first) {
+            final SoftCache.Node<K, V> node = protect.first;
+            protect.remove(node);
+            protectedWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+        }
+    }
+
+    /**
+     * Intrusive doubly linked list of nodes from least to most recently used.
+     *
+     * @param <K> type of cache key
+     * @param <V> type of cached value
+     */
+    private static final class NodeDeque<K, V> {
+
+        /**
+         * Least recently used node.
+         */
+        private SoftCache.Node<K, V> first;
+        /**
+         * Most recently used node.
+         */
+        private SoftCache.Node<K, V> last;
+
+        /**
+         * Appends a node.
+         *
+         * @param node must not be linked
+         */
+        void addLast(final SoftCache.Node<K, V> node) {
+            node.prev = last;
+            node.next = null;
+
+            if (null == last) {
+                first = node;
+            } else {
+                last.next = node;
+            }
+
+            last = node;
+        }
+
+        /**
+         * Unlinks a node.
+         *
+         * @param node must be linked into this deque
+         */
+        void remove(final SoftCache.Node<K, V> node) {
+            if (null == node.prev) {
+                first = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+
+            if (null == node.next) {
+                last = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+
+            node.prev = null;
+            node.next = null;
+        }
+
+        /**
+         * Makes a node the most recently used.
+         *
+         * @param node must be linked into this deque
+         */
+        void moveToLast(final SoftCache.Node<K, V> node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.experimental;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link AsyncSoftCache}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class AsyncSoftCacheTest {
+
+    @Rule
+    // CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    // CHECKSTYLE:ON
+
+    private final AsyncSoftCache<String, String> sut = new AsyncSoftCache<>(100);
+
+    @Test
+    public void get_loadsOncePerKey() throws InterruptedException, ExecutionException {
+        final AtomicInteger loads = new AtomicInteger();
+        sut.finder(key -> key + loads.incrementAndGet());
+
+        assertThat(sut.get("foo").get(), is("foo1"));
+        assertThat(sut.get("foo").get(), is("foo1"));
+        assertThat(sut.get("bar").get(), is("bar2"));
+        assertThat(loads.get(), is(2));
+        assertThat(sut.size(), is(2));
+    }
+
+    @Test
+    public void get_doesNotBlockOnFinder() throws InterruptedException, ExecutionException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        sut.finder(key -> {
+            loads.incrementAndGet();
+
+            try {
+                release.await();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            return key.toUpperCase();
+        });
+
+        final CompletableFuture<String> first = sut.get("foo");
+        final CompletableFuture<String> second = sut.get("foo");
+
+        assertThat(first.isDone(), is(false));
+        assertThat(second.isDone(), is(false));
+
+        release.countDown();
+
+        assertThat(first.thenApply(value -> value + "!").get(), is("FOO!"));
+        assertThat(second.get(), is("FOO"));
+        assertThat(loads.get(), is(1));
+    }
+
+    @Test
+    public void get_dropsFailedFuture() throws InterruptedException, ExecutionException {
+        final AtomicInteger loads = new AtomicInteger();
+        sut.finder(key -> {
+            if (loads.incrementAndGet() == 1) {
+                throw new IllegalStateException("snafu");
+            }
+
+            return key;
+        });
+
+        final CompletableFuture<String> failed = sut.get("foo");
+
+        try {
+            failed.join();
+        } catch (final RuntimeException ex) {
+            assertThat(ex.getCause(), is(instanceOf(IllegalStateException.class)));
+        }
+
+        assertThat(failed.isCompletedExceptionally(), is(true));
+        assertThat(sut.get("foo").get(), is("foo"));
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    public void get_dropsFutureFailedBeforeAdded() throws InterruptedException, ExecutionException {
+        final AtomicInteger loads = new AtomicInteger();
+        sut.asyncFinder((key, executor) -> loads.incrementAndGet() == 1
+            ? CompletableFuture.failedFuture(new IllegalStateException("snafu"))
+            : CompletableFuture.completedFuture(key));
+
+        assertThat(sut.get("foo").isCompletedExceptionally(), is(true));
+        assertThat(sut.size(), is(0));
+        assertThat(sut.get("foo").get(), is("foo"));
+    }
+
+    @Test
+    public void get_notFoundFailsAndIsDropped() throws InterruptedException {
+        sut.finder(key -> null);
+        final CompletableFuture<String> future = sut.get("foo");
+
+        try {
+            future.get();
+        } catch (final ExecutionException ex) {
+            assertThat(ex.getCause(), is(instanceOf(NullPointerException.class)));
+            assertThat(ex.getCause().getMessage(), is("No value fond for key 'foo'!"));
+        }
+
+        assertThat(future.isCompletedExceptionally(), is(true));
+        assertThat(sut.size(), is(0));
+    }
+
+    @Test
+    public void get_withoutFinderFails() {
+        final CompletableFuture<String> future = sut.get("foo");
+
+        assertThat(future.isCompletedExceptionally(), is(true));
+        assertThat(sut.size(), is(0));
+    }
+
+    @Test
+    public void get_throwingAsyncFinderFails() {
+        sut.asyncFinder((key, executor) -> {
+            throw new IllegalStateException("snafu");
+        });
+
+        assertThat(sut.get("foo").isCompletedExceptionally(), is(true));
+        assertThat(sut.size(), is(0));
+    }
+
+    @Test
+    public void get_copyDoesNotAffectCachedFuture() throws InterruptedException, ExecutionException {
+        final CompletableFuture<String> cached = new CompletableFuture<>();
+        sut.add("foo", cached);
+
+        sut.get("foo").cancel(true);
+        cached.complete("bar");
+
+        assertThat(sut.get("foo").get(), is("bar"));
+    }
+
+    @Test
+    public void finder_runsOnSuppliedExecutor() throws InterruptedException, ExecutionException {
+        final AtomicInteger executed = new AtomicInteger();
+        final Executor executor = command -> {
+            executed.incrementAndGet();
+            command.run();
+        };
+        sut.executor(executor);
+        sut.finder(String::toUpperCase);
+
+        assertThat(sut.get("foo").get(), is("FOO"));
+        assertThat(executed.get(), is(1));
+    }
+
+    @Test
+    public void asyncFinder_getsExecutor() throws InterruptedException, ExecutionException {
+        final Executor executor = Runnable::run;
+        sut.executor(executor);
+        sut.asyncFinder((key, e) -> {
+            assertThat(e, is(sameInstance(executor)));
+            return CompletableFuture.completedFuture(key);
+        });
+
+        assertThat(sut.get("foo").get(), is("foo"));
+    }
+
+    @Test
+    public void add_failedFutureIsDropped() {
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        sut.add("foo", future);
+        assertThat(sut.size(), is(1));
+
+        future.completeExceptionally(new IllegalStateException("snafu"));
+
+        assertThat(sut.size(), is(0));
+    }
+
+    @Test
+    public void remove() {
+        sut.add("foo", CompletableFuture.completedFuture("bar"));
+
+        sut.remove("foo");
+
+        assertThat(sut.size(), is(0));
+    }
+
+    @Test
+    public void stats_countsStartedLoads() throws InterruptedException, ExecutionException {
+        sut.finder(String::toUpperCase);
+
+        sut.get("foo").get();
+        sut.get("foo").get();
+
+        assertThat(sut.stats().missCount(), is(1L));
+        assertThat(sut.stats().hitCount(), is(1L));
+        assertThat(sut.stats().loadSuccessCount(), is(1L));
+    }
+
+    @Test
+    public void asyncFinder_nullThrowsException() {
+        thrown.expect(NullPointerException.class);
+
+        sut.asyncFinder(null);
+    }
+
+    @Test
+    public void executor_nullThrowsException() {
+        thrown.expect(NullPointerException.class);
+
+        sut.executor(null);
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.experimental;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link CacheStats} and {@link StatsCounter}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class CacheStatsTest {
+
+    @Rule
+    // CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    // CHECKSTYLE:ON
+
+    private final StatsCounter counter = new StatsCounter();
+
+    @Test
+    public void empty() {
+        final CacheStats stats = counter.snapshot();
+
+        assertThat(stats.requestCount(), is(0L));
+        assertThat(stats.hitRate(), is(1.0));
+        assertThat(stats.loadCount(), is(0L));
+        assertThat(stats.averageLoadPenalty(), is(0.0));
+        assertThat(stats.loadTimePercentile(99), is(0L));
+        assertThat(stats.evictionCount(), is(0L));
+    }
+
+    @Test
+    public void hitRate() {
+        counter.recordHits(3);
+        counter.recordMisses(1);
+
+        final CacheStats stats = counter.snapshot();
+
+        assertThat(stats.hitCount(), is(3L));
+        assertThat(stats.missCount(), is(1L));
+        assertThat(stats.requestCount(), is(4L));
+        assertThat(stats.hitRate(), is(0.75));
+    }
+
+    @Test
+    public void averageLoadPenalty() {
+        counter.recordLoad(100, true);
+        counter.recordLoad(300, false);
+
+        final CacheStats stats = counter.snapshot();
+
+        assertThat(stats.loadSuccessCount(), is(1L));
+        assertThat(stats.loadFailureCount(), is(1L));
+        assertThat(stats.totalLoadTime(), is(400L));
+        assertThat(stats.averageLoadPenalty(), is(200.0));
+    }
+
+    @Test
+    public void loadTimePercentile() {
+        for (int i = 0; i < 99; ++i) {
+            counter.recordLoad(1_000, true);
+        }
+
+        counter.recordLoad(1_000_000, true);
+        final CacheStats stats = counter.snapshot();
+
+        assertThat(stats.loadTimePercentile(0), is(1_023L));
+        assertThat(stats.loadTimePercentile(50), is(1_023L));
+        assertThat(stats.loadTimePercentile(99), is(1_023L));
+        assertThat(stats.loadTimePercentile(100), is(1_048_575L));
+    }
+
+    @Test
+    public void loadTimePercentile_zeroAndHugeTimes() {
+        counter.recordLoad(0, true);
+        counter.recordLoad(Long.MAX_VALUE, true);
+        final CacheStats stats = counter.snapshot();
+
+        assertThat(stats.loadTimePercentile(50), is(0L));
+        assertThat(stats.loadTimePercentile(100), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void loadTimePercentile_ranksWithinHistogram() {
+        final long[] loadTimes = new long[Long.SIZE];
+        loadTimes[10] = 3;
+        // Two more loads completed while the snapshot summed up the histogram.
+        final CacheStats stats = new CacheStats(0, 5, 5, 0, 3_000, 0, loadTimes);
+
+        assertThat(stats.loadCount(), is(5L));
+        assertThat(stats.loadTimePercentile(99), is(1_023L));
+        assertThat(stats.loadTimePercentile(100), is(1_023L));
+    }
+
+    @Test
+    public void loadTimePercentile_invalidPercentileThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'percentile' must be between 0 and 100!");
+
+        counter.snapshot().loadTimePercentile(101);
+    }
+
+    @Test
+    public void evictionCount() {
+        counter.recordEvictions(2);
+        counter.recordEvictions(1);
+
+        assertThat(counter.snapshot().evictionCount(), is(3L));
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.experimental;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FrequencySketch}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class FrequencySketchTest {
+
+    private final FrequencySketch sut = new FrequencySketch();
+
+    @Test
+    public void tableLength_clampsAndRoundsUp() {
+        assertThat(FrequencySketch.tableLength(Long.MIN_VALUE), is(16));
+        assertThat(FrequencySketch.tableLength(0), is(16));
+        assertThat(FrequencySketch.tableLength(17), is(32));
+        assertThat(FrequencySketch.tableLength(64), is(64));
+        assertThat(FrequencySketch.tableLength((1 << 30) - 1), is(1 << 30));
+        assertThat(FrequencySketch.tableLength(Long.MAX_VALUE), is(1 << 30));
+    }
+
+    @Test
+    public void startsSmall() {
+        assertThat(sut.tableLength(), is(16));
+    }
+
+    @Test
+    public void ensureCapacity_growsAtLeastTwice() {
+        sut.ensureCapacity(16);
+        assertThat(sut.tableLength(), is(16));
+
+        sut.ensureCapacity(17);
+        assertThat(sut.tableLength(), is(32));
+
+        sut.ensureCapacity(1000);
+        assertThat(sut.tableLength(), is(1024));
+    }
+
+    @Test
+    public void increment() {
+        assertThat(sut.frequency("foo"), is(0));
+
+        sut.increment("foo");
+        sut.increment("foo");
+
+        assertThat(sut.frequency("foo"), is(greaterThanOrEqualTo(2)));
+        assertThat(sut.frequency("foo"), is(lessThanOrEqualTo(FrequencySketch.MAX_FREQUENCY)));
+    }
+
+    @Test
+    public void ensureCapacity_keepsCounts() {
+        for (int i = 0; i < 16; ++i) {
+            for (int j = 0; j <= i % 4; ++j) {
+                sut.increment(i);
+            }
+        }
+
+        final int[] before = new int[16];
+
+        for (int i = 0; i < 16; ++i) {
+            before[i] = sut.frequency(i);
+        }
+
+        sut.ensureCapacity(1000);
+
+        for (int i = 0; i < 16; ++i) {
+            assertThat(sut.frequency(i), is(before[i]));
+        }
+    }
+}
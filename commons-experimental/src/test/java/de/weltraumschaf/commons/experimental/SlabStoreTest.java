@@ -0,0 +1,170 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.experimental;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+/**
+ * Tests for {@link SlabStore}.
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class SlabStoreTest {
+
+    @Rule
+    // CHECKSTYLE:OFF
+    public final ExpectedException thrown = ExpectedException.none();
+    // CHECKSTYLE:ON
+
+    private final SlabStore<String> sut = new SlabStore<>(2048, 1024);
+
+    private static ByteBuffer bytes(final int length) {
+        final ByteBuffer bytes = ByteBuffer.allocate(length);
+
+        for (int i = 0; i < length; ++i) {
+            bytes.put((byte) i);
+        }
+
+        bytes.flip();
+        return bytes;
+    }
+
+    private static ByteBuffer text(final String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String text(final SlabStore.Stored stored) {
+        return StandardCharsets.UTF_8.decode(stored.bytes).toString();
+    }
+
+    @Test
+    public void construct_slabSizeNotPowerOfTwoThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+
+        new SlabStore<String>(4096, 1000);
+    }
+
+    @Test
+    public void construct_capacityLessThanSlabThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Parameter 'capacity' must not be less than the slab size 1024!");
+
+        new SlabStore<String>(1000, 1024);
+    }
+
+    @Test
+    public void putAndGet() {
+        assertThat(sut.put("foo", text("bar"), 1, 2), is(true));
+
+        final SlabStore.Stored stored = sut.get("foo");
+
+        assertThat(text(stored), is(equalTo("bar")));
+        assertThat(stored.writeTime, is(1L));
+        assertThat(stored.accessTime, is(2L));
+        assertThat(sut.get("bar"), is(nullValue()));
+    }
+
+    @Test
+    public void put_doesNotModifyBytes() {
+        final ByteBuffer bytes = text("bar");
+
+        sut.put("foo", bytes, 0, 0);
+
+        assertThat(bytes.remaining(), is(3));
+    }
+
+    @Test
+    public void put_replaces() {
+        sut.put("foo", text("bar"), 1, 1);
+        sut.put("foo", bytes(100), 2, 2);
+
+        assertThat(sut.get("foo").bytes, is(equalTo(bytes(100))));
+        assertThat(sut.size(), is(1));
+    }
+
+    @Test
+    public void put_doesNotReplaceNewerValue() {
+        sut.put("foo", text("bar"), 2, 2);
+
+        assertThat(sut.put("foo", text("baz"), 1, 1), is(false));
+        assertThat(text(sut.get("foo")), is(equalTo("bar")));
+    }
+
+    @Test
+    public void put_tooBigIsNotStored() {
+        assertThat(sut.put("foo", bytes(1025), 0, 0), is(false));
+        assertThat(sut.put("foo", bytes(1024), 0, 0), is(true));
+        assertThat(sut.get("foo").bytes.remaining(), is(1024));
+    }
+
+    @Test
+    public void put_allocatesSlabsPerSizeClass() {
+        assertThat(sut.allocated(), is(0L));
+
+        for (int i = 0; i < 16; ++i) {
+            sut.put("small" + i, bytes(64), 0, 0);
+        }
+
+        assertThat(sut.allocated(), is(1024L));
+
+        sut.put("big", bytes(65), 0, 0);
+
+        assertThat(sut.allocated(), is(2048L));
+        assertThat(sut.size(), is(17));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedOfSameClassIfFull() {
+        sut.put("big", bytes(1000), 0, 0);
+
+        for (int i = 0; i < 16; ++i) {
+            sut.put("small" + i, bytes(10), 0, 0);
+        }
+
+        sut.get("small0");
+        sut.put("small16", bytes(10), 0, 0);
+
+        assertThat(sut.get("small0"), is(notNullValue()));
+        assertThat(sut.get("small1"), is(nullValue()));
+        assertThat(sut.get("big"), is(notNullValue()));
+        assertThat(sut.size(), is(17));
+    }
+
+    @Test
+    public void put_classWithoutSlabIsNotStored() {
+        sut.put("foo", bytes(10), 0, 0);
+        sut.put("bar", bytes(100), 0, 0);
+
+        assertThat(sut.put("baz", bytes(1000), 0, 0), is(false));
+    }
+
+    @Test
+    public void remove_freesSlot() {
+        for (int i = 0; i < 16; ++i) {
+            sut.put("small" + i, bytes(64), 0, 0);
+        }
+
+        assertThat(sut.remove("small3"), is(true));
+        assertThat(sut.remove("small3"), is(false));
+
+        sut.put("foo", bytes(64), 0, 0);
+
+        assertThat(sut.size(), is(16));
+        assertThat(sut.allocated(), is(1024L));
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ *  LICENSE
+ *
+ * "THE BEER-WARE LICENSE" (Revision 43):
+ * "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt; wrote this file.
+ * As long as you retain this notice you can do whatever you want with
+ * this stuff. If we meet some day, and you think this stuff is worth it,
+ * you can buy me a non alcohol-free beer in return.
+ *
+ * Copyright (C) 2012 "Sven Strittmatter" &lt;weltraumschaf@googlemail.com&gt;
+ */
+package de.weltraumschaf.commons.experimental;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.assertThat;
+import org.junit.Test;
+
+/**
+ * Trace driven tests of the hit ratio of a bounded {@link SoftCache}.
+ * <p>
+ * Each trace is replayed against the cache and against a plain LRU cache of the same size as base line. For traces of
+ * independent requests the cache must also come close to the optimum, which is holding the most popular keys. The
+ * traces are synthetic but seeded, so the ratios are reproducible.
+ * </p>
+ *
+ * @author Sven Strittmatter &lt;weltraumschaf@googlemail.com&gt;
+ */
+public class SoftCacheHitRatioTest {
+
+    private static final int MAXIMUM_SIZE = 500;
+    private static final int REQUESTS = 200_000;
+
+    /**
+     * Replays a trace against a bounded cache.
+     */
+    private static double tinyLfu(final IntSupplier trace) {
+        final SoftCache<Integer, Integer> cache = new SoftCache<>(MAXIMUM_SIZE);
+        final AtomicLong misses = new AtomicLong();
+        cache.finder(key -> {
+            misses.incrementAndGet();
+            return key;
+        });
+
+        for (int i = 0; i < REQUESTS; ++i) {
+            cache.get(trace.getAsInt());
+        }
+
+        return 1.0 - (double) misses.get() / REQUESTS;
+    }
+
+    /**
+     * Replays a trace against a LRU cache.
+     */
+    private static double lru(final IntSupplier trace) {
+        final Map<Integer, Integer> cache = new LinkedHashMap<Integer, Integer>(MAXIMUM_SIZE, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Integer, Integer> eldest) {
+                return size() > MAXIMUM_SIZE;
+            }
+        };
+        long hits = 0;
+
+        for (int i = 0; i < REQUESTS; ++i) {
+            final int key = trace.getAsInt();
+
+            if (null == cache.get(key)) {
+                cache.put(key, key);
+            } else {
+                ++hits;
+            }
+        }
+
+        return (double) hits / REQUESTS;
+    }
+
+    /**
+     * Keys drawn from a Zipf distribution, key 0 is the most popular one.
+     */
+    private static IntSupplier zipf(final int keys, final double exponent, final long seed) {
+        final double[] cumulative = new double[keys];
+        double sum = 0;
+
+        for (int i = 0; i < keys; ++i) {
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+
+        final double total = sum;
+        final Random random = new Random(seed);
+
+        return () -> {
+            final int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            return index < 0 ? -index - 1 : index;
+        };
+    }
+
+    /**
+     * Hit ratio of a cache which holds the most popular keys of a Zipf distribution.
+     */
+    private static double optimum(final int keys, final double exponent) {
+        double popular = 0;
+        double total = 0;
+
+        for (int i = 0; i < keys; ++i) {
+            final double weight = 1.0 / Math.pow(i + 1, exponent);
+            total += weight;
+
+            if (i < MAXIMUM_SIZE) {
+                popular += weight;
+            }
+        }
+
+        return popular / total;
+    }
+
+    @Test
+    public void zipf() {
+        final double tinyLfu = tinyLfu(zipf(50_000, 0.9, 42));
+        final double lru = lru(zipf(50_000, 0.9, 42));
+
+        assertThat(tinyLfu, is(greaterThan(lru + 0.05)));
+        assertThat(tinyLfu, is(greaterThan(0.9 * optimum(50_000, 0.9))));
+    }
+
+    @Test
+    public void zipfWithScans() {
+        final double tinyLfu = tinyLfu(scans());
+        final double lru = lru(scans());
+
+        // Scans are a fifth of the requests and never hit.
+        assertThat(tinyLfu, is(greaterThan(lru + 0.05)));
+        assertThat(tinyLfu, is(greaterThan(0.9 * 0.8 * optimum(5_000, 1.0))));
+    }
+
+    /**
+     * Mixes a Zipf distributed workload with sequential scans over never repeated keys.
+     */
+    private static IntSupplier scans() {
+        final IntSupplier popular = zipf(5_000, 1.0, 7);
+        final int[] request = {0};
+        final int[] scanned = {1_000_000};
+
+        return () -> {
+            // Every 10 000 requests scan 2 000 keys.
+            return request[0]++ % 10_000 < 2_000 ? scanned[0]++ : popular.getAsInt();
+        };
+    }
+
+    @Test
+    public void loop() {
+        final int[] request = {0};
+        final IntSupplier loop = () -> request[0]++ % (MAXIMUM_SIZE * 3 / 2);
+        final double tinyLfu = tinyLfu(loop);
+        request[0] = 0;
+        final double lru = lru(loop);
+
+        assertThat(lru, is(0.0));
+        assertThat(tinyLfu, is(greaterThan(0.5)));
+    }
+
+    @Test
+    public void shiftingHotSet() {
+        // The hot set moves every 20 000 requests, the sketch must forget the old one.
+        final Random random = new Random(23);
+        final int[] request = {0};
+        final IntSupplier trace = () -> {
+            final int phase = request[0]++ / 20_000;
+            return random.nextInt(10) < 9 ? phase * 1_000 + random.nextInt(200) : 1_000_000 + random.nextInt(100_000);
+        };
+        final double tinyLfu = tinyLfu(trace);
+
+        assertThat(tinyLfu, is(greaterThan(0.85)));
+    }
+}
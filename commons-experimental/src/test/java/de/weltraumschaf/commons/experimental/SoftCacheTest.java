@@ -12,13 +12,42 @@
 
 package de.weltraumschaf.commons.experimental;
 
+import de.weltraumschaf.commons.experimental.SoftCache.BulkFinder;
+import de.weltraumschaf.commons.experimental.SoftCache.Codec;
 import de.weltraumschaf.commons.experimental.SoftCache.Finder;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assert.assertThat;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import static org.mockito.Mockito.*;
 
 /**
@@ -32,14 +61,26 @@ public class SoftCacheTest {
     // CHECKSTYLE:OFF
     public final ExpectedException thrown = ExpectedException.none();
     // CHECKSTYLE:ON
+    @Rule
+    // CHECKSTYLE:OFF
+    public final TemporaryFolder tmp = new TemporaryFolder();
+    // CHECKSTYLE:ON
 
     @SuppressWarnings("unchecked")
     private final Finder<String, String> finder = mock(Finder.class);
     private final SoftCache<String, String> sut = new SoftCache<String, String>();
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicLong ticker = new AtomicLong();
 
     @Before
     public void injectFinder() {
         sut.finder(finder);
+        sut.ticker(ticker::get);
+    }
+
+    @After
+    public void shutdownExecutor() {
+        executor.shutdownNow();
     }
 
     @Test(expected = NullPointerException.class)
@@ -84,4 +125,964 @@ public class SoftCacheTest {
         verify(finder).find("foo");
     }
 
+    @Test
+    public void remove_onlyIfMappedToValue() {
+        sut.add("foo", "bar");
+
+        assertThat(sut.remove("foo", "baz"), is(false));
+        assertThat(sut.size(), is(1));
+        assertThat(sut.remove("foo", "bar"), is(true));
+        assertThat(sut.size(), is(0));
+        assertThat(sut.remove("foo", "bar"), is(false));
+    }
+
+    @Test
+    public void construct_negativeMaximumThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+
+        new SoftCache<String, String>(-1);
+    }
+
+    @Test
+    public void construct_greatestMaximum() {
+        final SoftCache<String, String> cache = new SoftCache<>(Long.MAX_VALUE);
+
+        for (int i = 0; i < 100; ++i) {
+            cache.add("foo" + i, "bar" + i);
+        }
+
+        assertThat(cache.size(), is(100));
+        assertThat(cache.get("foo42"), is("bar42"));
+    }
+
+    @Test
+    public void construct_largeMaximumWeightInBytes() {
+        final SoftCache<String, byte[]> cache = new SoftCache<>(1L << 30, (key, value) -> value.length);
+
+        for (int i = 0; i < 100; ++i) {
+            cache.add("foo" + i, new byte[1024]);
+        }
+
+        assertThat(cache.size(), is(100));
+        assertThat(cache.weightedSize(), is(100L * 1024));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void construct_nullWeigherThrowsException() {
+        new SoftCache<String, String>(10, null);
+    }
+
+    @Test
+    public void weightedSize_unbounded() {
+        sut.add("foo", "bar");
+
+        assertThat(sut.weightedSize(), is(0L));
+    }
+
+    @Test
+    public void bounded_evictsAboveMaximumSize() {
+        final SoftCache<Integer, Integer> bounded = new SoftCache<>(100);
+
+        for (int i = 0; i < 1_000; ++i) {
+            bounded.add(i, i);
+        }
+
+        assertThat(bounded.weightedSize(), is(100L));
+    }
+
+    @Test
+    public void bounded_keepsFrequentlyUsedEntries() {
+        final SoftCache<Integer, Integer> bounded = new SoftCache<>(100);
+        bounded.finder(key -> key);
+
+        for (int round = 0; round < 10; ++round) {
+            for (int i = 0; i < 50; ++i) {
+                bounded.get(i);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        final Finder<Integer, Integer> scan = mock(Finder.class);
+        when(scan.find(anyInt())).thenAnswer(invocation -> invocation.getArgument(0));
+        bounded.finder(scan);
+
+        for (int i = 1_000; i < 2_000; ++i) {
+            bounded.get(i);
+        }
+
+        for (int i = 0; i < 50; ++i) {
+            bounded.get(i);
+        }
+
+        verify(scan, times(1_000)).find(anyInt());
+    }
+
+    @Test
+    public void bounded_weigher() {
+        final SoftCache<String, String> bounded = new SoftCache<>(10, (key, value) -> value.length());
+
+        bounded.add("foo", "12345");
+        bounded.add("bar", "1234");
+        assertThat(bounded.weightedSize(), is(9L));
+
+        bounded.add("bar", "123");
+        assertThat(bounded.weightedSize(), is(8L));
+
+        bounded.add("baz", "12345");
+        assertThat(bounded.weightedSize(), is(lessThanOrEqualTo(10L)));
+    }
+
+    @Test
+    public void bounded_tooHeavyEntryIsEvicted() {
+        final SoftCache<String, String> bounded = new SoftCache<>(3, (key, value) -> value.length());
+        bounded.finder(finder);
+        when(finder.find("foo")).thenReturn("12345");
+
+        assertThat(bounded.get("foo"), is(equalTo("12345")));
+        assertThat(bounded.get("foo"), is(equalTo("12345")));
+        assertThat(bounded.weightedSize(), is(0L));
+        verify(finder, times(2)).find("foo");
+    }
+
+    @Test
+    public void bounded_negativeWeightThrowsException() {
+        final SoftCache<String, String> bounded = new SoftCache<>(3, (key, value) -> -1);
+        thrown.expect(IllegalArgumentException.class);
+
+        bounded.add("foo", "bar");
+    }
+
+    @Test
+    public void bounded_remove() {
+        final SoftCache<String, String> bounded = new SoftCache<>(10);
+        bounded.finder(finder);
+        when(finder.find("foo")).thenReturn("baz");
+        bounded.add("foo", "bar");
+
+        bounded.remove("foo");
+
+        assertThat(bounded.weightedSize(), is(0L));
+        assertThat(bounded.get("foo"), is(equalTo("baz")));
+    }
+
+    private List<Future<String>> getConcurrently(final int threads, final CountDownLatch loading)
+        throws InterruptedException {
+        final List<Future<String>> results = new ArrayList<>();
+        final List<Thread> readers = new ArrayList<>();
+
+        for (int i = 0; i < threads; ++i) {
+            results.add(executor.submit(() -> {
+                synchronized (readers) {
+                    readers.add(Thread.currentThread());
+                }
+                return sut.get("foo");
+            }));
+        }
+
+        assertThat(loading.await(10, TimeUnit.SECONDS), is(true));
+
+        // The loader waits for the release and all others for the load.
+        while (true) {
+            synchronized (readers) {
+                if (readers.size() == threads
+                    && readers.stream().allMatch(reader -> reader.getState() == Thread.State.WAITING)) {
+                    return results;
+                }
+            }
+
+            Thread.sleep(1);
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void get_loadsOncePerKey() throws InterruptedException, ExecutionException {
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        sut.finder(key -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            try {
+                release.await();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return "bar";
+        });
+
+        final List<Future<String>> results = getConcurrently(8, loading);
+        release.countDown();
+
+        for (final Future<String> result : results) {
+            assertThat(result.get(), is(equalTo("bar")));
+        }
+
+        assertThat(loads.get(), is(1));
+    }
+
+    @Test(timeout = 10_000)
+    public void get_failedLoadIsNotCached() throws InterruptedException {
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        sut.finder(key -> {
+            if (loads.incrementAndGet() == 1) {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("Backend down!");
+            }
+            return "bar";
+        });
+
+        final List<Future<String>> results = getConcurrently(4, loading);
+        release.countDown();
+
+        for (final Future<String> result : results) {
+            try {
+                result.get();
+                throw new AssertionError("Expected failed load!");
+            } catch (final ExecutionException ex) {
+                assertThat(ex.getCause(), is(instanceOf(IllegalStateException.class)));
+                assertThat(ex.getCause().getMessage(), is(equalTo("Backend down!")));
+            }
+        }
+
+        assertThat(loads.get(), is(1));
+        assertThat(sut.get("foo"), is(equalTo("bar")));
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test
+    public void size() {
+        assertThat(sut.size(), is(0));
+
+        sut.add("foo", "bar");
+        sut.add("baz", "bar");
+        sut.add("foo", "snafu");
+
+        assertThat(sut.size(), is(2));
+
+        sut.remove("foo");
+        assertThat(sut.size(), is(1));
+    }
+
+    @Test
+    public void size_bounded() {
+        final SoftCache<Integer, Integer> bounded = new SoftCache<>(100);
+
+        for (int i = 0; i < 1_000; ++i) {
+            bounded.add(i, i);
+        }
+
+        assertThat(bounded.size(), is(100));
+    }
+
+    @Test
+    public void size_removesCollectedValues() {
+        for (int i = 0; i < 100; ++i) {
+            sut.add("key" + i, "value" + i);
+        }
+
+        for (int i = 0; i < 40; ++i) {
+            sut.collect("key" + i);
+        }
+
+        assertThat(sut.size(), is(60));
+    }
+
+    @Test
+    public void cleanUp_removesCollectedValues() {
+        sut.add("foo", "bar");
+        sut.add("baz", "bar");
+        sut.collect("foo");
+
+        sut.cleanUp();
+
+        assertThat(sut.size(), is(1));
+    }
+
+    @Test
+    public void get_reloadsCollectedValue() {
+        when(finder.find("foo")).thenReturn("baz");
+        sut.add("foo", "bar");
+        sut.collect("foo");
+
+        assertThat(sut.get("foo"), is(equalTo("baz")));
+        assertThat(sut.size(), is(1));
+        verify(finder).find("foo");
+    }
+
+    @Test
+    public void add_removesCollectedValues() {
+        for (int i = 0; i < 100; ++i) {
+            sut.add("key" + i, "value" + i);
+            sut.collect("key" + i);
+        }
+
+        sut.add("foo", "bar");
+
+        assertThat(sut.size(), is(1));
+    }
+
+    private void advance(final long seconds) {
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    @Test
+    public void expireAfterWrite_zeroDurationThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+
+        sut.expireAfterWrite(0, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void expireAfterAccess_nullUnitThrowsException() {
+        sut.expireAfterAccess(1, null);
+    }
+
+    @Test
+    public void expireAfterWrite() {
+        sut.expireAfterWrite(10, TimeUnit.SECONDS);
+        when(finder.find("foo")).thenReturn("baz");
+        sut.add("foo", "bar");
+
+        advance(9);
+        assertThat(sut.get("foo"), is(equalTo("bar")));
+        verify(finder, never()).find("foo");
+
+        advance(1);
+        assertThat(sut.get("foo"), is(equalTo("baz")));
+        verify(finder).find("foo");
+    }
+
+    @Test
+    public void expireAfterAccess() {
+        sut.expireAfterAccess(10, TimeUnit.SECONDS);
+        when(finder.find("foo")).thenReturn("baz");
+        sut.add("foo", "bar");
+
+        for (int i = 0; i < 5; ++i) {
+            advance(9);
+            assertThat(sut.get("foo"), is(equalTo("bar")));
+        }
+
+        advance(10);
+        assertThat(sut.get("foo"), is(equalTo("baz")));
+        verify(finder).find("foo");
+    }
+
+    @Test
+    public void expireAfterWrite_bounded() {
+        final SoftCache<String, String> bounded = new SoftCache<>(10);
+        bounded.finder(finder);
+        bounded.ticker(ticker::get);
+        bounded.expireAfterWrite(10, TimeUnit.SECONDS);
+        when(finder.find("foo")).thenReturn("baz");
+        bounded.add("foo", "bar");
+
+        advance(10);
+
+        assertThat(bounded.get("foo"), is(equalTo("baz")));
+        assertThat(bounded.weightedSize(), is(1L));
+    }
+
+    @Test
+    public void cleanUp_removesExpiredEntries() {
+        sut.expireAfterWrite(10, TimeUnit.SECONDS);
+        sut.add("foo", "bar");
+        advance(5);
+        sut.add("baz", "bar");
+        advance(5);
+
+        sut.cleanUp();
+
+        assertThat(sut.size(), is(1));
+    }
+
+    @Test
+    public void add_removesExpiredEntriesIncrementally() {
+        sut.expireAfterWrite(10, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 100; ++i) {
+            sut.add("old" + i, "value");
+        }
+
+        advance(10);
+
+        for (int i = 0; i < 100; ++i) {
+            sut.add("new" + i, "value");
+        }
+
+        assertThat(sut.size(), is(100));
+    }
+
+    @Test
+    public void refreshAfterWrite_returnsOldValueAndReloads() {
+        sut.refreshAfterWrite(10, TimeUnit.SECONDS);
+        sut.executor(Runnable::run);
+        when(finder.find("foo")).thenReturn("baz");
+        sut.add("foo", "bar");
+
+        advance(9);
+        assertThat(sut.get("foo"), is(equalTo("bar")));
+        verify(finder, never()).find("foo");
+
+        advance(1);
+        assertThat(sut.get("foo"), is(equalTo("bar")));
+        assertThat(sut.get("foo"), is(equalTo("baz")));
+        verify(finder).find("foo");
+    }
+
+    @Test
+    public void refreshAfterWrite_failedReloadKeepsOldValue() {
+        sut.refreshAfterWrite(10, TimeUnit.SECONDS);
+        sut.executor(Runnable::run);
+        when(finder.find("foo")).thenThrow(new IllegalStateException("Backend down!")).thenReturn("baz");
+        sut.add("foo", "bar");
+        advance(10);
+
+        assertThat(sut.get("foo"), is(equalTo("bar")));
+        assertThat(sut.get("foo"), is(equalTo("bar")));
+        assertThat(sut.get("foo"), is(equalTo("baz")));
+        verify(finder, times(2)).find("foo");
+    }
+
+    @Test(timeout = 10_000)
+    public void refreshAfterWrite_reloadsOnceInBackground() throws InterruptedException {
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch release = new CountDownLatch(1);
+        sut.refreshAfterWrite(10, TimeUnit.SECONDS);
+        sut.executor(executor);
+        sut.finder(key -> {
+            loads.incrementAndGet();
+            try {
+                release.await();
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return "baz";
+        });
+        sut.add("foo", "bar");
+        advance(10);
+
+        for (int i = 0; i < 10; ++i) {
+            assertThat(sut.get("foo"), is(equalTo("bar")));
+        }
+
+        release.countDown();
+
+        while (!"baz".equals(sut.get("foo"))) {
+            Thread.sleep(1);
+        }
+
+        assertThat(loads.get(), is(1));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void bulkFinder_nullThrowsException() {
+        sut.bulkFinder(null);
+    }
+
+    @Test
+    public void getAll_nullKeyThrowsException() {
+        thrown.expect(NullPointerException.class);
+        thrown.expectMessage("Parameter 'keys' must not contain null!");
+
+        sut.getAll(Arrays.asList("foo", null));
+    }
+
+    @Test
+    public void getAll_withoutBulkFinder() {
+        when(finder.find("foo")).thenReturn("1");
+        when(finder.find("bar")).thenReturn("2");
+        sut.add("baz", "3");
+
+        final Map<String, String> values = sut.getAll(Arrays.asList("foo", "baz", "bar", "foo"));
+
+        assertThat(values.keySet(), contains("foo", "baz", "bar"));
+        assertThat(values, allOf(hasEntry("foo", "1"), hasEntry("bar", "2"), hasEntry("baz", "3")));
+        verify(finder).find("foo");
+        verify(finder).find("bar");
+    }
+
+    @Test
+    public void getAll_loadsMissingKeysByOneCall() {
+        @SuppressWarnings("unchecked")
+        final BulkFinder<String, String> bulkFinder = mock(BulkFinder.class);
+        final Map<String, String> found = new HashMap<>();
+        found.put("foo", "1");
+        found.put("bar", "2");
+        when(bulkFinder.findAll(anySet())).thenReturn(found);
+        sut.bulkFinder(bulkFinder);
+        sut.add("baz", "3");
+
+        final Map<String, String> values = sut.getAll(Arrays.asList("foo", "bar", "baz", "snafu"));
+
+        assertThat(values.keySet(), contains("foo", "bar", "baz"));
+        verify(bulkFinder).findAll(new HashSet<>(Arrays.asList("foo", "bar", "snafu")));
+        verify(finder, never()).find(anyString());
+        assertThat(sut.get("foo"), is(equalTo("1")));
+        assertThat(sut.get("bar"), is(equalTo("2")));
+    }
+
+    @Test
+    public void getAll_allCached() {
+        @SuppressWarnings("unchecked")
+        final BulkFinder<String, String> bulkFinder = mock(BulkFinder.class);
+        sut.bulkFinder(bulkFinder);
+        sut.add("foo", "1");
+
+        assertThat(sut.getAll(Collections.singleton("foo")), hasEntry("foo", "1"));
+        verify(bulkFinder, never()).findAll(anySet());
+    }
+
+    @Test
+    public void getAll_failedLoadIsNotCached() {
+        final AtomicInteger loads = new AtomicInteger();
+        sut.bulkFinder(keys -> {
+            if (loads.incrementAndGet() == 1) {
+                throw new IllegalStateException("Backend down!");
+            }
+            return Collections.singletonMap("foo", "1");
+        });
+
+        try {
+            sut.getAll(Collections.singleton("foo"));
+            throw new AssertionError("Expected failed load!");
+        } catch (final IllegalStateException ex) {
+            assertThat(ex.getMessage(), is(equalTo("Backend down!")));
+        }
+
+        assertThat(sut.getAll(Collections.singleton("foo")), hasEntry("foo", "1"));
+        assertThat(loads.get(), is(2));
+    }
+
+    @Test(timeout = 10_000)
+    public void getAll_sharesLoadsInFlight() throws InterruptedException, ExecutionException {
+        final List<Set<String>> loads = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        sut.bulkFinder(keys -> {
+            loads.add(new HashSet<>(keys));
+            if (keys.contains("foo")) {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            final Map<String, String> found = new HashMap<>();
+            keys.forEach(key -> found.put(key, key.toUpperCase()));
+            return found;
+        });
+        final Future<Map<String, String>> first = executor.submit(() -> sut.getAll(Arrays.asList("foo", "bar")));
+        assertThat(loading.await(10, TimeUnit.SECONDS), is(true));
+
+        final Future<Map<String, String>> second = executor.submit(() -> sut.getAll(Arrays.asList("bar", "baz")));
+        // Loads baz, then waits for bar.
+        while (loads.size() < 2) {
+            Thread.sleep(1);
+        }
+
+        release.countDown();
+
+        assertThat(first.get(), allOf(hasEntry("foo", "FOO"), hasEntry("bar", "BAR")));
+        assertThat(second.get(), allOf(hasEntry("bar", "BAR"), hasEntry("baz", "BAZ")));
+        final List<Set<String>> expected = Arrays.asList(
+            new HashSet<>(Arrays.asList("foo", "bar")), Collections.singleton("baz"));
+        assertThat(loads, is(equalTo(expected)));
+    }
+
+    private static final class StringCodec implements Codec<String> {
+
+        private final AtomicInteger decoded = new AtomicInteger();
+
+        @Override
+        public ByteBuffer encode(final String value) {
+            return ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String decode(final ByteBuffer bytes) {
+            decoded.incrementAndGet();
+            return StandardCharsets.UTF_8.decode(bytes).toString();
+        }
+    }
+
+    @Test
+    public void offHeap_tooSmallCapacityThrowsException() {
+        thrown.expect(IllegalArgumentException.class);
+
+        sut.offHeap(1024, new StringCodec());
+    }
+
+    @Test
+    public void offHeap_collectedValueIsReadFromOffHeap() {
+        final StringCodec codec = new StringCodec();
+        sut.offHeap(1 << 20, codec);
+        sut.add("foo", "bar");
+        sut.collect("foo");
+
+        assertThat(sut.get("foo"), is(equalTo("bar")));
+        assertThat(codec.decoded.get(), is(1));
+        verify(finder, never()).find("foo");
+
+        sut.collect("foo");
+
+        assertThat(sut.get("foo"), is(equalTo("bar")));
+        assertThat(codec.decoded.get(), is(2));
+    }
+
+    @Test
+    public void offHeap_evictedValueIsReadFromOffHeap() {
+        final SoftCache<Integer, String> bounded = new SoftCache<>(100);
+        final StringCodec codec = new StringCodec();
+        bounded.offHeap(1 << 20, codec);
+        @SuppressWarnings("unchecked")
+        final Finder<Integer, String> numbers = mock(Finder.class);
+        bounded.finder(numbers);
+
+        for (int i = 0; i < 1_000; ++i) {
+            bounded.add(i, "value" + i);
+        }
+
+        for (int i = 0; i < 1_000; ++i) {
+            assertThat(bounded.get(i), is(equalTo("value" + i)));
+        }
+
+        verify(numbers, never()).find(anyInt());
+        assertThat(codec.decoded.get(), is(greaterThanOrEqualTo(900)));
+        assertThat(bounded.size(), is(100));
+    }
+
+    @Test
+    public void offHeap_valueHeavierThanMaximumIsKeptOffHeap() {
+        final SoftCache<String, String> bounded = new SoftCache<>(10, (key, value) -> value.length());
+        final StringCodec codec = new StringCodec();
+        bounded.offHeap(1 << 20, codec);
+        bounded.finder(finder);
+        final String heavy = "a value heavier than the maximum";
+
+        bounded.add("foo", heavy);
+
+        assertThat(bounded.size(), is(0));
+        assertThat(bounded.get("foo"), is(equalTo(heavy)));
+        // Evicted again right away, but still off-heap.
+        assertThat(bounded.get("foo"), is(equalTo(heavy)));
+        assertThat(codec.decoded.get(), is(2));
+        verify(finder, never()).find(anyString());
+    }
+
+    @Test
+    public void offHeap_getAllReadsFromOffHeap() {
+        sut.offHeap(1 << 20, new StringCodec());
+        sut.add("foo", "1");
+        sut.add("bar", "2");
+        sut.collect("foo");
+        sut.collect("bar");
+
+        assertThat(sut.getAll(Arrays.asList("foo", "bar")), allOf(hasEntry("foo", "1"), hasEntry("bar", "2")));
+        verify(finder, never()).find(anyString());
+    }
+
+    @Test
+    public void offHeap_removeRemovesOffHeapValue() {
+        when(finder.find("foo")).thenReturn("baz");
+        sut.offHeap(1 << 20, new StringCodec());
+        sut.add("foo", "bar");
+
+        sut.remove("foo");
+
+        assertThat(sut.get("foo"), is(equalTo("baz")));
+    }
+
+    @Test
+    public void offHeap_expiredValueIsNotRead() {
+        when(finder.find("foo")).thenReturn("baz");
+        sut.expireAfterWrite(10, TimeUnit.SECONDS);
+        sut.offHeap(1 << 20, new StringCodec());
+        sut.add("foo", "bar");
+        sut.collect("foo");
+
+        advance(10);
+
+        assertThat(sut.get("foo"), is(equalTo("baz")));
+        verify(finder).find("foo");
+    }
+
+    private Path snapshotFile() {
+        return tmp.getRoot().toPath().resolve("cache.snapshot");
+    }
+
+    @Test
+    public void writeSnapshot_withoutFileThrowsException() throws IOException {
+        thrown.expect(IllegalStateException.class);
+        thrown.expectMessage("No snapshot file set!");
+
+        sut.writeSnapshot(10);
+    }
+
+    @Test
+    public void snapshot_restoresEntries() throws IOException {
+        sut.snapshot(snapshotFile(), new StringCodec(), new StringCodec());
+        sut.add("foo", "1");
+        sut.add("bar", "2");
+
+        assertThat(sut.writeSnapshot(10), is(2));
+
+        final SoftCache<String, String> restarted = new SoftCache<>();
+        restarted.finder(finder);
+        restarted.executor(Runnable::run);
+        restarted.snapshot(snapshotFile(), new StringCodec(), new StringCodec());
+
+        assertThat(restarted.readSnapshot().join(), is(2));
+        assertThat(restarted.get("foo"), is(equalTo("1")));
+        assertThat(restarted.get("bar"), is(equalTo("2")));
+        verify(finder, never()).find(anyString());
+    }
+
+    @Test
+    public void snapshot_writesHottestEntries() throws IOException {
+        final SoftCache<String, String> bounded = new SoftCache<>(100);
+        bounded.snapshot(snapshotFile(), new StringCodec(), new StringCodec());
+
+        for (int i = 0; i < 100; ++i) {
+            bounded.add("key" + i, "value" + i);
+        }
+
+        for (int round = 0; round < 5; ++round) {
+            bounded.get("key42");
+            bounded.get("key23");
+        }
+
+        bounded.get("key42");
+
+        assertThat(bounded.writeSnapshot(2), is(2));
+
+        final List<String> restored = new ArrayList<>();
+        new SnapshotFile<>(snapshotFile(), new StringCodec(), new StringCodec())
+            .read((key, value, age) -> restored.add(key));
+
+        assertThat(restored, contains("key42", "key23"));
+    }
+
+    @Test
+    public void snapshot_unboundedWritesEntriesReadLast() throws IOException {
+        sut.snapshot(snapshotFile(), new StringCodec(), new StringCodec());
+        sut.add("foo", "1");
+        sut.add("bar", "2");
+        sut.add("baz", "3");
+        advance(1);
+        sut.get("foo");
+
+        sut.writeSnapshot(2);
+
+        final List<String> restored = new ArrayList<>();
+        new SnapshotFile<>(snapshotFile(), new StringCodec(), new StringCodec())
+            .read((key, value, age) -> restored.add(key));
+
+        assertThat(restored, hasSize(2));
+        assertThat(restored.get(0), is(equalTo("foo")));
+    }
+
+    @Test
+    public void readSnapshot_skipsCachedAndExpiredEntries() throws IOException {
+        sut.snapshot(snapshotFile(), new StringCodec(), new StringCodec());
+        sut.add("foo", "1");
+        advance(5);
+        sut.add("bar", "2");
+        sut.writeSnapshot(10);
+
+        final SoftCache<String, String> restarted = new SoftCache<>();
+        restarted.finder(finder);
+        restarted.ticker(ticker::get);
+        restarted.expireAfterWrite(3, TimeUnit.SECONDS);
+        restarted.executor(Runnable::run);
+        restarted.snapshot(snapshotFile(), new StringCodec(), new StringCodec());
+        restarted.add("bar", "new");
+        when(finder.find("foo")).thenReturn("loaded");
+
+        restarted.readSnapshot().join();
+
+        assertThat(restarted.get("bar"), is(equalTo("new")));
+        assertThat(restarted.get("foo"), is(equalTo("loaded")));
+    }
+
+    @Test(timeout = 30_000)
+    public void readSnapshot_getRacingRestoreOfExpiredEntryLoadsValue() throws Exception {
+        sut.snapshot(snapshotFile(), new StringCodec(), new StringCodec());
+        sut.add("foo", "1");
+        advance(5);
+        sut.writeSnapshot(10);
+
+        final AtomicReference<Thread> restoring = new AtomicReference<>();
+        final CountDownLatch restoreStarted = new CountDownLatch(1);
+        final CountDownLatch restoreResumed = new CountDownLatch(1);
+        final SoftCache<String, String> restarted = new SoftCache<>();
+        restarted.finder(finder);
+        restarted.ticker(() -> {
+            if (Thread.currentThread() == restoring.get()) {
+                // Holds the restore after it claimed the key.
+                restoreStarted.countDown();
+
+                try {
+                    restoreResumed.await();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            return ticker.get();
+        });
+        restarted.expireAfterWrite(3, TimeUnit.SECONDS);
+        restarted.executor(command -> executor.execute(() -> {
+            restoring.set(Thread.currentThread());
+            command.run();
+        }));
+        restarted.snapshot(snapshotFile(), new StringCodec(), new StringCodec());
+        when(finder.find("foo")).thenReturn("loaded");
+
+        final CompletableFuture<Integer> read = restarted.readSnapshot();
+        restoreStarted.await();
+        final Future<String> got = executor.submit(() -> restarted.get("foo"));
+        Thread.sleep(50);
+        restoreResumed.countDown();
+
+        assertThat(got.get(), is(equalTo("loaded")));
+        assertThat(read.join(), is(1));
+        verify(finder, times(1)).find("foo");
+    }
+
+    @Test
+    public void readSnapshot_withoutFileRestoresNothing() {
+        sut.snapshot(snapshotFile(), new StringCodec(), new StringCodec());
+
+        assertThat(sut.readSnapshot().join(), is(0));
+    }
+
+    @Test
+    public void readSnapshot_invalidFileFails() throws IOException {
+        Files.write(snapshotFile(), "no snapshot".getBytes(StandardCharsets.UTF_8));
+        sut.snapshot(snapshotFile(), new StringCodec(), new StringCodec());
+
+        try {
+            sut.readSnapshot().join();
+            throw new AssertionError("Expected failed read!");
+        } catch (final CompletionException ex) {
+            assertThat(ex.getCause(), is(instanceOf(IOException.class)));
+            assertThat(ex.getCause().getMessage(), containsString("is not a cache snapshot!"));
+        }
+    }
+
+    @Test
+    public void readSnapshot_truncatedFileFails() throws IOException {
+        sut.snapshot(snapshotFile(), new StringCodec(), new StringCodec());
+        sut.add("foo", "bar");
+        sut.writeSnapshot(10);
+        final byte[] bytes = Files.readAllBytes(snapshotFile());
+        Files.write(snapshotFile(), Arrays.copyOf(bytes, bytes.length - 1));
+
+        try {
+            sut.readSnapshot().join();
+            throw new AssertionError("Expected failed read!");
+        } catch (final CompletionException ex) {
+            assertThat(ex.getCause().getMessage(), containsString("is truncated!"));
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void writeSnapshot_concurrentWritesDoNotInterfere() throws Exception {
+        sut.snapshot(snapshotFile(), new StringCodec(), new StringCodec());
+
+        for (int i = 0; i < 100; ++i) {
+            sut.add("foo" + i, "bar" + i);
+        }
+
+        final List<Future<Integer>> writes = new ArrayList<>();
+
+        for (int i = 0; i < 20; ++i) {
+            writes.add(executor.submit(() -> sut.writeSnapshot(100)));
+        }
+
+        for (final Future<Integer> write : writes) {
+            assertThat(write.get(), is(100));
+        }
+
+        final List<String> restored = new ArrayList<>();
+        new SnapshotFile<>(snapshotFile(), new StringCodec(), new StringCodec())
+            .read((key, value, age) -> restored.add(key));
+
+        assertThat(restored, hasSize(100));
+
+        try (Stream<Path> files = Files.list(tmp.getRoot().toPath())) {
+            assertThat(files.count(), is(1L));
+        }
+    }
+
+    @Test
+    public void stats_hitsMissesAndLoads() {
+        when(finder.find("foo")).thenAnswer(invocation -> {
+            advance(2);
+            return "bar";
+        });
+        when(finder.find("snafu")).thenThrow(new IllegalStateException("Backend down!"));
+
+        sut.get("foo");
+        sut.get("foo");
+        sut.get("foo");
+
+        try {
+            sut.get("snafu");
+        } catch (final IllegalStateException ex) {
+            // Expected.
+        }
+
+        final CacheStats stats = sut.stats();
+        assertThat(stats.hitCount(), is(2L));
+        assertThat(stats.missCount(), is(2L));
+        assertThat(stats.hitRate(), is(0.5));
+        assertThat(stats.loadSuccessCount(), is(1L));
+        assertThat(stats.loadFailureCount(), is(1L));
+        assertThat(stats.totalLoadTime(), is(TimeUnit.SECONDS.toNanos(2)));
+        assertThat(stats.averageLoadPenalty(), is((double) TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    @Test
+    public void stats_getAllCountsBulkLoadOnce() {
+        sut.bulkFinder(keys -> Collections.singletonMap("foo", "1"));
+        sut.add("bar", "2");
+
+        sut.getAll(Arrays.asList("foo", "bar", "baz"));
+
+        final CacheStats stats = sut.stats();
+        assertThat(stats.hitCount(), is(1L));
+        assertThat(stats.missCount(), is(2L));
+        assertThat(stats.loadSuccessCount(), is(1L));
+    }
+
+    @Test
+    public void stats_evictions() {
+        final SoftCache<Integer, Integer> bounded = new SoftCache<>(10);
+
+        for (int i = 0; i < 15; ++i) {
+            bounded.add(i, i);
+        }
+
+        assertThat(bounded.stats().evictionCount(), is(5L));
+
+        sut.expireAfterWrite(1, TimeUnit.SECONDS);
+        sut.add("foo", "bar");
+        sut.add("baz", "bar");
+        sut.collect("baz");
+        advance(1);
+        sut.cleanUp();
+
+        assertThat(sut.stats().evictionCount(), is(2L));
+    }
+
 }